@@ -0,0 +1,143 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.identity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A multi-instance step of 100 activity instances, each with 1,000 candidates drawn from the same 2,000 users,
+ * checked with the {@link UserExistenceCheck#BATCHED} existence check: one {@code filter()} call per instance
+ * against a single {@code filterBatch()} call. The in-memory identity API answers instantly: the measured gain
+ * excludes the latency of the saved {@code getUsers} calls (200 against 4).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchFilterBenchmark {
+
+    private static final int USERS = 2_000;
+
+    private static final int CANDIDATES_PER_INSTANCE = 1_000;
+
+    @Param({"100"})
+    public int instances;
+
+    private Map<Long, Map<String, Object>> inputsByActivityInstance;
+
+    private BenchmarkFilter filter;
+
+    /**
+     * Filter whose inputs are set directly, overridden by the inputs of the instance being filtered one by one.
+     */
+    private static final class BenchmarkFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+        private Map<String, Object> instanceParameters;
+
+        BenchmarkFilter with(final String name, final Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        @Override
+        public Object getInputParameter(final String parameterName) {
+            if (instanceParameters != null && instanceParameters.containsKey(parameterName)) {
+                return instanceParameters.get(parameterName);
+            }
+            return parameters.get(parameterName);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        System.setProperty("org.slf4j.simpleLogger.logFile", "target/benchmark-filter.log");
+        inputsByActivityInstance = new LinkedHashMap<>();
+        for (int instance = 0; instance < instances; instance++) {
+            final List<Long> userIds = new ArrayList<>(CANDIDATES_PER_INSTANCE);
+            for (int i = 0; i < CANDIDATES_PER_INSTANCE; i++) {
+                userIds.add(1L + (instance * 37L + i) % USERS);
+            }
+            final Map<String, Object> inputs = new HashMap<>();
+            inputs.put(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+            inputsByActivityInstance.put(1_000L + instance, inputs);
+        }
+        filter = new BenchmarkFilter().with(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.BATCHED);
+        filter.setAPIAccessor(apiAccessor(identityAPI()));
+    }
+
+    @Benchmark
+    public int filterEachInstance() throws UserFilterException {
+        int candidates = 0;
+        for (final Map<String, Object> inputs : inputsByActivityInstance.values()) {
+            filter.instanceParameters = inputs;
+            candidates += filter.filter("benchmarkActor").size();
+        }
+        filter.instanceParameters = null;
+        return candidates;
+    }
+
+    @Benchmark
+    public Map<Long, List<Long>> filterBatch() throws UserFilterException {
+        return filter.filterBatch("benchmarkActor", inputsByActivityInstance);
+    }
+
+    /**
+     * @return An identity API whose getUsers() answers with an enabled user per ID.
+     */
+    private static IdentityAPI identityAPI() {
+        return (IdentityAPI) Proxy.newProxyInstance(IdentityAPI.class.getClassLoader(), new Class<?>[]{IdentityAPI.class},
+            (proxy, method, args) -> {
+                if (!"getUsers".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                final Map<Long, User> users = new HashMap<>();
+                for (final Object id : (List<?>) args[0]) {
+                    users.put((Long) id, user((Long) id));
+                }
+                return users;
+            });
+    }
+
+    private static User user(final long id) {
+        return (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{User.class},
+            (proxy, method, args) -> {
+                if ("getId".equals(method.getName())) {
+                    return id;
+                }
+                return "isEnabled".equals(method.getName()) ? Boolean.TRUE : null;
+            });
+    }
+
+    private static APIAccessor apiAccessor(final IdentityAPI identityAPI) {
+        return (APIAccessor) Proxy.newProxyInstance(APIAccessor.class.getClassLoader(), new Class<?>[]{APIAccessor.class},
+            (proxy, method, args) -> {
+                if ("getIdentityAPI".equals(method.getName())) {
+                    return identityAPI;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
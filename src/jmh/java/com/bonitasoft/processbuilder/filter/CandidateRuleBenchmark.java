@@ -0,0 +1,243 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.data.DataInstance;
+import org.bonitasoft.engine.bpm.process.ProcessInstance;
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.connector.EngineExecutionContext;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.identity.User;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.SearchResult;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+
+/**
+ * Candidates of "the members of a group and the manager of the initiator, minus the users of a variable":
+ * {@code validateInputParameters()} then {@code filter()} with the 'candidateRule' input, against the equivalent
+ * Groovy script computing 'usersList', either compiled for every task or compiled once and run with a new binding.
+ * The engine APIs answer instantly: only the cost of the expression itself is measured. The filter also keeps the
+ * initiator of the case in its node cache, where the script asks for it every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CandidateRuleBenchmark {
+
+    private static final long ROOT_PROCESS_INSTANCE_ID = 1001L;
+
+    private static final long INITIATOR = 50_000L;
+
+    private static final long MANAGER = 60_000L;
+
+    private static final int PAGE_SIZE = 10_000;
+
+    private static final String RULE = "(group(1) | managerOf(initiator)) - $excluded";
+
+    private static final String SCRIPT = "import org.bonitasoft.engine.identity.UserSearchDescriptor\n"
+            + "import org.bonitasoft.engine.search.SearchOptionsBuilder\n"
+            + "def members = apiAccessor.identityAPI.searchUsers(new SearchOptionsBuilder(0, " + PAGE_SIZE + ")\n"
+            + "        .filter(UserSearchDescriptor.GROUP_ID, 1L).done()).result.collect { it.id }\n"
+            + "def initiator = apiAccessor.processAPI.getProcessInstance(rootProcessInstanceId).startedBy\n"
+            + "def manager = apiAccessor.identityAPI.getUser(initiator).managerUserId\n"
+            + "(members + [manager]).unique() - excluded\n";
+
+    @Param({"100", "1000"})
+    public int groupSize;
+
+    private APIAccessor apiAccessor;
+
+    private ArrayList<Long> excluded;
+
+    private BenchmarkFilter ruleFilter;
+
+    private BenchmarkFilter usersListFilter;
+
+    private Class<? extends Script> compiledScript;
+
+    /**
+     * Filter whose inputs are set directly, without a connector API context.
+     */
+    private static final class BenchmarkFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        BenchmarkFilter with(final String name, final Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        @Override
+        public Object getInputParameter(final String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        System.setProperty("org.slf4j.simpleLogger.logFile", "target/benchmark-filter.log");
+        excluded = new ArrayList<>();
+        for (long id = 1; id <= groupSize / 10; id++) {
+            excluded.add(id);
+        }
+        apiAccessor = apiAccessor(identityAPI(groupSize), processAPI(excluded));
+        final EngineExecutionContext context = new EngineExecutionContext();
+        context.setProcessDefinitionId(1L);
+        context.setRootProcessInstanceId(ROOT_PROCESS_INSTANCE_ID);
+        context.setProcessInstanceId(ROOT_PROCESS_INSTANCE_ID);
+        ruleFilter = new BenchmarkFilter()
+                .with(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, RULE)
+                .with(MultipleUserIdsActorFilter.SEARCH_PAGE_SIZE_INPUT, PAGE_SIZE);
+        ruleFilter.setAPIAccessor(apiAccessor);
+        ruleFilter.setExecutionContext(context);
+        usersListFilter = new BenchmarkFilter();
+        usersListFilter.setAPIAccessor(apiAccessor);
+        usersListFilter.setExecutionContext(context);
+        compiledScript = new GroovyShell().parse(SCRIPT).getClass();
+    }
+
+    @Benchmark
+    public List<Long> candidateRule() throws ConnectorValidationException, UserFilterException {
+        ruleFilter.validateInputParameters();
+        return ruleFilter.filter("benchmarkActor");
+    }
+
+    @Benchmark
+    public List<Long> groovyScript() throws ConnectorValidationException, UserFilterException {
+        return filterUsersList(new GroovyShell(binding()).evaluate(SCRIPT));
+    }
+
+    @Benchmark
+    public List<Long> precompiledGroovyScript() throws ConnectorValidationException, UserFilterException {
+        return filterUsersList(InvokerHelper.createScript(compiledScript, binding()).run());
+    }
+
+    private List<Long> filterUsersList(final Object usersList) throws ConnectorValidationException, UserFilterException {
+        usersListFilter.with(MultipleUserIdsActorFilter.USERS_LIST_INPUT, usersList);
+        usersListFilter.validateInputParameters();
+        return usersListFilter.filter("benchmarkActor");
+    }
+
+    /**
+     * @return The variables the engine gives to a script: the API accessor, the case and the process variables.
+     */
+    private Binding binding() {
+        final Binding binding = new Binding();
+        binding.setVariable("apiAccessor", apiAccessor);
+        binding.setVariable("rootProcessInstanceId", ROOT_PROCESS_INSTANCE_ID);
+        binding.setVariable("excluded", excluded);
+        return binding;
+    }
+
+    /**
+     * @return An identity API where group 1 holds users 1 to {@code groupSize}, and every user has {@link #MANAGER}
+     *         as manager.
+     */
+    private static IdentityAPI identityAPI(final int groupSize) {
+        final List<User> members = new ArrayList<>(groupSize);
+        for (long id = 1; id <= groupSize; id++) {
+            members.add(user(id));
+        }
+        final SearchResult<?> firstPage = searchResult(members);
+        final SearchResult<?> lastPage = searchResult(List.of());
+        return (IdentityAPI) Proxy.newProxyInstance(IdentityAPI.class.getClassLoader(), new Class<?>[]{IdentityAPI.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "searchUsers":
+                        return ((SearchOptions) args[0]).getStartIndex() == 0 ? firstPage : lastPage;
+                    case "getUser":
+                        return user((Long) args[0]);
+                    case "getUsers":
+                        final Map<Long, User> users = new HashMap<>();
+                        for (final Object id : (List<?>) args[0]) {
+                            users.put((Long) id, user((Long) id));
+                        }
+                        return users;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    /**
+     * @return A process API where the case was started by {@link #INITIATOR}, and every variable holds {@code excluded}.
+     */
+    private static ProcessAPI processAPI(final ArrayList<Long> excluded) {
+        final ProcessInstance processInstance = (ProcessInstance) Proxy.newProxyInstance(ProcessInstance.class.getClassLoader(),
+                new Class<?>[]{ProcessInstance.class}, (proxy, method, args) -> "getStartedBy".equals(method.getName()) ? INITIATOR : null);
+        final DataInstance variable = (DataInstance) Proxy.newProxyInstance(DataInstance.class.getClassLoader(),
+                new Class<?>[]{DataInstance.class}, (proxy, method, args) -> "getValue".equals(method.getName()) ? excluded : null);
+        return (ProcessAPI) Proxy.newProxyInstance(ProcessAPI.class.getClassLoader(), new Class<?>[]{ProcessAPI.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getProcessInstance":
+                        return processInstance;
+                    case "getProcessDataInstance":
+                        return variable;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private static SearchResult<?> searchResult(final List<User> users) {
+        return (SearchResult<?>) Proxy.newProxyInstance(SearchResult.class.getClassLoader(), new Class<?>[]{SearchResult.class},
+            (proxy, method, args) -> "getResult".equals(method.getName()) ? users : null);
+    }
+
+    private static User user(final long id) {
+        return (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{User.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getId":
+                        return id;
+                    case "getManagerUserId":
+                        return MANAGER;
+                    case "isEnabled":
+                        return Boolean.TRUE;
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private static APIAccessor apiAccessor(final IdentityAPI identityAPI, final ProcessAPI processAPI) {
+        return (APIAccessor) Proxy.newProxyInstance(APIAccessor.class.getClassLoader(), new Class<?>[]{APIAccessor.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getIdentityAPI":
+                        return identityAPI;
+                    case "getProcessAPI":
+                        return processAPI;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
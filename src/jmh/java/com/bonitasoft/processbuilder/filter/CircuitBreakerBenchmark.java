@@ -0,0 +1,135 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.identity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time of {@code filter()} for 1,000 'usersList' IDs with the {@link UserExistenceCheck#BATCHED} existence check,
+ * against a degraded identity API answering each call in {@code latencyMillis}: every call waits for the lookups
+ * without 'lookupBudgetMillis', while with a 10 ms budget the {@link LookupCircuitBreaker} opens after 5 slow calls
+ * and the next ones skip the existence check, but for a probe every 30 seconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircuitBreakerBenchmark {
+
+    private static final int USERS = 1_000;
+
+    private static final int BUDGET_MILLIS = 10;
+
+    @Param({"50"})
+    public int latencyMillis;
+
+    @Param({"false", "true"})
+    public boolean budget;
+
+    private BenchmarkFilter filter;
+
+    /**
+     * Filter whose inputs are set directly, without a connector API context.
+     */
+    private static final class BenchmarkFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        BenchmarkFilter with(final String name, final Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        @Override
+        public Object getInputParameter(final String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        System.setProperty("org.slf4j.simpleLogger.logFile", "target/benchmark-filter.log");
+        LookupCircuitBreaker.getInstance().reset();
+        final List<Long> userIds = new ArrayList<>(USERS);
+        for (long id = 1; id <= USERS; id++) {
+            userIds.add(id);
+        }
+        filter = new BenchmarkFilter()
+                .with(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds)
+                .with(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.BATCHED)
+                .with(MultipleUserIdsActorFilter.LOOKUP_BATCH_SIZE_INPUT, USERS)
+                .with(MultipleUserIdsActorFilter.LOOKUP_BUDGET_MILLIS_INPUT, budget ? BUDGET_MILLIS : null);
+        filter.setAPIAccessor(apiAccessor(identityAPI(latencyMillis)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        LookupCircuitBreaker.getInstance().reset();
+    }
+
+    @Benchmark
+    public List<Long> filter() throws UserFilterException {
+        return filter.filter("benchmarkActor");
+    }
+
+    /**
+     * @return An identity API answering after {@code latencyMillis}, every user being enabled.
+     */
+    private static IdentityAPI identityAPI(final int latencyMillis) {
+        return (IdentityAPI) Proxy.newProxyInstance(IdentityAPI.class.getClassLoader(), new Class<?>[]{IdentityAPI.class},
+            (proxy, method, args) -> {
+                Thread.sleep(latencyMillis);
+                if ("getUsers".equals(method.getName())) {
+                    final Map<Long, User> users = new HashMap<>();
+                    for (final Object id : (List<?>) args[0]) {
+                        users.put((Long) id, user((Long) id));
+                    }
+                    return users;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static User user(final long id) {
+        return (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{User.class},
+            (proxy, method, args) -> {
+                if ("getId".equals(method.getName())) {
+                    return id;
+                }
+                return "isEnabled".equals(method.getName()) ? Boolean.TRUE : null;
+            });
+    }
+
+    private static APIAccessor apiAccessor(final IdentityAPI identityAPI) {
+        return (APIAccessor) Proxy.newProxyInstance(APIAccessor.class.getClassLoader(), new Class<?>[]{APIAccessor.class},
+            (proxy, method, args) -> {
+                if ("getIdentityAPI".equals(method.getName())) {
+                    return identityAPI;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
@@ -0,0 +1,60 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the primitive deduplication of {@link CandidateIds} with {@code new LinkedHashSet<>(list)}.
+ * The generated lists draw their IDs uniformly from a pool of 55% of their size, like the concatenated business data
+ * queries they model: about 54% of their elements are duplicates (53.8% to 54.6% depending on the size).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeduplicationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private List<Long> userIds;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom random = new SplittableRandom(42);
+        final int distinct = (int) (size * 0.55);
+        userIds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            userIds.add(1L + random.nextInt(Math.max(distinct, 1)));
+        }
+    }
+
+    @Benchmark
+    public List<Long> primitiveOpenAddressing() {
+        final CandidateIds candidates = CandidateIds.copyOf(userIds);
+        candidates.deduplicate();
+        return candidates.asList();
+    }
+
+    @Benchmark
+    public List<Long> linkedHashSet() {
+        return new ArrayList<>(new LinkedHashSet<>(userIds));
+    }
+}
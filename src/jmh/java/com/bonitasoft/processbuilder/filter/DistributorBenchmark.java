@@ -0,0 +1,81 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Takes round-robin turns on the same actor from 64 threads, as parallel work executor threads do when many
+ * instances of a step are created at once. The striped {@link CandidateDistributor} is compared with one shared
+ * {@code AtomicLong} per actor and with a {@code synchronized} counter per actor, both looked up the same way;
+ * the thread count can be changed with {@code -t}. Contention only shows on a machine with many cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class DistributorBenchmark {
+
+    private static final String ACTOR_KEY = "1:approver";
+
+    @Param({"5", "1000"})
+    public int candidateCount;
+
+    private CandidateDistributor distributor;
+
+    private int[] weights;
+
+    private final ConcurrentMap<String, AtomicLong> atomicCounters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, long[]> lockedCounters = new ConcurrentHashMap<>();
+
+    @Setup
+    public void setUp() {
+        distributor = new CandidateDistributor(CandidateDistributor.DEFAULT_MAX_ROTATIONS);
+        weights = new int[candidateCount];
+        for (int i = 0; i < candidateCount; i++) {
+            weights[i] = 1 + i % 3;
+        }
+    }
+
+    @Benchmark
+    public int striped() {
+        return distributor.nextIndex(ACTOR_KEY, candidateCount);
+    }
+
+    @Benchmark
+    public int stripedWeighted() {
+        return distributor.nextWeightedIndex(ACTOR_KEY, weights);
+    }
+
+    @Benchmark
+    public int sharedAtomicLong() {
+        final AtomicLong counter = atomicCounters.computeIfAbsent(ACTOR_KEY, k -> new AtomicLong());
+        return (int) Math.floorMod(counter.getAndIncrement(), (long) candidateCount);
+    }
+
+    @Benchmark
+    public int synchronizedCounter() {
+        final long[] counter = lockedCounters.computeIfAbsent(ACTOR_KEY, k -> new long[1]);
+        synchronized (counter) {
+            return (int) Math.floorMod(counter[0]++, (long) candidateCount);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validates then filters the same user IDs given as a {@code List<Long>}, a {@code long[]}, a comma-separated
+ * String and a packed String, with and without deduplication. A new filter is created per call, as the engine
+ * does, so that decoding is measured every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodedInputBenchmark {
+
+    /**
+     * The forms of the 'usersList' input.
+     */
+    public enum Encoding {
+        LIST,
+        LONG_ARRAY,
+        DELIMITED,
+        PACKED
+    }
+
+    @Param({"1000", "50000"})
+    public int size;
+
+    @Param({"LIST", "LONG_ARRAY", "DELIMITED", "PACKED"})
+    public Encoding encoding;
+
+    @Param({"false", "true"})
+    public boolean deduplicate;
+
+    private Object usersList;
+
+    /**
+     * Filter whose inputs are set directly, without a connector API context.
+     */
+    private static final class BenchmarkFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        BenchmarkFilter with(final String name, final Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        @Override
+        public Object getInputParameter(final String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        // Sequential IDs with a few holes, as returned by an organization query
+        final long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = 10_000L + i + i / 7;
+        }
+        final List<Long> list = new ArrayList<>(size);
+        for (final long id : ids) {
+            list.add(id);
+        }
+        switch (encoding) {
+            case LONG_ARRAY:
+                usersList = ids;
+                break;
+            case DELIMITED:
+                usersList = list.toString();
+                break;
+            case PACKED:
+                usersList = UserIdsCodec.pack(ids);
+                break;
+            case LIST:
+            default:
+                usersList = list;
+                break;
+        }
+    }
+
+    @Benchmark
+    public List<Long> validateAndFilter() throws ConnectorValidationException, UserFilterException {
+        final BenchmarkFilter filter = new BenchmarkFilter()
+                .with(MultipleUserIdsActorFilter.USERS_LIST_INPUT, usersList)
+                .with(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, deduplicate);
+        filter.validateInputParameters();
+        return filter.filter("benchmarkActor");
+    }
+}
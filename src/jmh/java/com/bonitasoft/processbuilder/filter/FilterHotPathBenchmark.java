@@ -0,0 +1,133 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the two calls the engine makes on every task instantiation: {@code validateInputParameters()}
+ * and {@code filter()}, across list sizes, list implementations and log levels.
+ *
+ * The log level is applied to the slf4j-simple binding of the benchmark classpath when the trial starts,
+ * so it only takes effect in forked runs (the default), each trial getting a fresh JVM.
+ * Log output goes to {@code target/benchmark-filter.log}.
+ *
+ * Each call gets a new filter, like the engine does for each task, so that the normalization of a
+ * {@code LinkedList} input is measured every time rather than served from the copy of the previous call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterHotPathBenchmark {
+
+    /**
+     * The list implementations a Groovy script or a business data query may hand over.
+     */
+    public enum ListType {
+        ARRAY_LIST,
+        LINKED_LIST,
+        LIST_OF,
+        UNMODIFIABLE
+    }
+
+    @Param({"1", "100", "10000", "1000000"})
+    public int size;
+
+    @Param({"ARRAY_LIST", "LINKED_LIST", "LIST_OF", "UNMODIFIABLE"})
+    public ListType listType;
+
+    @Param({"warn", "info", "debug"})
+    public String logLevel;
+
+    @Param({"FIRST_ELEMENT", "FULL"})
+    public ValidationMode validationMode;
+
+    private List<Long> userIds;
+
+    /**
+     * Filter whose inputs are set directly, without a connector API context.
+     */
+    private static final class BenchmarkFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        BenchmarkFilter with(final String name, final Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        @Override
+        public Object getInputParameter(final String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Must run before the first logger is created, i.e. before the filter class is initialized
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", logLevel);
+        System.setProperty("org.slf4j.simpleLogger.logFile", "target/benchmark-filter.log");
+
+        userIds = createList(listType, size);
+    }
+
+    private BenchmarkFilter newFilter() {
+        return new BenchmarkFilter()
+                .with(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds)
+                .with(MultipleUserIdsActorFilter.VALIDATION_MODE_INPUT, validationMode.name());
+    }
+
+    private static List<Long> createList(final ListType type, final int size) {
+        final List<Long> userIds = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            userIds.add(id);
+        }
+        switch (type) {
+            case LINKED_LIST:
+                return new LinkedList<>(userIds);
+            case LIST_OF:
+                return List.copyOf(userIds);
+            case UNMODIFIABLE:
+                return Collections.unmodifiableList(userIds);
+            case ARRAY_LIST:
+            default:
+                return userIds;
+        }
+    }
+
+    @Benchmark
+    public void validateInputParameters() throws ConnectorValidationException {
+        newFilter().validateInputParameters();
+    }
+
+    @Benchmark
+    public List<Long> filter() throws UserFilterException {
+        return newFilter().filter("benchmarkActor");
+    }
+
+    @Benchmark
+    public List<Long> filterDeduplicate() throws UserFilterException {
+        return newFilter().with(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, Boolean.TRUE).filter("benchmarkActor");
+    }
+}
@@ -0,0 +1,65 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validates then filters (with deduplication) a {@code LinkedList} input, as produced by some Groovy scripts.
+ * The time per element must stay flat from 1k to 100k elements: the list is copied once into an array-backed
+ * list instead of being walked by {@code get(i)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkedListInputBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private LinkedList<Long> userIds;
+
+    @Setup
+    public void setUp() {
+        userIds = new LinkedList<>();
+        for (long id = 1; id <= size; id++) {
+            userIds.add(id);
+        }
+    }
+
+    @Benchmark
+    public List<Long> validateAndFilter() throws ConnectorValidationException, UserFilterException {
+        // A new filter per call, like the engine does for each task
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        parameters.put(MultipleUserIdsActorFilter.VALIDATION_MODE_INPUT, ValidationMode.FULL);
+        parameters.put(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, Boolean.TRUE);
+        final MultipleUserIdsActorFilter filter = new MultipleUserIdsActorFilter() {
+            @Override
+            public Object getInputParameter(final String parameterName) {
+                return parameters.get(parameterName);
+            }
+        };
+        filter.validateInputParameters();
+        return filter.filter("benchmarkActor");
+    }
+}
@@ -0,0 +1,132 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.connector.EngineExecutionContext;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.identity.User;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Repeated executions of the same case, as in a multi-instance step: 'usersList' IDs with duplicates merged with
+ * the 1,000 members of a role, with and without 'memoizeCandidates'. The in-memory identity API answers instantly:
+ * the measured gain excludes the latency of the engine calls saved by the memo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoizationBenchmark {
+
+    private static final int ROLE_MEMBERS = 1_000;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean memoize;
+
+    private BenchmarkFilter filter;
+
+    /**
+     * Filter whose inputs are set directly, without a connector API context.
+     */
+    private static final class BenchmarkFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        BenchmarkFilter with(final String name, final Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        @Override
+        public Object getInputParameter(final String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        System.setProperty("org.slf4j.simpleLogger.logFile", "target/benchmark-filter.log");
+        // Each ID listed twice
+        final List<Long> userIds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            userIds.add(10_000L + i / 2);
+        }
+        filter = new BenchmarkFilter()
+                .with(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds)
+                .with(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, List.of(1L))
+                .with(MultipleUserIdsActorFilter.MEMOIZE_CANDIDATES_INPUT, memoize);
+        filter.setAPIAccessor(apiAccessor(identityAPI()));
+        final EngineExecutionContext context = new EngineExecutionContext();
+        context.setRootProcessInstanceId(42L);
+        filter.setExecutionContext(context);
+        CandidateMemo.clear();
+    }
+
+    @Benchmark
+    public List<Long> filter() throws UserFilterException {
+        return filter.filter("benchmarkActor");
+    }
+
+    /**
+     * @return An identity API whose searchUsers() pages through {@link #ROLE_MEMBERS} users.
+     */
+    private static IdentityAPI identityAPI() {
+        return (IdentityAPI) Proxy.newProxyInstance(IdentityAPI.class.getClassLoader(), new Class<?>[]{IdentityAPI.class},
+            (proxy, method, args) -> {
+                if (!"searchUsers".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                final SearchOptions options = (SearchOptions) args[0];
+                final List<User> page = new ArrayList<>();
+                for (int i = options.getStartIndex(); i < Math.min(ROLE_MEMBERS, options.getStartIndex() + options.getMaxResults()); i++) {
+                    page.add(user(1L + i));
+                }
+                return searchResult(page);
+            });
+    }
+
+    private static User user(final long id) {
+        return (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{User.class},
+            (proxy, method, args) -> "getId".equals(method.getName()) ? id : null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SearchResult<User> searchResult(final List<User> page) {
+        return (SearchResult<User>) Proxy.newProxyInstance(SearchResult.class.getClassLoader(), new Class<?>[]{SearchResult.class},
+            (proxy, method, args) -> "getResult".equals(method.getName()) ? page : (Object) (long) page.size());
+    }
+
+    private static APIAccessor apiAccessor(final IdentityAPI identityAPI) {
+        return (APIAccessor) Proxy.newProxyInstance(APIAccessor.class.getClassLoader(), new Class<?>[]{APIAccessor.class},
+            (proxy, method, args) -> {
+                if ("getIdentityAPI".equals(method.getName())) {
+                    return identityAPI;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
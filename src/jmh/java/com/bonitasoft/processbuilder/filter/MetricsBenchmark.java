@@ -0,0 +1,68 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of the metrics on the cheapest {@code filter()} call (a single ID returned as-is):
+ * {@link FilterMetrics#NOOP} must stay within a few nanoseconds of no metrics at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    @Param({"NOOP", "IN_MEMORY"})
+    public String metrics;
+
+    private BenchmarkFilter filter;
+
+    /**
+     * Filter whose inputs are set directly, without a connector API context.
+     */
+    private static final class BenchmarkFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        BenchmarkFilter with(final String name, final Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        @Override
+        public Object getInputParameter(final String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        // Must run before the first logger is created: the INFO line of each call would dwarf the metrics
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        System.setProperty("org.slf4j.simpleLogger.logFile", "target/benchmark-filter.log");
+        FilterMetricsRegistry.register("IN_MEMORY".equals(metrics) ? new InMemoryFilterMetrics() : FilterMetrics.NOOP);
+        filter = new BenchmarkFilter().with(MultipleUserIdsActorFilter.USERS_LIST_INPUT, List.of(1L));
+    }
+
+    @Benchmark
+    public List<Long> filter() throws UserFilterException {
+        return filter.filter("benchmarkActor");
+    }
+}
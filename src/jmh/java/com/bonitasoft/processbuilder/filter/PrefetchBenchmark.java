@@ -0,0 +1,139 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.identity.User;
+import org.bonitasoft.engine.search.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wall time of {@code validateInputParameters()} then {@code filter()} for 1,000 'usersList' IDs and 4 roles,
+ * with the {@link UserExistenceCheck#BATCHED} existence check, against an identity API answering each call in
+ * {@code latencyMillis}: 7 calls one after the other on the work thread, or concurrently with 'prefetchLookups'.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefetchBenchmark {
+
+    private static final int USERS = 1_000;
+
+    private static final long ROLES = 4;
+
+    @Param({"5"})
+    public int latencyMillis;
+
+    @Param({"false", "true"})
+    public boolean prefetch;
+
+    private BenchmarkFilter filter;
+
+    /**
+     * Filter whose inputs are set directly, without a connector API context.
+     */
+    private static final class BenchmarkFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        BenchmarkFilter with(final String name, final Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        @Override
+        public Object getInputParameter(final String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        System.setProperty("org.slf4j.simpleLogger.logFile", "target/benchmark-filter.log");
+        final List<Long> userIds = new ArrayList<>(USERS);
+        final List<Long> roleIds = new ArrayList<>();
+        for (long id = 1; id <= USERS; id++) {
+            userIds.add(id);
+        }
+        for (long roleId = 1; roleId <= ROLES; roleId++) {
+            roleIds.add(roleId);
+        }
+        filter = new BenchmarkFilter()
+                .with(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds)
+                .with(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, roleIds)
+                .with(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.BATCHED)
+                .with(MultipleUserIdsActorFilter.PREFETCH_LOOKUPS_INPUT, prefetch);
+        filter.setAPIAccessor(apiAccessor(identityAPI(latencyMillis)));
+    }
+
+    @Benchmark
+    public List<Long> validateAndFilter() throws ConnectorValidationException, UserFilterException {
+        filter.validateInputParameters();
+        return filter.filter("benchmarkActor");
+    }
+
+    /**
+     * @return An identity API answering after {@code latencyMillis}: a role has a single member, and every user is enabled.
+     */
+    private static IdentityAPI identityAPI(final int latencyMillis) {
+        final User member = user(USERS + 1L);
+        final SearchResult<?> members = (SearchResult<?>) Proxy.newProxyInstance(SearchResult.class.getClassLoader(),
+                new Class<?>[]{SearchResult.class}, (proxy, method, args) -> "getResult".equals(method.getName()) ? List.of(member) : null);
+        return (IdentityAPI) Proxy.newProxyInstance(IdentityAPI.class.getClassLoader(), new Class<?>[]{IdentityAPI.class},
+            (proxy, method, args) -> {
+                Thread.sleep(latencyMillis);
+                if ("searchUsers".equals(method.getName())) {
+                    return members;
+                }
+                if ("getUsers".equals(method.getName())) {
+                    final Map<Long, User> users = new HashMap<>();
+                    for (final Object id : (List<?>) args[0]) {
+                        users.put((Long) id, user((Long) id));
+                    }
+                    return users;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static User user(final long id) {
+        return (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{User.class},
+            (proxy, method, args) -> {
+                if ("getId".equals(method.getName())) {
+                    return id;
+                }
+                return "isEnabled".equals(method.getName()) ? Boolean.TRUE : null;
+            });
+    }
+
+    private static APIAccessor apiAccessor(final IdentityAPI identityAPI) {
+        return (APIAccessor) Proxy.newProxyInstance(APIAccessor.class.getClassLoader(), new Class<?>[]{APIAccessor.class},
+            (proxy, method, args) -> {
+                if ("getIdentityAPI".equals(method.getName())) {
+                    return identityAPI;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
@@ -0,0 +1,82 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorts shuffled user IDs for {@link OutputOrder#ASCENDING}: {@link LongRadixSort} against {@code Arrays.sort}
+ * on the same {@code long[]}, and against {@code Collections.sort} on a boxed {@code List<Long>}.
+ * Each call sorts a fresh copy of the shuffled IDs; the copy is part of the measure for the three variants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private long[] shuffledIds;
+
+    private List<Long> shuffledList;
+
+    @Setup
+    public void setUp() {
+        // Sequential IDs from a realistic offset, shuffled
+        shuffledIds = new long[size];
+        for (int i = 0; i < size; i++) {
+            shuffledIds[i] = 20_000L + i;
+        }
+        final SplittableRandom random = new SplittableRandom(5);
+        for (int i = size - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final long id = shuffledIds[i];
+            shuffledIds[i] = shuffledIds[j];
+            shuffledIds[j] = id;
+        }
+        shuffledList = new ArrayList<>(size);
+        for (final long id : shuffledIds) {
+            shuffledList.add(id);
+        }
+    }
+
+    @Benchmark
+    public long[] radixSort() {
+        final long[] ids = shuffledIds.clone();
+        LongRadixSort.sort(ids, 0, ids.length);
+        return ids;
+    }
+
+    @Benchmark
+    public long[] arraysSort() {
+        final long[] ids = shuffledIds.clone();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    @Benchmark
+    public List<Long> collectionsSortBoxed() {
+        final List<Long> ids = new ArrayList<>(shuffledList);
+        Collections.sort(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,77 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filters with the {@code STICKY} selection: the time per candidate must stay flat as the list grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StickySelectionBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"1", "5"})
+    public int selectionSize;
+
+    private BenchmarkFilter filter;
+
+    private long stickyKey;
+
+    /**
+     * Filter whose inputs are set directly, without a connector API context.
+     */
+    private static final class BenchmarkFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        BenchmarkFilter with(final String name, final Object value) {
+            parameters.put(name, value);
+            return this;
+        }
+
+        @Override
+        public Object getInputParameter(final String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        final List<Long> userIds = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            userIds.add(id);
+        }
+        filter = new BenchmarkFilter()
+                .with(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds)
+                .with(MultipleUserIdsActorFilter.SELECTION_MODE_INPUT, SelectionMode.STICKY.name())
+                .with(MultipleUserIdsActorFilter.SELECTION_SIZE_INPUT, selectionSize);
+    }
+
+    @Benchmark
+    public List<Long> filter() throws UserFilterException {
+        filter.with(MultipleUserIdsActorFilter.STICKY_KEY_INPUT, ++stickyKey);
+        return filter.filter("benchmarkActor");
+    }
+}
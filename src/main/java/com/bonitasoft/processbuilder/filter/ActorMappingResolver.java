@@ -0,0 +1,94 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.List;
+
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.actor.ActorCriterion;
+import org.bonitasoft.engine.bpm.actor.ActorInstance;
+import org.bonitasoft.engine.bpm.actor.ActorMember;
+import org.bonitasoft.engine.exception.SearchException;
+
+/**
+ * Resolves the users mapped to an actor of a process definition: users, and members of the mapped groups,
+ * roles and memberships, as the engine does for a task without filter.
+ */
+final class ActorMappingResolver {
+
+    private final ProcessAPI processAPI;
+    private final IdentityCandidateResolver identityResolver;
+
+    /**
+     * @param processAPI The process API of the engine, to read the actor mapping.
+     * @param identityResolver Used to expand the mapped groups, roles and memberships.
+     */
+    ActorMappingResolver(final ProcessAPI processAPI, final IdentityCandidateResolver identityResolver) {
+        this.processAPI = processAPI;
+        this.identityResolver = identityResolver;
+    }
+
+    /**
+     * Appends the users mapped to an actor.
+     *
+     * @param candidates The candidates to append to.
+     * @param processDefinitionId The ID of the process definition.
+     * @param actorName The name of the actor.
+     * @param pageSize The number of actors, actor members and users fetched per call.
+     * @return The number of appended IDs, {@code 0} if the actor does not exist.
+     * @throws SearchException if a search call fails.
+     */
+    int addActorMembers(final CandidateIds candidates, final long processDefinitionId, final String actorName,
+            final int pageSize) throws SearchException {
+        final long actorId = findActorId(processDefinitionId, actorName, pageSize);
+        if (actorId < 0) {
+            return 0;
+        }
+        int added = 0;
+        List<ActorMember> members;
+        int startIndex = 0;
+        do {
+            members = processAPI.getActorMembers(actorId, startIndex, pageSize);
+            for (final ActorMember member : members) {
+                added += addMember(candidates, member, pageSize);
+            }
+            startIndex += members.size();
+        } while (members.size() == pageSize);
+        return added;
+    }
+
+    private int addMember(final CandidateIds candidates, final ActorMember member, final int pageSize) throws SearchException {
+        final long groupId = member.getGroupId();
+        final long roleId = member.getRoleId();
+        if (groupId > 0 && roleId > 0) {
+            return identityResolver.addMembershipMembers(candidates, groupId, roleId, pageSize);
+        }
+        if (groupId > 0) {
+            return identityResolver.addGroupMembers(candidates, groupId, pageSize);
+        }
+        if (roleId > 0) {
+            return identityResolver.addRoleMembers(candidates, roleId, pageSize);
+        }
+        if (member.getUserId() > 0) {
+            candidates.add(member.getUserId());
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * @return The ID of the actor, or {@code -1} if the process definition has no actor with this name.
+     */
+    private long findActorId(final long processDefinitionId, final String actorName, final int pageSize) {
+        List<ActorInstance> actors;
+        int startIndex = 0;
+        do {
+            actors = processAPI.getActors(processDefinitionId, startIndex, pageSize, ActorCriterion.NAME_ASC);
+            for (final ActorInstance actor : actors) {
+                if (actor.getName().equals(actorName)) {
+                    return actor.getId();
+                }
+            }
+            startIndex += actors.size();
+        } while (actors.size() == pageSize);
+        return -1;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * Whether the engine assigns the task directly when {@link MultipleUserIdsActorFilter} returns a single candidate,
+ * skipping the claim round-trip and the pending mapping.
+ */
+public enum AutoAssign {
+
+    /**
+     * The task is never assigned by the filter: candidates always have to claim it.
+     */
+    NEVER,
+
+    /**
+     * The task is assigned when a single candidate is returned (default, the engine behaviour).
+     */
+    IF_SINGLE,
+
+    /**
+     * A single candidate is picked in turn among the filtered ones, per actor, and the task is assigned to them.
+     */
+    ROUND_ROBIN_SINGLE
+}
@@ -0,0 +1,276 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Node-local rotations handing out candidates in turn, one rotation per actor
+ * (process definition ID and actor name), shared by every execution of {@link MultipleUserIdsActorFilter} on this JVM.
+ *
+ * Taking a turn never blocks: a rotation starts with a single counter advanced by compare-and-set, which keeps
+ * the exact order of the candidates. The first time two threads collide on it, the rotation switches to padded
+ * stripes, one per group of threads, each going round the candidates from its own offset. The order is then only
+ * fair per stripe, but work executor threads stop contending on the same cache line.
+ *
+ * The least recently used rotations are evicted once more than {@code maxRotations} actors are tracked.
+ */
+final class CandidateDistributor {
+
+    /**
+     * A logger for this class, used to record log messages and provide debugging information.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CandidateDistributor.class);
+
+    /**
+     * Default maximum number of tracked rotations.
+     */
+    static final int DEFAULT_MAX_ROTATIONS = 10_000;
+
+    /**
+     * Maximum number of stripes of a contended rotation.
+     */
+    static final int MAX_STRIPES = 64;
+
+    /**
+     * Distance between two stripes in the counter array: 16 longs (128 bytes) so that two stripes never share a cache line.
+     */
+    private static final int PADDING = 16;
+
+    /**
+     * Fibonacci hashing multiplier (2^64 / golden ratio).
+     */
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Distance between the starting turns of two stripes: a large odd number, spreading the stripes
+     * over the candidates whatever their count.
+     */
+    private static final long STRIPE_OFFSET = 0x9E3779B9L;
+
+    private static final CandidateDistributor INSTANCE = new CandidateDistributor(DEFAULT_MAX_ROTATIONS);
+
+    private final ConcurrentMap<String, Rotation> rotations = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong();
+    private final int maxRotations;
+    private final int stripeCount;
+
+    /**
+     * Turn counter of one actor.
+     */
+    private static final class Rotation {
+        private final AtomicLong counter = new AtomicLong();
+        private final int stripeCount;
+        private volatile AtomicLongArray stripes;
+        private volatile long lastAccessGeneration;
+
+        Rotation(final int stripeCount, final long generation) {
+            this.stripeCount = stripeCount;
+            this.lastAccessGeneration = generation;
+        }
+
+        /**
+         * @return The next turn, to be reduced modulo the number of candidates.
+         */
+        long nextTurn() {
+            final AtomicLongArray striped = stripes;
+            if (striped == null) {
+                final long turn = counter.get();
+                if (counter.compareAndSet(turn, turn + 1)) {
+                    return turn;
+                }
+                return nextStripedTurn(contended());
+            }
+            return nextStripedTurn(striped);
+        }
+
+        private AtomicLongArray contended() {
+            AtomicLongArray striped = stripes;
+            if (striped == null) {
+                synchronized (this) {
+                    striped = stripes;
+                    if (striped == null) {
+                        // Every stripe resumes from the current turn
+                        final long turn = counter.get();
+                        striped = new AtomicLongArray(stripeCount * PADDING);
+                        for (int stripe = 0; stripe < stripeCount; stripe++) {
+                            striped.set(stripe * PADDING, turn);
+                        }
+                        stripes = striped;
+                    }
+                }
+            }
+            return striped;
+        }
+
+        /**
+         * Each stripe goes round every candidate in order, from its own offset, so that threads on different
+         * stripes pick different candidates.
+         */
+        private long nextStripedTurn(final AtomicLongArray striped) {
+            final int stripe = (int) ((Thread.currentThread().getId() * GOLDEN_RATIO) >>> 32) & (stripeCount - 1);
+            return striped.getAndIncrement(stripe * PADDING) + stripe * STRIPE_OFFSET;
+        }
+    }
+
+    /**
+     * @param maxRotations The number of rotations above which the least recently used ones are evicted.
+     */
+    CandidateDistributor(final int maxRotations) {
+        // Package-private for tests, use getInstance() otherwise
+        this.maxRotations = maxRotations;
+        this.stripeCount = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1);
+    }
+
+    /**
+     * @return The distributor shared by every filter execution on this node.
+     */
+    static CandidateDistributor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param key Identifies the actor, e.g. process definition ID and actor name.
+     * @param candidateCount The number of candidates to choose from, strictly positive.
+     * @return The position of the next candidate for this actor, between {@code 0} and {@code candidateCount - 1}.
+     */
+    int nextIndex(final String key, final int candidateCount) {
+        return (int) Math.floorMod(rotation(key).nextTurn(), (long) candidateCount);
+    }
+
+    /**
+     * Picks the next candidate so that, over a full cycle of {@code sum(weights)} turns, each candidate gets
+     * exactly as many turns as its weight. The turns of a candidate are spread over the cycle instead of being
+     * taken in a row, and candidates of weight {@code 0} are never picked.
+     *
+     * @param key Identifies the actor, e.g. process definition ID and actor name.
+     * @param weights The non-negative weight of each candidate, at least one candidate.
+     * @return The position of the next candidate for this actor. When every weight is {@code 0},
+     *         the candidates are taken in turn as if they had the same weight.
+     */
+    int nextWeightedIndex(final String key, final int[] weights) {
+        final long[] cumulativeWeights = new long[weights.length];
+        long total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulativeWeights[i] = total;
+        }
+        final long turn = rotation(key).nextTurn();
+        if (total == 0) {
+            return (int) Math.floorMod(turn, (long) weights.length);
+        }
+        final long slot = Math.floorMod(turn, total) * stride(total) % total;
+        return upperBound(cumulativeWeights, slot);
+    }
+
+    /**
+     * Returns a step coprime with {@code total}, close to {@code total / golden ratio}: walking the slots with it
+     * visits each of them once per cycle while spreading consecutive turns across the candidates.
+     * Falls back to {@code 1} when the product with a slot could overflow.
+     */
+    static long stride(final long total) {
+        if (total <= 2 || total > Integer.MAX_VALUE) {
+            return 1;
+        }
+        final long target = Math.round(total * 0.6180339887498949);
+        for (long distance = 0; ; distance++) {
+            if (gcd(total, target + distance) == 1) {
+                return target + distance;
+            }
+            if (gcd(total, target - distance) == 1) {
+                return target - distance;
+            }
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            final long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    /**
+     * @return The first index whose cumulative weight is greater than {@code slot}.
+     */
+    private static int upperBound(final long[] cumulativeWeights, final long slot) {
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] > slot) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private Rotation rotation(final String key) {
+        Rotation rotation = rotations.get(key);
+        if (rotation == null) {
+            rotation = rotations.computeIfAbsent(key, k -> new Rotation(stripeCount, generation.incrementAndGet()));
+            if (rotations.size() > maxRotations) {
+                evictLeastRecentlyUsed();
+            }
+            return rotation;
+        }
+        // Access "time" is the number of rotations created so far: evictions only happen on creations, so it is
+        // precise enough, and reading it is much cheaper than a clock. Written only when it changed.
+        final long current = generation.get();
+        if (rotation.lastAccessGeneration != current) {
+            rotation.lastAccessGeneration = current;
+        }
+        return rotation;
+    }
+
+    /**
+     * Drops the least recently used rotations until 90% of {@code maxRotations} remain.
+     * Only one thread evicts at a time, the others go on without waiting.
+     */
+    private void evictLeastRecentlyUsed() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            final int excess = rotations.size() - maxRotations * 9 / 10;
+            if (excess <= 0) {
+                return;
+            }
+            final List<Map.Entry<String, Rotation>> entries = new ArrayList<>(rotations.entrySet());
+            entries.sort((a, b) -> Long.compare(a.getValue().lastAccessGeneration, b.getValue().lastAccessGeneration));
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                rotations.remove(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+            LOGGER.debug("Evicted {} least recently used rotations, {} left.", excess, rotations.size());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of tracked rotations.
+     */
+    int size() {
+        return rotations.size();
+    }
+
+    /**
+     * Resets every rotation. Visible for tests.
+     */
+    void clear() {
+        rotations.clear();
+    }
+}
@@ -0,0 +1,285 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.function.LongPredicate;
+
+/**
+ * Internal, primitive representation of the candidate user IDs handled by the filter.
+ *
+ * The IDs are stored in a growable {@code long[]} so that every transformation step
+ * (deduplication, sorting, exclusion...) works on primitives instead of boxed {@link Long}s.
+ * The boxed view returned by {@link #asList()} does not copy the array: each element is
+ * boxed lazily, only when the engine reads it.
+ */
+final class CandidateIds {
+
+    /**
+     * Capacity used when no better estimate of the final size is known.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Backing array. Only the first {@link #size} slots are meaningful.
+     */
+    private long[] ids;
+
+    /**
+     * Number of candidate IDs currently stored.
+     */
+    private int size;
+
+    /**
+     * Creates an empty set of candidates able to hold {@code expectedSize} IDs without resizing.
+     *
+     * @param expectedSize The expected number of candidates.
+     */
+    CandidateIds(final int expectedSize) {
+        this.ids = new long[Math.max(expectedSize, 1)];
+    }
+
+    /**
+     * Creates an empty set of candidates with a default capacity.
+     */
+    CandidateIds() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    private CandidateIds(final long[] ids, final int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    /**
+     * Wraps an existing array without copying it. The array must not be modified by the caller afterwards.
+     *
+     * @param ids The candidate IDs.
+     * @return The candidates backed by {@code ids}.
+     */
+    static CandidateIds wrap(final long[] ids) {
+        return new CandidateIds(ids, ids.length);
+    }
+
+    /**
+     * Unboxes a validated {@code List<Long>} into a primitive candidate set, in a single pass
+     * (indexed for random access lists, iterated otherwise).
+     *
+     * @param userIds The validated list of user IDs.
+     * @return The candidates, in the list order.
+     */
+    static CandidateIds copyOf(final List<?> userIds) {
+        final int length = userIds.size();
+        final long[] ids = new long[length];
+        if (userIds instanceof RandomAccess) {
+            for (int i = 0; i < length; i++) {
+                ids[i] = (Long) userIds.get(i);
+            }
+        } else {
+            int i = 0;
+            for (final Object id : userIds) {
+                ids[i++] = (Long) id;
+            }
+        }
+        return new CandidateIds(ids, length);
+    }
+
+    /**
+     * Appends an ID, growing the backing array when needed.
+     *
+     * @param id The user ID to add.
+     */
+    void add(final long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(DEFAULT_CAPACITY, size + (size >> 1)));
+        }
+        ids[size++] = id;
+    }
+
+    /**
+     * @param index The position of the ID, between {@code 0} and {@code size() - 1}.
+     * @return The ID stored at {@code index}.
+     */
+    long get(final int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return ids[index];
+    }
+
+    /**
+     * @return The number of candidates.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if there is no candidate.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Keeps only the candidates found at the given positions, in the order of {@code indexes}.
+     *
+     * @param indexes Distinct positions between {@code 0} and {@code size() - 1}.
+     * @return The number of removed candidates.
+     */
+    int retainIndexes(final int[] indexes) {
+        final long[] retained = new long[Math.max(indexes.length, 1)];
+        for (int i = 0; i < indexes.length; i++) {
+            retained[i] = get(indexes[i]);
+        }
+        final int removed = size - indexes.length;
+        ids = retained;
+        size = indexes.length;
+        return removed;
+    }
+
+    /**
+     * Keeps only the candidates accepted by {@code filter}, compacting the array in place
+     * and preserving the relative order of the retained IDs.
+     *
+     * @param filter The predicate deciding which IDs are kept.
+     * @return The number of removed candidates.
+     */
+    int retainIf(final LongPredicate filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            final long id = ids[i];
+            if (filter.test(id)) {
+                ids[kept++] = id;
+            }
+        }
+        final int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Keeps only the first candidates.
+     *
+     * @param maxSize The number of candidates to keep.
+     * @return The number of removed candidates.
+     */
+    int truncate(final int maxSize) {
+        final int removed = Math.max(0, size - maxSize);
+        size -= removed;
+        return removed;
+    }
+
+    /**
+     * Removes duplicated IDs, keeping the first occurrence of each one (first-seen order).
+     *
+     * @return The number of removed duplicates.
+     */
+    int deduplicate() {
+        if (size < 2) {
+            return 0;
+        }
+        final LongHashSet seen = new LongHashSet(size);
+        return retainIf(seen::add);
+    }
+
+    /**
+     * Sorts the candidates by ascending ID.
+     */
+    void sort() {
+        LongRadixSort.sort(ids, 0, size);
+    }
+
+    /**
+     * Shuffles the candidates (Fisher-Yates).
+     *
+     * @param seed The seed of the pseudo-random generator: the same seed gives the same order.
+     */
+    void shuffle(final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        for (int i = size - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final long id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+    }
+
+    /**
+     * Replaces every candidate by a copy of the given IDs, reusing the backing array when large enough.
+     *
+     * @param source The new candidate IDs, not modified.
+     */
+    void replaceWith(final long[] source) {
+        if (ids.length < source.length) {
+            ids = new long[source.length];
+        }
+        System.arraycopy(source, 0, ids, 0, source.length);
+        size = source.length;
+    }
+
+    /**
+     * @return A trimmed copy of the candidate IDs.
+     */
+    long[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Returns a read-only {@code List<Long>} view of the candidates. Elements are boxed on access,
+     * so no {@code Long} is allocated for IDs that are never read.
+     * The view is a snapshot: the candidates must not be modified once it has been handed out.
+     *
+     * @return The boxed view.
+     */
+    List<Long> asList() {
+        return new BoxedView(ids, size);
+    }
+
+    /**
+     * Read-only, random access {@code List<Long>} over a primitive array.
+     */
+    private static final class BoxedView extends AbstractList<Long> implements RandomAccess {
+
+        private final long[] ids;
+        private final int size;
+
+        BoxedView(final long[] ids, final int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        @Override
+        public Long get(final int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return ids[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        public int indexOf(final Object o) {
+            if (o instanceof Long) {
+                final long value = (Long) o;
+                for (int i = 0; i < size; i++) {
+                    if (ids[i] == value) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+}
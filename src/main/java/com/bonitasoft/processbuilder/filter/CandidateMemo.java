@@ -0,0 +1,185 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node-local memo of the candidates prepared by {@link MultipleUserIdsActorFilter} (organization expansion,
+ * deduplication, exclusions and existence check), shared by every execution on this JVM.
+ *
+ * Multi-instance steps and loops run the filter many times per case with the same inputs: the candidates are
+ * prepared by the first execution, then copied from the memo by the next ones. An entry is keyed by the root
+ * process instance ID and a 64-bit {@link Fingerprint} of the inputs, and dropped after {@link #TTL_NANOS}, so that
+ * organization changes are seen within minutes. Only the least recently used {@link #CACHE_MAX_SIZE} entries are
+ * kept, each of at most {@link #MAX_MEMOIZED_SIZE} IDs.
+ */
+final class CandidateMemo {
+
+    /**
+     * Maximum number of memoized candidate sets.
+     */
+    static final int CACHE_MAX_SIZE = 1_000;
+
+    /**
+     * Maximum number of IDs of a memoized candidate set: larger ones are prepared at every execution.
+     */
+    static final int MAX_MEMOIZED_SIZE = 10_000;
+
+    /**
+     * Time to live of a memoized candidate set.
+     */
+    static final long TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static final ExpiringLruCache<Key, long[]> MEMO = new ExpiringLruCache<>(CACHE_MAX_SIZE, TTL_NANOS);
+
+    private static final LongAdder HITS = new LongAdder();
+
+    private static final LongAdder MISSES = new LongAdder();
+
+    private CandidateMemo() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Identifies the inputs of a case.
+     */
+    static final class Key {
+        private final long rootProcessInstanceId;
+        private final long fingerprint;
+
+        /**
+         * @param rootProcessInstanceId The ID of the root process instance (the case).
+         * @param fingerprint The fingerprint of the inputs.
+         */
+        Key(final long rootProcessInstanceId, final long fingerprint) {
+            this.rootProcessInstanceId = rootProcessInstanceId;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return rootProcessInstanceId == key.rootProcessInstanceId && fingerprint == key.fingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(RendezvousHasher.mix(rootProcessInstanceId) ^ fingerprint);
+        }
+    }
+
+    /**
+     * 64-bit hash of a sequence of values, built in a single pass without allocation.
+     * Each value is multiplied into the state and the result is spread by a SplitMix64 finalizer.
+     */
+    static final class Fingerprint {
+
+        /**
+         * Fibonacci hashing multiplier (2^64 / golden ratio).
+         */
+        private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+        private long hash = GOLDEN_RATIO;
+
+        /**
+         * @param value The next value.
+         * @return This fingerprint.
+         */
+        Fingerprint add(final long value) {
+            hash = Long.rotateLeft((hash ^ value) * GOLDEN_RATIO, 29);
+            return this;
+        }
+
+        /**
+         * Adds the length of the array then its values, so that consecutive arrays cannot be confused.
+         *
+         * @param values The next values.
+         * @return This fingerprint.
+         */
+        Fingerprint add(final long[] values) {
+            add(values.length);
+            for (final long value : values) {
+                add(value);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the number of candidates then their IDs, in order.
+         *
+         * @param candidates The next values.
+         * @return This fingerprint.
+         */
+        Fingerprint add(final CandidateIds candidates) {
+            final int size = candidates.size();
+            add(size);
+            for (int i = 0; i < size; i++) {
+                add(candidates.get(i));
+            }
+            return this;
+        }
+
+        /**
+         * @return The 64-bit hash of the values added so far.
+         */
+        long get() {
+            return RendezvousHasher.mix(hash);
+        }
+    }
+
+    /**
+     * Replaces the candidates by the memoized ones, if any.
+     *
+     * @param key The key of the case and inputs.
+     * @param candidates The candidates to replace.
+     * @return {@code true} if memoized candidates were found.
+     */
+    static boolean restore(final Key key, final CandidateIds candidates) {
+        final long[] memoized = MEMO.get(key);
+        if (memoized == null) {
+            MISSES.increment();
+            return false;
+        }
+        HITS.increment();
+        candidates.replaceWith(memoized);
+        return true;
+    }
+
+    /**
+     * Memoizes a copy of the prepared candidates, unless there are more than {@link #MAX_MEMOIZED_SIZE}.
+     *
+     * @param key The key of the case and inputs.
+     * @param candidates The prepared candidates.
+     */
+    static void store(final Key key, final CandidateIds candidates) {
+        if (candidates.size() <= MAX_MEMOIZED_SIZE) {
+            MEMO.put(key, candidates.toArray());
+        }
+    }
+
+    /**
+     * @return The number of executions that found their candidates in the memo.
+     */
+    static long getHitCount() {
+        return HITS.sum();
+    }
+
+    /**
+     * @return The number of executions that had to prepare their candidates.
+     */
+    static long getMissCount() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Empties the memo and resets the counters. Visible for tests.
+     */
+    static void clear() {
+        MEMO.clear();
+        HITS.reset();
+        MISSES.reset();
+    }
+}
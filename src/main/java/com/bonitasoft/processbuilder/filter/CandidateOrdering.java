@@ -0,0 +1,77 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.function.IntToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies the last steps of {@link MultipleUserIdsActorFilter} to the candidates: the round-robin pick of a single
+ * user ({@link AutoAssign#ROUND_ROBIN_SINGLE}), weighted by the 'weights' input when set, then the ordering
+ * requested by the 'outputOrder' input.
+ */
+final class CandidateOrdering {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CandidateOrdering.class);
+
+    private final AutoAssign autoAssign;
+    private final int[] weights;
+    private final IntToLongFunction usersListIds;
+    private final OutputOrder outputOrder;
+
+    /**
+     * @param autoAssign The value of the 'autoAssign' input.
+     * @param weights The 'weights' input, aligned with the 'usersList' input, empty when not set.
+     * @param usersListIds The 'usersList' ID at an index, only read when {@code weights} is not empty.
+     * @param outputOrder The value of the 'outputOrder' input.
+     */
+    CandidateOrdering(final AutoAssign autoAssign, final int[] weights, final IntToLongFunction usersListIds,
+            final OutputOrder outputOrder) {
+        this.autoAssign = autoAssign;
+        this.weights = weights;
+        this.usersListIds = usersListIds;
+        this.outputOrder = outputOrder;
+    }
+
+    /**
+     * Picks a single candidate in turn, and orders the candidates.
+     *
+     * @param candidates The candidates to transform in place.
+     * @param actorKey The round-robin key of the actor.
+     * @param caseSeed The seed of the {@link OutputOrder#SHUFFLED} order, the same for every task of the case.
+     * @param actorName The name of the actor, used for logging.
+     */
+    void apply(final CandidateIds candidates, final String actorKey, final long caseSeed, final String actorName) {
+        if (autoAssign == AutoAssign.ROUND_ROBIN_SINGLE && candidates.size() > 1) {
+            final int index = weights.length == 0
+                    ? CandidateDistributor.getInstance().nextIndex(actorKey, candidates.size())
+                    : CandidateDistributor.getInstance().nextWeightedIndex(actorKey, candidateWeights(candidates));
+            candidates.retainIndexes(new int[]{index});
+            LOGGER.debug("Picked user {} in turn for actor '{}'.", candidates.get(0), actorName);
+        }
+        if (outputOrder == OutputOrder.ASCENDING) {
+            candidates.sort();
+        } else if (outputOrder == OutputOrder.SHUFFLED) {
+            candidates.shuffle(caseSeed);
+        }
+    }
+
+    /**
+     * Looks up the weight of each candidate. A user listed several times in 'usersList' keeps the weight of its
+     * first occurrence, and candidates that are not in 'usersList' get {@link MultipleUserIdsActorFilter#DEFAULT_WEIGHT}.
+     *
+     * @param candidates The candidates to weigh.
+     * @return The weight of each candidate, in the order of the candidates.
+     */
+    private int[] candidateWeights(final CandidateIds candidates) {
+        final LongIntHashMap weightByUser = new LongIntHashMap(weights.length);
+        for (int i = 0; i < weights.length; i++) {
+            weightByUser.putIfAbsent(usersListIds.applyAsLong(i), weights[i]);
+        }
+        final int[] candidateWeights = new int[candidates.size()];
+        for (int i = 0; i < candidateWeights.length; i++) {
+            candidateWeights[i] = weightByUser.get(candidates.get(i), MultipleUserIdsActorFilter.DEFAULT_WEIGHT);
+        }
+        return candidateWeights;
+    }
+}
@@ -0,0 +1,147 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.connector.EngineExecutionContext;
+import org.bonitasoft.engine.exception.BonitaException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Brings the candidates of one execution of {@link MultipleUserIdsActorFilter} back under the 'maxCandidates' cap,
+ * according to the 'overflowPolicy' input. Every overflow is logged at WARN level with the process, the case and
+ * the task, as key-value pairs.
+ */
+final class CandidateOverflow {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CandidateOverflow.class);
+
+    /**
+     * Error template used when the candidates exceed 'maxCandidates' with the {@link OverflowPolicy#FAIL} policy.
+     */
+    private static final String ERR_TOO_MANY_CANDIDATES = "Found %d candidates for actor '%s', more than the %d allowed by input parameter '%s'.";
+
+    /**
+     * Error template used when a streaming 'usersList' exceeds 'maxCandidates' with the {@link OverflowPolicy#FAIL}
+     * policy. The number of IDs is unknown: the source is not read past the cap.
+     */
+    private static final String ERR_TOO_MANY_STREAMED_CANDIDATES = "Input parameter '%s' provides more than the %d candidates allowed by input parameter '%s' for actor '%s'.";
+
+    /**
+     * Appends the users mapped to the actor, for the {@link OverflowPolicy#FALLBACK_TO_ACTOR} policy.
+     */
+    @FunctionalInterface
+    interface ActorMembers {
+
+        /**
+         * @param candidates The candidates to append to.
+         * @throws BonitaException if the actor mapping cannot be read.
+         */
+        void addTo(CandidateIds candidates) throws BonitaException;
+    }
+
+    private final OverflowPolicy policy;
+    private final int maxCandidates;
+    private final String actorName;
+    private final EngineExecutionContext context;
+    private final long activityInstanceId;
+
+    /**
+     * @param policy The value of the 'overflowPolicy' input.
+     * @param maxCandidates The value of the 'maxCandidates' input.
+     * @param actorName The name of the actor.
+     * @param context The execution context, {@code null} outside of the engine.
+     * @param activityInstanceId The ID of the filtered activity instance, logged with the overflow.
+     */
+    CandidateOverflow(final OverflowPolicy policy, final int maxCandidates, final String actorName,
+            final EngineExecutionContext context, final long activityInstanceId) {
+        this.policy = policy;
+        this.maxCandidates = maxCandidates;
+        this.actorName = actorName;
+        this.context = context;
+        this.activityInstanceId = activityInstanceId;
+    }
+
+    /**
+     * Applies the policy to candidates over the cap, after logging the overflow.
+     *
+     * @param candidates The candidates, more than 'maxCandidates', modified in place.
+     * @param caseSeed The seed of the {@link OverflowPolicy#RESERVOIR_SAMPLE} policy, the same for every task of the case.
+     * @param actorMembers The users of the actor mapping, for the {@link OverflowPolicy#FALLBACK_TO_ACTOR} policy.
+     * @param engineLookups {@code false} to truncate instead of reading the actor mapping, while the circuit breaker is open.
+     * @throws BonitaException if the policy is {@link OverflowPolicy#FAIL}, or the actor mapping cannot be read.
+     */
+    void apply(final CandidateIds candidates, final long caseSeed, final ActorMembers actorMembers,
+            final boolean engineLookups) throws BonitaException {
+        final int candidateCount = candidates.size();
+        log(candidateCount);
+        switch (policy) {
+            case TRUNCATE:
+                candidates.truncate(maxCandidates);
+                break;
+            case RESERVOIR_SAMPLE:
+                candidates.retainIndexes(ReservoirSampler.sample(candidateCount, maxCandidates, caseSeed));
+                break;
+            case FALLBACK_TO_ACTOR:
+                fallBackToActor(candidates, actorMembers, engineLookups);
+                break;
+            case FAIL:
+            default:
+                throw new UserFilterException(String.format(ERR_TOO_MANY_CANDIDATES, candidateCount, actorName,
+                        maxCandidates, MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT));
+        }
+    }
+
+    /**
+     * Replaces the candidates by the users of the actor mapping ({@link OverflowPolicy#FALLBACK_TO_ACTOR}).
+     * The cap applies to them too: beyond 'maxCandidates', the first users of the mapping are kept.
+     *
+     * @param candidates The candidates, replaced in place.
+     * @param actorMembers The users of the actor mapping.
+     * @param engineLookups {@code false} to truncate the candidates instead of reading the actor mapping.
+     * @throws BonitaException if the actor mapping cannot be read.
+     */
+    void fallBackToActor(final CandidateIds candidates, final ActorMembers actorMembers, final boolean engineLookups)
+            throws BonitaException {
+        if (!engineLookups) {
+            LOGGER.debug("Engine lookups skipped: truncating to {} candidates instead of falling back to actor '{}'.",
+                    maxCandidates, actorName);
+            candidates.truncate(maxCandidates);
+            return;
+        }
+        final int candidateCount = candidates.size();
+        candidates.truncate(0);
+        actorMembers.addTo(candidates);
+        candidates.deduplicate();
+        LOGGER.info("Replaced {} candidates by the {} users mapped to actor '{}'.", candidateCount, candidates.size(), actorName);
+        if (candidates.size() > maxCandidates) {
+            LOGGER.warn("The {} users mapped to actor '{}' exceed input parameter '{}': keeping the first {}.",
+                    candidates.size(), actorName, MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, maxCandidates);
+            candidates.truncate(maxCandidates);
+        }
+    }
+
+    /**
+     * @return The error failing the execution when a streaming 'usersList' exceeds the cap with the
+     *         {@link OverflowPolicy#FAIL} policy.
+     */
+    UserFilterException streamedOverflow() {
+        return new UserFilterException(String.format(ERR_TOO_MANY_STREAMED_CANDIDATES, MultipleUserIdsActorFilter.USERS_LIST_INPUT,
+                maxCandidates, MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, actorName));
+    }
+
+    /**
+     * Logs a candidate overflow at WARN level, as key-value pairs identifying the process, the case and the task.
+     *
+     * @param candidateCount The number of candidates, or a lower bound such as {@code "1001+"} for a source that
+     *        was not read further.
+     */
+    void log(final Object candidateCount) {
+        LOGGER.warn("Candidate overflow: candidates={} maxCandidates={} overflowPolicy={} actor='{}' processDefinitionId={} "
+                + "rootProcessInstanceId={} processInstanceId={} activityInstanceId={}",
+                candidateCount, maxCandidates, policy, actorName,
+                context == null ? null : context.getProcessDefinitionId(),
+                context == null ? null : context.getRootProcessInstanceId(),
+                context == null ? null : context.getProcessInstanceId(),
+                context == null ? null : activityInstanceId);
+    }
+}
@@ -0,0 +1,28 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * The transformation steps of {@link MultipleUserIdsActorFilter} that remove candidates, as reported
+ * to {@link FilterMetrics}.
+ */
+public enum CandidateRemoval {
+
+    /**
+     * Duplicated user IDs, removed by the deduplication.
+     */
+    DUPLICATE,
+
+    /**
+     * Users removed by 'excludedUserIds', 'excludeInitiator' or 'excludeLastExecutor'.
+     */
+    EXCLUDED,
+
+    /**
+     * Unknown or disabled users, removed by the user existence check.
+     */
+    UNKNOWN_OR_DISABLED,
+
+    /**
+     * Candidates beyond 'maxCandidates', dropped by the overflow policy.
+     */
+    OVERFLOW
+}
@@ -0,0 +1,641 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bonitasoft.engine.exception.BonitaException;
+
+/**
+ * Declarative candidate rule of {@link MultipleUserIdsActorFilter} (input 'candidateRule'), parsed once into an
+ * evaluation plan and evaluated on primitive ID sets, instead of a Groovy script run for every task.
+ *
+ * Grammar, keywords being case-insensitive:
+ * <pre>
+ * rule    := term { ('union' | '|' | '+' | '∪' | 'minus' | '-' | '−' | '\') term }
+ * term    := operand { ('intersect' | '&amp;' | '∩') operand }
+ * operand := '(' rule ')'
+ *          | 'role' '(' id ')' | 'group' '(' id ')' | 'membership' '(' groupId ',' roleId ')'
+ *          | 'managerOf' '(' rule ')'
+ *          | 'users' '(' id { ',' id } ')'
+ *          | 'initiator' | 'usersList'
+ *          | 'var' '(' name ')' | '$' name
+ * </pre>
+ * {@code intersect} binds tighter than {@code union} and {@code minus}, which are applied from left to right,
+ * e.g. {@code managerOf(initiator) | group(3) - $excludedUsers}.
+ *
+ * The plans are immutable and cached per process definition and rule text ({@link #forProcessDefinition}).
+ * The result of an evaluation holds distinct IDs, in first-seen order.
+ */
+final class CandidateRule {
+
+    /**
+     * Maximum number of cached plans.
+     */
+    static final int CACHE_MAX_SIZE = 1_000;
+
+    /**
+     * Time to live of a cached plan. A process definition never changes its inputs: plans only expire to release
+     * the memory of undeployed definitions.
+     */
+    static final long TTL_NANOS = TimeUnit.HOURS.toNanos(24);
+
+    /**
+     * Maximum length of a rule, in characters.
+     */
+    static final int MAX_RULE_LENGTH = 10_000;
+
+    /**
+     * Maximum nesting of parentheses and operands, so that a malicious rule cannot overflow the stack.
+     */
+    static final int MAX_DEPTH = 64;
+
+    /**
+     * Error message template for a malformed rule.
+     */
+    private static final String ERR_SYNTAX = "%s at position %d of the rule.";
+
+    /**
+     * Error message template for a rule longer than {@link #MAX_RULE_LENGTH}.
+     */
+    private static final String ERR_TOO_LONG = "The rule has %d characters, more than the %d allowed.";
+
+    /**
+     * Union operators: '|', '+' and '∪'.
+     */
+    private static final String UNION_SYMBOLS = "|+\u222a";
+
+    /**
+     * Difference operators: '-', '−' (minus sign) and '\'.
+     */
+    private static final String MINUS_SYMBOLS = "-\u2212\\";
+
+    /**
+     * Intersection operators: '&amp;' and '∩'.
+     */
+    private static final String INTERSECT_SYMBOLS = "&\u2229";
+
+    private static final ExpiringLruCache<PlanKey, CandidateRule> PLANS = new ExpiringLruCache<>(CACHE_MAX_SIZE, TTL_NANOS);
+
+    private static final LongAdder PARSES = new LongAdder();
+
+    private final Node root;
+
+    private final boolean usesEngine;
+
+    private CandidateRule(final Node root, final boolean usesEngine) {
+        this.root = root;
+        this.usesEngine = usesEngine;
+    }
+
+    /**
+     * Resolves the operands of a rule against the engine, for one evaluation.
+     */
+    interface Context {
+
+        /**
+         * Appends the IDs of the users having a role, in any group.
+         */
+        void addRoleMembers(CandidateIds target, long roleId) throws BonitaException;
+
+        /**
+         * Appends the IDs of the users belonging to a group, with any role.
+         */
+        void addGroupMembers(CandidateIds target, long groupId) throws BonitaException;
+
+        /**
+         * Appends the IDs of the users having a role in a group.
+         */
+        void addMembershipMembers(CandidateIds target, long groupId, long roleId) throws BonitaException;
+
+        /**
+         * Appends the IDs of the managers of distinct users. Users without a manager add nothing.
+         */
+        void addManagers(CandidateIds target, CandidateIds users) throws BonitaException;
+
+        /**
+         * Appends the ID of the user who started the case, if any.
+         */
+        void addInitiator(CandidateIds target) throws BonitaException;
+
+        /**
+         * Appends the validated 'usersList' IDs, if any.
+         */
+        void addUsersList(CandidateIds target) throws BonitaException;
+
+        /**
+         * Appends the user IDs held by a process variable.
+         */
+        void addVariableUsers(CandidateIds target, String variableName) throws BonitaException;
+    }
+
+    /**
+     * Returns the plan of a rule, parsing it on the first call for the process definition.
+     *
+     * @param processDefinitionId The ID of the process definition declaring the rule.
+     * @param text The rule.
+     * @return The evaluation plan.
+     * @throws IllegalArgumentException if the rule is malformed.
+     */
+    static CandidateRule forProcessDefinition(final long processDefinitionId, final String text) {
+        final PlanKey key = new PlanKey(processDefinitionId, text);
+        CandidateRule rule = PLANS.get(key);
+        if (rule == null) {
+            rule = parse(text);
+            PLANS.put(key, rule);
+        }
+        return rule;
+    }
+
+    /**
+     * Parses a rule, without caching its plan.
+     *
+     * @param text The rule.
+     * @return The evaluation plan.
+     * @throws IllegalArgumentException if the rule is malformed.
+     */
+    static CandidateRule parse(final String text) {
+        if (text.length() > MAX_RULE_LENGTH) {
+            throw new IllegalArgumentException(String.format(ERR_TOO_LONG, text.length(), MAX_RULE_LENGTH));
+        }
+        PARSES.increment();
+        final Parser parser = new Parser(text);
+        final Node root = parser.parseRule(0);
+        parser.expectEnd();
+        return new CandidateRule(root, parser.usesEngine);
+    }
+
+    /**
+     * @return The number of rules parsed since the start of the node, cached or not.
+     */
+    static long getParseCount() {
+        return PARSES.sum();
+    }
+
+    /**
+     * Empties the plan cache. Visible for tests.
+     */
+    static void clearPlans() {
+        PLANS.clear();
+    }
+
+    /**
+     * @return {@code false} if the rule only combines 'usersList' and literal IDs, so that its evaluation calls
+     *         no engine API.
+     */
+    boolean usesEngine() {
+        return usesEngine;
+    }
+
+    /**
+     * Evaluates the rule.
+     *
+     * @param context Resolves the operands against the engine.
+     * @return The distinct IDs of the rule, in first-seen order.
+     * @throws BonitaException if an engine call fails.
+     */
+    CandidateIds evaluate(final Context context) throws BonitaException {
+        final CandidateIds result = new CandidateIds();
+        root.appendTo(result, context);
+        result.deduplicate();
+        return result;
+    }
+
+    /**
+     * @return The canonical form of the plan, fully parenthesized.
+     */
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    /**
+     * Identifies a rule of a process definition.
+     */
+    private static final class PlanKey {
+        private final long processDefinitionId;
+        private final String text;
+
+        PlanKey(final long processDefinitionId, final String text) {
+            this.processDefinitionId = processDefinitionId;
+            this.text = text;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof PlanKey)) {
+                return false;
+            }
+            final PlanKey key = (PlanKey) other;
+            return processDefinitionId == key.processDefinitionId && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(processDefinitionId) + text.hashCode();
+        }
+    }
+
+    /**
+     * A node of the evaluation plan.
+     */
+    private abstract static class Node {
+
+        /**
+         * Appends the IDs of the node to {@code target}, possibly with duplicates.
+         */
+        abstract void appendTo(CandidateIds target, Context context) throws BonitaException;
+
+        /**
+         * @return The IDs of the node, as a set.
+         */
+        LongHashSet toSet(final Context context) throws BonitaException {
+            final CandidateIds ids = new CandidateIds();
+            appendTo(ids, context);
+            final LongHashSet set = new LongHashSet(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                set.add(ids.get(i));
+            }
+            return set;
+        }
+    }
+
+    /**
+     * Union of any number of operands, flattened at parse time.
+     */
+    private static final class Union extends Node {
+        private final List<Node> operands;
+
+        Union(final List<Node> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        void appendTo(final CandidateIds target, final Context context) throws BonitaException {
+            for (final Node operand : operands) {
+                operand.appendTo(target, context);
+            }
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder text = new StringBuilder("(");
+            for (int i = 0; i < operands.size(); i++) {
+                text.append(i == 0 ? "" : " union ").append(operands.get(i));
+            }
+            return text.append(')').toString();
+        }
+    }
+
+    /**
+     * IDs of the left operand found (intersect) or not found (minus) in the right operand.
+     */
+    private static final class Difference extends Node {
+        private final Node left;
+        private final Node right;
+        private final boolean keepCommon;
+
+        Difference(final Node left, final Node right, final boolean keepCommon) {
+            this.left = left;
+            this.right = right;
+            this.keepCommon = keepCommon;
+        }
+
+        @Override
+        void appendTo(final CandidateIds target, final Context context) throws BonitaException {
+            final CandidateIds ids = new CandidateIds();
+            left.appendTo(ids, context);
+            if (ids.isEmpty()) {
+                // The right operand cannot change an empty result: spare its lookups
+                return;
+            }
+            final LongHashSet rightIds = right.toSet(context);
+            for (int i = 0; i < ids.size(); i++) {
+                final long id = ids.get(i);
+                if (rightIds.contains(id) == keepCommon) {
+                    target.add(id);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + (keepCommon ? " intersect " : " minus ") + right + ")";
+        }
+    }
+
+    /**
+     * Managers of the users of an operand.
+     */
+    private static final class ManagerOf extends Node {
+        private final Node users;
+
+        ManagerOf(final Node users) {
+            this.users = users;
+        }
+
+        @Override
+        void appendTo(final CandidateIds target, final Context context) throws BonitaException {
+            final CandidateIds ids = new CandidateIds();
+            users.appendTo(ids, context);
+            ids.deduplicate();
+            if (!ids.isEmpty()) {
+                context.addManagers(target, ids);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "managerOf(" + users + ")";
+        }
+    }
+
+    /**
+     * User IDs written in the rule. Their set is built once, at parse time.
+     */
+    private static final class Users extends Node {
+        private final long[] ids;
+        private final LongHashSet set;
+
+        Users(final long[] ids) {
+            this.ids = ids;
+            this.set = new LongHashSet(ids.length);
+            for (final long id : ids) {
+                set.add(id);
+            }
+        }
+
+        @Override
+        void appendTo(final CandidateIds target, final Context context) {
+            for (final long id : ids) {
+                target.add(id);
+            }
+        }
+
+        @Override
+        LongHashSet toSet(final Context context) {
+            // Only read by the evaluations
+            return set;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder text = new StringBuilder("users(");
+            for (int i = 0; i < ids.length; i++) {
+                text.append(i == 0 ? "" : ", ").append(ids[i]);
+            }
+            return text.append(')').toString();
+        }
+    }
+
+    /**
+     * Operand resolved by the {@link Context}: role, group, membership, initiator, 'usersList' or variable.
+     */
+    private static final class Lookup extends Node {
+        private final String keyword;
+        private final long firstId;
+        private final long secondId;
+        private final String variableName;
+
+        Lookup(final String keyword, final long firstId, final long secondId, final String variableName) {
+            this.keyword = keyword;
+            this.firstId = firstId;
+            this.secondId = secondId;
+            this.variableName = variableName;
+        }
+
+        @Override
+        void appendTo(final CandidateIds target, final Context context) throws BonitaException {
+            switch (keyword) {
+                case "role":
+                    context.addRoleMembers(target, firstId);
+                    break;
+                case "group":
+                    context.addGroupMembers(target, firstId);
+                    break;
+                case "membership":
+                    context.addMembershipMembers(target, firstId, secondId);
+                    break;
+                case "initiator":
+                    context.addInitiator(target);
+                    break;
+                case "userslist":
+                    context.addUsersList(target);
+                    break;
+                default:
+                    context.addVariableUsers(target, variableName);
+                    break;
+            }
+        }
+
+        @Override
+        public String toString() {
+            switch (keyword) {
+                case "role":
+                case "group":
+                    return keyword + "(" + firstId + ")";
+                case "membership":
+                    return "membership(" + firstId + ", " + secondId + ")";
+                case "initiator":
+                    return "initiator";
+                case "userslist":
+                    return "usersList";
+                default:
+                    return "$" + variableName;
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser of the grammar, building the plan.
+     */
+    private static final class Parser {
+        private final String text;
+        private int position;
+        private boolean usesEngine;
+
+        Parser(final String text) {
+            this.text = text;
+        }
+
+        Node parseRule(final int depth) {
+            checkDepth(depth);
+            Node node = parseTerm(depth);
+            List<Node> union = null;
+            while (true) {
+                skipSpaces();
+                if (acceptSymbol(UNION_SYMBOLS) || acceptKeyword("union")) {
+                    if (union == null) {
+                        union = new ArrayList<>();
+                        union.add(node);
+                    }
+                    union.add(parseTerm(depth));
+                } else if (acceptSymbol(MINUS_SYMBOLS) || acceptKeyword("minus")) {
+                    node = new Difference(union == null ? node : new Union(union), parseTerm(depth), false);
+                    union = null;
+                } else {
+                    return union == null ? node : new Union(union);
+                }
+            }
+        }
+
+        private Node parseTerm(final int depth) {
+            Node node = parseOperand(depth);
+            while (true) {
+                skipSpaces();
+                if (acceptSymbol(INTERSECT_SYMBOLS) || acceptKeyword("intersect")) {
+                    node = new Difference(node, parseOperand(depth), true);
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseOperand(final int depth) {
+            skipSpaces();
+            if (acceptSymbol("(")) {
+                final Node node = parseRule(depth + 1);
+                expect(')');
+                return node;
+            }
+            if (acceptSymbol("$")) {
+                usesEngine = true;
+                return new Lookup("var", 0, 0, parseName());
+            }
+            final int start = position;
+            final String keyword = parseName().toLowerCase(Locale.ROOT);
+            switch (keyword) {
+                case "role":
+                case "group": {
+                    usesEngine = true;
+                    expect('(');
+                    final long id = parseId();
+                    expect(')');
+                    return new Lookup(keyword, id, 0, null);
+                }
+                case "membership": {
+                    usesEngine = true;
+                    expect('(');
+                    final long groupId = parseId();
+                    expect(',');
+                    final long roleId = parseId();
+                    expect(')');
+                    return new Lookup(keyword, groupId, roleId, null);
+                }
+                case "managerof": {
+                    usesEngine = true;
+                    expect('(');
+                    final Node users = parseRule(depth + 1);
+                    expect(')');
+                    return new ManagerOf(users);
+                }
+                case "users": {
+                    expect('(');
+                    final CandidateIds ids = new CandidateIds();
+                    do {
+                        ids.add(parseId());
+                    } while (accept(','));
+                    expect(')');
+                    return new Users(ids.toArray());
+                }
+                case "var": {
+                    usesEngine = true;
+                    expect('(');
+                    final String name = parseName();
+                    expect(')');
+                    return new Lookup(keyword, 0, 0, name);
+                }
+                case "initiator":
+                    usesEngine = true;
+                    return new Lookup(keyword, 0, 0, null);
+                case "userslist":
+                    return new Lookup(keyword, 0, 0, null);
+                default:
+                    throw syntaxError("Unknown operand '" + text.substring(start, position) + "'", start);
+            }
+        }
+
+        void expectEnd() {
+            skipSpaces();
+            if (position < text.length()) {
+                throw syntaxError("Unexpected '" + text.charAt(position) + "'", position);
+            }
+        }
+
+        private String parseName() {
+            skipSpaces();
+            final int start = position;
+            while (position < text.length() && isNameChar(text.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw syntaxError(position < text.length() ? "Unexpected '" + text.charAt(position) + "'" : "Unexpected end", start);
+            }
+            return text.substring(start, position);
+        }
+
+        private long parseId() {
+            skipSpaces();
+            final int start = position;
+            while (position < text.length() && text.charAt(position) >= '0' && text.charAt(position) <= '9') {
+                position++;
+            }
+            try {
+                return Long.parseLong(text.substring(start, position));
+            } catch (final NumberFormatException e) {
+                throw syntaxError("Expected an ID", start);
+            }
+        }
+
+        private boolean acceptKeyword(final String keyword) {
+            final int end = position + keyword.length();
+            if (end > text.length() || !text.regionMatches(true, position, keyword, 0, keyword.length())
+                    || end < text.length() && isNameChar(text.charAt(end))) {
+                return false;
+            }
+            position = end;
+            return true;
+        }
+
+        private boolean acceptSymbol(final String symbols) {
+            if (position < text.length() && symbols.indexOf(text.charAt(position)) >= 0) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean accept(final char symbol) {
+            skipSpaces();
+            return acceptSymbol(String.valueOf(symbol));
+        }
+
+        private void expect(final char symbol) {
+            if (!accept(symbol)) {
+                throw syntaxError("Expected '" + symbol + "'", position);
+            }
+        }
+
+        private static boolean isNameChar(final char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private void checkDepth(final int depth) {
+            if (depth > MAX_DEPTH) {
+                throw syntaxError("More than " + MAX_DEPTH + " nested operands", position);
+            }
+        }
+
+        private IllegalArgumentException syntaxError(final String message, final int at) {
+            return new IllegalArgumentException(String.format(ERR_SYNTAX, message, at + 1));
+        }
+    }
+}
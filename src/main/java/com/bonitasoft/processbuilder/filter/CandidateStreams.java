@@ -0,0 +1,177 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+import java.util.stream.BaseStream;
+import java.util.stream.LongStream;
+
+import org.bonitasoft.engine.exception.BonitaException;
+
+/**
+ * Consumes the streaming forms of the 'usersList' input (Iterable, Iterator, Stream, LongStream,
+ * {@link PagedUserIdSource}) straight into primitive {@link CandidateIds}.
+ *
+ * Elements are validated and, when requested, deduplicated one at a time. The source is either not read past
+ * the limit requested by the caller, or sampled into a fixed-size reservoir, so that the memory held is bounded
+ * by the IDs kept, never by the size of the source (except for the IDs seen by the deduplication of a sampled
+ * source). Streams are closed once consumed.
+ */
+final class CandidateStreams {
+
+    /**
+     * Error message template for a streamed element that is not a {@code Long}.
+     */
+    private static final String ERR_INVALID_STREAMED_ELEMENT = "Input parameter '%s' must only provide Long user IDs. Found %s at position %d.";
+
+    /**
+     * Limit of {@link #drain(Object, String, boolean, int, int)} reading the whole source.
+     */
+    static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private CandidateStreams() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Tells whether an input is a streaming source. Collections other than Lists (e.g. Sets, whose order
+     * is not defined) are not.
+     *
+     * @param input The 'usersList' input.
+     * @return {@code true} if the input must be consumed with {@link #drain(Object, String, boolean, int, int)}
+     *         or {@link #sample(Object, String, boolean, int, ReservoirSampler.Reservoir)}.
+     */
+    static boolean isStreamingSource(final Object input) {
+        return input instanceof Iterator
+                || input instanceof BaseStream
+                || input instanceof PagedUserIdSource
+                || (input instanceof Iterable && !(input instanceof Collection));
+    }
+
+    /**
+     * Reads the IDs of a streaming source, until {@code limit} IDs are kept. No further element is read, and no
+     * further page is requested from a {@link PagedUserIdSource}, once the limit is reached.
+     *
+     * @param source The streaming source, see {@link #isStreamingSource(Object)}.
+     * @param inputName The name of the input, for error messages.
+     * @param deduplicate Whether IDs already read are skipped (first-seen order is kept).
+     * @param pageSize The page size requested from a {@link PagedUserIdSource}.
+     * @param limit The maximum number of IDs kept, {@link #NO_LIMIT} to read the whole source.
+     * @return The IDs read, at most {@code limit}.
+     * @throws BonitaException if a page of a {@link PagedUserIdSource} cannot be read.
+     * @throws IllegalArgumentException if an element is not a {@code Long}.
+     */
+    static CandidateIds drain(final Object source, final String inputName, final boolean deduplicate, final int pageSize,
+            final int limit) throws BonitaException {
+        final Sink sink = new Sink(inputName, deduplicate, limit, null);
+        read(source, sink, pageSize);
+        return sink.candidates;
+    }
+
+    /**
+     * Reads every ID of a streaming source into a reservoir, which only holds the sampled IDs.
+     *
+     * @param source The streaming source, see {@link #isStreamingSource(Object)}.
+     * @param inputName The name of the input, for error messages.
+     * @param deduplicate Whether IDs already read are skipped, before being offered to the reservoir.
+     * @param pageSize The page size requested from a {@link PagedUserIdSource}.
+     * @param reservoir The reservoir the IDs are offered to.
+     * @throws BonitaException if a page of a {@link PagedUserIdSource} cannot be read.
+     * @throws IllegalArgumentException if an element is not a {@code Long}.
+     */
+    static void sample(final Object source, final String inputName, final boolean deduplicate, final int pageSize,
+            final ReservoirSampler.Reservoir reservoir) throws BonitaException {
+        read(source, new Sink(inputName, deduplicate, NO_LIMIT, reservoir), pageSize);
+    }
+
+    private static void read(final Object source, final Sink sink, final int pageSize) throws BonitaException {
+        if (source instanceof PagedUserIdSource) {
+            drainPages((PagedUserIdSource) source, sink, pageSize);
+        } else if (source instanceof BaseStream) {
+            try (BaseStream<?, ?> stream = (BaseStream<?, ?>) source) {
+                if (stream instanceof LongStream) {
+                    final PrimitiveIterator.OfLong iterator = ((LongStream) stream).iterator();
+                    while (!sink.isFull() && iterator.hasNext()) {
+                        sink.add(iterator.nextLong());
+                    }
+                } else {
+                    drainIterator(stream.iterator(), sink);
+                }
+            }
+        } else if (source instanceof Iterator) {
+            drainIterator((Iterator<?>) source, sink);
+        } else {
+            drainIterator(((Iterable<?>) source).iterator(), sink);
+        }
+    }
+
+    private static void drainIterator(final Iterator<?> iterator, final Sink sink) {
+        while (!sink.isFull() && iterator.hasNext()) {
+            sink.add(iterator.next());
+        }
+    }
+
+    private static void drainPages(final PagedUserIdSource source, final Sink sink, final int pageSize) throws BonitaException {
+        int startIndex = 0;
+        List<Long> page;
+        do {
+            page = source.fetchPage(startIndex, pageSize);
+            if (page == null) {
+                return;
+            }
+            if (page instanceof RandomAccess) {
+                for (int i = 0; i < page.size() && !sink.isFull(); i++) {
+                    sink.add(page.get(i));
+                }
+            } else {
+                drainIterator(page.iterator(), sink);
+            }
+            startIndex += page.size();
+        } while (page.size() >= pageSize && !sink.isFull());
+    }
+
+    /**
+     * Validates, deduplicates and stores the IDs read, up to a limit, or offers them to a reservoir.
+     */
+    private static final class Sink {
+        private final String inputName;
+        private final LongHashSet seen;
+        private final int limit;
+        private final ReservoirSampler.Reservoir reservoir;
+        private final CandidateIds candidates = new CandidateIds();
+        private long position;
+
+        Sink(final String inputName, final boolean deduplicate, final int limit, final ReservoirSampler.Reservoir reservoir) {
+            this.inputName = inputName;
+            this.seen = deduplicate ? new LongHashSet(16) : null;
+            this.limit = limit;
+            this.reservoir = reservoir;
+        }
+
+        boolean isFull() {
+            return candidates.size() >= limit;
+        }
+
+        void add(final Object element) {
+            if (!(element instanceof Long)) {
+                throw new IllegalArgumentException(String.format(ERR_INVALID_STREAMED_ELEMENT, inputName,
+                        element == null ? "null" : element.getClass().getSimpleName(), position));
+            }
+            add(((Long) element).longValue());
+        }
+
+        void add(final long id) {
+            position++;
+            if (seen != null && !seen.add(id)) {
+                return;
+            }
+            if (reservoir == null) {
+                candidates.add(id);
+            } else {
+                reservoir.offer(id);
+            }
+        }
+    }
+}
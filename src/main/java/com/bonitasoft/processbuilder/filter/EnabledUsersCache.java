@@ -0,0 +1,201 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.bonitasoft.engine.exception.SearchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Node-local cache of the IDs of the enabled users, shared by every execution of {@link MultipleUserIdsActorFilter}
+ * on this JVM (existence check mode {@link UserExistenceCheck#CACHED}).
+ *
+ * The IDs are kept in a compressed, sorted run set and reloaded from the organization once older than the TTL
+ * requested by the caller. Only one thread reloads at a time; the others keep using the previous snapshot.
+ * Users created after the last load have a greater ID than any cached one and are verified with a batched lookup,
+ * so a new user is never wrongly dropped. A user disabled, or enabled again, after the last load is only seen
+ * after the next reload: call {@link #invalidate()} to force it.
+ */
+public final class EnabledUsersCache {
+
+    /**
+     * A logger for this class, used to record log messages and provide debugging information.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(EnabledUsersCache.class);
+
+    /**
+     * Default time to live of a snapshot, in seconds.
+     */
+    static final int DEFAULT_TTL_SECONDS = 300;
+
+    private static final EnabledUsersCache INSTANCE = new EnabledUsersCache(System::nanoTime);
+
+    private final LongSupplier nanoClock;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Enabled user IDs loaded at a given time.
+     */
+    private static final class Snapshot {
+        private final LongRunSet enabledUsers;
+        private final long loadedAtNanos;
+
+        Snapshot(final LongRunSet enabledUsers, final long loadedAtNanos) {
+            this.enabledUsers = enabledUsers;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+
+        boolean isExpired(final long nowNanos, final long ttlNanos) {
+            return nowNanos - loadedAtNanos >= ttlNanos;
+        }
+    }
+
+    /**
+     * Package-private for tests, use {@link #getInstance()} otherwise.
+     *
+     * @param nanoClock The time source, {@code System::nanoTime} outside of tests.
+     */
+    EnabledUsersCache(final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return The cache shared by every filter execution on this node.
+     */
+    public static EnabledUsersCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Discards the cached user IDs. The next lookup reloads them from the organization.
+     * To be called when users are enabled again, or after an organization import.
+     */
+    public void invalidate() {
+        snapshot = null;
+        LOGGER.debug("Enabled users cache invalidated.");
+    }
+
+    /**
+     * @return The number of candidate IDs answered from the cached snapshot.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of candidate IDs unknown to the snapshot, verified with a batched lookup.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of times the enabled user IDs were (re)loaded.
+     */
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * @return The number of enabled user IDs currently cached.
+     */
+    public long getCachedUserCount() {
+        final Snapshot current = snapshot;
+        return current == null ? 0 : current.enabledUsers.cardinality();
+    }
+
+    /**
+     * Removes the candidates that do not match an enabled user, answering from the cached snapshot.
+     *
+     * @param candidates The candidates to check, modified in place.
+     * @param resolver Used to (re)load the snapshot and to verify the IDs created after the last load.
+     * @param ttlSeconds The maximum age of the snapshot.
+     * @param batchSize The page size of the reload, and the batch size of the verification lookups.
+     * @return The number of removed candidates.
+     * @throws SearchException if the first load of the snapshot fails.
+     */
+    int retainEnabledUsers(final CandidateIds candidates, final IdentityCandidateResolver resolver,
+            final int ttlSeconds, final int batchSize) throws SearchException {
+        final Snapshot current = currentSnapshot(resolver, TimeUnit.SECONDS.toNanos(ttlSeconds), batchSize);
+        final LongRunSet enabledUsers = current.enabledUsers;
+        final long maxCachedId = enabledUsers.max();
+
+        CandidateIds newerIds = null;
+        final int size = candidates.size();
+        for (int i = 0; i < size; i++) {
+            final long id = candidates.get(i);
+            if (id > maxCachedId) {
+                if (newerIds == null) {
+                    newerIds = new CandidateIds();
+                }
+                newerIds.add(id);
+            }
+        }
+        if (newerIds == null) {
+            hits.add(size);
+            return candidates.retainIf(enabledUsers::contains);
+        }
+        hits.add(size - newerIds.size());
+        misses.add(newerIds.size());
+        final LongHashSet newerEnabledUsers = resolver.findEnabledUsers(newerIds, batchSize);
+        return candidates.retainIf(id -> id > maxCachedId ? newerEnabledUsers.contains(id) : enabledUsers.contains(id));
+    }
+
+    /**
+     * Returns a snapshot younger than {@code ttlNanos}, reloading it if needed. When a reload is already running
+     * on another thread, or fails, the previous snapshot is used.
+     */
+    private Snapshot currentSnapshot(final IdentityCandidateResolver resolver, final long ttlNanos, final int pageSize)
+            throws SearchException {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired(nanoClock.getAsLong(), ttlNanos)) {
+            return current;
+        }
+        if (current != null) {
+            if (refreshLock.tryLock()) {
+                try {
+                    current = reloadIfExpired(resolver, ttlNanos, pageSize);
+                } catch (final SearchException | RuntimeException e) {
+                    LOGGER.warn("Failed to reload the enabled users cache, keeping the previous snapshot.", e);
+                } finally {
+                    refreshLock.unlock();
+                }
+            }
+            return current;
+        }
+        refreshLock.lock();
+        try {
+            return reloadIfExpired(resolver, ttlNanos, pageSize);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Reloads the snapshot unless another thread did it while the lock was being acquired. Must hold the lock.
+     */
+    private Snapshot reloadIfExpired(final IdentityCandidateResolver resolver, final long ttlNanos, final int pageSize)
+            throws SearchException {
+        final Snapshot current = snapshot;
+        if (current != null && !current.isExpired(nanoClock.getAsLong(), ttlNanos)) {
+            return current;
+        }
+        final long start = nanoClock.getAsLong();
+        final CandidateIds enabledUserIds = resolver.loadEnabledUserIds(pageSize);
+        final LongRunSet enabledUsers = LongRunSet.of(enabledUserIds.toArray(), enabledUserIds.size());
+        final Snapshot reloaded = new Snapshot(enabledUsers, nanoClock.getAsLong());
+        snapshot = reloaded;
+        refreshes.increment();
+        LOGGER.info("Enabled users cache loaded: {} users in {} runs, in {} ms.", enabledUsers.cardinality(),
+                enabledUsers.runCount(), TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - start));
+        return reloaded;
+    }
+}
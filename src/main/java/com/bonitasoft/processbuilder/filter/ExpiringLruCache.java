@@ -0,0 +1,118 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Small thread-safe cache, bounded both in size (least recently used entries are evicted first)
+ * and in time (entries older than the time to live are ignored and dropped).
+ *
+ * Meant for the per-node lookups of the filter, where a few thousand entries are enough and
+ * a single lock is cheaper than the engine calls it saves.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+final class ExpiringLruCache<K, V> {
+
+    /**
+     * A cached value and the time it was stored at.
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long storedAtNanos;
+
+        Entry(final V value, final long storedAtNanos) {
+            this.value = value;
+            this.storedAtNanos = storedAtNanos;
+        }
+    }
+
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    /**
+     * @param maxSize The maximum number of entries.
+     * @param ttlNanos The time to live of an entry, in nanoseconds.
+     */
+    ExpiringLruCache(final int maxSize, final long ttlNanos) {
+        this(maxSize, ttlNanos, System::nanoTime);
+    }
+
+    /**
+     * @param maxSize The maximum number of entries.
+     * @param ttlNanos The time to live of an entry, in nanoseconds.
+     * @param clock The source of {@link System#nanoTime()}-like timestamps, replaceable in tests.
+     */
+    ExpiringLruCache(final int maxSize, final long ttlNanos, final LongSupplier clock) {
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param key The key to look up.
+     * @return The cached value, or {@code null} if absent or expired.
+     */
+    synchronized V get(final K key) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.getAsLong() - entry.storedAtNanos >= ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores a value, evicting the least recently used entry if the cache is full.
+     *
+     * @param key The key.
+     * @param value The non-null value.
+     */
+    synchronized void put(final K key, final V value) {
+        entries.put(key, new Entry<>(value, clock.getAsLong()));
+    }
+
+    /**
+     * Replaces the value of a live entry, keeping the time it was stored at, so that it still expires on time.
+     *
+     * @param key The key.
+     * @param update Computes the new non-null value from the cached one.
+     * @return {@code true} if the entry was present and not expired.
+     */
+    synchronized boolean update(final K key, final UnaryOperator<V> update) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null || clock.getAsLong() - entry.storedAtNanos >= ttlNanos) {
+            return false;
+        }
+        entries.put(key, new Entry<>(update.apply(entry.value), entry.storedAtNanos));
+        return true;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return The number of entries, including the expired ones not dropped yet.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+}
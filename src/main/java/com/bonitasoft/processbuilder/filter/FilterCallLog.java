@@ -0,0 +1,160 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+
+/**
+ * INFO logging of the {@link MultipleUserIdsActorFilter} calls, shared by every execution on this JVM.
+ *
+ * Instead of one line per call, at most one call per sample interval is logged, with the number of calls
+ * not logged since the previous line, and a summary of the calls (count, median, 99th percentile and maximum
+ * number of returned candidates) is logged once per summary interval.
+ *
+ * Nothing is recorded while INFO is disabled. Otherwise a call costs a clock read and a few atomic
+ * increments, without allocation, until a line is due.
+ */
+final class FilterCallLog {
+
+    /**
+     * Default minimum time between two logged calls.
+     */
+    static final long DEFAULT_SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Default time between two summaries.
+     */
+    static final long DEFAULT_SUMMARY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Each power of two is split into {@code 2^SUB_BUCKET_BITS} buckets: percentiles are exact up to 15,
+     * then within 12.5%.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Enough buckets for any non-negative {@code int}.
+     */
+    static final int BUCKETS = (Integer.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final Logger logger;
+    private final long sampleIntervalNanos;
+    private final long summaryIntervalNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicLong nextSampleNanos;
+    private final AtomicLong nextSummaryNanos;
+    private final LongAdder notSampledCalls = new LongAdder();
+    private final AtomicLongArray candidateCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxCandidateCount = new AtomicLong();
+
+    /**
+     * @param logger The logger to write to.
+     * @param sampleIntervalNanos The minimum time between two logged calls.
+     * @param summaryIntervalNanos The time between two summaries.
+     * @param nanoClock The time source, {@code System::nanoTime} outside of tests.
+     */
+    FilterCallLog(final Logger logger, final long sampleIntervalNanos, final long summaryIntervalNanos,
+            final LongSupplier nanoClock) {
+        this.logger = logger;
+        this.sampleIntervalNanos = sampleIntervalNanos;
+        this.summaryIntervalNanos = summaryIntervalNanos;
+        this.nanoClock = nanoClock;
+        final long now = nanoClock.getAsLong();
+        // The first call is logged, the first summary comes after a full interval
+        this.nextSampleNanos = new AtomicLong(now);
+        this.nextSummaryNanos = new AtomicLong(now + summaryIntervalNanos);
+    }
+
+    /**
+     * Records a successful call, and logs it or the summary when due.
+     *
+     * @param actorName The name of the filtered actor.
+     * @param candidateCount The number of returned candidates.
+     */
+    void record(final String actorName, final int candidateCount) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        candidateCounts.incrementAndGet(bucket(candidateCount));
+        if (candidateCount > maxCandidateCount.get()) {
+            maxCandidateCount.accumulateAndGet(candidateCount, Math::max);
+        }
+        final long now = nanoClock.getAsLong();
+        final long nextSample = nextSampleNanos.get();
+        if (now - nextSample >= 0 && nextSampleNanos.compareAndSet(nextSample, now + sampleIntervalNanos)) {
+            logger.info("Filter called for actor '{}': {} candidates returned ({} calls not logged since the previous line).",
+                    actorName, candidateCount, notSampledCalls.sumThenReset());
+        } else {
+            notSampledCalls.increment();
+        }
+        final long nextSummary = nextSummaryNanos.get();
+        if (now - nextSummary >= 0 && nextSummaryNanos.compareAndSet(nextSummary, now + summaryIntervalNanos)) {
+            logSummary();
+        }
+    }
+
+    /**
+     * Logs the calls recorded since the previous summary, and starts a new one.
+     */
+    private void logSummary() {
+        final long[] counts = new long[BUCKETS];
+        long calls = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = candidateCounts.getAndSet(i, 0);
+            calls += counts[i];
+        }
+        final long max = maxCandidateCount.getAndSet(0);
+        if (calls == 0) {
+            return;
+        }
+        logger.info("Filter summary over the last {} s: {} calls, returned candidates p50={} p99={} max={}.",
+                TimeUnit.NANOSECONDS.toSeconds(summaryIntervalNanos), calls,
+                percentile(counts, calls, 0.50), percentile(counts, calls, 0.99), max);
+    }
+
+    /**
+     * @return The lower bound of the bucket holding the value of rank {@code ceil(fraction * total)}.
+     */
+    static long percentile(final long[] counts, final long total, final double fraction) {
+        final long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return lowerBound(i);
+            }
+        }
+        return lowerBound(counts.length - 1);
+    }
+
+    /**
+     * @return The bucket of a non-negative value: the value itself below {@code 2 * SUB_BUCKETS}, then
+     *         {@code SUB_BUCKETS} buckets per power of two.
+     */
+    static int bucket(final int value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return Math.max(0, value);
+        }
+        final int exponent = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(value);
+        final int subBucket = (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return The smallest value of a bucket.
+     */
+    static long lowerBound(final int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+}
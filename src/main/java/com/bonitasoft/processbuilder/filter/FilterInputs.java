@@ -0,0 +1,398 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads and parses the inputs of {@link MultipleUserIdsActorFilter}: options, organization IDs, weights, the
+ * 'candidateRule' input, and the 'usersList' input, normalized or decoded once per execution.
+ *
+ * Malformed values are logged and reported as {@link ConnectorValidationException}s naming the input.
+ */
+final class FilterInputs {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilterInputs.class);
+
+    /**
+     * Error template used when an option does not name one of the supported values.
+     */
+    private static final String ERR_UNKNOWN_OPTION = "Input parameter '%s' must be one of %s. Found '%s'.";
+
+    /**
+     * Error template used when a numeric option is not a strictly positive integer.
+     */
+    private static final String ERR_NOT_POSITIVE_INTEGER = "Input parameter '%s' must be a positive integer. Found '%s'.";
+
+    /**
+     * Error template used when an organization input is not a List of IDs.
+     */
+    private static final String ERR_NOT_ID_LIST = "Input parameter '%s' must be a List of Long IDs. Found '%s'.";
+
+    /**
+     * Error template used when the 'membershipPairs' input holds a malformed membership.
+     */
+    private static final String ERR_NOT_MEMBERSHIP_LIST = "Input parameter '%s' must be a List of [groupId, roleId] pairs or \"groupId:roleId\" Strings. Found '%s'.";
+
+    /**
+     * Error template used when the 'weights' input is not a List of non-negative integers.
+     */
+    private static final String ERR_NOT_WEIGHT_LIST = "Input parameter '%s' must be a List of non-negative integers. Found '%s'.";
+
+    /**
+     * Error template used when the 'candidateRule' input cannot be parsed.
+     */
+    private static final String ERR_INVALID_RULE = "Input parameter '%s' is not a valid candidate rule: %s";
+
+    /**
+     * Returned for organization inputs that are not set.
+     */
+    private static final long[] NO_IDS = new long[0];
+
+    /**
+     * Returned for a 'weights' input that is not set.
+     */
+    static final int[] NO_WEIGHTS = new int[0];
+
+    private final Function<String, Object> source;
+
+    /**
+     * The 'usersList' input last normalized by {@link #toRandomAccess(List)}, so that validation and filtering
+     * share a single copy.
+     */
+    private List<?> normalizedSource;
+
+    /**
+     * The array-backed copy of {@link #normalizedSource}.
+     */
+    private List<?> normalizedUsersList;
+
+    /**
+     * The long[] or String 'usersList' input last decoded by {@link #decodeUsersList(Object)}, so that validation
+     * and filtering decode it once.
+     */
+    private Object decodedSource;
+
+    /**
+     * The IDs of {@link #decodedSource}. Wraps the array itself for a long[] input: never modified.
+     */
+    private CandidateIds decodedUsersList;
+
+    /**
+     * @param source Reads the value of an input by name, {@code null} if not set.
+     */
+    FilterInputs(final Function<String, Object> source) {
+        this.source = source;
+    }
+
+    /**
+     * @param inputName The name of the input parameter.
+     * @return The value of the input, {@code null} if not set.
+     */
+    Object get(final String inputName) {
+        return source.apply(inputName);
+    }
+
+    /**
+     * Reads an optional input holding the name of an enum constant (case insensitive).
+     *
+     * @param <E> The enum type.
+     * @param inputName The name of the input parameter.
+     * @param type The enum class.
+     * @param defaultValue The value used when the input is not set or blank.
+     * @return The selected constant.
+     * @throws ConnectorValidationException if the input does not name a constant of {@code type}.
+     */
+    <E extends Enum<E>> E getEnum(final String inputName, final Class<E> type, final E defaultValue)
+            throws ConnectorValidationException {
+        final Object value = get(inputName);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        }
+        final String name = value.toString().trim();
+        if (name.isEmpty()) {
+            return defaultValue;
+        }
+        for (final E constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(name)) {
+                return constant;
+            }
+        }
+        String errorMessage = String.format(ERR_UNKNOWN_OPTION, inputName, Arrays.toString(type.getEnumConstants()), name);
+        LOGGER.error(errorMessage);
+        throw new ConnectorValidationException(errorMessage);
+    }
+
+    /**
+     * Reads an optional, strictly positive {@code Integer} input. Numeric String values are accepted.
+     *
+     * @param inputName The name of the input parameter.
+     * @param defaultValue The value used when the input is not set or blank.
+     * @return The value of the input.
+     * @throws ConnectorValidationException if the input is not a positive integer.
+     */
+    int getPositiveInt(final String inputName, final int defaultValue) throws ConnectorValidationException {
+        final Object value = get(inputName);
+        if (value == null || value.toString().trim().isEmpty()) {
+            return defaultValue;
+        }
+        long longValue = 0;
+        if (value instanceof Number) {
+            longValue = ((Number) value).longValue();
+        } else {
+            try {
+                longValue = Long.parseLong(value.toString().trim());
+            } catch (final NumberFormatException e) {
+                // Reported as a validation error below
+            }
+        }
+        if (longValue <= 0 || longValue > Integer.MAX_VALUE) {
+            String errorMessage = String.format(ERR_NOT_POSITIVE_INTEGER, inputName, value);
+            LOGGER.error(errorMessage);
+            throw new ConnectorValidationException(errorMessage);
+        }
+        return (int) longValue;
+    }
+
+    /**
+     * Reads an optional {@code Boolean} input. String values are accepted ("true" / "false").
+     *
+     * @param inputName The name of the input parameter.
+     * @param defaultValue The value used when the input is not set.
+     * @return The value of the input.
+     */
+    boolean getBoolean(final String inputName, final boolean defaultValue) {
+        final Object value = get(inputName);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return Boolean.parseBoolean(value.toString().trim());
+    }
+
+    /**
+     * Reads an optional List of organization IDs. {@code Number} and numeric {@code String} elements are accepted.
+     *
+     * @param inputName The name of the input parameter.
+     * @return The IDs, empty when the input is not set.
+     * @throws ConnectorValidationException if the input is not a List of IDs.
+     */
+    long[] getIdList(final String inputName) throws ConnectorValidationException {
+        final Object value = get(inputName);
+        if (value == null) {
+            return NO_IDS;
+        }
+        if (!(value instanceof List)) {
+            throw invalidInput(ERR_NOT_ID_LIST, inputName, value);
+        }
+        final List<?> list = (List<?>) value;
+        final long[] ids = new long[list.size()];
+        int i = 0;
+        for (final Object element : list) {
+            final Long id = toId(element);
+            if (id == null) {
+                throw invalidInput(ERR_NOT_ID_LIST, inputName, value);
+            }
+            ids[i++] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Reads the optional 'weights' input. {@code Number} and numeric {@code String} elements are accepted.
+     *
+     * @return The weights, empty when the input is not set.
+     * @throws ConnectorValidationException if the input is not a List of integers between 0 and {@code Integer.MAX_VALUE}.
+     */
+    int[] getWeights() throws ConnectorValidationException {
+        final Object value = get(MultipleUserIdsActorFilter.WEIGHTS_INPUT);
+        if (value == null) {
+            return NO_WEIGHTS;
+        }
+        if (!(value instanceof List)) {
+            throw invalidInput(ERR_NOT_WEIGHT_LIST, MultipleUserIdsActorFilter.WEIGHTS_INPUT, value);
+        }
+        final List<?> list = (List<?>) value;
+        final int[] weights = new int[list.size()];
+        int i = 0;
+        for (final Object element : list) {
+            final Long weight = toId(element);
+            if (weight == null || weight < 0 || weight > Integer.MAX_VALUE) {
+                throw invalidInput(ERR_NOT_WEIGHT_LIST, MultipleUserIdsActorFilter.WEIGHTS_INPUT, value);
+            }
+            weights[i++] = weight.intValue();
+        }
+        return weights;
+    }
+
+    /**
+     * Reads the optional 'membershipPairs' input.
+     *
+     * @return The memberships flattened as {@code [groupId0, roleId0, groupId1, roleId1...]}, empty when the input is not set.
+     * @throws ConnectorValidationException if a membership is neither a {@code [groupId, roleId]} List
+     *         nor a {@code "groupId:roleId"} String.
+     */
+    long[] getMembershipPairs() throws ConnectorValidationException {
+        final String inputName = MultipleUserIdsActorFilter.MEMBERSHIP_PAIRS_INPUT;
+        final Object value = get(inputName);
+        if (value == null) {
+            return NO_IDS;
+        }
+        if (!(value instanceof List)) {
+            throw invalidInput(ERR_NOT_MEMBERSHIP_LIST, inputName, value);
+        }
+        final List<?> list = (List<?>) value;
+        final long[] pairs = new long[list.size() * 2];
+        int i = 0;
+        for (final Object element : list) {
+            Object groupId = null;
+            Object roleId = null;
+            if (element instanceof List && ((List<?>) element).size() == 2) {
+                groupId = ((List<?>) element).get(0);
+                roleId = ((List<?>) element).get(1);
+            } else if (element instanceof String) {
+                final String[] parts = ((String) element).split(":", -1);
+                if (parts.length == 2) {
+                    groupId = parts[0];
+                    roleId = parts[1];
+                }
+            }
+            final Long group = toId(groupId);
+            final Long role = toId(roleId);
+            if (group == null || role == null) {
+                throw invalidInput(ERR_NOT_MEMBERSHIP_LIST, inputName, element);
+            }
+            pairs[i++] = group;
+            pairs[i++] = role;
+        }
+        return pairs;
+    }
+
+    /**
+     * @return The 'stickyKey' input, or {@code null} when it is not set or blank.
+     */
+    Object getStickyKey() {
+        final Object value = get(MultipleUserIdsActorFilter.STICKY_KEY_INPUT);
+        return value == null || value.toString().trim().isEmpty() ? null : value;
+    }
+
+    /**
+     * Tells whether the 'candidateRule' input is set, without parsing it.
+     *
+     * @return {@code true} if the input is a non-blank value.
+     */
+    boolean hasCandidateRule() {
+        final Object value = get(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT);
+        return value != null && !value.toString().trim().isEmpty();
+    }
+
+    /**
+     * Reads the optional 'candidateRule' input, parsed once per process definition.
+     *
+     * @param processDefinitionId The ID of the process definition, keying the parsed plans.
+     * @return The plan of the rule, {@code null} if the input is not set or blank.
+     * @throws ConnectorValidationException if the rule is malformed.
+     */
+    CandidateRule getCandidateRule(final long processDefinitionId) throws ConnectorValidationException {
+        if (!hasCandidateRule()) {
+            return null;
+        }
+        try {
+            return CandidateRule.forProcessDefinition(processDefinitionId, get(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT).toString());
+        } catch (final IllegalArgumentException e) {
+            throw invalidInput(ERR_INVALID_RULE, MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, e.getMessage());
+        }
+    }
+
+    /**
+     * Tells whether a 'usersList' input is given as a primitive array or as a String of encoded IDs
+     * (see {@link UserIdsCodec}).
+     *
+     * @param usersListInput The input.
+     * @return {@code true} for a {@code long[]} or a {@link String}.
+     */
+    static boolean isEncoded(final Object usersListInput) {
+        return usersListInput instanceof long[] || usersListInput instanceof String;
+    }
+
+    /**
+     * Decodes a long[] or String 'usersList' input into primitive IDs. A long[] is wrapped without copy.
+     * The result is kept for the rest of the execution.
+     *
+     * @param usersListInput The input, a long[] or a String.
+     * @return The IDs, not to be modified.
+     * @throws IllegalArgumentException if the String is neither delimited nor packed IDs.
+     */
+    CandidateIds decodeUsersList(final Object usersListInput) {
+        if (usersListInput != decodedSource) {
+            if (usersListInput instanceof long[]) {
+                decodedUsersList = CandidateIds.wrap((long[]) usersListInput);
+            } else if (UserIdsCodec.isPacked((String) usersListInput)) {
+                decodedUsersList = UserIdsCodec.decodePacked((String) usersListInput);
+            } else {
+                decodedUsersList = UserIdsCodec.decodeDelimited((String) usersListInput);
+            }
+            decodedSource = usersListInput;
+        }
+        return decodedUsersList;
+    }
+
+    /**
+     * Returns a list with constant-time indexed access holding the elements of {@code list}.
+     *
+     * {@code RandomAccess} lists are returned as-is. Others ({@code LinkedList}, lazy Groovy collections...)
+     * would make every {@code get(i)} walk the list, so they are copied once, in a single iteration,
+     * into an array-backed list. The copy is kept for the rest of the execution.
+     *
+     * @param list The 'usersList' input.
+     * @return {@code list}, or an array-backed copy of it.
+     */
+    List<?> toRandomAccess(final List<?> list) {
+        if (list instanceof RandomAccess) {
+            return list;
+        }
+        if (list != normalizedSource) {
+            normalizedUsersList = Arrays.asList(list.toArray());
+            normalizedSource = list;
+            LOGGER.debug("Copied input '{}' ({}) into an array-backed list of {} elements.", MultipleUserIdsActorFilter.USERS_LIST_INPUT,
+                    list.getClass().getSimpleName(), normalizedUsersList.size());
+        }
+        return normalizedUsersList;
+    }
+
+    /**
+     * @return The ID held by an integral {@code Number} or a numeric {@code String}, {@code null} otherwise.
+     */
+    static Long toId(final Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.valueOf(((String) value).trim());
+            } catch (final NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Logs and builds the validation error reporting a malformed input.
+     */
+    static ConnectorValidationException invalidInput(final String template, final String inputName, final Object value) {
+        String errorMessage = String.format(template, inputName, value);
+        LOGGER.error(errorMessage);
+        return new ConnectorValidationException(errorMessage);
+    }
+}
@@ -0,0 +1,84 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * Receives the measures of {@link MultipleUserIdsActorFilter} executions, tagged by process definition ID
+ * and actor name, to be forwarded to a monitoring system (Micrometer, JMX...).
+ *
+ * Implementations are registered with {@link FilterMetricsRegistry}. They are called on the task creation path,
+ * from any work executor thread: they must be thread-safe, fast and must not throw.
+ * Every method does nothing by default.
+ */
+public interface FilterMetrics {
+
+    /**
+     * Metrics that record nothing (default). The filter does not even read the clock while they are registered.
+     */
+    FilterMetrics NOOP = new FilterMetrics() {
+    };
+
+    /**
+     * Records a successful {@code filter()} call.
+     *
+     * @param processDefinitionId The ID of the process definition, {@code 0} if unknown.
+     * @param actorName The name of the filtered actor.
+     * @param durationNanos The duration of the call.
+     * @param candidateCount The number of returned candidates.
+     */
+    default void recordExecution(final long processDefinitionId, final String actorName, final long durationNanos,
+            final int candidateCount) {
+    }
+
+    /**
+     * Records candidates removed by a transformation step. Only called when at least one candidate is removed.
+     *
+     * @param processDefinitionId The ID of the process definition, {@code 0} if unknown.
+     * @param actorName The name of the filtered actor.
+     * @param removal The step that removed the candidates.
+     * @param count The number of removed candidates.
+     */
+    default void recordRemovedCandidates(final long processDefinitionId, final String actorName,
+            final CandidateRemoval removal, final int count) {
+    }
+
+    /**
+     * Records a {@code validateInputParameters()} call that rejected the inputs.
+     * The actor name is not known at validation time.
+     *
+     * @param processDefinitionId The ID of the process definition, {@code 0} if unknown.
+     */
+    default void recordValidationFailure(final long processDefinitionId) {
+    }
+
+    /**
+     * Records a {@code filter()} call that failed.
+     *
+     * @param processDefinitionId The ID of the process definition, {@code 0} if unknown.
+     * @param actorName The name of the filtered actor.
+     */
+    default void recordFilterFailure(final long processDefinitionId, final String actorName) {
+    }
+
+    /**
+     * Records an execution that skipped its engine lookups, but for the candidate rule, on its 'usersList' IDs
+     * because the {@link LookupCircuitBreaker} was open or the prefetched lookups missed their deadline.
+     *
+     * @param processDefinitionId The ID of the process definition, {@code 0} if unknown.
+     * @param actorName The name of the filtered actor.
+     */
+    default void recordDegradedExecution(final long processDefinitionId, final String actorName) {
+    }
+
+    /**
+     * Records the opening of the {@link LookupCircuitBreaker} after consecutive failed or slow lookups.
+     */
+    default void recordCircuitOpened() {
+    }
+
+    /**
+     * Records the closing of the {@link LookupCircuitBreaker} after a successful probe.
+     *
+     * @param degradedNanos The time spent since the breaker opened.
+     */
+    default void recordCircuitClosed(final long degradedNanos) {
+    }
+}
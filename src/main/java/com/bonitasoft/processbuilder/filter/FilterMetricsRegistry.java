@@ -0,0 +1,59 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the {@link FilterMetrics} used by every execution of {@link MultipleUserIdsActorFilter} on this JVM.
+ *
+ * The first implementation declared in a {@code META-INF/services/com.bonitasoft.processbuilder.filter.FilterMetrics}
+ * file of the filter class loader is used, {@link FilterMetrics#NOOP} otherwise. Another implementation can be
+ * registered at any time, e.g. from a tenant startup script: {@code FilterMetricsRegistry.register(metrics)}.
+ */
+public final class FilterMetricsRegistry {
+
+    /**
+     * A logger for this class, used to record log messages and provide debugging information.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilterMetricsRegistry.class);
+
+    private static volatile FilterMetrics metrics = loadMetrics();
+
+    private FilterMetricsRegistry() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * @return The registered metrics, {@link FilterMetrics#NOOP} if none.
+     */
+    public static FilterMetrics get() {
+        return metrics;
+    }
+
+    /**
+     * @param filterMetrics The metrics to record the next executions with, {@code null} to disable them.
+     */
+    public static void register(final FilterMetrics filterMetrics) {
+        metrics = filterMetrics == null ? FilterMetrics.NOOP : filterMetrics;
+        LOGGER.info("Filter metrics registered: {}.", metrics.getClass().getName());
+    }
+
+    private static FilterMetrics loadMetrics() {
+        try {
+            final Iterator<FilterMetrics> implementations = ServiceLoader
+                    .load(FilterMetrics.class, FilterMetrics.class.getClassLoader()).iterator();
+            if (implementations.hasNext()) {
+                final FilterMetrics loaded = implementations.next();
+                LOGGER.info("Filter metrics loaded: {}.", loaded.getClass().getName());
+                return loaded;
+            }
+        } catch (final RuntimeException | ServiceConfigurationError e) {
+            LOGGER.warn("Failed to load the filter metrics, they are disabled.", e);
+        }
+        return FilterMetrics.NOOP;
+    }
+}
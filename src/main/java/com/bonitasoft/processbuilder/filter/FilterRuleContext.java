@@ -0,0 +1,142 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.bpm.process.ProcessInstanceNotFoundException;
+import org.bonitasoft.engine.exception.BonitaException;
+import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the operands of the 'candidateRule' input for one execution of {@link MultipleUserIdsActorFilter},
+ * through the identity lookups of the execution. The engine APIs are only reached when an operand needs them.
+ */
+final class FilterRuleContext implements CandidateRule.Context {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilterRuleContext.class);
+
+    /**
+     * Error template used when a variable referenced by the rule does not hold user IDs.
+     */
+    private static final String ERR_RULE_VARIABLE = "Variable '%s' referenced by input parameter '%s' must hold a user ID or a List of user IDs. Found '%s'.";
+
+    private final long[] usersList;
+    private final String actorName;
+    private final int pageSize;
+    private final int batchSize;
+    private final APIAccessor apiAccessor;
+    private final Supplier<IdentityCandidateResolver> resolverFactory;
+    private final long rootProcessInstanceId;
+    private final long processInstanceId;
+    private IdentityCandidateResolver resolver;
+
+    /**
+     * @param usersList The validated 'usersList' IDs.
+     * @param actorName The name of the actor, used for logging.
+     * @param pageSize The number of users fetched per search call.
+     * @param batchSize The number of users looked up per identity call.
+     * @param apiAccessor The engine APIs.
+     * @param resolverFactory Provides the identity lookups of the execution.
+     * @param rootProcessInstanceId The ID of the case, {@code 0} outside of an execution context.
+     * @param processInstanceId The ID of the process instance holding the variables, {@code 0} outside of an execution context.
+     */
+    FilterRuleContext(final long[] usersList, final String actorName, final int pageSize, final int batchSize,
+            final APIAccessor apiAccessor, final Supplier<IdentityCandidateResolver> resolverFactory,
+            final long rootProcessInstanceId, final long processInstanceId) {
+        this.usersList = usersList;
+        this.actorName = actorName;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        this.apiAccessor = apiAccessor;
+        this.resolverFactory = resolverFactory;
+        this.rootProcessInstanceId = rootProcessInstanceId;
+        this.processInstanceId = processInstanceId;
+    }
+
+    /**
+     * @return The identity lookups of the execution, only created when an operand needs them.
+     */
+    private IdentityCandidateResolver resolver() {
+        if (resolver == null) {
+            resolver = resolverFactory.get();
+        }
+        return resolver;
+    }
+
+    @Override
+    public void addRoleMembers(final CandidateIds target, final long roleId) throws SearchException {
+        resolver().addRoleMembers(target, roleId, pageSize);
+    }
+
+    @Override
+    public void addGroupMembers(final CandidateIds target, final long groupId) throws SearchException {
+        resolver().addGroupMembers(target, groupId, pageSize);
+    }
+
+    @Override
+    public void addMembershipMembers(final CandidateIds target, final long groupId, final long roleId) throws SearchException {
+        resolver().addMembershipMembers(target, groupId, roleId, pageSize);
+    }
+
+    @Override
+    public void addManagers(final CandidateIds target, final CandidateIds users) {
+        resolver().addManagers(target, users, batchSize);
+    }
+
+    @Override
+    public void addInitiator(final CandidateIds target) throws ProcessInstanceNotFoundException {
+        if (rootProcessInstanceId == 0L) {
+            LOGGER.debug("No execution context: skipping the initiator lookup for actor '{}'.", actorName);
+            return;
+        }
+        final long initiator = new ProcessActorsResolver(apiAccessor.getProcessAPI()).findInitiator(rootProcessInstanceId);
+        if (initiator != ProcessActorsResolver.NO_USER) {
+            target.add(initiator);
+        }
+    }
+
+    @Override
+    public void addUsersList(final CandidateIds target) {
+        for (final long userId : usersList) {
+            target.add(userId);
+        }
+    }
+
+    @Override
+    public void addVariableUsers(final CandidateIds target, final String variableName) throws BonitaException {
+        final Serializable value = apiAccessor.getProcessAPI().getProcessDataInstance(variableName, processInstanceId).getValue();
+        addVariableUserIds(target, variableName, value);
+    }
+
+    /**
+     * Appends the user IDs held by a process variable: a number, a numeric String, a long[] or a Collection of them.
+     * A {@code null} value adds nothing.
+     *
+     * @throws UserFilterException if the value does not hold user IDs.
+     */
+    private static void addVariableUserIds(final CandidateIds target, final String variableName, final Object value)
+            throws UserFilterException {
+        if (value instanceof long[]) {
+            for (final long id : (long[]) value) {
+                target.add(id);
+            }
+            return;
+        }
+        final Collection<?> elements = value instanceof Collection ? (Collection<?>) value
+                : value == null ? Collections.emptyList() : Collections.singletonList(value);
+        for (final Object element : elements) {
+            final Long id = FilterInputs.toId(element);
+            if (id == null) {
+                throw new UserFilterException(String.format(ERR_RULE_VARIABLE, variableName,
+                        MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, value));
+            }
+            target.add(id);
+        }
+    }
+}
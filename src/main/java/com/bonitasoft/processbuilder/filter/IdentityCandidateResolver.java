@@ -0,0 +1,278 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.identity.User;
+import org.bonitasoft.engine.identity.UserSearchDescriptor;
+import org.bonitasoft.engine.search.Order;
+import org.bonitasoft.engine.search.SearchOptionsBuilder;
+import org.bonitasoft.engine.search.SearchResult;
+
+/**
+ * Resolves candidate user IDs against the organization through the {@link IdentityAPI}.
+ *
+ * Lookups are always done in bulk: a candidate list of n IDs costs {@code ceil(n / batchSize)}
+ * engine calls instead of one call per user. Roles, groups and memberships are expanded to user IDs
+ * through paged searches.
+ *
+ * A resolver created by {@link #shared(IdentityAPI)} serves several filter executions, such as the activity
+ * instances of a {@link MultipleUserIdsActorFilter#filterBatch} call: it remembers the members of each role, group
+ * and membership and the looked up users, so that each search runs once and each distinct ID is looked up once
+ * across the executions. It is not thread-safe: the lookups of a {@link LookupPrefetcher} each fill their own,
+ * then {@link #absorb(IdentityCandidateResolver)} merges them.
+ */
+final class IdentityCandidateResolver {
+
+    /**
+     * Default number of user IDs sent in a single {@code getUsers(List<Long>)} call.
+     */
+    static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final IdentityAPI identityAPI;
+
+    /**
+     * Members of each searched role, group or membership, {@code null} unless shared.
+     */
+    private final Map<String, long[]> membersBySearch;
+
+    /**
+     * IDs already looked up, {@code null} unless shared.
+     */
+    private final LongHashSet lookedUpUsers;
+
+    /**
+     * Looked up IDs matching an enabled user, {@code null} unless shared.
+     */
+    private final LongHashSet enabledLookedUpUsers;
+
+    /**
+     * @param identityAPI The identity API of the engine.
+     */
+    IdentityCandidateResolver(final IdentityAPI identityAPI) {
+        this(identityAPI, false);
+    }
+
+    private IdentityCandidateResolver(final IdentityAPI identityAPI, final boolean shared) {
+        this.identityAPI = identityAPI;
+        this.membersBySearch = shared ? new HashMap<>() : null;
+        this.lookedUpUsers = shared ? new LongHashSet(DEFAULT_BATCH_SIZE) : null;
+        this.enabledLookedUpUsers = shared ? new LongHashSet(DEFAULT_BATCH_SIZE) : null;
+    }
+
+    /**
+     * @param identityAPI The identity API of the engine.
+     * @return A resolver remembering its search results and looked up users, for several executions.
+     */
+    static IdentityCandidateResolver shared(final IdentityAPI identityAPI) {
+        return new IdentityCandidateResolver(identityAPI, true);
+    }
+
+    /**
+     * Adds the search results and looked up users of another shared resolver to this one.
+     *
+     * @param other A shared resolver, no longer used by another thread.
+     */
+    void absorb(final IdentityCandidateResolver other) {
+        membersBySearch.putAll(other.membersBySearch);
+        other.lookedUpUsers.forEach(lookedUpUsers::add);
+        other.enabledLookedUpUsers.forEach(enabledLookedUpUsers::add);
+    }
+
+    /**
+     * Removes the candidates that do not match an existing, enabled user.
+     * Each distinct ID is looked up once, even if it appears several times in the candidates.
+     *
+     * @param candidates The candidates to check, modified in place.
+     * @param batchSize The maximum number of IDs sent in a single {@code getUsers} call.
+     * @return The number of removed candidates.
+     */
+    int retainEnabledUsers(final CandidateIds candidates, final int batchSize) {
+        final LongHashSet enabledUsers = findEnabledUsers(candidates, batchSize);
+        return candidates.retainIf(enabledUsers::contains);
+    }
+
+    /**
+     * Looks up the distinct candidates in batches and collects the IDs of the enabled users.
+     * A shared resolver only looks up the IDs it has not seen yet.
+     *
+     * @param candidates The candidates to look up.
+     * @param batchSize The maximum number of IDs sent in a single {@code getUsers} call.
+     * @return The IDs of the candidates matching an existing, enabled user, and for a shared resolver
+     *         those of the previous lookups.
+     */
+    LongHashSet findEnabledUsers(final CandidateIds candidates, final int batchSize) {
+        final int size = candidates.size();
+        final LongHashSet requested = lookedUpUsers != null ? lookedUpUsers : new LongHashSet(size);
+        final LongHashSet enabledUsers = enabledLookedUpUsers != null ? enabledLookedUpUsers : new LongHashSet(size);
+        final List<Long> batch = new ArrayList<>(Math.min(batchSize, size));
+        for (int i = 0; i < size; i++) {
+            final long userId = candidates.get(i);
+            if (requested.add(userId)) {
+                batch.add(userId);
+                if (batch.size() == batchSize) {
+                    collectEnabledUsers(batch, enabledUsers);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            collectEnabledUsers(batch, enabledUsers);
+        }
+        return enabledUsers;
+    }
+
+    /**
+     * Loads the IDs of every enabled user of the organization, page by page, without keeping the {@link User}s.
+     *
+     * @param pageSize The number of users fetched per search call.
+     * @return The IDs of the enabled users.
+     * @throws SearchException if a search call fails.
+     */
+    CandidateIds loadEnabledUserIds(final int pageSize) throws SearchException {
+        final CandidateIds enabledUsers = new CandidateIds(pageSize);
+        addSearchedUserIds(enabledUsers, pageSize, options -> options.filter(UserSearchDescriptor.ENABLED, true));
+        return enabledUsers;
+    }
+
+    /**
+     * Appends the IDs of the users having a role, in any group.
+     *
+     * @param candidates The candidates to append to.
+     * @param roleId The ID of the role.
+     * @param pageSize The number of users fetched per search call.
+     * @return The number of appended IDs.
+     * @throws SearchException if a search call fails.
+     */
+    int addRoleMembers(final CandidateIds candidates, final long roleId, final int pageSize) throws SearchException {
+        return addSearchedUserIds(candidates, "role:" + roleId, pageSize,
+                options -> options.filter(UserSearchDescriptor.ROLE_ID, roleId));
+    }
+
+    /**
+     * Appends the IDs of the users belonging to a group, with any role.
+     *
+     * @param candidates The candidates to append to.
+     * @param groupId The ID of the group.
+     * @param pageSize The number of users fetched per search call.
+     * @return The number of appended IDs.
+     * @throws SearchException if a search call fails.
+     */
+    int addGroupMembers(final CandidateIds candidates, final long groupId, final int pageSize) throws SearchException {
+        return addSearchedUserIds(candidates, "group:" + groupId, pageSize,
+                options -> options.filter(UserSearchDescriptor.GROUP_ID, groupId));
+    }
+
+    /**
+     * Appends the IDs of the users having a role in a group.
+     *
+     * @param candidates The candidates to append to.
+     * @param groupId The ID of the group.
+     * @param roleId The ID of the role.
+     * @param pageSize The number of users fetched per search call.
+     * @return The number of appended IDs.
+     * @throws SearchException if a search call fails.
+     */
+    int addMembershipMembers(final CandidateIds candidates, final long groupId, final long roleId, final int pageSize)
+            throws SearchException {
+        return addSearchedUserIds(candidates, "membership:" + groupId + ":" + roleId, pageSize, options -> options
+                .filter(UserSearchDescriptor.GROUP_ID, groupId)
+                .filter(UserSearchDescriptor.ROLE_ID, roleId));
+    }
+
+    /**
+     * Appends the IDs of the managers of the given users, looked up in batches, in the order of the users.
+     * Unknown users and users without a manager add nothing.
+     *
+     * @param candidates The candidates to append to.
+     * @param users The distinct users whose managers are looked up.
+     * @param batchSize The maximum number of IDs sent in a single {@code getUsers} call.
+     * @return The number of appended IDs.
+     */
+    int addManagers(final CandidateIds candidates, final CandidateIds users, final int batchSize) {
+        final int initialSize = candidates.size();
+        final int size = users.size();
+        final List<Long> batch = new ArrayList<>(Math.min(batchSize, size));
+        for (int i = 0; i < size; i++) {
+            batch.add(users.get(i));
+            if (batch.size() == batchSize || i == size - 1) {
+                final Map<Long, User> found = identityAPI.getUsers(batch);
+                for (final Long userId : batch) {
+                    final User user = found.get(userId);
+                    if (user != null && user.getManagerUserId() > 0) {
+                        candidates.add(user.getManagerUserId());
+                    }
+                }
+                batch.clear();
+            }
+        }
+        return candidates.size() - initialSize;
+    }
+
+    /**
+     * Appends the members of a search, from the remembered ones when this resolver is shared and already ran it.
+     */
+    private int addSearchedUserIds(final CandidateIds candidates, final String searchKey, final int pageSize,
+            final Consumer<SearchOptionsBuilder> criteria) throws SearchException {
+        if (membersBySearch == null) {
+            return addSearchedUserIds(candidates, pageSize, criteria);
+        }
+        long[] members = membersBySearch.get(searchKey);
+        if (members == null) {
+            final CandidateIds searched = new CandidateIds(pageSize);
+            addSearchedUserIds(searched, pageSize, criteria);
+            members = searched.toArray();
+            membersBySearch.put(searchKey, members);
+        }
+        for (final long userId : members) {
+            candidates.add(userId);
+        }
+        return members.length;
+    }
+
+    /**
+     * Pages through the users matching {@code criteria}, sorted by ID, and appends their IDs. Each page starts after
+     * the last ID of the previous one (keyset paging) rather than at an offset, so that the database does not skip
+     * the previous pages again: loading the whole organization stays linear in its size.
+     * Only one page of {@link User}s is held in memory at a time.
+     */
+    private int addSearchedUserIds(final CandidateIds candidates, final int pageSize,
+            final Consumer<SearchOptionsBuilder> criteria) throws SearchException {
+        final int initialSize = candidates.size();
+        long lastUserId = -1L;
+        List<User> page;
+        do {
+            final SearchOptionsBuilder options = new SearchOptionsBuilder(0, pageSize);
+            criteria.accept(options);
+            if (lastUserId >= 0) {
+                options.greaterThan(UserSearchDescriptor.ID, lastUserId);
+            }
+            final SearchResult<User> result = identityAPI.searchUsers(options.sort(UserSearchDescriptor.ID, Order.ASC).done());
+            page = result.getResult();
+            for (final User user : page) {
+                candidates.add(user.getId());
+            }
+            if (!page.isEmpty()) {
+                lastUserId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == pageSize);
+        return candidates.size() - initialSize;
+    }
+
+    /**
+     * Runs one bulk lookup and clears the batch so that it can be reused.
+     */
+    private void collectEnabledUsers(final List<Long> batch, final LongHashSet enabledUsers) {
+        final Map<Long, User> users = identityAPI.getUsers(batch);
+        for (final User user : users.values()) {
+            if (user != null && user.isEnabled()) {
+                enabledUsers.add(user.getId());
+            }
+        }
+        batch.clear();
+    }
+}
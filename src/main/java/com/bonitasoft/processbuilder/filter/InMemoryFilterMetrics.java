@@ -0,0 +1,202 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link FilterMetrics} kept in memory, per process definition ID and actor name: for tests, or to be read
+ * periodically by a monitoring script.
+ *
+ * Candidate counts are recorded in a histogram of power-of-two buckets: bucket {@code 0} counts the executions
+ * returning no candidate, bucket {@code b} those returning {@code 2^(b-1)} to {@code 2^b - 1} candidates.
+ */
+public final class InMemoryFilterMetrics implements FilterMetrics {
+
+    /**
+     * Number of buckets of the candidate count histogram, enough for any {@code int}.
+     */
+    public static final int HISTOGRAM_BUCKETS = Integer.SIZE;
+
+    private final ConcurrentMap<String, ActorMetrics> actorMetrics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, LongAdder> validationFailures = new ConcurrentHashMap<>();
+    private final LongAdder circuitOpenings = new LongAdder();
+    private final LongAdder circuitClosings = new LongAdder();
+    private final LongAdder degradedNanos = new LongAdder();
+
+    /**
+     * Measures of one actor of one process definition.
+     */
+    private static final class ActorMetrics {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder totalDurationNanos = new LongAdder();
+        private final AtomicLong maxDurationNanos = new AtomicLong();
+        private final AtomicLongArray candidateCountHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+        private final AtomicLongArray removedCandidates = new AtomicLongArray(CandidateRemoval.values().length);
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder degradedExecutions = new LongAdder();
+    }
+
+    @Override
+    public void recordExecution(final long processDefinitionId, final String actorName, final long durationNanos,
+            final int candidateCount) {
+        final ActorMetrics metrics = metrics(processDefinitionId, actorName);
+        metrics.executions.increment();
+        metrics.totalDurationNanos.add(durationNanos);
+        metrics.maxDurationNanos.accumulateAndGet(durationNanos, Math::max);
+        metrics.candidateCountHistogram.incrementAndGet(bucket(candidateCount));
+    }
+
+    @Override
+    public void recordRemovedCandidates(final long processDefinitionId, final String actorName,
+            final CandidateRemoval removal, final int count) {
+        metrics(processDefinitionId, actorName).removedCandidates.addAndGet(removal.ordinal(), count);
+    }
+
+    @Override
+    public void recordValidationFailure(final long processDefinitionId) {
+        validationFailures.computeIfAbsent(processDefinitionId, id -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void recordFilterFailure(final long processDefinitionId, final String actorName) {
+        metrics(processDefinitionId, actorName).failures.increment();
+    }
+
+    @Override
+    public void recordDegradedExecution(final long processDefinitionId, final String actorName) {
+        metrics(processDefinitionId, actorName).degradedExecutions.increment();
+    }
+
+    @Override
+    public void recordCircuitOpened() {
+        circuitOpenings.increment();
+    }
+
+    @Override
+    public void recordCircuitClosed(final long degradedNanos) {
+        circuitClosings.increment();
+        this.degradedNanos.add(degradedNanos);
+    }
+
+    /**
+     * @return The number of successful {@code filter()} calls for the actor.
+     */
+    public long getExecutionCount(final long processDefinitionId, final String actorName) {
+        final ActorMetrics metrics = actorMetrics.get(key(processDefinitionId, actorName));
+        return metrics == null ? 0 : metrics.executions.sum();
+    }
+
+    /**
+     * @return The total duration of the successful {@code filter()} calls for the actor, in nanoseconds.
+     */
+    public long getTotalDurationNanos(final long processDefinitionId, final String actorName) {
+        final ActorMetrics metrics = actorMetrics.get(key(processDefinitionId, actorName));
+        return metrics == null ? 0 : metrics.totalDurationNanos.sum();
+    }
+
+    /**
+     * @return The longest successful {@code filter()} call for the actor, in nanoseconds.
+     */
+    public long getMaxDurationNanos(final long processDefinitionId, final String actorName) {
+        final ActorMetrics metrics = actorMetrics.get(key(processDefinitionId, actorName));
+        return metrics == null ? 0 : metrics.maxDurationNanos.get();
+    }
+
+    /**
+     * @return A copy of the candidate count histogram of the actor, {@link #HISTOGRAM_BUCKETS} buckets.
+     */
+    public long[] getCandidateCountHistogram(final long processDefinitionId, final String actorName) {
+        final long[] histogram = new long[HISTOGRAM_BUCKETS];
+        final ActorMetrics metrics = actorMetrics.get(key(processDefinitionId, actorName));
+        if (metrics != null) {
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                histogram[i] = metrics.candidateCountHistogram.get(i);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return The number of candidates removed by the given step for the actor.
+     */
+    public long getRemovedCount(final long processDefinitionId, final String actorName, final CandidateRemoval removal) {
+        final ActorMetrics metrics = actorMetrics.get(key(processDefinitionId, actorName));
+        return metrics == null ? 0 : metrics.removedCandidates.get(removal.ordinal());
+    }
+
+    /**
+     * @return The number of failed {@code filter()} calls for the actor.
+     */
+    public long getFilterFailureCount(final long processDefinitionId, final String actorName) {
+        final ActorMetrics metrics = actorMetrics.get(key(processDefinitionId, actorName));
+        return metrics == null ? 0 : metrics.failures.sum();
+    }
+
+    /**
+     * @return The number of rejected {@code validateInputParameters()} calls for the process definition.
+     */
+    public long getValidationFailureCount(final long processDefinitionId) {
+        final LongAdder failures = validationFailures.get(processDefinitionId);
+        return failures == null ? 0 : failures.sum();
+    }
+
+    /**
+     * @return The number of calls for the actor that skipped their engine lookups, the circuit breaker being open
+     *         or the prefetch deadline missed.
+     */
+    public long getDegradedExecutionCount(final long processDefinitionId, final String actorName) {
+        final ActorMetrics metrics = actorMetrics.get(key(processDefinitionId, actorName));
+        return metrics == null ? 0 : metrics.degradedExecutions.sum();
+    }
+
+    /**
+     * @return The number of times the lookup circuit breaker opened.
+     */
+    public long getCircuitOpenCount() {
+        return circuitOpenings.sum();
+    }
+
+    /**
+     * @return The number of times the lookup circuit breaker closed again.
+     */
+    public long getCircuitCloseCount() {
+        return circuitClosings.sum();
+    }
+
+    /**
+     * @return The time spent in degraded mode by the lookup circuit breaker, over the degraded periods that ended, in nanoseconds.
+     */
+    public long getDegradedNanos() {
+        return degradedNanos.sum();
+    }
+
+    /**
+     * Discards every measure.
+     */
+    public void clear() {
+        actorMetrics.clear();
+        validationFailures.clear();
+        circuitOpenings.reset();
+        circuitClosings.reset();
+        degradedNanos.reset();
+    }
+
+    /**
+     * @param candidateCount A number of candidates.
+     * @return The histogram bucket of the count.
+     */
+    static int bucket(final int candidateCount) {
+        return candidateCount <= 0 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(candidateCount);
+    }
+
+    private ActorMetrics metrics(final long processDefinitionId, final String actorName) {
+        return actorMetrics.computeIfAbsent(key(processDefinitionId, actorName), key -> new ActorMetrics());
+    }
+
+    private static String key(final long processDefinitionId, final String actorName) {
+        return processDefinitionId + ":" + actorName;
+    }
+}
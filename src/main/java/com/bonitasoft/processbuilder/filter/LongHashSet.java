@@ -0,0 +1,143 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Minimal open-addressing hash set of primitive {@code long}s (linear probing, no boxing).
+ *
+ * Only insertion and lookup are supported, which is all the candidate set operations need.
+ * The table is sized up front from the expected number of elements and doubles when it gets half full.
+ */
+final class LongHashSet {
+
+    /**
+     * Marks an empty slot. The value {@code 0} itself is tracked by {@link #containsZero}.
+     */
+    private static final long EMPTY = 0L;
+
+    /**
+     * Fibonacci hashing multiplier (2^64 / golden ratio).
+     */
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] table;
+    private int mask;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsZero;
+
+    /**
+     * Creates a set able to hold {@code expectedSize} elements without resizing.
+     *
+     * @param expectedSize The expected number of elements.
+     */
+    LongHashSet(final int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Adds {@code value} to the set.
+     *
+     * @param value The value to add.
+     * @return {@code true} if the value was not already present.
+     */
+    boolean add(final long value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slot(value);
+        long current;
+        while ((current = table[slot]) != EMPTY) {
+            if (current == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * @param value The value to look for.
+     * @return {@code true} if the value is present.
+     */
+    boolean contains(final long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int slot = slot(value);
+        long current;
+        while ((current = table[slot]) != EMPTY) {
+            if (current == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Calls {@code action} with each value, in no particular order.
+     *
+     * @param action The action to run.
+     */
+    void forEach(final LongConsumer action) {
+        if (containsZero) {
+            action.accept(EMPTY);
+        }
+        for (final long value : table) {
+            if (value != EMPTY) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * @return The number of distinct values in the set.
+     */
+    int size() {
+        return size;
+    }
+
+    private int slot(final long value) {
+        return (int) ((value * GOLDEN_RATIO) >>> shift);
+    }
+
+    private void allocate(final int tableSize) {
+        table = new long[tableSize];
+        mask = tableSize - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+        resizeThreshold = tableSize >>> 1;
+    }
+
+    private void rehash() {
+        final long[] previous = table;
+        allocate(previous.length << 1);
+        for (final long value : previous) {
+            if (value != EMPTY) {
+                int slot = slot(value);
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * @return The smallest power of two keeping the load factor under 50% for {@code expectedSize} elements.
+     */
+    private static int tableSizeFor(final int expectedSize) {
+        final int minimum = Math.max(4, expectedSize) * 2;
+        return Integer.highestOneBit(minimum - 1) << 1;
+    }
+}
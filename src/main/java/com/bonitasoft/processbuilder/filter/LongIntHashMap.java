@@ -0,0 +1,126 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * Minimal open-addressing hash map from primitive {@code long} keys to {@code int} values
+ * (linear probing, no boxing), the map counterpart of {@link LongHashSet}.
+ */
+final class LongIntHashMap {
+
+    /**
+     * Marks an empty slot. The key {@code 0} itself is tracked by {@link #containsZero}.
+     */
+    private static final long EMPTY = 0L;
+
+    /**
+     * Fibonacci hashing multiplier (2^64 / golden ratio).
+     */
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsZero;
+    private int zeroValue;
+
+    /**
+     * Creates a map able to hold {@code expectedSize} entries without resizing.
+     *
+     * @param expectedSize The expected number of entries.
+     */
+    LongIntHashMap(final int expectedSize) {
+        final int minimum = Math.max(4, expectedSize) * 2;
+        allocate(Integer.highestOneBit(minimum - 1) << 1);
+    }
+
+    /**
+     * Associates {@code value} with {@code key}, unless the key is already present.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return {@code true} if the key was not already present.
+     */
+    boolean putIfAbsent(final long key, final int value) {
+        if (key == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            zeroValue = value;
+            size++;
+            return true;
+        }
+        int slot = slot(key);
+        long current;
+        while ((current = keys[slot]) != EMPTY) {
+            if (current == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * @param key The key to look for.
+     * @param defaultValue The value returned when the key is absent.
+     * @return The value associated with {@code key}, or {@code defaultValue}.
+     */
+    int get(final long key, final int defaultValue) {
+        if (key == EMPTY) {
+            return containsZero ? zeroValue : defaultValue;
+        }
+        int slot = slot(key);
+        long current;
+        while ((current = keys[slot]) != EMPTY) {
+            if (current == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return The number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    private int slot(final long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> shift);
+    }
+
+    private void allocate(final int tableSize) {
+        keys = new long[tableSize];
+        values = new int[tableSize];
+        mask = tableSize - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+        resizeThreshold = tableSize >>> 1;
+    }
+
+    private void rehash() {
+        final long[] previousKeys = keys;
+        final int[] previousValues = values;
+        allocate(previousKeys.length << 1);
+        for (int i = 0; i < previousKeys.length; i++) {
+            final long key = previousKeys[i];
+            if (key != EMPTY) {
+                int slot = slot(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = previousValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.Arrays;
+
+/**
+ * Least-significant-digit radix sort of {@code long}s, one byte per pass.
+ *
+ * The counts of the eight bytes are taken in a single read of the values, and the passes on a byte shared by
+ * every value are skipped: user IDs below 2^24 take at most three passes instead of eight. Short ranges fall back to
+ * {@link Arrays#sort(long[], int, int)}, faster below a few hundred values.
+ */
+final class LongRadixSort {
+
+    /**
+     * Length under which {@link Arrays#sort(long[], int, int)} is used.
+     */
+    static final int ARRAYS_SORT_THRESHOLD = 256;
+
+    private static final int RADIX = 256;
+
+    private static final int PASSES = Long.BYTES;
+
+    private LongRadixSort() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Sorts a range in ascending signed order.
+     *
+     * @param values The array to sort in place.
+     * @param from The first position of the range, inclusive.
+     * @param to The last position of the range, exclusive.
+     */
+    static void sort(final long[] values, final int from, final int to) {
+        final int length = to - from;
+        if (length < ARRAYS_SORT_THRESHOLD) {
+            Arrays.sort(values, from, to);
+            return;
+        }
+        final int[][] counts = new int[PASSES][RADIX];
+        for (int i = from; i < to; i++) {
+            // Flipping the sign bit orders negative values first
+            final long key = values[i] ^ Long.MIN_VALUE;
+            for (int pass = 0; pass < PASSES; pass++) {
+                counts[pass][(int) (key >>> (pass * 8)) & 0xFF]++;
+            }
+        }
+        long[] source = values;
+        int sourceFrom = from;
+        long[] target = new long[length];
+        int targetFrom = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            final int[] count = counts[pass];
+            final int shift = pass * 8;
+            if (count[(int) ((source[sourceFrom] ^ Long.MIN_VALUE) >>> shift) & 0xFF] == length) {
+                // Every value has the same byte
+                continue;
+            }
+            int offset = targetFrom;
+            for (int digit = 0; digit < RADIX; digit++) {
+                final int digitCount = count[digit];
+                count[digit] = offset;
+                offset += digitCount;
+            }
+            for (int i = sourceFrom; i < sourceFrom + length; i++) {
+                final long value = source[i];
+                target[count[(int) ((value ^ Long.MIN_VALUE) >>> shift) & 0xFF]++] = value;
+            }
+            final long[] swap = source;
+            final int swapFrom = sourceFrom;
+            source = target;
+            sourceFrom = targetFrom;
+            target = swap;
+            targetFrom = swapFrom;
+        }
+        if (source != values) {
+            System.arraycopy(source, sourceFrom, values, from, length);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, compressed set of {@code long}s stored as sorted runs of consecutive values.
+ *
+ * Bonita user IDs are allocated sequentially, so the enabled users of an organization form a few long runs
+ * (holes being deleted or disabled users). Each run costs 16 bytes whatever its length,
+ * and lookups are a binary search over the run starts.
+ */
+final class LongRunSet {
+
+    /**
+     * First value of each run, in ascending order.
+     */
+    private final long[] runStarts;
+
+    /**
+     * Last value (inclusive) of each run.
+     */
+    private final long[] runEnds;
+
+    /**
+     * Number of values in the set.
+     */
+    private final long cardinality;
+
+    private LongRunSet(final long[] runStarts, final long[] runEnds, final long cardinality) {
+        this.runStarts = runStarts;
+        this.runEnds = runEnds;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Builds a set from values in any order, possibly with duplicates.
+     *
+     * @param values The values. The array is sorted in place.
+     * @param length The number of meaningful values at the beginning of {@code values}.
+     * @return The compressed set.
+     */
+    static LongRunSet of(final long[] values, final int length) {
+        Arrays.sort(values, 0, length);
+        long[] starts = new long[16];
+        long[] ends = new long[16];
+        int runs = 0;
+        long cardinality = 0;
+        for (int i = 0; i < length; i++) {
+            final long value = values[i];
+            if (runs > 0) {
+                final long end = ends[runs - 1];
+                if (value <= end) {
+                    // Duplicate
+                    continue;
+                }
+                if (value - 1 == end) {
+                    ends[runs - 1] = value;
+                    cardinality++;
+                    continue;
+                }
+            }
+            if (runs == starts.length) {
+                starts = Arrays.copyOf(starts, runs * 2);
+                ends = Arrays.copyOf(ends, runs * 2);
+            }
+            starts[runs] = value;
+            ends[runs] = value;
+            runs++;
+            cardinality++;
+        }
+        return new LongRunSet(Arrays.copyOf(starts, runs), Arrays.copyOf(ends, runs), cardinality);
+    }
+
+    /**
+     * @param value The value to look for.
+     * @return {@code true} if the value belongs to one of the runs.
+     */
+    boolean contains(final long value) {
+        int low = 0;
+        int high = runStarts.length - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (runStarts[middle] > value) {
+                high = middle - 1;
+            } else if (runEnds[middle] < value) {
+                low = middle + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of values in the set.
+     */
+    long cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return The number of runs used to store the values.
+     */
+    int runCount() {
+        return runStarts.length;
+    }
+
+    /**
+     * @return The greatest value of the set, or {@code Long.MIN_VALUE} if the set is empty.
+     */
+    long max() {
+        return runEnds.length == 0 ? Long.MIN_VALUE : runEnds[runEnds.length - 1];
+    }
+}
@@ -0,0 +1,198 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local circuit breaker around the engine lookups of {@link MultipleUserIdsActorFilter}, shared by every
+ * execution on this JVM that sets the 'lookupBudgetMillis' input.
+ *
+ * An execution whose lookups fail, or take longer than its latency budget, counts as a failure. After
+ * {@link #DEFAULT_FAILURE_THRESHOLD} consecutive failures the breaker opens: the executions skip their lookups and
+ * only apply the local steps to their 'usersList' IDs, instead of blocking the work threads on a slow identity database.
+ * Once {@link #DEFAULT_OPEN_SECONDS} have elapsed, a single execution is let through (half-open): the breaker closes
+ * if it succeeds, and opens again otherwise.
+ *
+ * The time spent between the opening and the closing (degraded mode) is accumulated by {@link #getDegradedNanos()}.
+ */
+public final class LookupCircuitBreaker {
+
+    /**
+     * The states of the breaker.
+     */
+    public enum State {
+        /**
+         * The lookups run.
+         */
+        CLOSED,
+        /**
+         * The lookups are skipped.
+         */
+        OPEN,
+        /**
+         * A single execution runs its lookups to probe the engine; the others skip them.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Default number of consecutive failed executions opening the breaker.
+     */
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * Default time the breaker stays open before letting a probe through, in seconds.
+     */
+    static final int DEFAULT_OPEN_SECONDS = 30;
+
+    /**
+     * Returned by {@link #onSuccess()} when the breaker did not close.
+     */
+    static final long NOT_RECOVERED = -1L;
+
+    private static final LookupCircuitBreaker INSTANCE = new LookupCircuitBreaker(DEFAULT_FAILURE_THRESHOLD,
+            TimeUnit.SECONDS.toNanos(DEFAULT_OPEN_SECONDS), System::nanoTime);
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private long degradedSinceNanos;
+    private long tripCount;
+    private long recoveryCount;
+    private long shortCircuitCount;
+    private long degradedNanos;
+
+    /**
+     * @param failureThreshold The number of consecutive failed executions opening the breaker.
+     * @param openNanos The time the breaker stays open before letting a probe through.
+     * @param nanoClock The time source, {@code System::nanoTime} outside of tests.
+     */
+    LookupCircuitBreaker(final int failureThreshold, final long openNanos, final LongSupplier nanoClock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return The breaker shared by every filter execution on this node.
+     */
+    public static LookupCircuitBreaker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return The current state of the breaker.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return The number of times the breaker opened after consecutive failures.
+     */
+    public synchronized long getTripCount() {
+        return tripCount;
+    }
+
+    /**
+     * @return The number of times the breaker closed after a successful probe.
+     */
+    public synchronized long getRecoveryCount() {
+        return recoveryCount;
+    }
+
+    /**
+     * @return The number of executions that skipped their lookups while the breaker was not closed.
+     */
+    public synchronized long getShortCircuitCount() {
+        return shortCircuitCount;
+    }
+
+    /**
+     * @return The total time spent in degraded mode, including the current period if the breaker is not closed.
+     */
+    public synchronized long getDegradedNanos() {
+        return state == State.CLOSED ? degradedNanos : degradedNanos + nanoClock.getAsLong() - degradedSinceNanos;
+    }
+
+    /**
+     * Closes the breaker and discards its counters, e.g. once the identity database is known to be back.
+     */
+    public synchronized void reset() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        tripCount = 0;
+        recoveryCount = 0;
+        shortCircuitCount = 0;
+        degradedNanos = 0;
+    }
+
+    /**
+     * @return {@code true} if the lookups would be skipped: the breaker is open and not due for a probe.
+     */
+    synchronized boolean isOpen() {
+        return state == State.HALF_OPEN || state == State.OPEN && nanoClock.getAsLong() - openedAtNanos < openNanos;
+    }
+
+    /**
+     * Asks whether an execution may run its lookups. When it may, it must report their outcome with
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return {@code true} if the breaker is closed, or if the caller is the probe of a half-open breaker.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openNanos) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        shortCircuitCount++;
+        return false;
+    }
+
+    /**
+     * Reports lookups that ended within their budget.
+     *
+     * @return The time spent in degraded mode when this success closed the breaker, {@link #NOT_RECOVERED} otherwise.
+     */
+    synchronized long onSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.HALF_OPEN) {
+            return NOT_RECOVERED;
+        }
+        state = State.CLOSED;
+        recoveryCount++;
+        final long degradedPeriodNanos = nanoClock.getAsLong() - degradedSinceNanos;
+        degradedNanos += degradedPeriodNanos;
+        return degradedPeriodNanos;
+    }
+
+    /**
+     * Reports lookups that failed or exceeded their budget.
+     *
+     * @return {@code true} if this failure opened a closed breaker.
+     */
+    synchronized boolean onFailure() {
+        if (state == State.HALF_OPEN) {
+            // The probe failed: wait for another open period, still in the same degraded period
+            state = State.OPEN;
+            openedAtNanos = nanoClock.getAsLong();
+            return false;
+        }
+        if (state == State.OPEN || ++consecutiveFailures < failureThreshold) {
+            return false;
+        }
+        state = State.OPEN;
+        consecutiveFailures = 0;
+        openedAtNanos = nanoClock.getAsLong();
+        degradedSinceNanos = openedAtNanos;
+        tripCount++;
+        return true;
+    }
+}
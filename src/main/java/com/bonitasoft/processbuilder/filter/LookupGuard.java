@@ -0,0 +1,139 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.exception.BonitaException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides, for one execution of {@link MultipleUserIdsActorFilter}, whether the steps calling the engine run, and
+ * times them behind the {@link LookupCircuitBreaker}.
+ *
+ * The steps run without their engine lookups when the prefetched lookups missed their deadline or the breaker is
+ * open, unless there are no 'usersList' IDs to fall back to. A rule calling the engine is never degraded: it runs
+ * behind the breaker after a missed deadline, and fails the execution while the breaker is open. Degraded
+ * executions and breaker transitions are reported to the logs and the metrics.
+ */
+final class LookupGuard {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LookupGuard.class);
+
+    /**
+     * Error template used when a rule calling the engine is evaluated while the circuit breaker is open.
+     */
+    private static final String ERR_RULE_SHORT_CIRCUITED = "Input parameter '%s' of actor '%s' needs engine lookups, skipped while the lookup circuit breaker is open.";
+
+    /**
+     * Steps calling the engine, run by {@link LookupGuard#run(CandidateIds, boolean, boolean, int, EngineSteps)}.
+     */
+    @FunctionalInterface
+    interface EngineSteps {
+
+        /**
+         * @param engineLookups {@code false} to skip the steps calling the engine.
+         * @throws BonitaException if an option has an unsupported value or an engine call fails.
+         */
+        void apply(boolean engineLookups) throws BonitaException;
+    }
+
+    private final FilterMetrics metrics;
+    private final long processDefinitionId;
+    private final String actorName;
+
+    /**
+     * @param metrics The metrics recording the executions of the filter.
+     * @param processDefinitionId The ID of the process definition, reported to the metrics.
+     * @param actorName The name of the actor, used for logging and reported to the metrics.
+     */
+    LookupGuard(final FilterMetrics metrics, final long processDefinitionId, final String actorName) {
+        this.metrics = metrics;
+        this.processDefinitionId = processDefinitionId;
+        this.actorName = actorName;
+    }
+
+    /**
+     * Runs the steps, with or without their engine lookups.
+     *
+     * @param candidates The candidates the steps transform.
+     * @param prefetchDeadlineMissed {@code true} if the prefetched lookups missed their deadline.
+     * @param engineRule {@code true} if a 'candidateRule' calling the engine is set.
+     * @param budgetMillis The 'lookupBudgetMillis' input, {@link MultipleUserIdsActorFilter#NO_LOOKUP_BUDGET} when the
+     *        steps are not guarded: the input is not set, or no step calls the engine.
+     * @param steps The steps.
+     * @throws BonitaException if an option has an unsupported value, an engine call fails, or a rule calling
+     *         the engine is set while the breaker is open.
+     */
+    void run(final CandidateIds candidates, final boolean prefetchDeadlineMissed, final boolean engineRule,
+            final int budgetMillis, final EngineSteps steps) throws BonitaException {
+        if (prefetchDeadlineMissed && !candidates.isEmpty() && !engineRule) {
+            recordDegradedExecution();
+            steps.apply(false);
+            return;
+        }
+        if (budgetMillis == MultipleUserIdsActorFilter.NO_LOOKUP_BUDGET) {
+            steps.apply(true);
+            return;
+        }
+        final LookupCircuitBreaker breaker = LookupCircuitBreaker.getInstance();
+        if (!breaker.tryAcquire()) {
+            if (!candidates.isEmpty()) {
+                if (engineRule) {
+                    throw new UserFilterException(String.format(ERR_RULE_SHORT_CIRCUITED,
+                            MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, actorName));
+                }
+                LOGGER.debug("Lookup circuit breaker open: skipping the engine lookups on the {} '{}' IDs for actor '{}'.",
+                        candidates.size(), MultipleUserIdsActorFilter.USERS_LIST_INPUT, actorName);
+                recordDegradedExecution();
+                steps.apply(false);
+                return;
+            }
+            // Nothing to fall back to: the lookups run anyway
+        }
+        final long start = System.nanoTime();
+        boolean lookupFailed = true;
+        try {
+            steps.apply(true);
+            lookupFailed = false;
+        } catch (final UserFilterException | ConnectorValidationException e) {
+            // Rejected by the filter itself (overflow, malformed option), not a lookup failure
+            lookupFailed = false;
+            throw e;
+        } finally {
+            reportLookupOutcome(breaker, !lookupFailed && System.nanoTime() - start <= TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+        }
+    }
+
+    /**
+     * Reports an execution skipping its engine lookups to the metrics.
+     */
+    private void recordDegradedExecution() {
+        if (metrics != FilterMetrics.NOOP) {
+            metrics.recordDegradedExecution(processDefinitionId, actorName);
+        }
+    }
+
+    /**
+     * Reports the outcome of guarded steps to the circuit breaker, and its transitions to the logs and the metrics.
+     *
+     * @param breaker The circuit breaker.
+     * @param withinBudget {@code true} if the steps ended within the 'lookupBudgetMillis' budget.
+     */
+    private void reportLookupOutcome(final LookupCircuitBreaker breaker, final boolean withinBudget) {
+        if (withinBudget) {
+            final long degradedNanos = breaker.onSuccess();
+            if (degradedNanos != LookupCircuitBreaker.NOT_RECOVERED) {
+                LOGGER.info("Lookup circuit breaker closed for actor '{}' after {} ms in degraded mode.", actorName,
+                        TimeUnit.NANOSECONDS.toMillis(degradedNanos));
+                metrics.recordCircuitClosed(degradedNanos);
+            }
+        } else if (breaker.onFailure()) {
+            LOGGER.warn("Lookup circuit breaker opened for actor '{}' after {} consecutive failed or slow executions: "
+                    + "the engine lookups are skipped for {} s.", actorName, LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD,
+                    LookupCircuitBreaker.DEFAULT_OPEN_SECONDS);
+            metrics.recordCircuitOpened();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.exception.SearchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Identity lookups started by {@link MultipleUserIdsActorFilter#validateInputParameters()} and joined by
+ * {@link MultipleUserIdsActorFilter#filter(String)}, so that they run concurrently instead of one after the other
+ * on the work thread: the wall time of the lookups drops to about the slowest of them.
+ *
+ * The lookups run on virtual threads when the JVM has them (Java 21 and later), on a pool of
+ * {@link #FALLBACK_POOL_SIZE} daemon threads shared by every execution otherwise. Each lookup fills its own
+ * shared {@link IdentityCandidateResolver}, merged into the one of the execution when joined.
+ */
+final class LookupPrefetcher {
+
+    /**
+     * A logger for this class, used to record log messages and provide debugging information.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LookupPrefetcher.class);
+
+    /**
+     * Default time given to the lookups, from their start, before the filter stops waiting for them.
+     */
+    static final int DEFAULT_TIMEOUT_MILLIS = 2_000;
+
+    /**
+     * Number of threads running the lookups when virtual threads are not available.
+     */
+    static final int FALLBACK_POOL_SIZE = 16;
+
+    /**
+     * Maximum number of concurrent existence lookups of a 'usersList' input, each one sending its share
+     * of the IDs in batches.
+     */
+    static final int MAX_PARALLEL_EXISTENCE_LOOKUPS = 8;
+
+    private static final ExecutorService EXECUTOR = newExecutor();
+
+    /**
+     * A lookup run on its own thread.
+     */
+    @FunctionalInterface
+    interface Lookup {
+        /**
+         * @param resolver The resolver to look up with, remembering the results.
+         * @throws Exception if the lookup fails.
+         */
+        void run(IdentityCandidateResolver resolver) throws Exception;
+    }
+
+    /**
+     * A search appending the members of a role, group or membership.
+     */
+    @FunctionalInterface
+    private interface MemberSearch {
+        void addMembers(IdentityCandidateResolver resolver, CandidateIds members) throws SearchException;
+    }
+
+    private final List<Future<IdentityCandidateResolver>> lookups;
+    private final long deadlineNanos;
+
+    private LookupPrefetcher(final List<Future<IdentityCandidateResolver>> lookups, final long deadlineNanos) {
+        this.lookups = lookups;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Starts the lookups.
+     *
+     * @param identityAPI The identity API of the engine.
+     * @param lookups The lookups to run concurrently.
+     * @param timeoutNanos The time given to the lookups to complete.
+     * @return The started lookups.
+     */
+    static LookupPrefetcher start(final IdentityAPI identityAPI, final List<Lookup> lookups, final long timeoutNanos) {
+        final long deadlineNanos = System.nanoTime() + timeoutNanos;
+        final List<Future<IdentityCandidateResolver>> futures = new ArrayList<>(lookups.size());
+        for (final Lookup lookup : lookups) {
+            futures.add(EXECUTOR.submit(() -> {
+                final IdentityCandidateResolver resolver = IdentityCandidateResolver.shared(identityAPI);
+                lookup.run(resolver);
+                return resolver;
+            }));
+        }
+        return new LookupPrefetcher(futures, deadlineNanos);
+    }
+
+    /**
+     * Waits for the lookups until the deadline and merges the results of the successful ones. A failed lookup
+     * is not merged, so that the filter runs it again and reports its error. On timeout, the remaining lookups
+     * are cancelled.
+     *
+     * @param target The shared resolver of the execution.
+     * @return {@code true} if every lookup ended before the deadline, {@code false} on timeout or interruption.
+     */
+    boolean join(final IdentityCandidateResolver target) {
+        for (int i = 0; i < lookups.size(); i++) {
+            final Future<IdentityCandidateResolver> lookup = lookups.get(i);
+            try {
+                target.absorb(lookup.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (final ExecutionException | CancellationException e) {
+                LOGGER.debug("Prefetched identity lookup failed, it will run again on the work thread.", e);
+            } catch (final TimeoutException e) {
+                cancelFrom(i);
+                return false;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelFrom(i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void cancelFrom(final int index) {
+        for (int i = index; i < lookups.size(); i++) {
+            lookups.get(i).cancel(true);
+        }
+    }
+
+    /**
+     * @return The number of started lookups.
+     */
+    int size() {
+        return lookups.size();
+    }
+
+    /**
+     * @return A lookup of the members of a role, with the existence of the members when {@code existenceBatchSize} is positive.
+     */
+    static Lookup roleMembers(final long roleId, final int pageSize, final int existenceBatchSize) {
+        return members((resolver, members) -> resolver.addRoleMembers(members, roleId, pageSize), pageSize, existenceBatchSize);
+    }
+
+    /**
+     * @return A lookup of the members of a group, with the existence of the members when {@code existenceBatchSize} is positive.
+     */
+    static Lookup groupMembers(final long groupId, final int pageSize, final int existenceBatchSize) {
+        return members((resolver, members) -> resolver.addGroupMembers(members, groupId, pageSize), pageSize, existenceBatchSize);
+    }
+
+    /**
+     * @return A lookup of the members of a membership, with the existence of the members when {@code existenceBatchSize} is positive.
+     */
+    static Lookup membershipMembers(final long groupId, final long roleId, final int pageSize, final int existenceBatchSize) {
+        return members((resolver, members) -> resolver.addMembershipMembers(members, groupId, roleId, pageSize),
+                pageSize, existenceBatchSize);
+    }
+
+    private static Lookup members(final MemberSearch search, final int pageSize, final int existenceBatchSize) {
+        return resolver -> {
+            final CandidateIds members = new CandidateIds(pageSize);
+            search.addMembers(resolver, members);
+            if (existenceBatchSize > 0) {
+                resolver.findEnabledUsers(members, existenceBatchSize);
+            }
+        };
+    }
+
+    /**
+     * Splits the existence check of user IDs into at most {@link #MAX_PARALLEL_EXISTENCE_LOOKUPS} lookups.
+     *
+     * @param userIds The user IDs, not modified.
+     * @param batchSize The maximum number of IDs sent in a single {@code getUsers} call.
+     * @return The lookups, each one checking a slice of the distinct IDs.
+     */
+    static List<Lookup> enabledUsers(final CandidateIds userIds, final int batchSize) {
+        final CandidateIds distinctIds = CandidateIds.wrap(userIds.toArray());
+        distinctIds.deduplicate();
+        final long[] ids = distinctIds.toArray();
+        final int batches = (ids.length + batchSize - 1) / batchSize;
+        final int lookupCount = Math.min(batches, MAX_PARALLEL_EXISTENCE_LOOKUPS);
+        final int batchesPerLookup = lookupCount == 0 ? 0 : (batches + lookupCount - 1) / lookupCount;
+        final List<Lookup> lookups = new ArrayList<>(lookupCount);
+        for (int from = 0; from < ids.length; from += batchesPerLookup * batchSize) {
+            final CandidateIds slice = CandidateIds.wrap(Arrays.copyOfRange(ids, from, Math.min(ids.length, from + batchesPerLookup * batchSize)));
+            lookups.add(resolver -> resolver.findEnabledUsers(slice, batchSize));
+        }
+        return lookups;
+    }
+
+    /**
+     * @return {@code true} if the lookups run on virtual threads.
+     */
+    static boolean usesVirtualThreads() {
+        return !(EXECUTOR instanceof ThreadPoolExecutor);
+    }
+
+    /**
+     * @return An executor starting a virtual thread per lookup (Java 21 and later), or a pool of daemon threads.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            LOGGER.debug("Virtual threads are not available, identity lookups are prefetched by a pool of {} threads.",
+                    FALLBACK_POOL_SIZE);
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "actor-filter-prefetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(FALLBACK_POOL_SIZE, FALLBACK_POOL_SIZE, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -1,8 +1,17 @@
 package com.bonitasoft.processbuilder.filter;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
 
 import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.connector.EngineExecutionContext;
+import org.bonitasoft.engine.exception.BonitaException;
 import org.bonitasoft.engine.filter.AbstractUserFilter;
 import org.bonitasoft.engine.filter.UserFilterException;
 import org.slf4j.Logger;
@@ -27,10 +36,182 @@ public class MultipleUserIdsActorFilter extends AbstractUserFilter {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultipleUserIdsActorFilter.class);
 
     /**
-     * The name of the input parameter that is expected to contain a **direct {@code List<Long>} of user IDs**.
+     * The name of the input parameter that is expected to contain a **direct {@code List<Long>} of user IDs**,
+     * or a streaming source of them: a non-Collection {@code Iterable}, an {@code Iterator}, a {@code Stream},
+     * a {@code LongStream} or a {@link PagedUserIdSource}.
      */
     static final String USERS_LIST_INPUT = "usersList";
 
+    /**
+     * The name of the optional input parameter selecting the {@link ValidationMode} applied to 'usersList'.
+     */
+    static final String VALIDATION_MODE_INPUT = "validationMode";
+
+    /**
+     * The name of the optional {@code Boolean} input parameter enabling the removal of duplicated user IDs.
+     */
+    static final String DEDUPLICATE_INPUT = "deduplicate";
+
+    /**
+     * The name of the optional input parameter selecting the {@link UserExistenceCheck} applied to the candidates.
+     */
+    static final String USER_EXISTENCE_CHECK_INPUT = "userExistenceCheck";
+
+    /**
+     * The name of the optional {@code Integer} input parameter giving the number of user IDs per identity lookup call.
+     */
+    static final String LOOKUP_BATCH_SIZE_INPUT = "lookupBatchSize";
+
+    /**
+     * The name of the optional {@code Integer} input parameter giving the time to live, in seconds,
+     * of the {@link EnabledUsersCache} used by {@link UserExistenceCheck#CACHED}.
+     */
+    static final String USER_CACHE_TTL_SECONDS_INPUT = "userCacheTtlSeconds";
+
+    /**
+     * The name of the optional input parameter holding a {@code List<Long>} of role IDs,
+     * whose members (in any group) are added to the candidates.
+     */
+    static final String ROLE_IDS_INPUT = "roleIds";
+
+    /**
+     * The name of the optional input parameter holding a {@code List<Long>} of group IDs,
+     * whose members (with any role) are added to the candidates.
+     */
+    static final String GROUP_IDS_INPUT = "groupIds";
+
+    /**
+     * The name of the optional input parameter holding a List of memberships, each given as a
+     * {@code [groupId, roleId]} List or a {@code "groupId:roleId"} String, whose members are added to the candidates.
+     */
+    static final String MEMBERSHIP_PAIRS_INPUT = "membershipPairs";
+
+    /**
+     * The name of the optional input parameter selecting the {@link OrganizationMode} used to combine 'usersList'
+     * with the members of 'roleIds', 'groupIds' and 'membershipPairs'.
+     */
+    static final String ORGANIZATION_MODE_INPUT = "organizationMode";
+
+    /**
+     * The name of the optional {@code Integer} input parameter giving the number of users fetched
+     * per search call when expanding roles, groups and memberships, and per page read from a {@link PagedUserIdSource}.
+     */
+    static final String SEARCH_PAGE_SIZE_INPUT = "searchPageSize";
+
+    /**
+     * The name of the optional input parameter holding a {@code List<Long>} of user IDs removed from the candidates.
+     */
+    static final String EXCLUDED_USER_IDS_INPUT = "excludedUserIds";
+
+    /**
+     * The name of the optional {@code Boolean} input parameter removing the user who started the case from the candidates.
+     */
+    static final String EXCLUDE_INITIATOR_INPUT = "excludeInitiator";
+
+    /**
+     * The name of the optional {@code Boolean} input parameter removing the user who executed the most recently
+     * completed task of the case from the candidates.
+     */
+    static final String EXCLUDE_LAST_EXECUTOR_INPUT = "excludeLastExecutor";
+
+    /**
+     * The name of the optional input parameter selecting the {@link SelectionMode} applied to the filtered candidates.
+     */
+    static final String SELECTION_MODE_INPUT = "selectionMode";
+
+    /**
+     * The name of the optional {@code Integer} input parameter giving the number of candidates kept by
+     * {@link SelectionMode#LEAST_LOADED} and {@link SelectionMode#STICKY}.
+     */
+    static final String SELECTION_SIZE_INPUT = "selectionSize";
+
+    /**
+     * The name of the input parameter identifying the tasks that share the same candidates with
+     * {@link SelectionMode#STICKY}, e.g. the ID of a business object. Mandatory in that mode.
+     */
+    static final String STICKY_KEY_INPUT = "stickyKey";
+
+    /**
+     * The name of the optional {@code Integer} input parameter capping the number of returned candidates.
+     */
+    static final String MAX_CANDIDATES_INPUT = "maxCandidates";
+
+    /**
+     * The name of the optional input parameter selecting the {@link OverflowPolicy} applied beyond 'maxCandidates'.
+     */
+    static final String OVERFLOW_POLICY_INPUT = "overflowPolicy";
+
+    /**
+     * The name of the optional input parameter selecting the {@link OutputOrder} of the returned candidates.
+     */
+    static final String OUTPUT_ORDER_INPUT = "outputOrder";
+
+    /**
+     * The name of the optional {@code Boolean} input parameter memoizing the prepared candidates per case
+     * in the {@link CandidateMemo}, for multi-instance steps and loops.
+     */
+    static final String MEMOIZE_CANDIDATES_INPUT = "memoizeCandidates";
+
+    /**
+     * The name of the optional {@code Boolean} input parameter starting the identity lookups concurrently
+     * at validation time, through a {@link LookupPrefetcher}.
+     */
+    static final String PREFETCH_LOOKUPS_INPUT = "prefetchLookups";
+
+    /**
+     * The name of the optional {@code Integer} input parameter giving the time, in milliseconds from the end of
+     * the validation, after which the filter stops waiting for the prefetched lookups.
+     */
+    static final String PREFETCH_TIMEOUT_MILLIS_INPUT = "prefetchTimeoutMillis";
+
+    /**
+     * The name of the optional {@code Integer} input parameter giving the latency budget, in milliseconds, of the
+     * transformation steps calling the engine. When set, they run behind the node-wide {@link LookupCircuitBreaker}.
+     */
+    static final String LOOKUP_BUDGET_MILLIS_INPUT = "lookupBudgetMillis";
+
+    /**
+     * The name of the optional {@code String} input parameter holding a {@link CandidateRule}, whose result replaces
+     * the 'usersList' IDs as the candidates. 'usersList' is then optional.
+     */
+    static final String CANDIDATE_RULE_INPUT = "candidateRule";
+
+    /**
+     * The name of the optional input parameter selecting the {@link AutoAssign} behaviour.
+     */
+    static final String AUTO_ASSIGN_INPUT = "autoAssign";
+
+    /**
+     * The name of the optional input parameter holding a List of non-negative weights, one per 'usersList' element,
+     * used by {@link AutoAssign#ROUND_ROBIN_SINGLE} to give some users more turns than others.
+     */
+    static final String WEIGHTS_INPUT = "weights";
+
+    /**
+     * Weight of the candidates that are not in 'usersList', e.g. expanded from a role or a group.
+     */
+    static final int DEFAULT_WEIGHT = 1;
+
+    /**
+     * Default number of candidates kept by a selection: a single user, to whom the task can be assigned directly.
+     */
+    static final int DEFAULT_SELECTION_SIZE = 1;
+
+    /**
+     * Default value of 'maxCandidates': no cap.
+     */
+    static final int NO_CANDIDATE_LIMIT = Integer.MAX_VALUE;
+
+    /**
+     * Default number of users fetched per search call.
+     */
+    static final int DEFAULT_SEARCH_PAGE_SIZE = 500;
+
+    /**
+     * Default value of 'lookupBudgetMillis': no budget, the lookups do not go through the circuit breaker.
+     */
+    static final int NO_LOOKUP_BUDGET = 0;
+
     /**
      * Error message template for null input.
      */
@@ -46,61 +227,270 @@ public class MultipleUserIdsActorFilter extends AbstractUserFilter {
      */
     private static final String ERR_EMPTY_LIST = "Input parameter '%s' cannot be empty. At least one user ID must be provided.";
 
+    /**
+     * Error message template for a String input that is neither a delimited nor a packed list of IDs.
+     */
+    private static final String ERR_UNDECODABLE_STRING = "Input parameter '%s' must be a List<Long>, a long[] or a String of encoded IDs. Found a String that cannot be decoded: %s";
+
     /**
      * Error message template for wrong element type.
      */
-    private static final String ERR_WRONG_ELEMENT_TYPE = "Input parameter '%s' must be a List<Long>. Found a List with elements of type %s.";
+    private static final String ERR_WRONG_ELEMENT_TYPE = "Input parameter '%s' must be a List<Long>, a long[] or a String of encoded IDs. Found a List with elements of type %s.";
+
+    /**
+     * Error message template for elements found invalid by a sampled or full scan.
+     */
+    private static final String ERR_INVALID_ELEMENTS = "Input parameter '%s' must be a List<Long>. Found %d invalid element(s) at index(es): %s.";
+
+    /**
+     * Error message template for an intersection requested without any restricting role, group or membership.
+     */
+    private static final String ERR_MISSING_RESTRICTION = "Input parameter '%s' set to %s requires at least one of 'roleIds', 'groupIds' or 'membershipPairs'.";
+
+    /**
+     * Error message template for a sticky selection requested without a key.
+     */
+    private static final String ERR_MISSING_STICKY_KEY = "Input parameter '%s' set to %s requires a non-empty 'stickyKey' input.";
+
+    /**
+     * Error message template for weights not aligned with the 'usersList' input.
+     */
+    private static final String ERR_WEIGHTS_SIZE = "Input parameter '%s' must hold one weight per element of '%s' (%d). Found %d.";
+
+    /**
+     * Error message template for weights set with a streaming 'usersList' input, which cannot be aligned with them.
+     */
+    private static final String ERR_WEIGHTS_STREAMING = "Input parameter '%s' requires a List, long[] or String '%s' input. Found a streaming source of type %s.";
 
     /**
      * Error message for filter processing failure.
      */
     private static final String ERR_FILTER_FAILED = "Failed to process validated user list input.";
 
+    /**
+     * Error message template for an activity instance of a batch whose inputs are invalid or whose filtering failed.
+     */
+    private static final String ERR_BATCH_INSTANCE_FAILED = "Failed to filter the candidates of activity instance %d for actor '%s': %s";
+
+    /**
+     * Error message for a null 'usersList' input, built once.
+     */
+    private static final String MSG_NULL_USERS_LIST = String.format(ERR_NULL_INPUT, USERS_LIST_INPUT);
+
+    /**
+     * Error message for an empty 'usersList' input, built once.
+     */
+    private static final String MSG_EMPTY_USERS_LIST = String.format(ERR_EMPTY_LIST, USERS_LIST_INPUT);
+
+    /**
+     * Error message for a null first element of 'usersList', built once.
+     */
+    private static final String MSG_NULL_FIRST_ELEMENT = String.format(ERR_WRONG_ELEMENT_TYPE, USERS_LIST_INPUT, "null");
+
+    /**
+     * Sampled INFO logging of the calls, shared by every execution on this node.
+     */
+    private static final FilterCallLog CALL_LOG = new FilterCallLog(LOGGER, FilterCallLog.DEFAULT_SAMPLE_INTERVAL_NANOS,
+            FilterCallLog.DEFAULT_SUMMARY_INTERVAL_NANOS, System::nanoTime);
+
+    /**
+     * Reads the inputs through {@link #getInput(String)}, and keeps the 'usersList' input normalized or decoded
+     * for the rest of the execution.
+     */
+    private final FilterInputs inputs = new FilterInputs(this::getInput);
+
+    /**
+     * The inputs of the activity instance being filtered by {@link #filterBatch(String, Map)}, overriding
+     * the inputs of the filter. {@code null} outside of a batch.
+     */
+    private Map<String, ?> instanceInputs;
+
+    /**
+     * The ID of the activity instance being filtered by {@link #filterBatch(String, Map)}.
+     */
+    private long instanceActivityId;
+
+    /**
+     * The identity lookups shared by the activity instances of a batch, created on first use.
+     */
+    private IdentityCandidateResolver batchResolver;
+
+    /**
+     * The lookups started by {@link #validateInputParameters()}, until joined by {@link #filter(String)}.
+     */
+    private LookupPrefetcher prefetcher;
+
+    /**
+     * The results of the prefetched lookups, used by {@link #filter(String)} once joined.
+     */
+    private IdentityCandidateResolver prefetchedResolver;
+
+    /**
+     * Whether the prefetched lookups missed their deadline, in which case {@link #filter(String)} skips the engine lookups.
+     */
+    private boolean prefetchDeadlineMissed;
+
     /**
      * Performs validation on the inputs defined for this actor filter.
-     * It ensures the 'usersList' parameter is a non-null, non-empty {@code List<Long>}.
+     * It ensures the 'usersList' parameter is a non-null, non-empty {@code List<Long>}, unless candidates are
+     * also expanded from 'roleIds', 'groupIds' or 'membershipPairs' in {@link OrganizationMode#UNION} mode:
+     * 'usersList' is then optional.
      * 
      * Validation steps:
      * 1. Check if input is null
-     * 2. Check if input is a List instance
+     * 2. Check if input is a List instance, a long[] or a String of encoded IDs (decoded once, fully checked),
+     *    or a streaming source whose elements are checked while consumed by
+     *    {@link #filter(String)} (they can only be read once)
      * 3. Check if list is empty
-     * 4. Check if list elements are Long type
+     * 4. Check if list elements are Long type, as deep as the 'validationMode' input requires
+     * 
+     * Rejections are counted by the registered {@link FilterMetrics}. With the 'prefetchLookups' input, the identity
+     * lookups needed by {@link #filter(String)} are then started concurrently (see {@link LookupPrefetcher}).
      * 
-     * @throws ConnectorValidationException if the input parameter is null, empty, or not a {@code List<Long>}.
+     * @throws ConnectorValidationException if the input parameter is null, empty, or not a {@code List<Long>},
+     *         or if an option has an unsupported value.
      */
     @Override
     public void validateInputParameters() throws ConnectorValidationException {
-        final Object usersListInput = getInputParameter(USERS_LIST_INPUT);
+        try {
+            validateInputs();
+        } catch (final ConnectorValidationException e) {
+            final FilterMetrics metrics = metrics();
+            if (metrics != FilterMetrics.NOOP) {
+                metrics.recordValidationFailure(processDefinitionId());
+            }
+            throw e;
+        }
+        startLookupPrefetch();
+    }
+
+    /**
+     * Starts the role, group and membership searches and the {@link UserExistenceCheck#BATCHED} existence lookups
+     * concurrently, when the 'prefetchLookups' input is set. The {@link UserExistenceCheck#CACHED} existence check
+     * and the initiator and last executor lookups are not prefetched, nor are the lookups of a
+     * {@link #filterBatch(String, Map)} call, which shares them across its activity instances instead.
+     * Nothing is started while the {@link LookupCircuitBreaker} guarding the lookups is open.
+     * 
+     * @throws ConnectorValidationException if an option has an unsupported value.
+     */
+    private void startLookupPrefetch() throws ConnectorValidationException {
+        prefetcher = null;
+        if (instanceInputs != null || !inputs.getBoolean(PREFETCH_LOOKUPS_INPUT, false)) {
+            return;
+        }
+        if (inputs.getPositiveInt(LOOKUP_BUDGET_MILLIS_INPUT, NO_LOOKUP_BUDGET) != NO_LOOKUP_BUDGET
+                && LookupCircuitBreaker.getInstance().isOpen()) {
+            LOGGER.debug("Identity lookups not prefetched: the lookup circuit breaker is open.");
+            return;
+        }
+        final int pageSize = inputs.getPositiveInt(SEARCH_PAGE_SIZE_INPUT, DEFAULT_SEARCH_PAGE_SIZE);
+        final int existenceBatchSize = inputs.getEnum(USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.class, UserExistenceCheck.NONE)
+                == UserExistenceCheck.BATCHED ? inputs.getPositiveInt(LOOKUP_BATCH_SIZE_INPUT, IdentityCandidateResolver.DEFAULT_BATCH_SIZE) : 0;
+        // Members only become candidates in UNION mode: their existence is only checked then
+        final int memberExistenceBatchSize = inputs.getEnum(ORGANIZATION_MODE_INPUT, OrganizationMode.class, OrganizationMode.UNION)
+                == OrganizationMode.UNION ? existenceBatchSize : 0;
+        final List<LookupPrefetcher.Lookup> lookups = new ArrayList<>();
+        for (final long roleId : inputs.getIdList(ROLE_IDS_INPUT)) {
+            lookups.add(LookupPrefetcher.roleMembers(roleId, pageSize, memberExistenceBatchSize));
+        }
+        for (final long groupId : inputs.getIdList(GROUP_IDS_INPUT)) {
+            lookups.add(LookupPrefetcher.groupMembers(groupId, pageSize, memberExistenceBatchSize));
+        }
+        final long[] membershipPairs = inputs.getMembershipPairs();
+        for (int i = 0; i < membershipPairs.length; i += 2) {
+            lookups.add(LookupPrefetcher.membershipMembers(membershipPairs[i], membershipPairs[i + 1], pageSize, memberExistenceBatchSize));
+        }
+        // A candidate rule replaces the 'usersList' IDs: their existence is not checked
+        final CandidateIds userIds = existenceBatchSize > 0 && !inputs.hasCandidateRule() ? prefetchableUserIds() : null;
+        if (userIds != null) {
+            lookups.addAll(LookupPrefetcher.enabledUsers(userIds, existenceBatchSize));
+        }
+        if (lookups.isEmpty()) {
+            return;
+        }
+        prefetcher = LookupPrefetcher.start(getAPIAccessor().getIdentityAPI(), lookups,
+                TimeUnit.MILLISECONDS.toNanos(inputs.getPositiveInt(PREFETCH_TIMEOUT_MILLIS_INPUT, LookupPrefetcher.DEFAULT_TIMEOUT_MILLIS)));
+        LOGGER.debug("Started {} identity lookups concurrently.", lookups.size());
+    }
+
+    /**
+     * @return The IDs of a List, long[] or String 'usersList' input, or {@code null} for a streaming source
+     *         (read only once, by the filter) and for a List whose elements are not all {@code Long}s.
+     */
+    private CandidateIds prefetchableUserIds() {
+        final Object usersListInput = getInput(USERS_LIST_INPUT);
+        if (FilterInputs.isEncoded(usersListInput)) {
+            return inputs.decodeUsersList(usersListInput);
+        }
+        if (!(usersListInput instanceof List)) {
+            return null;
+        }
+        try {
+            return CandidateIds.copyOf(inputs.toRandomAccess((List<?>) usersListInput));
+        } catch (final ClassCastException | NullPointerException e) {
+            // Only the first element may have been validated: the filter reports the others
+            return null;
+        }
+    }
+
+    /**
+     * Runs the validation steps of {@link #validateInputParameters()}.
+     * 
+     * @throws ConnectorValidationException if an input is invalid.
+     */
+    private void validateInputs() throws ConnectorValidationException {
+        final ValidationMode validationMode = inputs.getEnum(VALIDATION_MODE_INPUT, ValidationMode.class, ValidationMode.FIRST_ELEMENT);
+        validateOptions();
+        final boolean usersListOptional = isUsersListOptional();
+        final Object usersListInput = getInput(USERS_LIST_INPUT);
         
         // Step 1: Check for null
+        if (usersListInput == null && usersListOptional) {
+            LOGGER.debug("Input validation successful: candidates are expanded from the organization inputs only.");
+            return;
+        }
         if (usersListInput == null) {
-            String errorMessage = String.format(ERR_NULL_INPUT, USERS_LIST_INPUT);
-            LOGGER.error(errorMessage);
-            throw new ConnectorValidationException(errorMessage);
+            LOGGER.error(MSG_NULL_USERS_LIST);
+            throw new ConnectorValidationException(MSG_NULL_USERS_LIST);
         } 
         
         // Step 2: Check for List type
+        if (FilterInputs.isEncoded(usersListInput)) {
+            validateEncodedInput(usersListInput, usersListOptional);
+            return;
+        }
+        if (CandidateStreams.isStreamingSource(usersListInput)) {
+            LOGGER.debug("Input validation successful: '{}' is a streaming source ({}).", USERS_LIST_INPUT,
+                    usersListInput.getClass().getSimpleName());
+            return;
+        }
         if (!(usersListInput instanceof List)) {
             String errorMessage = String.format(ERR_NOT_LIST, USERS_LIST_INPUT, usersListInput.getClass().getSimpleName());
             LOGGER.error(errorMessage);
             throw new ConnectorValidationException(errorMessage);
         }
         
-        final List<?> list = (List<?>) usersListInput;
+        final List<?> list = inputs.toRandomAccess((List<?>) usersListInput);
 
         // Step 3: Check for empty list
+        if (list.isEmpty() && usersListOptional) {
+            return;
+        }
         if (list.isEmpty()) {
-            String errorMessage = String.format(ERR_EMPTY_LIST, USERS_LIST_INPUT);
-            LOGGER.error(errorMessage);
-            throw new ConnectorValidationException(errorMessage);
+            LOGGER.error(MSG_EMPTY_USERS_LIST);
+            throw new ConnectorValidationException(MSG_EMPTY_USERS_LIST);
         }
         
         // Step 4: Check for correct element type (Long) and not null
+        if (validationMode != ValidationMode.FIRST_ELEMENT) {
+            validateElements(list, validationMode);
+            LOGGER.debug("Input validation successful for parameter '{}' ({})", USERS_LIST_INPUT, validationMode);
+            return;
+        }
         final Object firstElement = list.get(0);
         if (firstElement == null) {
-            String errorMessage = String.format(ERR_WRONG_ELEMENT_TYPE, USERS_LIST_INPUT, "null");
-            LOGGER.error(errorMessage);
-            throw new ConnectorValidationException(errorMessage);
+            LOGGER.error(MSG_NULL_FIRST_ELEMENT);
+            throw new ConnectorValidationException(MSG_NULL_FIRST_ELEMENT);
         }
         
         if (!(firstElement instanceof Long)) {
@@ -113,33 +503,995 @@ public class MultipleUserIdsActorFilter extends AbstractUserFilter {
     }
 
     /**
-     * Filters candidate users for a task by simply returning the validated list of Long user IDs
+     * Decodes a long[] or String 'usersList' input and checks that it holds at least one ID.
+     * 
+     * @param usersListInput The input, a long[] or a String.
+     * @param usersListOptional {@code true} if the candidates may come from the organization inputs only.
+     * @throws ConnectorValidationException if the String cannot be decoded, or if no ID is provided.
+     */
+    private void validateEncodedInput(final Object usersListInput, final boolean usersListOptional) throws ConnectorValidationException {
+        final CandidateIds userIds;
+        try {
+            userIds = inputs.decodeUsersList(usersListInput);
+        } catch (final IllegalArgumentException e) {
+            String errorMessage = String.format(ERR_UNDECODABLE_STRING, USERS_LIST_INPUT, e.getMessage());
+            LOGGER.error(errorMessage);
+            throw new ConnectorValidationException(errorMessage);
+        }
+        if (userIds.isEmpty() && !usersListOptional) {
+            LOGGER.error(MSG_EMPTY_USERS_LIST);
+            throw new ConnectorValidationException(MSG_EMPTY_USERS_LIST);
+        }
+        LOGGER.debug("Input validation successful for parameter '{}' ({}, {} IDs)", USERS_LIST_INPUT,
+                usersListInput.getClass().getSimpleName(), userIds.size());
+    }
+
+    /**
+     * Checks that the optional inputs driving the transformation steps have supported values.
+     * 
+     * @throws ConnectorValidationException if an option has an unsupported value.
+     */
+    private void validateOptions() throws ConnectorValidationException {
+        inputs.getEnum(USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.class, UserExistenceCheck.NONE);
+        inputs.getPositiveInt(LOOKUP_BATCH_SIZE_INPUT, IdentityCandidateResolver.DEFAULT_BATCH_SIZE);
+        inputs.getPositiveInt(USER_CACHE_TTL_SECONDS_INPUT, EnabledUsersCache.DEFAULT_TTL_SECONDS);
+        inputs.getPositiveInt(SEARCH_PAGE_SIZE_INPUT, DEFAULT_SEARCH_PAGE_SIZE);
+        inputs.getPositiveInt(PREFETCH_TIMEOUT_MILLIS_INPUT, LookupPrefetcher.DEFAULT_TIMEOUT_MILLIS);
+        inputs.getPositiveInt(LOOKUP_BUDGET_MILLIS_INPUT, NO_LOOKUP_BUDGET);
+        inputs.getCandidateRule(processDefinitionId());
+        inputs.getIdList(EXCLUDED_USER_IDS_INPUT);
+        final SelectionMode selectionMode = inputs.getEnum(SELECTION_MODE_INPUT, SelectionMode.class, SelectionMode.ALL);
+        if (selectionMode == SelectionMode.STICKY && inputs.getStickyKey() == null) {
+            throw FilterInputs.invalidInput(ERR_MISSING_STICKY_KEY, SELECTION_MODE_INPUT, selectionMode);
+        }
+        inputs.getPositiveInt(SELECTION_SIZE_INPUT, DEFAULT_SELECTION_SIZE);
+        inputs.getEnum(AUTO_ASSIGN_INPUT, AutoAssign.class, AutoAssign.IF_SINGLE);
+        validateWeights();
+        inputs.getPositiveInt(MAX_CANDIDATES_INPUT, NO_CANDIDATE_LIMIT);
+        inputs.getEnum(OVERFLOW_POLICY_INPUT, OverflowPolicy.class, OverflowPolicy.FAIL);
+        inputs.getEnum(OUTPUT_ORDER_INPUT, OutputOrder.class, OutputOrder.INPUT);
+        final OrganizationMode organizationMode = inputs.getEnum(ORGANIZATION_MODE_INPUT, OrganizationMode.class, OrganizationMode.UNION);
+        if (organizationMode == OrganizationMode.INTERSECTION && !hasOrganizationInputs()) {
+            throw FilterInputs.invalidInput(ERR_MISSING_RESTRICTION, ORGANIZATION_MODE_INPUT, organizationMode);
+        }
+    }
+
+    /**
+     * Checks that the optional 'weights' input holds one non-negative integer per 'usersList' element.
+     * 
+     * @throws ConnectorValidationException if the weights are malformed, or not aligned with 'usersList', or set with
+     *         a streaming 'usersList' input.
+     */
+    private void validateWeights() throws ConnectorValidationException {
+        final int[] weights = inputs.getWeights();
+        if (weights.length == 0) {
+            return;
+        }
+        final Object usersListInput = getInput(USERS_LIST_INPUT);
+        if (CandidateStreams.isStreamingSource(usersListInput)) {
+            String errorMessage = String.format(ERR_WEIGHTS_STREAMING, WEIGHTS_INPUT, USERS_LIST_INPUT, usersListInput.getClass().getName());
+            LOGGER.error(errorMessage);
+            throw new ConnectorValidationException(errorMessage);
+        }
+        final int userCount = usersListSize(usersListInput);
+        if (userCount >= 0 && weights.length != userCount) {
+            String errorMessage = String.format(ERR_WEIGHTS_SIZE, WEIGHTS_INPUT, USERS_LIST_INPUT, userCount, weights.length);
+            LOGGER.error(errorMessage);
+            throw new ConnectorValidationException(errorMessage);
+        }
+    }
+
+    /**
+     * @param usersListInput The 'usersList' input.
+     * @return The number of user IDs of a List, long[] or String input, {@code 0} for other types (a missing input),
+     *         or {@code -1} for a String that cannot be decoded (reported by the 'usersList' validation).
+     */
+    private int usersListSize(final Object usersListInput) {
+        if (usersListInput instanceof List) {
+            return ((List<?>) usersListInput).size();
+        }
+        if (!FilterInputs.isEncoded(usersListInput)) {
+            return 0;
+        }
+        try {
+            return inputs.decodeUsersList(usersListInput).size();
+        } catch (final IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Tells whether the candidates may come from the organization inputs only.
+     * 
+     * @return {@code true} if at least one role, group or membership is added to the candidates.
+     * @throws ConnectorValidationException if an organization input is malformed.
+     */
+    private boolean isUsersListOptional() throws ConnectorValidationException {
+        return inputs.getEnum(ORGANIZATION_MODE_INPUT, OrganizationMode.class, OrganizationMode.UNION) == OrganizationMode.UNION
+                && hasOrganizationInputs()
+                || inputs.hasCandidateRule();
+    }
+
+    /**
+     * Tells whether candidates must be expanded from at least one role, group or membership.
+     * 
+     * @return {@code true} if 'roleIds', 'groupIds' or 'membershipPairs' is a non-empty list.
+     * @throws ConnectorValidationException if one of these inputs is malformed.
+     */
+    boolean hasOrganizationInputs() throws ConnectorValidationException {
+        return inputs.getIdList(ROLE_IDS_INPUT).length > 0
+                || inputs.getIdList(GROUP_IDS_INPUT).length > 0
+                || inputs.getMembershipPairs().length > 0;
+    }
+
+    /**
+     * Scans the elements selected by {@code validationMode} and reports every invalid index in a single error.
+     * 
+     * @param list The non-empty list to check.
+     * @param validationMode {@link ValidationMode#SAMPLED} or {@link ValidationMode#FULL}.
+     * @throws ConnectorValidationException if at least one scanned element is not a {@code Long}.
+     */
+    private void validateElements(final List<?> list, final ValidationMode validationMode) throws ConnectorValidationException {
+        final int[] invalidIndexes = UserIdsScanner.findInvalidIndexes(list, validationMode);
+        if (invalidIndexes.length > 0) {
+            String errorMessage = String.format(ERR_INVALID_ELEMENTS, USERS_LIST_INPUT, invalidIndexes.length,
+                    UserIdsScanner.describe(list, invalidIndexes));
+            LOGGER.error(errorMessage);
+            throw new ConnectorValidationException(errorMessage);
+        }
+    }
+
+    /**
+     * Filters candidate users for a task based on the validated list of Long user IDs
      * provided in the 'usersList' input parameter.
      * It assumes the input type and content were validated by {@code validateInputParameters()}.
      * 
+     * Members of the roles, groups and memberships given as inputs are merged into the candidates.
+     * When no transformation step is configured, the input list is returned as-is (no copy), unless it does not
+     * support random access: the array-backed copy made by {@link FilterInputs#toRandomAccess(List)} is returned instead.
+     * Otherwise the IDs are unboxed once into a primitive {@link CandidateIds} on which every
+     * step is applied, and a lazily boxed view of the result is returned.
+     * A streaming 'usersList' is consumed element by element into the primitive candidates, deduplicated on the fly
+     * when requested, so that only the kept IDs are held in memory.
+     * 
+     * The duration, candidate count and failures are recorded to the registered {@link FilterMetrics};
+     * the clock is not read when none is registered. Calls are logged at INFO level through a sampled
+     * {@link FilterCallLog}, at most one line per 10 seconds plus a summary per minute.
+     * 
      * @param actorName The name of the actor. (Logged for debugging, but not used for filtering)
      * @return The list of {@link Long} user IDs that are candidates to execute the task.
      * @throws UserFilterException if any unexpected error occurs (e.g., failed to retrieve parameter).
      */
     @Override
     public List<Long> filter(final String actorName) throws UserFilterException {
+        final FilterMetrics metrics = metrics();
+        final boolean metricsEnabled = metrics != FilterMetrics.NOOP;
+        final long start = metricsEnabled ? System.nanoTime() : 0L;
+        final List<Long> candidates;
+        try {
+            candidates = filterCandidates(actorName);
+        } catch (final UserFilterException e) {
+            if (metricsEnabled) {
+                metrics.recordFilterFailure(processDefinitionId(), actorName);
+            }
+            throw e;
+        }
+        if (metricsEnabled) {
+            metrics.recordExecution(processDefinitionId(), actorName, System.nanoTime() - start, candidates.size());
+        }
+        CALL_LOG.record(actorName, candidates.size());
+        return candidates;
+    }
+
+    /**
+     * Filters the candidates of several activity instances at once, typically the instances of a multi-instance
+     * step, for callers that know their inputs up front (scripts, REST API extensions...).
+     * 
+     * Each activity instance is validated then filtered like a call to {@link #filter(String)}, with its own inputs
+     * overriding the inputs of this filter, which the instances share. The identity lookups are shared across
+     * the instances: each role, group and membership is searched once, and each distinct user ID is looked up
+     * once by the {@link UserExistenceCheck#BATCHED} existence check. The last executor exclusion and the
+     * overflow warning use the activity instance ID; the case is the one of the execution context.
+     * 
+     * @param actorName The name of the actor.
+     * @param inputsByActivityInstance The inputs of each activity instance, by activity instance ID.
+     *        A {@code null} or empty map uses the inputs of this filter only.
+     * @return The candidates of each activity instance, by activity instance ID, in the order of
+     *         {@code inputsByActivityInstance}.
+     * @throws UserFilterException if the inputs of an activity instance are invalid, or its filtering fails.
+     */
+    public Map<Long, List<Long>> filterBatch(final String actorName, final Map<Long, ? extends Map<String, ?>> inputsByActivityInstance)
+            throws UserFilterException {
+        final Map<Long, List<Long>> candidatesByActivityInstance = new LinkedHashMap<>(inputsByActivityInstance.size() * 2);
+        try {
+            for (final Map.Entry<Long, ? extends Map<String, ?>> instance : inputsByActivityInstance.entrySet()) {
+                instanceActivityId = instance.getKey();
+                instanceInputs = instance.getValue() == null ? Collections.<String, Object>emptyMap() : instance.getValue();
+                try {
+                    validateInputParameters();
+                    candidatesByActivityInstance.put(instanceActivityId, filter(actorName));
+                } catch (final ConnectorValidationException | UserFilterException e) {
+                    throw new UserFilterException(String.format(ERR_BATCH_INSTANCE_FAILED, instanceActivityId, actorName,
+                            e.getMessage()), e);
+                }
+            }
+        } finally {
+            instanceInputs = null;
+            batchResolver = null;
+        }
+        LOGGER.debug("Filtered {} activity instances for actor '{}'.", candidatesByActivityInstance.size(), actorName);
+        return candidatesByActivityInstance;
+    }
+
+    /**
+     * Runs {@link #filter(String)}, without the metrics.
+     * 
+     * @param actorName The name of the actor.
+     * @return The candidates.
+     * @throws UserFilterException if any unexpected error occurs.
+     */
+    private List<Long> filterCandidates(final String actorName) throws UserFilterException {
         // Retrieve the parameter. We assume it is a non-null, non-empty List<Long> due to validation.
-        final Object usersListInput = getInputParameter(USERS_LIST_INPUT);
+        final Object usersListInput = getInput(USERS_LIST_INPUT);
         
-        LOGGER.info("Filter called for actor '{}'. Processing input '{}'.", actorName, USERS_LIST_INPUT);
+        LOGGER.debug("Filter called for actor '{}'. Processing input '{}'.", actorName, USERS_LIST_INPUT);
         try {
+            if (prefetcher != null) {
+                joinPrefetchedLookups(actorName);
+            }
             // Direct cast is safe because validateInputParameters() was executed first.
+            if (usersListInput == null && !isUsersListOptional()) {
+                throw new IllegalStateException(MSG_NULL_USERS_LIST);
+            }
+            if (FilterInputs.isEncoded(usersListInput)) {
+                return filterEncodedInput(usersListInput, actorName);
+            }
+            if (CandidateStreams.isStreamingSource(usersListInput)) {
+                return filterStreamingSource(usersListInput, actorName);
+            }
             @SuppressWarnings("unchecked")
-            List<Long> userIds = (List<Long>) usersListInput;
+            List<Long> userIds = usersListInput == null
+                    ? Collections.<Long>emptyList()
+                    : (List<Long>) inputs.toRandomAccess((List<?>) usersListInput);
             
-            LOGGER.debug("Successfully retrieved and returning {} user IDs for actor '{}'.", userIds.size(), actorName);
-            return userIds;
+            if (!hasTransformationSteps()) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Successfully retrieved and returning {} user IDs for actor '{}'.", userIds.size(), actorName);
+                }
+                return userIds;
+            }
+
+            final CandidateIds candidates = CandidateIds.copyOf(userIds);
+            applyTransformationSteps(candidates, actorName);
+
+            LOGGER.debug("Returning {} of {} user IDs for actor '{}'.", candidates.size(), userIds.size(), actorName);
+            return candidates.asList();
 
         } catch (final Exception e) {
             // Catch any unexpected runtime error (e.g., if a parameter was removed between validation and filter)
             LOGGER.error("An unexpected error occurred during user list processing for actor '{}'.", actorName, e);
             throw new UserFilterException(ERR_FILTER_FAILED, e);
+        } finally {
+            prefetchedResolver = null;
+            prefetchDeadlineMissed = false;
+        }
+    }
+
+    /**
+     * Waits for the lookups started by {@link #validateInputParameters()}, until their deadline.
+     * 
+     * When they all ended in time, their results are used by the transformation steps, and only the lookups that
+     * failed or were not prefetched run on the work thread. Otherwise the transformation steps skip the engine lookups,
+     * as while the {@link LookupCircuitBreaker} is open, rather than blocking the work thread further, unless there are
+     * no 'usersList' IDs: the missing lookups then run on the work thread.
+     * 
+     * @param actorName The name of the actor, used for logging.
+     */
+    private void joinPrefetchedLookups(final String actorName) {
+        final LookupPrefetcher lookups = prefetcher;
+        prefetcher = null;
+        final IdentityCandidateResolver resolver = IdentityCandidateResolver.shared(getAPIAccessor().getIdentityAPI());
+        final boolean complete = lookups.join(resolver);
+        prefetchedResolver = resolver;
+        prefetchDeadlineMissed = !complete;
+        if (!complete) {
+            LOGGER.warn("Prefetched identity lookups missed their deadline for actor '{}': skipping the engine lookups, "
+                    + "unless there are no '{}' IDs.", actorName, USERS_LIST_INPUT);
+        }
+    }
+
+    /**
+     * Decodes a long[] or String 'usersList' input, then applies the configured transformation steps on a copy,
+     * so that the caller's array is never modified.
+     * 
+     * @param usersListInput The input, a long[] or a String.
+     * @param actorName The name of the actor, used for logging.
+     * @return A lazily boxed view of the decoded IDs, or of the transformed candidates.
+     * @throws BonitaException if an option has an unsupported value, or an engine call fails.
+     */
+    private List<Long> filterEncodedInput(final Object usersListInput, final String actorName) throws BonitaException {
+        final CandidateIds userIds = inputs.decodeUsersList(usersListInput);
+        if (userIds.isEmpty() && !isUsersListOptional()) {
+            throw new IllegalStateException(MSG_EMPTY_USERS_LIST);
+        }
+        if (!hasTransformationSteps()) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Successfully decoded and returning {} user IDs for actor '{}'.", userIds.size(), actorName);
+            }
+            return userIds.asList();
+        }
+        final CandidateIds candidates = CandidateIds.wrap(userIds.toArray());
+        applyTransformationSteps(candidates, actorName);
+        LOGGER.debug("Returning {} of {} user IDs for actor '{}'.", candidates.size(), userIds.size(), actorName);
+        return candidates.asList();
+    }
+
+    /**
+     * Consumes a streaming 'usersList' input, then applies the configured transformation steps.
+     * 
+     * With the 'maxCandidates' input, the overflow policy is applied while the source is read, so that the memory
+     * held is bounded by the cap, not by the size of the source:
+     * - {@link OverflowPolicy#RESERVOIR_SAMPLE}: every ID is read, and offered to a reservoir of 'maxCandidates' IDs
+     * - the other policies: the source is not read past 'maxCandidates' + 1 IDs, the first ID over the cap
+     *   triggering the policy. The users of the actor mapping of {@link OverflowPolicy#FALLBACK_TO_ACTOR} are
+     *   then only picked in turn and ordered, as after the cap step of the other inputs. Reading the actor mapping
+     *   is guarded like the other engine lookups: when they are skipped, the IDs are truncated and the later steps
+     *   apply without the engine.
+     * The later steps apply to the IDs kept, so that exclusions and checks may leave fewer than 'maxCandidates'
+     * candidates. When a 'candidateRule' is set, its result is capped instead of the 'usersList' IDs.
+     * 
+     * @param source The streaming source.
+     * @param actorName The name of the actor, used for logging.
+     * @return A lazily boxed view of the candidates.
+     * @throws BonitaException if an option has an unsupported value, the source provides too many IDs with the
+     *         {@link OverflowPolicy#FAIL} policy, or the source or an engine call fails.
+     */
+    private List<Long> filterStreamingSource(final Object source, final String actorName) throws BonitaException {
+        final boolean deduplicate = inputs.getBoolean(DEDUPLICATE_INPUT, false);
+        final int pageSize = inputs.getPositiveInt(SEARCH_PAGE_SIZE_INPUT, DEFAULT_SEARCH_PAGE_SIZE);
+        final int maxCandidates = inputs.hasCandidateRule() ? NO_CANDIDATE_LIMIT : inputs.getPositiveInt(MAX_CANDIDATES_INPUT, NO_CANDIDATE_LIMIT);
+        final OverflowPolicy policy = inputs.getEnum(OVERFLOW_POLICY_INPUT, OverflowPolicy.class, OverflowPolicy.FAIL);
+        final CandidateOverflow overflow = overflow(policy, maxCandidates, actorName);
+        final CandidateIds candidates;
+        if (maxCandidates == NO_CANDIDATE_LIMIT) {
+            candidates = CandidateStreams.drain(source, USERS_LIST_INPUT, deduplicate, pageSize, CandidateStreams.NO_LIMIT);
+        } else if (policy == OverflowPolicy.RESERVOIR_SAMPLE) {
+            final ReservoirSampler.Reservoir reservoir = new ReservoirSampler.Reservoir(maxCandidates, caseSeed(actorName));
+            CandidateStreams.sample(source, USERS_LIST_INPUT, deduplicate, pageSize, reservoir);
+            candidates = reservoir.toCandidates();
+            if (reservoir.count() > maxCandidates) {
+                overflow.log(reservoir.count());
+                recordRemovedCandidates(actorName, CandidateRemoval.OVERFLOW, reservoir.count() - maxCandidates);
+            }
+        } else {
+            candidates = CandidateStreams.drain(source, USERS_LIST_INPUT, deduplicate, pageSize, maxCandidates + 1);
+            if (candidates.size() > maxCandidates) {
+                // The source was not read further: the number of IDs it provides is unknown
+                overflow.log(maxCandidates + 1 + "+");
+                switch (policy) {
+                    case FALLBACK_TO_ACTOR:
+                        guardEngineLookups(candidates, actorName, engineLookups -> {
+                            overflow.fallBackToActor(candidates, actorMembers(actorName), engineLookups);
+                            if (engineLookups) {
+                                distributeAndOrder(candidates, actorName);
+                            } else {
+                                // Truncated like the other policies: the later steps apply, without the engine
+                                transformCandidates(candidates, actorName, false);
+                            }
+                        });
+                        return candidates.asList();
+                    case TRUNCATE:
+                        candidates.truncate(maxCandidates);
+                        break;
+                    case FAIL:
+                    default:
+                        throw overflow.streamedOverflow();
+                }
+            }
+        }
+        if (candidates.isEmpty() && !isUsersListOptional()) {
+            throw new IllegalStateException(MSG_EMPTY_USERS_LIST);
+        }
+        final int streamedCount = candidates.size();
+        applyTransformationSteps(candidates, actorName);
+        LOGGER.debug("Returning {} of {} streamed user IDs for actor '{}'.", candidates.size(), streamedCount, actorName);
+        return candidates.asList();
+    }
+
+    /**
+     * Tells whether at least one transformation step is configured for this execution.
+     * When none is, the filter skips the primitive pipeline and returns the input list untouched.
+     * 
+     * @return {@code true} if {@link #applyTransformationSteps(CandidateIds, String)} has work to do.
+     * @throws ConnectorValidationException if an option has an unsupported value.
+     */
+    boolean hasTransformationSteps() throws ConnectorValidationException {
+        return inputs.getBoolean(DEDUPLICATE_INPUT, false)
+                || inputs.hasCandidateRule()
+                || inputs.getEnum(USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.class, UserExistenceCheck.NONE) != UserExistenceCheck.NONE
+                || hasOrganizationInputs()
+                || hasExclusions()
+                || inputs.getEnum(SELECTION_MODE_INPUT, SelectionMode.class, SelectionMode.ALL) != SelectionMode.ALL
+                || inputs.getEnum(AUTO_ASSIGN_INPUT, AutoAssign.class, AutoAssign.IF_SINGLE) == AutoAssign.ROUND_ROBIN_SINGLE
+                || inputs.getPositiveInt(MAX_CANDIDATES_INPUT, NO_CANDIDATE_LIMIT) != NO_CANDIDATE_LIMIT
+                || inputs.getEnum(OUTPUT_ORDER_INPUT, OutputOrder.class, OutputOrder.INPUT) != OutputOrder.INPUT;
+    }
+
+    /**
+     * Tells whether users must be removed from the candidates.
+     * 
+     * @return {@code true} if 'excludedUserIds' is a non-empty list, or an initiator or last executor exclusion is set.
+     * @throws ConnectorValidationException if 'excludedUserIds' is malformed.
+     */
+    private boolean hasExclusions() throws ConnectorValidationException {
+        return inputs.getBoolean(EXCLUDE_INITIATOR_INPUT, false)
+                || inputs.getBoolean(EXCLUDE_LAST_EXECUTOR_INPUT, false)
+                || inputs.getIdList(EXCLUDED_USER_IDS_INPUT).length > 0;
+    }
+
+    /**
+     * Applies the configured transformation steps, in order, on the primitive candidates, after the result of the
+     * 'candidateRule' input, when set, replaced the 'usersList' IDs:
+     * 1. Expansion of the roles, groups and memberships, appended after the 'usersList' IDs
+     *    ({@link OrganizationMode#UNION}), or restriction of the 'usersList' IDs to their members
+     *    ({@link OrganizationMode#INTERSECTION})
+     * 2. Deduplication (first-seen order is kept), always applied after an expansion so that the
+     *    candidates are the union of every source
+     * 3. Removal of the excluded users (list, initiator)
+     * 4. Removal of unknown and disabled users
+     * 5. Removal of the last executor, which changes with every completed task
+     * 6. Selection of the least loaded users, or of the users bound to the sticky key
+     * 7. Enforcement of the 'maxCandidates' cap, according to the 'overflowPolicy' input
+     * 8. Round-robin pick of a single user, weighted by the 'weights' input when set
+     * 9. Ordering of the candidates, according to the 'outputOrder' input
+     * 
+     * Steps 1 to 4 only depend on the inputs and the case: with the 'memoizeCandidates' input, their result is
+     * taken from the {@link CandidateMemo} when another execution of the case already prepared it.
+     * 
+     * With the 'lookupBudgetMillis' input, the steps calling the engine run behind the {@link LookupCircuitBreaker}:
+     * while it is open, the organization inputs, the initiator and last executor exclusions, the existence check
+     * and the least loaded selection are skipped, unless there are no 'usersList' IDs, and the
+     * {@link OverflowPolicy#FALLBACK_TO_ACTOR} policy truncates. The other steps still apply. A rule needing no engine
+     * call ('usersList' and literal IDs) is still evaluated, so that the candidates never include users it removes,
+     * while a rule calling the engine fails the execution. The same applies when the prefetched lookups missed their
+     * deadline, except that a rule calling the engine then runs with all the steps, behind the breaker.
+     * 
+     * @param candidates The candidates to transform in place.
+     * @param actorName The name of the actor, used for logging.
+     * @throws BonitaException if an option has an unsupported value or an engine call fails.
+     */
+    void applyTransformationSteps(final CandidateIds candidates, final String actorName) throws BonitaException {
+        guardEngineLookups(candidates, actorName, engineLookups -> transformCandidates(candidates, actorName, engineLookups));
+    }
+
+    /**
+     * Runs steps calling the engine through a {@link LookupGuard}, as described by
+     * {@link #applyTransformationSteps(CandidateIds, String)}: the steps are only timed behind the breaker when the
+     * 'lookupBudgetMillis' input is set and at least one of them calls the engine.
+     * 
+     * @param candidates The candidates the steps transform.
+     * @param actorName The name of the actor, used for logging.
+     * @param steps The steps.
+     * @throws BonitaException if an option has an unsupported value, an engine call fails, or a rule calling
+     *         the engine is set while the breaker is open.
+     */
+    private void guardEngineLookups(final CandidateIds candidates, final String actorName, final LookupGuard.EngineSteps steps)
+            throws BonitaException {
+        int budgetMillis = inputs.getPositiveInt(LOOKUP_BUDGET_MILLIS_INPUT, NO_LOOKUP_BUDGET);
+        if (budgetMillis != NO_LOOKUP_BUDGET && !hasEngineLookups()) {
+            budgetMillis = NO_LOOKUP_BUDGET;
+        }
+        // The rule is only read when the guard may degrade the steps
+        final boolean engineRule = (prefetchDeadlineMissed || budgetMillis != NO_LOOKUP_BUDGET) && hasEngineRule();
+        new LookupGuard(metrics(), processDefinitionId(), actorName)
+                .run(candidates, prefetchDeadlineMissed, engineRule, budgetMillis, steps);
+    }
+
+    /**
+     * Tells whether the transformation steps call the engine for this execution.
+     * 
+     * @return {@code true} if an organization input, a rule calling the engine, an existence check, an initiator or last executor exclusion,
+     *         the {@link SelectionMode#LEAST_LOADED} selection or the {@link OverflowPolicy#FALLBACK_TO_ACTOR} policy is set.
+     * @throws ConnectorValidationException if an option has an unsupported value.
+     */
+    private boolean hasEngineLookups() throws ConnectorValidationException {
+        return hasOrganizationInputs()
+                || hasEngineRule()
+                || inputs.getEnum(USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.class, UserExistenceCheck.NONE) != UserExistenceCheck.NONE
+                || inputs.getBoolean(EXCLUDE_INITIATOR_INPUT, false)
+                || inputs.getBoolean(EXCLUDE_LAST_EXECUTOR_INPUT, false)
+                || inputs.getEnum(SELECTION_MODE_INPUT, SelectionMode.class, SelectionMode.ALL) == SelectionMode.LEAST_LOADED
+                || inputs.getPositiveInt(MAX_CANDIDATES_INPUT, NO_CANDIDATE_LIMIT) != NO_CANDIDATE_LIMIT
+                        && inputs.getEnum(OVERFLOW_POLICY_INPUT, OverflowPolicy.class, OverflowPolicy.FAIL) == OverflowPolicy.FALLBACK_TO_ACTOR;
+    }
+
+    /**
+     * Applies the steps of {@link #applyTransformationSteps(CandidateIds, String)}, without the circuit breaker.
+     * 
+     * @param candidates The candidates to transform in place.
+     * @param actorName The name of the actor, used for logging.
+     * @param engineLookups {@code false} to skip the steps calling the engine, while the circuit breaker is open: the rule
+     *        must then need no engine call.
+     * @throws BonitaException if an option has an unsupported value or an engine call fails.
+     */
+    private void transformCandidates(final CandidateIds candidates, final String actorName, final boolean engineLookups)
+            throws BonitaException {
+        final CandidateRule rule = inputs.getCandidateRule(processDefinitionId());
+        if (rule != null) {
+            final int usersListCount = candidates.size();
+            candidates.replaceWith(rule.evaluate(ruleContext(candidates.toArray(), actorName)).toArray());
+            LOGGER.debug("Candidate rule {} gave {} users ({} '{}' IDs) for actor '{}'.", rule, candidates.size(),
+                    usersListCount, USERS_LIST_INPUT, actorName);
+        }
+        if (inputs.getBoolean(MEMOIZE_CANDIDATES_INPUT, false)) {
+            prepareMemoizedCandidates(candidates, actorName, engineLookups);
+        } else {
+            prepareCandidates(candidates, actorName, engineLookups);
+        }
+        if (engineLookups && inputs.getBoolean(EXCLUDE_LAST_EXECUTOR_INPUT, false)) {
+            removeLastExecutor(candidates, actorName);
+        }
+        final SelectionMode selectionMode = inputs.getEnum(SELECTION_MODE_INPUT, SelectionMode.class, SelectionMode.ALL);
+        if (selectionMode == SelectionMode.LEAST_LOADED && engineLookups) {
+            selectLeastLoaded(candidates, actorName);
+        } else if (selectionMode == SelectionMode.STICKY) {
+            selectSticky(candidates, actorName);
+        }
+        final int maxCandidates = inputs.getPositiveInt(MAX_CANDIDATES_INPUT, NO_CANDIDATE_LIMIT);
+        if (candidates.size() > maxCandidates) {
+            final int candidateCount = candidates.size();
+            final OverflowPolicy policy = inputs.getEnum(OVERFLOW_POLICY_INPUT, OverflowPolicy.class, OverflowPolicy.FAIL);
+            overflow(policy, maxCandidates, actorName).apply(candidates, caseSeed(actorName), actorMembers(actorName), engineLookups);
+            recordRemovedCandidates(actorName, CandidateRemoval.OVERFLOW, candidateCount - candidates.size());
+        }
+        distributeAndOrder(candidates, actorName);
+    }
+
+    /**
+     * Picks a single candidate in turn, and orders the candidates (steps 8 and 9 of
+     * {@link #applyTransformationSteps(CandidateIds, String)}).
+     * 
+     * @param candidates The candidates to transform in place.
+     * @param actorName The name of the actor, used for logging and as round-robin key.
+     * @throws ConnectorValidationException if an option has an unsupported value.
+     */
+    private void distributeAndOrder(final CandidateIds candidates, final String actorName) throws ConnectorValidationException {
+        final AutoAssign autoAssign = inputs.getEnum(AUTO_ASSIGN_INPUT, AutoAssign.class, AutoAssign.IF_SINGLE);
+        final int[] weights = autoAssign == AutoAssign.ROUND_ROBIN_SINGLE && candidates.size() > 1
+                ? inputs.getWeights()
+                : FilterInputs.NO_WEIGHTS;
+        new CandidateOrdering(autoAssign, weights, weights.length == 0 ? null : usersListIds(),
+                inputs.getEnum(OUTPUT_ORDER_INPUT, OutputOrder.class, OutputOrder.INPUT))
+                .apply(candidates, actorKey(actorName), caseSeed(actorName), actorName);
+    }
+
+    /**
+     * @return The ID at an index of the 'usersList' input, a List, long[] or String input.
+     */
+    private IntToLongFunction usersListIds() {
+        final Object usersListInput = getInput(USERS_LIST_INPUT);
+        if (FilterInputs.isEncoded(usersListInput)) {
+            return inputs.decodeUsersList(usersListInput)::get;
+        }
+        final List<?> userIds = inputs.toRandomAccess((List<?>) usersListInput);
+        return i -> (Long) userIds.get(i);
+    }
+
+    /**
+     * @param policy The value of the 'overflowPolicy' input.
+     * @param maxCandidates The value of the 'maxCandidates' input.
+     * @param actorName The name of the actor.
+     * @return The enforcement of the 'maxCandidates' cap for this execution.
+     */
+    private CandidateOverflow overflow(final OverflowPolicy policy, final int maxCandidates, final String actorName) {
+        return new CandidateOverflow(policy, maxCandidates, actorName, getExecutionContext(), activityInstanceId());
+    }
+
+    /**
+     * @param actorName The name of the actor.
+     * @return The users mapped to the actor, read from the engine only when the
+     *         {@link OverflowPolicy#FALLBACK_TO_ACTOR} policy falls back to them.
+     */
+    private CandidateOverflow.ActorMembers actorMembers(final String actorName) {
+        return candidates -> {
+            final int pageSize = inputs.getPositiveInt(SEARCH_PAGE_SIZE_INPUT, DEFAULT_SEARCH_PAGE_SIZE);
+            new ActorMappingResolver(getAPIAccessor().getProcessAPI(), identityResolver())
+                    .addActorMembers(candidates, processDefinitionId(), actorName, pageSize);
+        };
+    }
+
+    /**
+     * @param usersList The validated 'usersList' IDs.
+     * @param actorName The name of the actor, used for logging.
+     * @return The operands of the 'candidateRule' input for this execution.
+     * @throws ConnectorValidationException if an option has an unsupported value.
+     */
+    private FilterRuleContext ruleContext(final long[] usersList, final String actorName) throws ConnectorValidationException {
+        final EngineExecutionContext context = getExecutionContext();
+        return new FilterRuleContext(usersList, actorName,
+                inputs.getPositiveInt(SEARCH_PAGE_SIZE_INPUT, DEFAULT_SEARCH_PAGE_SIZE),
+                inputs.getPositiveInt(LOOKUP_BATCH_SIZE_INPUT, IdentityCandidateResolver.DEFAULT_BATCH_SIZE),
+                getAPIAccessor(), this::identityResolver, rootProcessInstanceId(),
+                context == null ? 0L : context.getProcessInstanceId());
+    }
+
+    /**
+     * Prepares the candidates (steps 1 to 4 of {@link #applyTransformationSteps(CandidateIds, String)}):
+     * organization expansion or restriction, deduplication, exclusions and existence check.
+     * 
+     * @param candidates The candidates to transform in place.
+     * @param actorName The name of the actor, used for logging.
+     * @param engineLookups {@code false} to keep only the deduplication and the 'excludedUserIds' exclusion.
+     * @throws BonitaException if an option has an unsupported value or an engine call fails.
+     */
+    private void prepareCandidates(final CandidateIds candidates, final String actorName, final boolean engineLookups)
+            throws BonitaException {
+        boolean expanded = false;
+        if (engineLookups) {
+            if (inputs.getEnum(ORGANIZATION_MODE_INPUT, OrganizationMode.class, OrganizationMode.UNION) == OrganizationMode.INTERSECTION) {
+                restrictToOrganizationMembers(candidates, actorName);
+            } else {
+                expanded = expandOrganizationInputs(candidates, actorName);
+            }
+        }
+        if (expanded || inputs.getBoolean(DEDUPLICATE_INPUT, false)) {
+            final int duplicates = candidates.deduplicate();
+            LOGGER.debug("Removed {} duplicated user IDs for actor '{}'.", duplicates, actorName);
+            recordRemovedCandidates(actorName, CandidateRemoval.DUPLICATE, duplicates);
+        }
+        final boolean excludeInitiator = engineLookups && inputs.getBoolean(EXCLUDE_INITIATOR_INPUT, false);
+        if (excludeInitiator || inputs.getIdList(EXCLUDED_USER_IDS_INPUT).length > 0) {
+            removeExcludedUsers(candidates, actorName, excludeInitiator);
+        }
+        final UserExistenceCheck existenceCheck = engineLookups
+                ? inputs.getEnum(USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.class, UserExistenceCheck.NONE)
+                : UserExistenceCheck.NONE;
+        if (existenceCheck != UserExistenceCheck.NONE) {
+            final int candidateCount = candidates.size();
+            final int batchSize = inputs.getPositiveInt(LOOKUP_BATCH_SIZE_INPUT, IdentityCandidateResolver.DEFAULT_BATCH_SIZE);
+            final IdentityCandidateResolver resolver = identityResolver();
+            final int removed = existenceCheck == UserExistenceCheck.CACHED
+                    ? EnabledUsersCache.getInstance().retainEnabledUsers(candidates, resolver,
+                            inputs.getPositiveInt(USER_CACHE_TTL_SECONDS_INPUT, EnabledUsersCache.DEFAULT_TTL_SECONDS), batchSize)
+                    : resolver.retainEnabledUsers(candidates, batchSize);
+            if (removed > 0) {
+                LOGGER.info("Removed {} unknown or disabled users out of {} candidates for actor '{}'.", removed, candidateCount, actorName);
+            }
+            recordRemovedCandidates(actorName, CandidateRemoval.UNKNOWN_OR_DISABLED, removed);
+        }
+    }
+
+    /**
+     * Prepares the candidates like {@link #prepareCandidates(CandidateIds, String, boolean)}, or restores them from the
+     * {@link CandidateMemo} when an execution of the same case already prepared them from the same inputs.
+     * Candidates prepared without the engine lookups are not memoized.
+     * 
+     * @param candidates The candidates to transform in place.
+     * @param actorName The name of the actor, used for logging.
+     * @param engineLookups {@code false} while the circuit breaker is open.
+     * @throws BonitaException if an option has an unsupported value or an engine call fails.
+     */
+    private void prepareMemoizedCandidates(final CandidateIds candidates, final String actorName, final boolean engineLookups)
+            throws BonitaException {
+        final CandidateMemo.Key key = new CandidateMemo.Key(rootProcessInstanceId(), preparationFingerprint(candidates));
+        if (CandidateMemo.restore(key, candidates)) {
+            LOGGER.debug("Restored {} memoized candidates for actor '{}'.", candidates.size(), actorName);
+            return;
+        }
+        prepareCandidates(candidates, actorName, engineLookups);
+        if (engineLookups) {
+            CandidateMemo.store(key, candidates);
+        }
+    }
+
+    /**
+     * Hashes the candidates and every input read by {@link #prepareCandidates(CandidateIds, String, boolean)}.
+     * 
+     * @param candidates The candidates, before any transformation.
+     * @return The 64-bit fingerprint of the preparation inputs.
+     * @throws ConnectorValidationException if an option has an unsupported value.
+     */
+    private long preparationFingerprint(final CandidateIds candidates) throws ConnectorValidationException {
+        return new CandidateMemo.Fingerprint()
+                .add(candidates)
+                .add(inputs.getEnum(ORGANIZATION_MODE_INPUT, OrganizationMode.class, OrganizationMode.UNION).ordinal())
+                .add(inputs.getIdList(ROLE_IDS_INPUT))
+                .add(inputs.getIdList(GROUP_IDS_INPUT))
+                .add(inputs.getMembershipPairs())
+                .add(inputs.getBoolean(DEDUPLICATE_INPUT, false) ? 1 : 0)
+                .add(inputs.getIdList(EXCLUDED_USER_IDS_INPUT))
+                .add(inputs.getBoolean(EXCLUDE_INITIATOR_INPUT, false) ? 1 : 0)
+                .add(inputs.getEnum(USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.class, UserExistenceCheck.NONE).ordinal())
+                .get();
+    }
+
+    /**
+     * @param actorName The name of the actor.
+     * @return A seed identifying the actor and the case, so that pseudo-random choices are the same for every
+     *         task of the case.
+     */
+    private long caseSeed(final String actorName) {
+        return RendezvousHasher.hashKey(actorKey(actorName) + ":" + rootProcessInstanceId());
+    }
+
+    /**
+     * @param actorName The name of the actor.
+     * @return A key identifying the actor across process definitions, for node-local state.
+     */
+    private String actorKey(final String actorName) {
+        return processDefinitionId() + ":" + actorName;
+    }
+
+    /**
+     * @return The ID of the process definition of the task, {@code 0} outside of an execution context.
+     */
+    private long processDefinitionId() {
+        final EngineExecutionContext context = getExecutionContext();
+        return context == null ? 0L : context.getProcessDefinitionId();
+    }
+
+    /**
+     * @return The ID of the activity instance being filtered by {@link #filterBatch(String, Map)}, or the one of
+     *         the execution context, {@code 0} outside of both.
+     */
+    private long activityInstanceId() {
+        if (instanceInputs != null) {
+            return instanceActivityId;
+        }
+        final EngineExecutionContext context = getExecutionContext();
+        return context == null ? 0L : context.getActivityInstanceId();
+    }
+
+    /**
+     * @return The identity lookups of this execution: the prefetched ones, or those shared by the activity instances
+     *         of a batch.
+     */
+    private IdentityCandidateResolver identityResolver() {
+        if (prefetchedResolver != null) {
+            return prefetchedResolver;
+        }
+        if (instanceInputs == null) {
+            return new IdentityCandidateResolver(getAPIAccessor().getIdentityAPI());
+        }
+        if (batchResolver == null) {
+            batchResolver = IdentityCandidateResolver.shared(getAPIAccessor().getIdentityAPI());
+        }
+        return batchResolver;
+    }
+
+    /**
+     * @return The ID of the root process instance (the case), {@code 0} outside of an execution context.
+     */
+    private long rootProcessInstanceId() {
+        final EngineExecutionContext context = getExecutionContext();
+        return context == null ? 0L : context.getRootProcessInstanceId();
+    }
+
+    /**
+     * Tells whether the case is known, so that its initiator and last executor can be looked up. Without execution
+     * context, e.g. for {@link #filterBatch(String, Map)} called from a REST extension, they are not.
+     * 
+     * @param actorName The name of the actor, used for logging.
+     * @return {@code false} outside of an execution context.
+     */
+    private boolean hasCase(final String actorName) {
+        if (rootProcessInstanceId() != 0L) {
+            return true;
+        }
+        LOGGER.debug("No execution context: skipping the initiator and last executor lookups for actor '{}'.", actorName);
+        return false;
+    }
+
+    /**
+     * @return The parser of the inputs of this filter, holding the normalized 'usersList' input of the execution.
+     */
+    FilterInputs inputs() {
+        return inputs;
+    }
+
+    /**
+     * @return The metrics recording the executions of this filter. Overridden in tests.
+     */
+    FilterMetrics metrics() {
+        return FilterMetricsRegistry.get();
+    }
+
+    /**
+     * Reports candidates removed by a transformation step to the metrics, if any were removed.
+     */
+    private void recordRemovedCandidates(final String actorName, final CandidateRemoval removal, final int count) {
+        final FilterMetrics metrics = metrics();
+        if (count > 0 && metrics != FilterMetrics.NOOP) {
+            metrics.recordRemovedCandidates(processDefinitionId(), actorName, removal, count);
+        }
+    }
+
+    /**
+     * Tells the engine whether to assign the task directly when a single candidate is returned,
+     * according to the 'autoAssign' input ({@link AutoAssign#IF_SINGLE} by default).
+     * 
+     * @return {@code false} for {@link AutoAssign#NEVER}, {@code true} otherwise.
+     */
+    @Override
+    public boolean shouldAutoAssignTaskIfSingleResult() {
+        try {
+            return inputs.getEnum(AUTO_ASSIGN_INPUT, AutoAssign.class, AutoAssign.IF_SINGLE) != AutoAssign.NEVER;
+        } catch (final ConnectorValidationException e) {
+            // Already reported by validateInputParameters()
+            return super.shouldAutoAssignTaskIfSingleResult();
+        }
+    }
+
+    /**
+     * Keeps the 'selectionSize' distinct candidates with the fewest open tasks, least loaded first.
+     * The counts come from batched {@code ProcessAPI} calls and the selection uses a bounded heap.
+     * 
+     * @param candidates The candidates to select from, modified in place.
+     * @param actorName The name of the actor, used for logging.
+     * @throws ConnectorValidationException if an option has an unsupported value.
+     */
+    private void selectLeastLoaded(final CandidateIds candidates, final String actorName) throws ConnectorValidationException {
+        candidates.deduplicate();
+        final int selectionSize = inputs.getPositiveInt(SELECTION_SIZE_INPUT, DEFAULT_SELECTION_SIZE);
+        final int batchSize = inputs.getPositiveInt(LOOKUP_BATCH_SIZE_INPUT, IdentityCandidateResolver.DEFAULT_BATCH_SIZE);
+        final WorkloadResolver workload = new WorkloadResolver(getAPIAccessor().getProcessAPI());
+        final long[] openTasks = workload.findOpenTaskCounts(candidates, batchSize);
+        final int candidateCount = candidates.size();
+        candidates.retainIndexes(TopKSelector.selectSmallest(openTasks, candidateCount, selectionSize));
+        workload.recordSelection(candidates);
+        LOGGER.debug("Selected the {} least loaded of {} candidates for actor '{}'.", candidates.size(), candidateCount, actorName);
+    }
+
+    /**
+     * Keeps the 'selectionSize' distinct candidates bound to the 'stickyKey' input by rendezvous hashing.
+     * 
+     * @param candidates The candidates to select from, modified in place.
+     * @param actorName The name of the actor, used for logging.
+     * @throws ConnectorValidationException if an option has an unsupported value, or the sticky key is missing.
+     */
+    private void selectSticky(final CandidateIds candidates, final String actorName) throws ConnectorValidationException {
+        final Object stickyKey = inputs.getStickyKey();
+        if (stickyKey == null) {
+            throw FilterInputs.invalidInput(ERR_MISSING_STICKY_KEY, SELECTION_MODE_INPUT, SelectionMode.STICKY);
+        }
+        candidates.deduplicate();
+        final int selectionSize = inputs.getPositiveInt(SELECTION_SIZE_INPUT, DEFAULT_SELECTION_SIZE);
+        final int candidateCount = candidates.size();
+        candidates.retainIndexes(RendezvousHasher.select(candidates, RendezvousHasher.hashKey(stickyKey), selectionSize));
+        LOGGER.debug("Selected {} of {} candidates for sticky key '{}' and actor '{}'.", candidates.size(), candidateCount,
+                stickyKey, actorName);
+    }
+
+    /**
+     * Appends the members of the roles, groups and memberships given as inputs, streaming each search page
+     * into the primitive candidates.
+     * 
+     * @param candidates The candidates to append to.
+     * @param actorName The name of the actor, used for logging.
+     * @return {@code true} if at least one role, group or membership was expanded.
+     * @throws BonitaException if an input is malformed or a search fails.
+     */
+    private boolean expandOrganizationInputs(final CandidateIds candidates, final String actorName) throws BonitaException {
+        final long[] roleIds = inputs.getIdList(ROLE_IDS_INPUT);
+        final long[] groupIds = inputs.getIdList(GROUP_IDS_INPUT);
+        final long[] membershipPairs = inputs.getMembershipPairs();
+        if (roleIds.length == 0 && groupIds.length == 0 && membershipPairs.length == 0) {
+            return false;
+        }
+        final int pageSize = inputs.getPositiveInt(SEARCH_PAGE_SIZE_INPUT, DEFAULT_SEARCH_PAGE_SIZE);
+        final IdentityCandidateResolver resolver = identityResolver();
+        int added = 0;
+        for (final long roleId : roleIds) {
+            added += resolver.addRoleMembers(candidates, roleId, pageSize);
+        }
+        for (final long groupId : groupIds) {
+            added += resolver.addGroupMembers(candidates, groupId, pageSize);
+        }
+        for (int i = 0; i < membershipPairs.length; i += 2) {
+            added += resolver.addMembershipMembers(candidates, membershipPairs[i], membershipPairs[i + 1], pageSize);
+        }
+        LOGGER.debug("Expanded {} roles, {} groups and {} memberships into {} user IDs for actor '{}'.",
+                roleIds.length, groupIds.length, membershipPairs.length / 2, added, actorName);
+        return true;
+    }
+
+    /**
+     * Removes the users listed in 'excludedUserIds', and the initiator of the case when requested.
+     * The excluded IDs are collected into a primitive hash set, then the candidates are compacted in a single pass.
+     * 
+     * @param candidates The candidates to filter, modified in place.
+     * @param actorName The name of the actor, used for logging.
+     * @param excludeInitiator {@code true} to also look up and remove the initiator of the case.
+     * @throws BonitaException if an input is malformed or a process lookup fails.
+     */
+    private void removeExcludedUsers(final CandidateIds candidates, final String actorName, final boolean excludeInitiator)
+            throws BonitaException {
+        final long[] excludedUserIds = inputs.getIdList(EXCLUDED_USER_IDS_INPUT);
+        final LongHashSet excluded = new LongHashSet(excludedUserIds.length + 1);
+        for (final long userId : excludedUserIds) {
+            excluded.add(userId);
+        }
+        if (excludeInitiator && hasCase(actorName)) {
+            final ProcessActorsResolver resolver = new ProcessActorsResolver(getAPIAccessor().getProcessAPI());
+            addExcludedUser(excluded, resolver.findInitiator(rootProcessInstanceId()));
+        }
+        final int removed = candidates.retainIf(userId -> !excluded.contains(userId));
+        LOGGER.debug("Removed {} excluded user IDs for actor '{}'.", removed, actorName);
+        recordRemovedCandidates(actorName, CandidateRemoval.EXCLUDED, removed);
+    }
+
+    /**
+     * Removes the user who executed the most recently completed task of the case.
+     * 
+     * @param candidates The candidates to filter, modified in place.
+     * @param actorName The name of the actor, used for logging.
+     * @throws BonitaException if the process lookup fails.
+     */
+    private void removeLastExecutor(final CandidateIds candidates, final String actorName) throws BonitaException {
+        if (!hasCase(actorName)) {
+            return;
+        }
+        final long lastExecutor = new ProcessActorsResolver(getAPIAccessor().getProcessAPI())
+                .findLastExecutor(rootProcessInstanceId());
+        if (lastExecutor == ProcessActorsResolver.NO_USER) {
+            return;
+        }
+        final int removed = candidates.retainIf(userId -> userId != lastExecutor);
+        LOGGER.debug("Removed last executor {} from the candidates for actor '{}'.", lastExecutor, actorName);
+        recordRemovedCandidates(actorName, CandidateRemoval.EXCLUDED, removed);
+    }
+
+    private static void addExcludedUser(final LongHashSet excluded, final long userId) {
+        if (userId != ProcessActorsResolver.NO_USER) {
+            excluded.add(userId);
+        }
+    }
+
+    /**
+     * Keeps only the candidates that are members of at least one of the roles, groups or memberships given as inputs.
+     * The members are collected into a primitive hash set, then the candidates are compacted in a single pass.
+     * 
+     * @param candidates The candidates to restrict, modified in place.
+     * @param actorName The name of the actor, used for logging.
+     * @throws BonitaException if an input is malformed or a search fails.
+     */
+    private void restrictToOrganizationMembers(final CandidateIds candidates, final String actorName) throws BonitaException {
+        final CandidateIds members = new CandidateIds();
+        expandOrganizationInputs(members, actorName);
+        final LongHashSet memberSet = new LongHashSet(members.size());
+        for (int i = 0; i < members.size(); i++) {
+            memberSet.add(members.get(i));
+        }
+        final int candidateCount = candidates.size();
+        final int removed = candidates.retainIf(memberSet::contains);
+        LOGGER.debug("Kept {} of {} user IDs belonging to {} organization members for actor '{}'.",
+                candidateCount - removed, candidateCount, memberSet.size(), actorName);
+    }
+
+    /**
+     * Tells whether the 'candidateRule' input is set to a rule calling the engine.
+     * 
+     * @return {@code true} if the rule has a role, group, membership, manager, initiator or variable operand.
+     * @throws ConnectorValidationException if the rule is malformed.
+     */
+    private boolean hasEngineRule() throws ConnectorValidationException {
+        final CandidateRule rule = inputs.getCandidateRule(processDefinitionId());
+        return rule != null && rule.usesEngine();
+    }
+
+    /**
+     * Reads an input, from the inputs of the activity instance being filtered by {@link #filterBatch(String, Map)}
+     * when it sets it, from the inputs of this filter otherwise.
+     * 
+     * @param inputName The name of the input parameter.
+     * @return The value of the input, {@code null} if not set.
+     */
+    private Object getInput(final String inputName) {
+        final Map<String, ?> inputs = instanceInputs;
+        if (inputs != null && inputs.containsKey(inputName)) {
+            return inputs.get(inputName);
         }
+        return getInputParameter(inputName);
     }
 
-}
\ No newline at end of file
+}
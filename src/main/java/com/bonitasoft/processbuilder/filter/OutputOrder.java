@@ -0,0 +1,23 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * Order of the candidates returned by {@link MultipleUserIdsActorFilter}, in which the engine inserts
+ * the pending mappings of the task.
+ */
+public enum OutputOrder {
+
+    /**
+     * The order of the inputs: 'usersList' first, then the expanded organization members (default).
+     */
+    INPUT,
+
+    /**
+     * Ascending user IDs: consecutive inserts hit neighbouring entries of the pending mapping index.
+     */
+    ASCENDING,
+
+    /**
+     * Pseudo-random order, seeded by the actor and the case: the same task always gets the same order.
+     */
+    SHUFFLED
+}
@@ -0,0 +1,30 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * What {@link MultipleUserIdsActorFilter} does when more candidates than the 'maxCandidates' input remain,
+ * to avoid writing one pending mapping per candidate in the task creation transaction.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The filter fails, so that the task is put in failed state and the misconfiguration is visible (default).
+     */
+    FAIL,
+
+    /**
+     * The first 'maxCandidates' candidates are kept.
+     */
+    TRUNCATE,
+
+    /**
+     * 'maxCandidates' candidates are sampled uniformly, in a single pass, keeping their order.
+     * The sample is seeded by the process definition, the case and the actor: the same task always gets the same sample.
+     */
+    RESERVOIR_SAMPLE,
+
+    /**
+     * The candidates are replaced by the members of the actor mapping of the process (users, groups, roles
+     * and memberships), as if the task had no filter. Beyond 'maxCandidates' users, the first ones of the mapping are kept.
+     */
+    FALLBACK_TO_ACTOR
+}
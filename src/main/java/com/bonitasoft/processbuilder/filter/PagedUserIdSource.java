@@ -0,0 +1,27 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.List;
+
+import org.bonitasoft.engine.exception.BonitaException;
+
+/**
+ * Paged source of candidate user IDs, to be given as the 'usersList' input of {@link MultipleUserIdsActorFilter}
+ * instead of a materialized List, for example to stream the result of a paged business data query.
+ *
+ * The filter requests consecutive pages of 'searchPageSize' IDs until a page is shorter than requested,
+ * so only one page is held in memory at a time. In a Groovy script, a closure can be coerced to this interface:
+ * <pre>
+ * { int startIndex, int maxResults -&gt; customerDAO.findAccountManagerIds(startIndex, maxResults) } as PagedUserIdSource
+ * </pre>
+ */
+@FunctionalInterface
+public interface PagedUserIdSource {
+
+    /**
+     * @param startIndex The index of the first ID of the page, {@code 0} for the first page.
+     * @param maxResults The maximum number of IDs of the page.
+     * @return The IDs of the page: fewer than {@code maxResults} (or an empty list or {@code null}) on the last page.
+     * @throws BonitaException if the page cannot be read.
+     */
+    List<Long> fetchPage(int startIndex, int maxResults) throws BonitaException;
+}
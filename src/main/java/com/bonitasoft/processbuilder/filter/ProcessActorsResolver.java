@@ -0,0 +1,85 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.flownode.ArchivedHumanTaskInstance;
+import org.bonitasoft.engine.bpm.flownode.ArchivedHumanTaskInstanceSearchDescriptor;
+import org.bonitasoft.engine.bpm.process.ProcessInstanceNotFoundException;
+import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.search.Order;
+import org.bonitasoft.engine.search.SearchOptionsBuilder;
+
+/**
+ * Resolves the users who already acted on a process instance (initiator, last executor), for four-eyes exclusions.
+ *
+ * Each answer costs a single {@link ProcessAPI} call. The initiator is kept in a node-local cache per root process
+ * instance, as it never changes. The last executor is not cached: it changes every time a task of the case completes,
+ * usually right before the next task is created, so a cached answer would miss the very executor to exclude.
+ */
+final class ProcessActorsResolver {
+
+    /**
+     * Returned when no user matches, e.g. a process started by the system or no completed task yet.
+     */
+    static final long NO_USER = 0L;
+
+    /**
+     * Maximum number of entries of the cache.
+     */
+    static final int CACHE_MAX_SIZE = 10_000;
+
+    /**
+     * Archived state of a task executed by a user.
+     */
+    private static final String COMPLETED_STATE = "completed";
+
+    private static final ExpiringLruCache<Long, Long> INITIATORS =
+            new ExpiringLruCache<>(CACHE_MAX_SIZE, TimeUnit.HOURS.toNanos(1));
+
+    private final ProcessAPI processAPI;
+
+    /**
+     * @param processAPI The process API of the engine.
+     */
+    ProcessActorsResolver(final ProcessAPI processAPI) {
+        this.processAPI = processAPI;
+    }
+
+    /**
+     * @param rootProcessInstanceId The ID of the root process instance (the case).
+     * @return The ID of the user who started the case, or {@link #NO_USER}.
+     * @throws ProcessInstanceNotFoundException if the process instance does not exist.
+     */
+    long findInitiator(final long rootProcessInstanceId) throws ProcessInstanceNotFoundException {
+        final Long cached = INITIATORS.get(rootProcessInstanceId);
+        if (cached != null) {
+            return cached;
+        }
+        final long initiator = processAPI.getProcessInstance(rootProcessInstanceId).getStartedBy();
+        INITIATORS.put(rootProcessInstanceId, initiator);
+        return initiator;
+    }
+
+    /**
+     * @param rootProcessInstanceId The ID of the root process instance (the case).
+     * @return The ID of the user who executed the most recently completed task of the case, or {@link #NO_USER}.
+     * @throws SearchException if the search fails.
+     */
+    long findLastExecutor(final long rootProcessInstanceId) throws SearchException {
+        final List<ArchivedHumanTaskInstance> lastTasks = processAPI.searchArchivedHumanTasks(new SearchOptionsBuilder(0, 1)
+                .filter(ArchivedHumanTaskInstanceSearchDescriptor.ROOT_PROCESS_INSTANCE_ID, rootProcessInstanceId)
+                .filter(ArchivedHumanTaskInstanceSearchDescriptor.STATE_NAME, COMPLETED_STATE)
+                .sort(ArchivedHumanTaskInstanceSearchDescriptor.ARCHIVE_DATE, Order.DESC)
+                .done()).getResult();
+        return lastTasks.isEmpty() ? NO_USER : lastTasks.get(0).getExecutedBy();
+    }
+
+    /**
+     * Empties the cache. Visible for tests.
+     */
+    static void clearCaches() {
+        INITIATORS.clear();
+    }
+}
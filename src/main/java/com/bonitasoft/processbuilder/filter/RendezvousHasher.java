@@ -0,0 +1,83 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * Rendezvous (highest random weight) hashing of a sticky key over the candidates: each candidate gets a score
+ * that only depends on the key and its own user ID, and the candidates with the lowest scores win.
+ *
+ * No state is kept, so every node of a cluster picks the same users for the same key. Adding a candidate only
+ * takes over the keys for which it scores best, and removing one only moves the keys it had won:
+ * the minimum possible movement. Scoring costs a few multiplications per candidate, O(n).
+ */
+final class RendezvousHasher {
+
+    /**
+     * Fibonacci hashing multiplier (2^64 / golden ratio).
+     */
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    /**
+     * FNV-1a 64-bit offset basis.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    /**
+     * FNV-1a 64-bit prime.
+     */
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private RendezvousHasher() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Hashes a sticky key in a way that does not depend on the JVM: integral numbers hash as their value,
+     * anything else as the characters of its {@code toString()}.
+     *
+     * @param key The sticky key, not {@code null}.
+     * @return The 64-bit hash of the key.
+     */
+    static long hashKey(final Object key) {
+        if (key instanceof Long || key instanceof Integer || key instanceof Short) {
+            return mix(((Number) key).longValue());
+        }
+        final String text = key.toString();
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Selects the {@code k} candidates with the lowest scores for the key.
+     *
+     * @param candidates The distinct candidates.
+     * @param keyHash The hash of the sticky key, from {@link #hashKey(Object)}.
+     * @param k The number of candidates to select.
+     * @return The indexes of the selected candidates, lowest score first.
+     */
+    static int[] select(final CandidateIds candidates, final long keyHash, final int k) {
+        final int count = candidates.size();
+        final long[] scores = new long[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = score(keyHash, candidates.get(i));
+        }
+        return TopKSelector.selectSmallest(scores, count, k);
+    }
+
+    /**
+     * @return The score of a user for a key, the lowest winning.
+     */
+    static long score(final long keyHash, final long userId) {
+        return mix(keyHash ^ (userId * GOLDEN_RATIO));
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads every input bit over the 64 output bits.
+     */
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
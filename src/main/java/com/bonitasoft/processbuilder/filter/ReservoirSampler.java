@@ -0,0 +1,100 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded reservoir sampling (algorithm R) of positions: each of the {@code count} positions has the same
+ * probability to be kept, in a single pass and O(k) memory. {@link Reservoir} samples values from a stream.
+ */
+final class ReservoirSampler {
+
+    private ReservoirSampler() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * @param count The number of positions to sample from.
+     * @param k The number of positions to keep.
+     * @param seed The seed of the pseudo-random generator: the same seed gives the same sample.
+     * @return The {@code min(k, count)} sampled positions, in ascending order.
+     */
+    static int[] sample(final int count, final int k, final long seed) {
+        final int size = Math.min(k, count);
+        final int[] reservoir = new int[size];
+        for (int i = 0; i < size; i++) {
+            reservoir[i] = i;
+        }
+        final SplittableRandom random = new SplittableRandom(seed);
+        for (int i = size; i < count; i++) {
+            final int slot = random.nextInt(i + 1);
+            if (slot < size) {
+                reservoir[slot] = i;
+            }
+        }
+        Arrays.sort(reservoir);
+        return reservoir;
+    }
+
+    /**
+     * Streaming form of {@link #sample(int, int, long)}, for sources whose size is not known: the values are
+     * offered one at a time, and only {@code k} of them are held. For the same seed, the same positions are kept
+     * as by {@link #sample(int, int, long)}.
+     */
+    static final class Reservoir {
+        private final int k;
+        private final SplittableRandom random;
+        private long[] values = new long[16];
+        private int[] positions = new int[16];
+        private int count;
+
+        /**
+         * @param k The number of values to keep.
+         * @param seed The seed of the pseudo-random generator: the same seed gives the same sample.
+         */
+        Reservoir(final int k, final long seed) {
+            this.k = k;
+            this.random = new SplittableRandom(seed);
+        }
+
+        void offer(final long value) {
+            final int slot = count < k ? count : random.nextInt(count + 1);
+            if (slot < k) {
+                if (slot == values.length) {
+                    // Grown on demand, so that a large k costs nothing for a short source
+                    final int capacity = (int) Math.min(k, 2L * values.length);
+                    values = Arrays.copyOf(values, capacity);
+                    positions = Arrays.copyOf(positions, capacity);
+                }
+                values[slot] = value;
+                positions[slot] = count;
+            }
+            count++;
+        }
+
+        /**
+         * @return The number of values offered.
+         */
+        int count() {
+            return count;
+        }
+
+        /**
+         * @return The {@code min(k, count())} sampled values, in the order they were offered.
+         */
+        CandidateIds toCandidates() {
+            final int size = Math.min(k, count);
+            // Sort the slots by position: the position in the high bits, the slot in the low bits
+            final long[] slotsByPosition = new long[size];
+            for (int slot = 0; slot < size; slot++) {
+                slotsByPosition[slot] = (long) positions[slot] << 32 | slot;
+            }
+            Arrays.sort(slotsByPosition);
+            final long[] sample = new long[size];
+            for (int i = 0; i < size; i++) {
+                sample[i] = values[(int) slotsByPosition[i]];
+            }
+            return CandidateIds.wrap(sample);
+        }
+    }
+}
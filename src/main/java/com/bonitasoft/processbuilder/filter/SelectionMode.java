@@ -0,0 +1,26 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * How {@link MultipleUserIdsActorFilter} picks the users returned as candidates among the filtered ones.
+ */
+public enum SelectionMode {
+
+    /**
+     * Every filtered user is a candidate (default).
+     */
+    ALL,
+
+    /**
+     * Only the 'selectionSize' users with the fewest open (assigned or pending) tasks are candidates,
+     * least loaded first. Ties are broken by position in the candidate list.
+     * With a 'selectionSize' of 1, the task can be assigned directly to the returned user.
+     */
+    LEAST_LOADED,
+
+    /**
+     * The same 'selectionSize' users are candidates for every task sharing the same 'stickyKey' input
+     * (e.g. a business object ID), chosen by rendezvous hashing. No state is kept: every node picks the same users,
+     * and adding or removing a user only moves the keys that user wins or had won.
+     */
+    STICKY
+}
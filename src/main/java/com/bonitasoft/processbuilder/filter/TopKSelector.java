@@ -0,0 +1,85 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * Selects the k smallest entries of an array of scores with a bounded max-heap: O(n log k) time and
+ * O(k) memory, instead of sorting the n entries.
+ *
+ * Entries are compared by score, then by index, so that the selection is stable.
+ */
+final class TopKSelector {
+
+    private TopKSelector() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * @param scores The score of each entry.
+     * @param count The number of meaningful scores at the beginning of {@code scores}.
+     * @param k The maximum number of entries to select.
+     * @return The indexes of the {@code min(k, count)} entries with the lowest scores, lowest first.
+     */
+    static int[] selectSmallest(final long[] scores, final int count, final int k) {
+        final int capacity = Math.min(k, count);
+        // Heap of indexes, the greatest (score, index) at the root
+        final int[] heap = new int[capacity];
+        int size = 0;
+        for (int index = 0; index < count; index++) {
+            if (size < capacity) {
+                heap[size] = index;
+                siftUp(heap, size++, scores);
+            } else if (capacity > 0 && isGreater(scores, heap[0], index)) {
+                heap[0] = index;
+                siftDown(heap, size, scores);
+            }
+        }
+        // Pop the greatest entry to the end until the heap is empty: ascending order
+        for (int last = size - 1; last > 0; last--) {
+            final int greatest = heap[0];
+            heap[0] = heap[last];
+            heap[last] = greatest;
+            siftDown(heap, last, scores);
+        }
+        return heap;
+    }
+
+    /**
+     * @return {@code true} if entry {@code a} comes after entry {@code b}.
+     */
+    private static boolean isGreater(final long[] scores, final int a, final int b) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a > b);
+    }
+
+    private static void siftUp(final int[] heap, final int position, final long[] scores) {
+        int child = position;
+        final int entry = heap[child];
+        while (child > 0) {
+            final int parent = (child - 1) >>> 1;
+            if (!isGreater(scores, entry, heap[parent])) {
+                break;
+            }
+            heap[child] = heap[parent];
+            child = parent;
+        }
+        heap[child] = entry;
+    }
+
+    private static void siftDown(final int[] heap, final int size, final long[] scores) {
+        int parent = 0;
+        final int entry = heap[0];
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isGreater(scores, heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!isGreater(scores, heap[child], entry)) {
+                break;
+            }
+            heap[parent] = heap[child];
+            parent = child;
+        }
+        heap[parent] = entry;
+    }
+}
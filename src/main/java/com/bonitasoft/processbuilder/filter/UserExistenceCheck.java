@@ -0,0 +1,24 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * How {@link MultipleUserIdsActorFilter} makes sure the candidate user IDs point to existing, enabled users.
+ */
+public enum UserExistenceCheck {
+
+    /**
+     * Candidates are not checked (default). The caller is responsible for providing valid user IDs.
+     */
+    NONE,
+
+    /**
+     * Candidates are resolved through {@code IdentityAPI.getUsers(List<Long>)}, in batches of
+     * 'lookupBatchSize' IDs. Unknown and disabled users are removed.
+     */
+    BATCHED,
+
+    /**
+     * Candidates are checked against the node-local {@link EnabledUsersCache}, reloaded every
+     * 'userCacheTtlSeconds'. Only the IDs created after the last reload are resolved through batched lookups.
+     */
+    CACHED
+}
@@ -0,0 +1,246 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+
+/**
+ * Compact String forms of a list of user IDs, accepted as the 'usersList' input of {@link MultipleUserIdsActorFilter}
+ * in place of a {@code List<Long>}, to keep process variables small:
+ * - delimited: {@code "1, 2, 3"}, optionally enclosed in brackets as printed by a Groovy List
+ * - packed: {@link #PACKED_PREFIX} followed by the URL-safe, unpadded Base64 of the ID count then of each
+ *   difference with the previous ID, as zigzag varints. Sequential IDs cost about 1.4 characters each.
+ *
+ * In a Groovy script: {@code UserIdsCodec.pack(userIds)}. Decoding reads the characters of the String directly,
+ * without intermediate byte array nor boxing.
+ */
+public final class UserIdsCodec {
+
+    /**
+     * Prefix of the packed form, including its format version.
+     */
+    public static final String PACKED_PREFIX = "ids1:";
+
+    /**
+     * Value of each Base64 URL-safe character, {@code -1} for the other ASCII characters.
+     */
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private UserIdsCodec() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * @param ids The user IDs, in any order. Sorted IDs give the shortest output.
+     * @return The packed form of the IDs, order and duplicates included.
+     */
+    public static String pack(final long[] ids) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(ids.length + 8);
+        writeVarint(bytes, ids.length);
+        long previous = 0;
+        for (final long id : ids) {
+            writeVarint(bytes, zigzag(id - previous));
+            previous = id;
+        }
+        return PACKED_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @param ids The user IDs, for instance a {@code List<Long>}. Must not contain {@code null}.
+     * @return The packed form of the IDs, order and duplicates included.
+     */
+    public static String pack(final Collection<? extends Number> ids) {
+        final long[] values = new long[ids.size()];
+        int i = 0;
+        for (final Number id : ids) {
+            values[i++] = id.longValue();
+        }
+        return pack(values);
+    }
+
+    /**
+     * @param value Any character sequence.
+     * @return {@code true} if the value starts with {@link #PACKED_PREFIX}.
+     */
+    public static boolean isPacked(final CharSequence value) {
+        if (value.length() < PACKED_PREFIX.length()) {
+            return false;
+        }
+        for (int i = 0; i < PACKED_PREFIX.length(); i++) {
+            if (value.charAt(i) != PACKED_PREFIX.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param packed A value produced by {@link #pack(long[])}.
+     * @return The IDs.
+     * @throws IllegalArgumentException if the value is not a valid packed form.
+     */
+    public static long[] unpack(final CharSequence packed) {
+        return decodePacked(packed).toArray();
+    }
+
+    /**
+     * @param delimited Comma-separated IDs, for instance {@code "1, 2, 3"} or {@code "[1, 2, 3]"}.
+     * @return The IDs.
+     * @throws IllegalArgumentException if an element is not an integer.
+     */
+    public static long[] parseDelimited(final CharSequence delimited) {
+        return decodeDelimited(delimited).toArray();
+    }
+
+    /**
+     * Decodes a packed value straight into an array sized from the declared count, one Base64 character at a time.
+     */
+    static CandidateIds decodePacked(final CharSequence packed) {
+        if (!isPacked(packed)) {
+            throw new IllegalArgumentException("Packed user IDs must start with '" + PACKED_PREFIX + "'.");
+        }
+        final int length = packed.length();
+        int bitBuffer = 0;
+        int bitCount = 0;
+        long varint = 0;
+        int shift = 0;
+        long declaredCount = -1;
+        long[] ids = null;
+        int count = 0;
+        long previous = 0;
+        for (int i = PACKED_PREFIX.length(); i < length; i++) {
+            final char c = packed.charAt(i);
+            final int sextet = c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+            if (sextet < 0) {
+                throw new IllegalArgumentException("Invalid character '" + c + "' at position " + i + " of packed user IDs.");
+            }
+            bitBuffer = (bitBuffer << 6) | sextet;
+            bitCount += 6;
+            if (bitCount < 8) {
+                continue;
+            }
+            bitCount -= 8;
+            final int b = (bitBuffer >>> bitCount) & 0xFF;
+            bitBuffer &= (1 << bitCount) - 1;
+            if (shift > 63) {
+                throw new IllegalArgumentException("Packed user IDs hold a value longer than 64 bits.");
+            }
+            varint |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) != 0) {
+                shift += 7;
+                continue;
+            }
+            if (ids == null) {
+                // Every ID takes at least one byte, i.e. more than one character
+                if (varint < 0 || varint > length) {
+                    throw new IllegalArgumentException("Packed user IDs declare " + varint + " IDs in " + length + " characters.");
+                }
+                declaredCount = varint;
+                ids = new long[(int) varint];
+            } else {
+                if (count == ids.length) {
+                    throw new IllegalArgumentException("Packed user IDs hold more than the " + declaredCount + " declared IDs.");
+                }
+                previous += unzigzag(varint);
+                ids[count++] = previous;
+            }
+            varint = 0;
+            shift = 0;
+        }
+        if (shift != 0 || ids == null || count != ids.length) {
+            throw new IllegalArgumentException("Packed user IDs are truncated.");
+        }
+        return CandidateIds.wrap(ids);
+    }
+
+    /**
+     * Parses comma-separated IDs straight into an array sized by counting the commas, without substrings nor boxing.
+     */
+    static CandidateIds decodeDelimited(final CharSequence delimited) {
+        int start = 0;
+        int end = delimited.length();
+        while (start < end && Character.isWhitespace(delimited.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(delimited.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start >= 2 && delimited.charAt(start) == '[' && delimited.charAt(end - 1) == ']') {
+            start++;
+            end--;
+        }
+        int commas = 0;
+        for (int i = start; i < end; i++) {
+            if (delimited.charAt(i) == ',') {
+                commas++;
+            }
+        }
+        final long[] ids = new long[commas + 1];
+        int count = 0;
+        long value = 0;
+        int digits = 0;
+        boolean separatorPending = false;
+        for (int i = start; i < end; i++) {
+            final char c = delimited.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (separatorPending) {
+                    throw invalidDelimited(i);
+                }
+                // Only a 19th digit may overflow
+                if (digits >= 18 && value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                    throw new IllegalArgumentException("User ID too large at position " + i + ".");
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+            } else if (c == ',') {
+                if (digits == 0) {
+                    throw invalidDelimited(i);
+                }
+                ids[count++] = value;
+                value = 0;
+                digits = 0;
+                separatorPending = false;
+            } else if (c == ' ' || Character.isWhitespace(c)) {
+                separatorPending = digits > 0;
+            } else {
+                throw invalidDelimited(i);
+            }
+        }
+        if (digits > 0) {
+            ids[count++] = value;
+        } else if (count > 0) {
+            // Trailing comma
+            throw invalidDelimited(end);
+        }
+        return count == ids.length ? CandidateIds.wrap(ids) : CandidateIds.wrap(Arrays.copyOf(ids, count));
+    }
+
+    private static IllegalArgumentException invalidDelimited(final int position) {
+        return new IllegalArgumentException("Expected comma-separated user IDs, invalid character at position " + position + ".");
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream bytes, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        bytes.write((int) value);
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
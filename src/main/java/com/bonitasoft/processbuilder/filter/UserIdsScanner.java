@@ -0,0 +1,135 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Scans the elements of a candidate list and locates the ones that are not {@code Long} user IDs.
+ *
+ * The scan does not allocate anything while the elements are valid: random access lists are
+ * walked by index (no iterator), and the array of invalid indexes is only created on the first error.
+ */
+final class UserIdsScanner {
+
+    /**
+     * Number of elements checked by {@link ValidationMode#SAMPLED}.
+     */
+    static final int SAMPLE_SIZE = 32;
+
+    /**
+     * Returned when every scanned element is valid.
+     */
+    private static final int[] NO_INVALID_INDEX = new int[0];
+
+    private UserIdsScanner() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Returns the indexes of the elements that are not {@code Long}s (including {@code null} elements).
+     *
+     * @param list The non-empty list to scan.
+     * @param mode Which elements to scan.
+     * @return The invalid indexes, in ascending order. Empty if every scanned element is valid.
+     */
+    static int[] findInvalidIndexes(final List<?> list, final ValidationMode mode) {
+        switch (mode) {
+            case FULL:
+                return list instanceof RandomAccess ? scanAll(list) : scanAllSequentially(list);
+            case SAMPLED:
+                return scanSample(list);
+            case FIRST_ELEMENT:
+            default:
+                return list.get(0) instanceof Long ? NO_INVALID_INDEX : new int[]{0};
+        }
+    }
+
+    private static int[] scanAll(final List<?> list) {
+        int[] invalid = NO_INVALID_INDEX;
+        int invalidCount = 0;
+        final int size = list.size();
+        for (int i = 0; i < size; i++) {
+            if (!(list.get(i) instanceof Long)) {
+                invalid = append(invalid, invalidCount++, i);
+            }
+        }
+        return trim(invalid, invalidCount);
+    }
+
+    private static int[] scanAllSequentially(final List<?> list) {
+        int[] invalid = NO_INVALID_INDEX;
+        int invalidCount = 0;
+        int index = 0;
+        for (final Object element : list) {
+            if (!(element instanceof Long)) {
+                invalid = append(invalid, invalidCount++, index);
+            }
+            index++;
+        }
+        return trim(invalid, invalidCount);
+    }
+
+    /**
+     * Checks {@link #SAMPLE_SIZE} evenly spread elements, always including the first and the last one.
+     * Lists without random access only get their first and last elements checked, to stay in constant time.
+     */
+    private static int[] scanSample(final List<?> list) {
+        final int size = list.size();
+        if (size <= SAMPLE_SIZE && list instanceof RandomAccess) {
+            return scanAll(list);
+        }
+        int[] invalid = NO_INVALID_INDEX;
+        int invalidCount = 0;
+        if (list instanceof RandomAccess) {
+            final int lastSample = SAMPLE_SIZE - 1;
+            for (int sample = 0; sample <= lastSample; sample++) {
+                final int index = (int) ((long) sample * (size - 1) / lastSample);
+                if (!(list.get(index) instanceof Long)) {
+                    invalid = append(invalid, invalidCount++, index);
+                }
+            }
+        } else {
+            if (!(list.get(0) instanceof Long)) {
+                invalid = append(invalid, invalidCount++, 0);
+            }
+            if (size > 1 && !(list.get(size - 1) instanceof Long)) {
+                invalid = append(invalid, invalidCount++, size - 1);
+            }
+        }
+        return trim(invalid, invalidCount);
+    }
+
+    private static int[] append(final int[] invalid, final int count, final int index) {
+        final int[] target = count < invalid.length ? invalid : Arrays.copyOf(invalid, Math.max(8, count * 2));
+        target[count] = index;
+        return target;
+    }
+
+    private static int[] trim(final int[] invalid, final int count) {
+        return count == invalid.length ? invalid : Arrays.copyOf(invalid, count);
+    }
+
+    /**
+     * Describes the invalid elements as {@code "index (type), index (type)..."}, for error messages.
+     *
+     * @param list The scanned list.
+     * @param invalidIndexes The indexes returned by {@link #findInvalidIndexes(List, ValidationMode)}.
+     * @return A human readable description of every invalid element.
+     */
+    static String describe(final List<?> list, final int[] invalidIndexes) {
+        final StringBuilder description = new StringBuilder(invalidIndexes.length * 12);
+        final Object[] elements = list instanceof RandomAccess ? null : list.toArray();
+        for (int i = 0; i < invalidIndexes.length; i++) {
+            final int index = invalidIndexes[i];
+            final Object element = elements == null ? list.get(index) : elements[index];
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(index).append(" (")
+                    .append(element == null ? "null" : element.getClass().getSimpleName())
+                    .append(')');
+        }
+        return description.toString();
+    }
+}
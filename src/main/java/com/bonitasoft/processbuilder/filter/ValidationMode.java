@@ -0,0 +1,24 @@
+package com.bonitasoft.processbuilder.filter;
+
+/**
+ * How thoroughly the elements of the 'usersList' input are checked by
+ * {@link MultipleUserIdsActorFilter#validateInputParameters()}.
+ */
+public enum ValidationMode {
+
+    /**
+     * Only the first element is checked. Constant time, regardless of the list size (default).
+     */
+    FIRST_ELEMENT,
+
+    /**
+     * A fixed number of elements spread over the whole list (including the first and the last one) are checked.
+     * Constant time, catches most lists built from heterogeneous sources.
+     */
+    SAMPLED,
+
+    /**
+     * Every element is checked in a single pass, and every invalid index is reported.
+     */
+    FULL
+}
@@ -0,0 +1,95 @@
+package com.bonitasoft.processbuilder.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.api.ProcessAPI;
+
+/**
+ * Resolves the number of open (assigned or pending) tasks of candidate users through batched
+ * {@code ProcessAPI.getNumberOfOpenTasks(List<Long>)} calls.
+ *
+ * The counts are cached on the node for a few seconds: tasks created in bursts share the same lookups,
+ * at the cost of slightly stale figures. The users selected for a task get one more open task in the cache,
+ * so that a burst is spread over the least loaded users instead of piling up on the same one.
+ */
+final class WorkloadResolver {
+
+    /**
+     * Time to live of a cached count, in seconds.
+     */
+    static final int CACHE_TTL_SECONDS = 5;
+
+    /**
+     * Maximum number of cached counts.
+     */
+    static final int CACHE_MAX_SIZE = 100_000;
+
+    private static final ExpiringLruCache<Long, Long> OPEN_TASKS =
+            new ExpiringLruCache<>(CACHE_MAX_SIZE, TimeUnit.SECONDS.toNanos(CACHE_TTL_SECONDS));
+
+    private final ProcessAPI processAPI;
+
+    /**
+     * @param processAPI The process API of the engine.
+     */
+    WorkloadResolver(final ProcessAPI processAPI) {
+        this.processAPI = processAPI;
+    }
+
+    /**
+     * @param candidates The candidates, without duplicates.
+     * @param batchSize The maximum number of IDs sent in a single {@code getNumberOfOpenTasks} call.
+     * @return The number of open tasks of each candidate, in the candidates order.
+     */
+    long[] findOpenTaskCounts(final CandidateIds candidates, final int batchSize) {
+        final int size = candidates.size();
+        final long[] counts = new long[size];
+        final int[] missingIndexes = new int[size];
+        int missing = 0;
+        for (int i = 0; i < size; i++) {
+            final Long cached = OPEN_TASKS.get(candidates.get(i));
+            if (cached == null) {
+                missingIndexes[missing++] = i;
+            } else {
+                counts[i] = cached;
+            }
+        }
+        final List<Long> batch = new ArrayList<>(Math.min(batchSize, missing));
+        for (int batchStart = 0; batchStart < missing; batchStart += batchSize) {
+            final int batchEnd = Math.min(batchStart + batchSize, missing);
+            for (int i = batchStart; i < batchEnd; i++) {
+                batch.add(candidates.get(missingIndexes[i]));
+            }
+            final Map<Long, Long> openTasks = processAPI.getNumberOfOpenTasks(batch);
+            for (int i = batchStart; i < batchEnd; i++) {
+                final long userId = candidates.get(missingIndexes[i]);
+                final Long count = openTasks.get(userId);
+                counts[missingIndexes[i]] = count == null ? 0L : count;
+                OPEN_TASKS.put(userId, counts[missingIndexes[i]]);
+            }
+            batch.clear();
+        }
+        return counts;
+    }
+
+    /**
+     * Adds one open task to the cached count of each selected user, until the count expires and is read again.
+     *
+     * @param selected The users the task is offered to.
+     */
+    void recordSelection(final CandidateIds selected) {
+        for (int i = 0; i < selected.size(); i++) {
+            OPEN_TASKS.update(selected.get(i), count -> count + 1);
+        }
+    }
+
+    /**
+     * Empties the cache. Visible for tests.
+     */
+    static void clearCache() {
+        OPEN_TASKS.clear();
+    }
+}
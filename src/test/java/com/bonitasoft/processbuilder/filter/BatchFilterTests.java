@@ -0,0 +1,168 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.searchResult;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.usersById;
+
+/**
+ * Tests for {@link MultipleUserIdsActorFilter#filterBatch(String, Map)}.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Batch Filter Tests")
+class BatchFilterTests {
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private IdentityAPI identityAPI;
+
+    /**
+     * Copies of the ID lists sent to identityAPI.getUsers(ids).
+     */
+    private final List<List<Long>> lookups = new ArrayList<>();
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        filter = new TestableMultipleUserIdsActorFilter();
+        filter.setAPIAccessor(apiAccessor);
+    }
+
+    /**
+     * Makes identityAPI.getUsers(ids) answer with an enabled user for every ID but 3.
+     */
+    @SuppressWarnings("unchecked")
+    private void givenUsers() {
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+        when(identityAPI.getUsers(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>((List<Long>) invocation.getArgument(0));
+            lookups.add(ids);
+            return usersById(ids, id -> true, id -> id != 3L);
+        });
+    }
+
+    /**
+     * Makes identityAPI.searchUsers(options) return users 7 and 8, in a single page.
+     */
+    private void givenRoleMembers() throws SearchException {
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+        when(identityAPI.searchUsers(any(SearchOptions.class))).thenAnswer(invocation -> searchResult(7L, 8L));
+    }
+
+    private static Map<String, Object> usersList(Long... userIds) {
+        Map<String, Object> inputs = new HashMap<>();
+        inputs.put(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(userIds));
+        return inputs;
+    }
+
+    /**
+     * Each activity instance gets its own candidates, and a role shared by the instances is searched once
+     */
+    @Test
+    @DisplayName("Should filter each activity instance with a single search per role")
+    void testPerInstanceResults() throws UserFilterException, SearchException {
+        // Arrange
+        givenRoleMembers();
+        filter.setParameter(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, Arrays.asList(100L));
+        Map<Long, Map<String, Object>> inputs = new LinkedHashMap<>();
+        inputs.put(11L, usersList(1L, 2L));
+        inputs.put(12L, usersList(2L, 7L));
+        inputs.put(13L, null);
+
+        // Act
+        Map<Long, List<Long>> result = filter.filterBatch("reviewer", inputs);
+
+        // Assert
+        assertEquals(Arrays.asList(11L, 12L, 13L), new ArrayList<>(result.keySet()));
+        assertEquals(Arrays.asList(1L, 2L, 7L, 8L), result.get(11L));
+        assertEquals(Arrays.asList(2L, 7L, 8L), result.get(12L));
+        assertEquals(Arrays.asList(7L, 8L), result.get(13L));
+        verify(identityAPI, times(1)).searchUsers(any(SearchOptions.class));
+    }
+
+    /**
+     * Every distinct user ID of the batch is looked up once by the existence check
+     */
+    @Test
+    @DisplayName("Should look up each distinct user once across the activity instances")
+    void testSharedExistenceCheck() throws UserFilterException {
+        // Arrange - user 3 is disabled
+        givenUsers();
+        filter.setParameter(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.BATCHED);
+        Map<Long, Map<String, Object>> inputs = new LinkedHashMap<>();
+        inputs.put(21L, usersList(1L, 2L, 3L));
+        inputs.put(22L, usersList(2L, 3L, 4L));
+        inputs.put(23L, usersList(1L, 4L));
+
+        // Act
+        Map<Long, List<Long>> result = filter.filterBatch("reviewer", inputs);
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L), result.get(21L));
+        assertEquals(Arrays.asList(2L, 4L), result.get(22L));
+        assertEquals(Arrays.asList(1L, 4L), result.get(23L));
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 3L), Collections.singletonList(4L)), lookups);
+    }
+
+    /**
+     * Invalid inputs fail the batch with the activity instance, and do not leak into the next calls
+     */
+    @Test
+    @DisplayName("Should report the activity instance whose inputs are invalid")
+    void testInvalidInstance() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(5L));
+        Map<Long, Map<String, Object>> inputs = new LinkedHashMap<>();
+        inputs.put(31L, usersList(1L));
+        inputs.put(32L, Collections.singletonMap(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, -1));
+
+        // Act
+        UserFilterException exception = assertThrows(UserFilterException.class, () -> filter.filterBatch("reviewer", inputs));
+
+        // Assert
+        assertTrue(exception.getMessage().contains("activity instance 32"), exception.getMessage());
+        assertTrue(exception.getMessage().contains("maxCandidates"), exception.getMessage());
+        assertEquals(Arrays.asList(5L), filter.filter("reviewer"), "The filter inputs should be used again");
+    }
+}
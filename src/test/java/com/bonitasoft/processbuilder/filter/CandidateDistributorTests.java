@@ -0,0 +1,289 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the node-local CandidateDistributor and the 'weights' input of MultipleUserIdsActorFilter.
+ */
+@DisplayName("Candidate Distributor Tests")
+class CandidateDistributorTests {
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        CandidateDistributor.getInstance().clear();
+        filter = new TestableMultipleUserIdsActorFilter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        CandidateDistributor.getInstance().clear();
+    }
+
+    /**
+     * A single thread gets the candidates in their exact order
+     */
+    @Test
+    @DisplayName("Should hand out candidates in order on a single thread")
+    void testExactOrderOnSingleThread() {
+        // Arrange
+        CandidateDistributor distributor = new CandidateDistributor(10);
+
+        // Act
+        int[] indexes = new int[7];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = distributor.nextIndex("1:approver", 3);
+        }
+
+        // Assert
+        assertArrayEquals(new int[]{0, 1, 2, 0, 1, 2, 0}, indexes);
+    }
+
+    /**
+     * Each full cycle of weighted turns gives every candidate exactly its weight, spread over the cycle
+     */
+    @Test
+    @DisplayName("Should give each candidate as many turns as its weight")
+    void testWeightedTurns() {
+        // Arrange
+        CandidateDistributor distributor = new CandidateDistributor(10);
+        int[] weights = {50, 50, 0};
+
+        // Act
+        int[] counts = new int[3];
+        int longestRun = 0;
+        int run = 0;
+        int previous = -1;
+        for (int i = 0; i < 200; i++) {
+            int index = distributor.nextWeightedIndex("1:approver", weights);
+            counts[index]++;
+            run = index == previous ? run + 1 : 1;
+            longestRun = Math.max(longestRun, run);
+            previous = index;
+        }
+
+        // Assert - 2 cycles, and no long streak of the same candidate
+        assertArrayEquals(new int[]{100, 100, 0}, counts);
+        assertTrue(longestRun <= 2, "Longest streak: " + longestRun);
+    }
+
+    /**
+     * Candidates are taken in turn when every weight is zero
+     */
+    @Test
+    @DisplayName("Should ignore weights when they are all zero")
+    void testAllZeroWeights() {
+        // Arrange
+        CandidateDistributor distributor = new CandidateDistributor(10);
+
+        // Act & Assert
+        assertEquals(0, distributor.nextWeightedIndex("1:approver", new int[]{0, 0}));
+        assertEquals(1, distributor.nextWeightedIndex("1:approver", new int[]{0, 0}));
+    }
+
+    /**
+     * Stride of the weighted cycles is coprime with the total weight
+     */
+    @Test
+    @DisplayName("Should use a stride coprime with the total weight")
+    void testStride() {
+        for (long total = 1; total <= 1000; total++) {
+            long stride = CandidateDistributor.stride(total);
+            long a = total;
+            long b = stride;
+            while (b != 0) {
+                long remainder = a % b;
+                a = b;
+                b = remainder;
+            }
+            assertEquals(1, a, "Stride " + stride + " for total " + total);
+        }
+        assertEquals(1, CandidateDistributor.stride(Integer.MAX_VALUE + 1L));
+    }
+
+    /**
+     * The least recently used rotations are evicted above the limit
+     */
+    @Test
+    @DisplayName("Should evict the least recently used rotations")
+    void testEviction() {
+        // Arrange - "1:actor0" is the least recently used once "1:oldest" is used again
+        CandidateDistributor distributor = new CandidateDistributor(10);
+        distributor.nextIndex("1:oldest", 2);
+        for (int i = 0; i < 9; i++) {
+            distributor.nextIndex("1:actor" + i, 2);
+        }
+        distributor.nextIndex("1:oldest", 2);
+        assertEquals(10, distributor.size());
+
+        // Act
+        distributor.nextIndex("1:newest", 2);
+
+        // Assert - back to 90% of the limit, evicted rotations start over
+        assertEquals(9, distributor.size());
+        assertEquals(2, distributor.nextIndex("1:oldest", 3));
+        assertEquals(0, distributor.nextIndex("1:actor0", 3));
+        assertEquals(1, distributor.nextIndex("1:newest", 2));
+    }
+
+    /**
+     * 64 threads hammering the same rotation never lose a turn and stay evenly spread
+     */
+    @Test
+    @DisplayName("Should spread the picks of 64 threads evenly")
+    void testSixtyFourThreads() throws InterruptedException {
+        // Arrange
+        CandidateDistributor distributor = new CandidateDistributor(10);
+        int threads = 64;
+        int picksPerThread = 2000;
+        int candidateCount = 5;
+        AtomicLongArray picks = new AtomicLongArray(candidateCount);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < picksPerThread; i++) {
+                    picks.incrementAndGet(distributor.nextIndex("1:approver", candidateCount));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        // Act
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Assert - at most one pick of difference per stripe
+        long total = 0;
+        long expected = (long) threads * picksPerThread / candidateCount;
+        for (int i = 0; i < candidateCount; i++) {
+            total += picks.get(i);
+            assertTrue(Math.abs(picks.get(i) - expected) <= CandidateDistributor.MAX_STRIPES, "Unfair spread: " + picks);
+        }
+        assertEquals((long) threads * picksPerThread, total);
+    }
+
+    /**
+     * The 'weights' input drives ROUND_ROBIN_SINGLE, expanded users weighing 1
+     */
+    @Test
+    @DisplayName("Should pick users according to the weights input")
+    void testWeightsInput() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(7L, 8L, 9L));
+        filter.setParameter(MultipleUserIdsActorFilter.WEIGHTS_INPUT, Arrays.asList(3, "1", 0L));
+        filter.setParameter(MultipleUserIdsActorFilter.AUTO_ASSIGN_INPUT, AutoAssign.ROUND_ROBIN_SINGLE);
+
+        // Act
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 8; i++) {
+            List<Long> result = filter.filter("approver");
+            assertEquals(1, result.size());
+            counts.merge(result.get(0), 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(Integer.valueOf(6), counts.get(7L));
+        assertEquals(Integer.valueOf(2), counts.get(8L));
+        assertNull(counts.get(9L));
+    }
+
+    /**
+     * Malformed or misaligned weights are rejected at validation time
+     */
+    @Test
+    @DisplayName("Should fail validation with invalid weights")
+    void testInvalidWeights() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(7L, 8L));
+        for (Object invalid : new Object[]{"3,1", Arrays.asList(1, -1), Arrays.asList(1, 1.5), Arrays.asList(1, 5_000_000_000L)}) {
+            filter.setParameter(MultipleUserIdsActorFilter.WEIGHTS_INPUT, invalid);
+
+            // Act & Assert
+            ConnectorValidationException exception = assertThrows(
+                ConnectorValidationException.class,
+                () -> filter.validateInputParameters(),
+                "Should reject weights " + invalid
+            );
+            assertTrue(exception.getMessage().contains("non-negative integers"));
+        }
+
+        filter.setParameter(MultipleUserIdsActorFilter.WEIGHTS_INPUT, Arrays.asList(1, 2, 3));
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("one weight per element"));
+
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(7L, 8L, 9L).iterator());
+        exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("requires a List, long[] or String 'usersList' input"), exception.getMessage());
+    }
+
+    /**
+     * Primitive weight lookup keeps the first weight of a key, including the 0 key
+     */
+    @Test
+    @DisplayName("Should keep the first weight of each user")
+    void testLongIntHashMap() {
+        // Arrange
+        LongIntHashMap map = new LongIntHashMap(2);
+
+        // Act
+        for (long key = 0; key < 1000; key++) {
+            assertTrue(map.putIfAbsent(key, (int) key * 2));
+        }
+        assertFalse(map.putIfAbsent(5L, 99));
+
+        // Assert
+        assertEquals(1000, map.size());
+        assertEquals(0, map.get(0L, -1));
+        assertEquals(10, map.get(5L, -1));
+        assertEquals(1998, map.get(999L, -1));
+        assertEquals(-1, map.get(1000L, -1));
+    }
+}
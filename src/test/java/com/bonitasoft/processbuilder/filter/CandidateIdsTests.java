@@ -0,0 +1,128 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the primitive candidate representation used by MultipleUserIdsActorFilter.
+ */
+@DisplayName("Candidate IDs Tests")
+class CandidateIdsTests {
+
+    /**
+     * Unboxing a List<Long> keeps the order and the values
+     */
+    @Test
+    @DisplayName("Should copy a List<Long> into primitives preserving order")
+    void testCopyOfPreservesOrder() {
+        // Arrange
+        List<Long> userIds = Arrays.asList(3L, 1L, 2L, Long.MAX_VALUE, Long.MIN_VALUE);
+
+        // Act
+        CandidateIds candidates = CandidateIds.copyOf(userIds);
+
+        // Assert
+        assertEquals(5, candidates.size());
+        assertArrayEquals(new long[]{3L, 1L, 2L, Long.MAX_VALUE, Long.MIN_VALUE}, candidates.toArray());
+        assertEquals(userIds, candidates.asList());
+    }
+
+    /**
+     * The backing array grows when IDs are appended
+     */
+    @Test
+    @DisplayName("Should grow when more IDs than the initial capacity are added")
+    void testAddGrowsCapacity() {
+        // Arrange
+        CandidateIds candidates = new CandidateIds(1);
+
+        // Act
+        for (long i = 0; i < 1000; i++) {
+            candidates.add(i);
+        }
+
+        // Assert
+        assertEquals(1000, candidates.size());
+        assertEquals(0L, candidates.get(0));
+        assertEquals(999L, candidates.get(999));
+        assertThrows(IndexOutOfBoundsException.class, () -> candidates.get(1000));
+    }
+
+    /**
+     * retainIf compacts in place and reports the number of removed IDs
+     */
+    @Test
+    @DisplayName("Should remove rejected IDs in place and keep relative order")
+    void testRetainIf() {
+        // Arrange
+        CandidateIds candidates = CandidateIds.wrap(new long[]{1L, 2L, 3L, 4L, 5L, 6L});
+
+        // Act
+        int removed = candidates.retainIf(id -> id % 2 == 0);
+
+        // Assert
+        assertEquals(3, removed);
+        assertArrayEquals(new long[]{2L, 4L, 6L}, candidates.toArray());
+    }
+
+    /**
+     * The boxed view is a read-only, random access List<Long>
+     */
+    @Test
+    @DisplayName("Should expose a read-only random access List<Long> view")
+    void testAsListView() {
+        // Arrange
+        CandidateIds candidates = CandidateIds.wrap(new long[]{10L, 20L, 30L});
+
+        // Act
+        List<Long> view = candidates.asList();
+
+        // Assert
+        assertTrue(view instanceof RandomAccess);
+        assertEquals(Arrays.asList(10L, 20L, 30L), view);
+        assertTrue(view.contains(20L));
+        assertFalse(view.contains(20));
+        assertEquals(2, view.indexOf(30L));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(3));
+        assertThrows(UnsupportedOperationException.class, () -> view.add(40L));
+        assertThrows(UnsupportedOperationException.class, () -> view.set(0, 40L));
+    }
+
+    /**
+     * An empty candidate set
+     */
+    @Test
+    @DisplayName("Should handle an empty candidate set")
+    void testEmpty() {
+        // Arrange
+        CandidateIds candidates = new CandidateIds();
+
+        // Assert
+        assertTrue(candidates.isEmpty());
+        assertEquals(0, candidates.asList().size());
+        assertEquals(0, candidates.toArray().length);
+    }
+
+    /**
+     * Selected positions are kept in the requested order
+     */
+    @Test
+    @DisplayName("Should retain the candidates at the given indexes")
+    void testRetainIndexes() {
+        // Arrange
+        CandidateIds candidates = CandidateIds.wrap(new long[]{10L, 20L, 30L, 40L});
+
+        // Act
+        int removed = candidates.retainIndexes(new int[]{3, 0});
+
+        // Assert
+        assertEquals(2, removed);
+        assertArrayEquals(new long[]{40L, 10L}, candidates.toArray());
+    }
+}
@@ -0,0 +1,281 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.data.DataInstance;
+import org.bonitasoft.engine.bpm.process.ProcessInstance;
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.connector.EngineExecutionContext;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.identity.User;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.searchResult;
+
+/**
+ * Tests for the 'candidateRule' input and the {@link CandidateRule} language.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Candidate Rule Tests")
+class CandidateRuleTests {
+
+    private static final long PROCESS_DEFINITION_ID = 77L;
+
+    private static final long ROOT_PROCESS_INSTANCE_ID = 1001L;
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private IdentityAPI identityAPI;
+
+    @Mock
+    private ProcessAPI processAPI;
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        CandidateRule.clearPlans();
+        LookupCircuitBreaker.getInstance().reset();
+        ProcessActorsResolver.clearCaches();
+        filter = new TestableMultipleUserIdsActorFilter();
+        filter.setAPIAccessor(apiAccessor);
+        filter.setExecutionContext(context(PROCESS_DEFINITION_ID));
+    }
+
+    @AfterEach
+    void tearDown() {
+        CandidateRule.clearPlans();
+        LookupCircuitBreaker.getInstance().reset();
+        ProcessActorsResolver.clearCaches();
+    }
+
+    private static EngineExecutionContext context(long processDefinitionId) {
+        EngineExecutionContext context = new EngineExecutionContext();
+        context.setProcessDefinitionId(processDefinitionId);
+        context.setRootProcessInstanceId(ROOT_PROCESS_INSTANCE_ID);
+        context.setProcessInstanceId(ROOT_PROCESS_INSTANCE_ID);
+        return context;
+    }
+
+    /**
+     * Makes the initiator {@code initiator}, whose manager is {@code manager}, and group 3 hold users 10, 11 and 12
+     */
+    private void givenOrganization(long initiator, long manager) throws Exception {
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+        when(apiAccessor.getProcessAPI()).thenReturn(processAPI);
+        ProcessInstance processInstance = mock(ProcessInstance.class);
+        when(processInstance.getStartedBy()).thenReturn(initiator);
+        when(processAPI.getProcessInstance(ROOT_PROCESS_INSTANCE_ID)).thenReturn(processInstance);
+        User initiatorUser = mock(User.class);
+        when(initiatorUser.getManagerUserId()).thenReturn(manager);
+        Map<Long, User> users = new HashMap<>();
+        users.put(initiator, initiatorUser);
+        when(identityAPI.getUsers(Arrays.asList(initiator))).thenReturn(users);
+        SearchResult<User> members = searchResult(10L, 11L, 12L);
+        when(identityAPI.searchUsers(any(SearchOptions.class))).thenReturn(members);
+    }
+
+    private void givenVariable(String name, Serializable value) throws Exception {
+        DataInstance dataInstance = mock(DataInstance.class);
+        when(dataInstance.getValue()).thenReturn(value);
+        when(processAPI.getProcessDataInstance(name, ROOT_PROCESS_INSTANCE_ID)).thenReturn(dataInstance);
+    }
+
+    /**
+     * Intersection binds tighter than union and difference, which apply from left to right, whatever the notation
+     */
+    @Test
+    @DisplayName("Should parse operators with their precedence")
+    void testPrecedence() {
+        String expected = "((managerOf(initiator) union group(3)) minus ($excluded intersect users(1, 2)))";
+
+        assertEquals(expected, CandidateRule.parse("managerOf(initiator) | group(3) - $excluded & users(1, 2)").toString());
+        assertEquals(expected, CandidateRule.parse("MANAGEROF(initiator) union Group(3) minus var(excluded) intersect users(1,2)").toString());
+        assertEquals(expected, CandidateRule.parse("managerOf(initiator) ∪ group(3) − ($excluded ∩ users(1, 2))").toString());
+        assertEquals("(users(1) minus (users(2) union users(3)))", CandidateRule.parse("users(1) - (users(2) + users(3))").toString());
+    }
+
+    /**
+     * Malformed rules are rejected by the validation, with the position of the error
+     */
+    @Test
+    @DisplayName("Should reject malformed rules at validation")
+    void testSyntaxErrors() {
+        String[] rules = {"role(12", "role(x)", "team(4)", "users(1) users(2)", "group(1) |", "$"};
+        for (String rule : rules) {
+            filter.setParameter(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, rule);
+
+            ConnectorValidationException exception = assertThrows(ConnectorValidationException.class,
+                    () -> filter.validateInputParameters(), rule);
+            assertTrue(exception.getMessage().contains("position"), exception.getMessage());
+        }
+        StringBuilder deepRule = new StringBuilder();
+        for (int i = 0; i <= CandidateRule.MAX_DEPTH; i++) {
+            deepRule.append("managerOf(");
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, deepRule.toString());
+        assertThrows(ConnectorValidationException.class, () -> filter.validateInputParameters());
+    }
+
+    /**
+     * The rule replaces 'usersList', which becomes optional: managers, groups and variables are resolved
+     */
+    @Test
+    @DisplayName("Should evaluate the rule against the engine")
+    void testEvaluation() throws Exception {
+        // Arrange
+        givenOrganization(5L, 7L);
+        givenVariable("excluded", new ArrayList<>(Arrays.asList(11L)));
+        filter.setParameter(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, "(group(3) ∪ managerOf(initiator)) − $excluded");
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("reviewer");
+
+        // Assert
+        assertEquals(Arrays.asList(10L, 12L, 7L), result);
+    }
+
+    /**
+     * 'usersList' is an operand of the rule; literal IDs need no engine call
+     */
+    @Test
+    @DisplayName("Should combine usersList with literal IDs without engine calls")
+    void testUsersListOperand() throws ConnectorValidationException, UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L, 3L, 4L, 3L));
+        filter.setParameter(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, "usersList & users(3, 2, 9)");
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("reviewer");
+
+        // Assert - distinct IDs, in first-seen order
+        assertEquals(Arrays.asList(2L, 3L), result);
+        verifyNoInteractions(apiAccessor);
+    }
+
+    /**
+     * An open lookup circuit breaker skips the existence check, but never the rule
+     */
+    @Test
+    @DisplayName("Should evaluate the rule while the lookup circuit breaker is open")
+    void testRuleWhileBreakerOpen() throws ConnectorValidationException, UserFilterException {
+        // Arrange
+        for (int i = 0; i < LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            LookupCircuitBreaker.getInstance().onFailure();
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L, 3L, 4L));
+        filter.setParameter(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, "usersList - users(2, 4)");
+        filter.setParameter(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.BATCHED);
+        filter.setParameter(MultipleUserIdsActorFilter.LOOKUP_BUDGET_MILLIS_INPUT, 1_000);
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("reviewer");
+
+        // Assert - users 2 and 4 removed by the rule are not returned
+        assertEquals(Arrays.asList(1L, 3L), result);
+        assertEquals(1, LookupCircuitBreaker.getInstance().getShortCircuitCount());
+        verifyNoInteractions(apiAccessor);
+    }
+
+    /**
+     * A rule calling the engine fails fast while the lookup circuit breaker is open, without any engine call
+     */
+    @Test
+    @DisplayName("Should not call the engine for a rule while the lookup circuit breaker is open")
+    void testEngineRuleWhileBreakerOpen() throws ConnectorValidationException {
+        // Arrange
+        for (int i = 0; i < LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            LookupCircuitBreaker.getInstance().onFailure();
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L, 3L, 4L));
+        filter.setParameter(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, "(role(3) | managerOf(initiator)) - usersList");
+        filter.setParameter(MultipleUserIdsActorFilter.LOOKUP_BUDGET_MILLIS_INPUT, 1_000);
+        filter.validateInputParameters();
+
+        // Act & Assert
+        UserFilterException exception = assertThrows(UserFilterException.class, () -> filter.filter("reviewer"));
+        assertTrue(exception.getCause().getMessage().contains("circuit breaker"), exception.getCause().getMessage());
+        verifyNoInteractions(identityAPI, processAPI);
+        assertTrue(CandidateRule.parse("role(3) | managerOf(initiator)").usesEngine());
+        assertTrue(CandidateRule.parse("usersList - $excluded").usesEngine());
+        assertFalse(CandidateRule.parse("(usersList | users(1)) & users(1, 2)").usesEngine());
+    }
+
+    /**
+     * A rule is parsed once per process definition, whatever the number of tasks
+     */
+    @Test
+    @DisplayName("Should cache the plan per process definition")
+    void testPlanCache() throws ConnectorValidationException, UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, "users(1, 2) - users(2)");
+        long parses = CandidateRule.getParseCount();
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            filter.validateInputParameters();
+            assertEquals(Arrays.asList(1L), filter.filter("reviewer"));
+        }
+        filter.setExecutionContext(context(PROCESS_DEFINITION_ID + 1));
+        filter.validateInputParameters();
+
+        // Assert
+        assertEquals(2, CandidateRule.getParseCount() - parses);
+    }
+
+    /**
+     * A variable that does not hold user IDs fails the execution
+     */
+    @Test
+    @DisplayName("Should fail on a variable not holding user IDs")
+    void testInvalidVariable() throws Exception {
+        // Arrange
+        when(apiAccessor.getProcessAPI()).thenReturn(processAPI);
+        givenVariable("approver", "john.doe");
+        filter.setParameter(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, "$approver");
+
+        // Act & Assert
+        UserFilterException exception = assertThrows(UserFilterException.class, () -> filter.filter("reviewer"));
+        assertTrue(exception.getCause().getMessage().contains("approver"), exception.getCause().getMessage());
+    }
+}
@@ -0,0 +1,277 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.usersById;
+
+/**
+ * Tests for the 'lookupBudgetMillis' input and the {@link LookupCircuitBreaker}.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Lookup Circuit Breaker Tests")
+class CircuitBreakerTests {
+
+    private static final long OPEN_NANOS = 100;
+
+    private static final String ACTOR = "reviewer";
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private IdentityAPI identityAPI;
+
+    private InMemoryFilterMetrics metrics;
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection and records to its own metrics.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+        private final FilterMetrics filterMetrics;
+
+        TestableMultipleUserIdsActorFilter(FilterMetrics filterMetrics) {
+            this.filterMetrics = filterMetrics;
+        }
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+
+        @Override
+        FilterMetrics metrics() {
+            return filterMetrics;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        LookupCircuitBreaker.getInstance().reset();
+        metrics = new InMemoryFilterMetrics();
+        filter = new TestableMultipleUserIdsActorFilter(metrics);
+        filter.setAPIAccessor(apiAccessor);
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L, 3L, 4L));
+        filter.setParameter(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.BATCHED);
+        filter.setParameter(MultipleUserIdsActorFilter.LOOKUP_BUDGET_MILLIS_INPUT, 1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        LookupCircuitBreaker.getInstance().reset();
+    }
+
+    /**
+     * Makes identityAPI.getUsers(ids) return the given IDs, odd ones enabled, after {@code latencyMillis}.
+     */
+    @SuppressWarnings("unchecked")
+    private void givenUsers(long latencyMillis) {
+        when(identityAPI.getUsers(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(latencyMillis);
+            return usersById((List<Long>) invocation.getArgument(0), id -> true, id -> id % 2 == 1);
+        });
+    }
+
+    /**
+     * Consecutive failed lookups open the breaker: the next executions skip the existence check without calling the engine
+     */
+    @Test
+    @DisplayName("Should skip the engine lookups once failed lookups opened the breaker")
+    void testOpenOnFailures() throws UserFilterException {
+        // Arrange
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+        when(identityAPI.getUsers(anyList())).thenThrow(new IllegalStateException("Identity database unavailable"));
+
+        // Act - the failures still fail the executions
+        for (int i = 0; i < LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            assertThrows(UserFilterException.class, () -> filter.filter(ACTOR));
+        }
+        List<Long> result = filter.filter(ACTOR);
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), result);
+        verify(identityAPI, times(LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD)).getUsers(anyList());
+        assertEquals(LookupCircuitBreaker.State.OPEN, LookupCircuitBreaker.getInstance().getState());
+        assertEquals(1, LookupCircuitBreaker.getInstance().getShortCircuitCount());
+        assertEquals(1, metrics.getCircuitOpenCount());
+        assertEquals(1, metrics.getDegradedExecutionCount(0L, ACTOR));
+    }
+
+    /**
+     * Lookups slower than the budget count as failures, although their result is returned
+     */
+    @Test
+    @DisplayName("Should open the breaker on lookups exceeding the budget")
+    void testOpenOnSlowLookups() throws UserFilterException {
+        // Arrange
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+        givenUsers(5);
+        filter.setParameter(MultipleUserIdsActorFilter.LOOKUP_BUDGET_MILLIS_INPUT, 1);
+
+        // Act
+        for (int i = 0; i < LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            assertEquals(Arrays.asList(1L, 3L), filter.filter(ACTOR));
+        }
+        List<Long> degraded = filter.filter(ACTOR);
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), degraded);
+        assertEquals(LookupCircuitBreaker.State.OPEN, LookupCircuitBreaker.getInstance().getState());
+        assertEquals(1, LookupCircuitBreaker.getInstance().getTripCount());
+    }
+
+    /**
+     * While the breaker is open, the local steps still apply: deduplication, 'excludedUserIds', the cap and output order
+     */
+    @Test
+    @DisplayName("Should keep the local steps while the breaker is open")
+    void testLocalStepsWhileOpen() throws UserFilterException {
+        // Arrange
+        for (int i = 0; i < LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            LookupCircuitBreaker.getInstance().onFailure();
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(6L, 2L, 5L, 2L, 4L, 3L, 1L));
+        filter.setParameter(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDE_INITIATOR_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(5L));
+        filter.setParameter(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, 3);
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, OverflowPolicy.TRUNCATE);
+        filter.setParameter(MultipleUserIdsActorFilter.OUTPUT_ORDER_INPUT, OutputOrder.ASCENDING);
+
+        // Act
+        List<Long> result = filter.filter(ACTOR);
+
+        // Assert - 6, 2, 4 are kept, without reading the initiator nor the users
+        assertEquals(Arrays.asList(2L, 4L, 6L), result);
+        verifyNoInteractions(apiAccessor);
+        assertEquals(1, metrics.getDegradedExecutionCount(0L, ACTOR));
+
+        // The FAIL policy still rejects the overflow
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, OverflowPolicy.FAIL);
+        assertThrows(UserFilterException.class, () -> filter.filter(ACTOR));
+    }
+
+    /**
+     * While the breaker is open, a streaming source over the cap is truncated instead of falling back to the actor mapping
+     */
+    @Test
+    @DisplayName("Should not read the actor mapping of a streaming source while the breaker is open")
+    void testStreamingFallbackWhileOpen() throws UserFilterException {
+        // Arrange
+        for (int i = 0; i < LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            LookupCircuitBreaker.getInstance().onFailure();
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, LongStream.rangeClosed(1, 1_000).iterator());
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(2L));
+        filter.setParameter(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, 3);
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, OverflowPolicy.FALLBACK_TO_ACTOR);
+
+        // Act
+        List<Long> result = filter.filter(ACTOR);
+
+        // Assert - the first 3 IDs, without the excluded one
+        assertEquals(Arrays.asList(1L, 3L), result);
+        verifyNoInteractions(apiAccessor);
+        assertEquals(1, LookupCircuitBreaker.getInstance().getShortCircuitCount());
+        assertEquals(1, metrics.getDegradedExecutionCount(0L, ACTOR));
+    }
+
+    /**
+     * Lookups within the budget keep the breaker closed, and filters without the input ignore an open breaker
+     */
+    @Test
+    @DisplayName("Should only guard the executions setting a budget")
+    void testWithinBudget() throws UserFilterException {
+        // Arrange
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+        givenUsers(0);
+        for (int i = 0; i < LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD * 2; i++) {
+            assertEquals(Arrays.asList(1L, 3L), filter.filter(ACTOR));
+        }
+        assertEquals(LookupCircuitBreaker.State.CLOSED, LookupCircuitBreaker.getInstance().getState());
+        for (int i = 0; i < LookupCircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            LookupCircuitBreaker.getInstance().onFailure();
+        }
+
+        // Act
+        filter.setParameter(MultipleUserIdsActorFilter.LOOKUP_BUDGET_MILLIS_INPUT, null);
+        List<Long> result = filter.filter(ACTOR);
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 3L), result);
+        assertEquals(0, metrics.getDegradedExecutionCount(0L, ACTOR));
+    }
+
+    /**
+     * After the open period a single probe runs: its success closes the breaker and reports the degraded time
+     */
+    @Test
+    @DisplayName("Should close after a successful probe")
+    void testRecovery() {
+        // Arrange
+        AtomicLong clock = new AtomicLong(1_000);
+        LookupCircuitBreaker breaker = new LookupCircuitBreaker(2, OPEN_NANOS, clock::get);
+        assertFalse(breaker.onFailure());
+        assertTrue(breaker.onFailure());
+        assertFalse(breaker.tryAcquire());
+
+        // Act - the first probe fails, the second one succeeds
+        clock.addAndGet(OPEN_NANOS);
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "Only one probe at a time");
+        assertFalse(breaker.onFailure());
+        assertEquals(LookupCircuitBreaker.State.OPEN, breaker.getState());
+        clock.addAndGet(OPEN_NANOS);
+        assertTrue(breaker.tryAcquire());
+        long degradedNanos = breaker.onSuccess();
+
+        // Assert
+        assertEquals(2 * OPEN_NANOS, degradedNanos);
+        assertEquals(LookupCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getTripCount());
+        assertEquals(1, breaker.getRecoveryCount());
+        assertEquals(2, breaker.getShortCircuitCount());
+        assertEquals(2 * OPEN_NANOS, breaker.getDegradedNanos());
+        assertEquals(LookupCircuitBreaker.NOT_RECOVERED, breaker.onSuccess());
+    }
+
+    /**
+     * A success resets the count of consecutive failures
+     */
+    @Test
+    @DisplayName("Should only trip on consecutive failures")
+    void testConsecutiveFailures() {
+        LookupCircuitBreaker breaker = new LookupCircuitBreaker(2, OPEN_NANOS, new AtomicLong()::get);
+
+        assertFalse(breaker.onFailure());
+        breaker.onSuccess();
+        assertFalse(breaker.onFailure());
+        assertTrue(breaker.onFailure());
+        assertTrue(breaker.isOpen());
+    }
+}
@@ -0,0 +1,241 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.keysetPage;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.usersById;
+
+/**
+ * Tests for the node-local enabled users cache (existence check mode CACHED).
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Enabled Users Cache Tests")
+class EnabledUsersCacheTests {
+
+    @Mock
+    private IdentityAPI identityAPI;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private List<Long> enabledUserIds;
+
+    private EnabledUsersCache cache;
+
+    private IdentityCandidateResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        enabledUserIds = new ArrayList<>();
+        cache = new EnabledUsersCache(clock::get);
+        resolver = new IdentityCandidateResolver(identityAPI);
+    }
+
+    /**
+     * Makes identityAPI.searchUsers(options) page through {@code enabledUserIds}.
+     */
+    private void givenSearchableUsers() throws SearchException {
+        when(identityAPI.searchUsers(any(SearchOptions.class)))
+            .thenAnswer(invocation -> keysetPage(invocation.getArgument(0), enabledUserIds));
+    }
+
+    private static void range(List<Long> ids, long from, long to) {
+        for (long id = from; id <= to; id++) {
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Candidates are answered from the snapshot, loaded once
+     */
+    @Test
+    @DisplayName("Should answer from the snapshot after the first load")
+    void testHits() throws SearchException {
+        // Arrange - 1..250 enabled except 7
+        range(enabledUserIds, 1, 6);
+        range(enabledUserIds, 8, 250);
+        givenSearchableUsers();
+
+        // Act
+        CandidateIds first = CandidateIds.wrap(new long[]{1L, 7L, 250L});
+        int firstRemoved = cache.retainEnabledUsers(first, resolver, 300, 100);
+        CandidateIds second = CandidateIds.wrap(new long[]{7L, 8L});
+        int secondRemoved = cache.retainEnabledUsers(second, resolver, 300, 100);
+
+        // Assert - 3 pages for the single load, no per-ID lookup
+        assertEquals(1, firstRemoved);
+        assertArrayEquals(new long[]{1L, 250L}, first.toArray());
+        assertEquals(1, secondRemoved);
+        assertArrayEquals(new long[]{8L}, second.toArray());
+        verify(identityAPI, times(3)).searchUsers(any(SearchOptions.class));
+        verify(identityAPI, never()).getUsers(anyList());
+        assertEquals(1, cache.getRefreshCount());
+        assertEquals(5, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(249, cache.getCachedUserCount());
+    }
+
+    /**
+     * IDs created after the last load are verified with a batched lookup
+     */
+    @Test
+    @DisplayName("Should verify IDs newer than the snapshot")
+    void testNewerIdsVerified() throws SearchException {
+        // Arrange
+        range(enabledUserIds, 1, 10);
+        givenSearchableUsers();
+        when(identityAPI.getUsers(anyList())).thenAnswer(invocation ->
+            usersById(invocation.getArgument(0), id -> id == 11L || id == 12L, id -> id == 11L));
+        CandidateIds candidates = CandidateIds.wrap(new long[]{5L, 11L, 12L, 13L});
+
+        // Act
+        int removed = cache.retainEnabledUsers(candidates, resolver, 300, 100);
+
+        // Assert - 12 is disabled, 13 unknown
+        assertEquals(2, removed);
+        assertArrayEquals(new long[]{5L, 11L}, candidates.toArray());
+        verify(identityAPI, times(1)).getUsers(anyList());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    /**
+     * The snapshot is reloaded once expired, and after an invalidation
+     */
+    @Test
+    @DisplayName("Should reload the snapshot when expired or invalidated")
+    void testRefresh() throws SearchException {
+        // Arrange
+        range(enabledUserIds, 1, 3);
+        givenSearchableUsers();
+        cache.retainEnabledUsers(CandidateIds.wrap(new long[]{1L}), resolver, 300, 100);
+
+        // Act - user 2 is disabled meanwhile
+        enabledUserIds.remove(Long.valueOf(2L));
+        CandidateIds cached = CandidateIds.wrap(new long[]{2L});
+        cache.retainEnabledUsers(cached, resolver, 300, 100);
+        cache.invalidate();
+        CandidateIds reloaded = CandidateIds.wrap(new long[]{2L});
+        cache.retainEnabledUsers(reloaded, resolver, 300, 100);
+
+        // Assert - the stale snapshot still accepts 2, the reloaded one does not
+        assertEquals(1, cached.size());
+        assertTrue(reloaded.isEmpty());
+        assertEquals(2, cache.getRefreshCount());
+
+        // Act - with a TTL of 1 second
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1) - 1);
+        cache.retainEnabledUsers(CandidateIds.wrap(new long[]{1L}), resolver, 1, 100);
+        long refreshesBeforeExpiry = cache.getRefreshCount();
+        clock.incrementAndGet();
+        cache.retainEnabledUsers(CandidateIds.wrap(new long[]{1L}), resolver, 1, 100);
+
+        // Assert
+        assertEquals(2, refreshesBeforeExpiry);
+        assertEquals(3, cache.getRefreshCount());
+    }
+
+    /**
+     * A failed reload keeps the previous snapshot, a failed first load is reported
+     */
+    @Test
+    @DisplayName("Should keep the stale snapshot when a reload fails")
+    void testReloadFailure() throws SearchException {
+        // Arrange
+        when(identityAPI.searchUsers(any(SearchOptions.class))).thenThrow(new SearchException(new Exception("down")));
+
+        // Act & Assert - nothing to fall back on
+        assertThrows(SearchException.class,
+            () -> cache.retainEnabledUsers(CandidateIds.wrap(new long[]{1L}), resolver, 1, 100));
+
+        // Arrange - a snapshot, then the organization becomes unavailable
+        reset(identityAPI);
+        range(enabledUserIds, 1, 3);
+        givenSearchableUsers();
+        cache.retainEnabledUsers(CandidateIds.wrap(new long[]{1L}), resolver, 1, 100);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        reset(identityAPI);
+        when(identityAPI.searchUsers(any(SearchOptions.class))).thenThrow(new SearchException(new Exception("down")));
+
+        // Act
+        CandidateIds candidates = CandidateIds.wrap(new long[]{1L, 2L, 3L});
+        int removed = cache.retainEnabledUsers(candidates, resolver, 1, 100);
+
+        // Assert
+        assertEquals(0, removed);
+        assertEquals(1, cache.getRefreshCount());
+    }
+
+    /**
+     * The filter uses the shared cache with userExistenceCheck CACHED
+     */
+    @Nested
+    @DisplayName("Filter integration")
+    class FilterIntegration {
+
+        @Mock
+        private APIAccessor apiAccessor;
+
+        @AfterEach
+        void tearDown() {
+            EnabledUsersCache.getInstance().invalidate();
+        }
+
+        /**
+         * Two executions, a single load
+         */
+        @Test
+        @DisplayName("Should filter through the shared cache")
+        void testFilterUsesSharedCache() throws UserFilterException, SearchException {
+            // Arrange
+            range(enabledUserIds, 1, 5);
+            givenSearchableUsers();
+            when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+            EnabledUsersCache.getInstance().invalidate();
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 6L, 3L));
+            parameters.put(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, "CACHED");
+            parameters.put(MultipleUserIdsActorFilter.USER_CACHE_TTL_SECONDS_INPUT, 60);
+            when(identityAPI.getUsers(anyList())).thenReturn(new HashMap<>());
+            MultipleUserIdsActorFilter filter = new MultipleUserIdsActorFilter() {
+                @Override
+                public Object getInputParameter(String parameterName) {
+                    return parameters.get(parameterName);
+                }
+            };
+            filter.setAPIAccessor(apiAccessor);
+
+            // Act
+            List<Long> first = filter.filter("testActor");
+            List<Long> second = filter.filter("testActor");
+
+            // Assert
+            assertEquals(Arrays.asList(1L, 3L), first);
+            assertEquals(first, second);
+            verify(identityAPI, times(1)).searchUsers(any(SearchOptions.class));
+        }
+    }
+}
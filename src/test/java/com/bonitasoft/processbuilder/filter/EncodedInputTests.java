@@ -0,0 +1,240 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the long[] and String forms of the 'usersList' input, and for {@link UserIdsCodec}.
+ */
+@DisplayName("Encoded Input Tests")
+class EncodedInputTests {
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        filter = new TestableMultipleUserIdsActorFilter();
+    }
+
+    /**
+     * Packing then unpacking gives back the IDs, order, duplicates and extreme values included
+     */
+    @Test
+    @DisplayName("Should round-trip IDs through the packed form")
+    void testPackRoundTrip() {
+        // Arrange
+        Random random = new Random(42);
+        long[] randomIds = random.longs(1000).toArray();
+        long[][] samples = {
+            {},
+            {1L},
+            {5L, 3L, 3L, 1000L, 2L},
+            {0L, Long.MAX_VALUE, Long.MIN_VALUE, -1L},
+            randomIds
+        };
+
+        for (long[] ids : samples) {
+            // Act
+            String packed = UserIdsCodec.pack(ids);
+
+            // Assert
+            assertTrue(UserIdsCodec.isPacked(packed));
+            assertArrayEquals(ids, UserIdsCodec.unpack(packed), packed);
+        }
+    }
+
+    /**
+     * Sequential IDs, the common case, cost less than 2 characters each
+     */
+    @Test
+    @DisplayName("Should pack sequential IDs compactly")
+    void testPackedSize() {
+        // Arrange
+        long[] ids = new long[10_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 40_000L + i;
+        }
+
+        // Act
+        String packed = UserIdsCodec.pack(ids);
+
+        // Assert
+        assertTrue(packed.length() < 2 * ids.length, "Packed length " + packed.length());
+        assertEquals(packed, UserIdsCodec.pack(LongStream.of(ids).boxed().collect(Collectors.toList())));
+    }
+
+    /**
+     * Truncated, corrupted or inconsistent packed values are rejected
+     */
+    @Test
+    @DisplayName("Should reject malformed packed values")
+    void testMalformedPacked() {
+        String packed = UserIdsCodec.pack(new long[]{1L, 200L, 300_000L});
+
+        assertThrows(IllegalArgumentException.class, () -> UserIdsCodec.unpack(packed.substring(0, packed.length() - 2)));
+        assertThrows(IllegalArgumentException.class, () -> UserIdsCodec.unpack(packed + "*"));
+        assertThrows(IllegalArgumentException.class, () -> UserIdsCodec.unpack(UserIdsCodec.PACKED_PREFIX));
+        assertThrows(IllegalArgumentException.class, () -> UserIdsCodec.unpack("1,2,3"));
+        // Count of 2 followed by 3 values
+        assertThrows(IllegalArgumentException.class, () -> UserIdsCodec.unpack(UserIdsCodec.PACKED_PREFIX + "AgICAg"));
+    }
+
+    /**
+     * Comma-separated IDs are parsed with or without spaces and brackets
+     */
+    @Test
+    @DisplayName("Should parse delimited IDs")
+    void testParseDelimited() {
+        assertArrayEquals(new long[]{1L, 2L, 3L}, UserIdsCodec.parseDelimited("1,2,3"));
+        assertArrayEquals(new long[]{1L, 2L, 3L}, UserIdsCodec.parseDelimited(" [1, 2 ,3] "));
+        assertArrayEquals(new long[]{Long.MAX_VALUE}, UserIdsCodec.parseDelimited("9223372036854775807"));
+        assertArrayEquals(new long[0], UserIdsCodec.parseDelimited("[]"));
+        assertArrayEquals(new long[0], UserIdsCodec.parseDelimited("  "));
+
+        for (String invalid : new String[]{"1,,2", "1,2,", ",1", "1 2", "1;2", "-1", "a,b", "9223372036854775808"}) {
+            assertThrows(IllegalArgumentException.class, () -> UserIdsCodec.parseDelimited(invalid), invalid);
+        }
+    }
+
+    /**
+     * Without transformation step, a long[] input is returned as a view, without copy
+     */
+    @Test
+    @DisplayName("Should return a view of a long[] input")
+    void testLongArrayPassThrough() throws Exception {
+        // Arrange
+        long[] ids = {7L, 3L, 7L};
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, ids);
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(7L, 3L, 7L), result);
+        ids[1] = 4L;
+        assertEquals(4L, result.get(1), "The result should be a view of the array");
+    }
+
+    /**
+     * Transformation steps work on a copy: the caller's array is left untouched
+     */
+    @Test
+    @DisplayName("Should not modify a long[] input when transforming")
+    void testLongArrayTransformed() throws UserFilterException {
+        // Arrange
+        long[] ids = {7L, 3L, 7L, 5L};
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, ids);
+        filter.setParameter(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(5L));
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(7L, 3L), result);
+        assertArrayEquals(new long[]{7L, 3L, 7L, 5L}, ids);
+    }
+
+    /**
+     * Delimited and packed Strings give the same candidates as the List
+     */
+    @Test
+    @DisplayName("Should accept delimited and packed String inputs")
+    void testStringInputs() throws Exception {
+        List<Long> expected = Arrays.asList(101L, 102L, 250L, 101L);
+        for (String input : new String[]{"101,102,250,101", "[101, 102, 250, 101]", UserIdsCodec.pack(expected)}) {
+            // Arrange
+            filter = new TestableMultipleUserIdsActorFilter();
+            filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, input);
+
+            // Act
+            filter.validateInputParameters();
+            List<Long> result = filter.filter("testActor");
+
+            // Assert
+            assertEquals(expected, result, input);
+        }
+    }
+
+    /**
+     * Weights stay aligned with the positions of a decoded input
+     */
+    @Test
+    @DisplayName("Should align weights with a String input")
+    void testWeightsWithStringInput() throws Exception {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, "1, 2");
+        filter.setParameter(MultipleUserIdsActorFilter.WEIGHTS_INPUT, Arrays.asList(0, 1));
+        filter.setParameter(MultipleUserIdsActorFilter.AUTO_ASSIGN_INPUT, AutoAssign.ROUND_ROBIN_SINGLE);
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("weightedStringActor");
+
+        // Assert
+        assertEquals(Arrays.asList(2L), result);
+    }
+
+    /**
+     * An undecodable String fails validation with the List<Long> requirement
+     */
+    @Test
+    @DisplayName("Should fail validation for an undecodable String")
+    void testUndecodableString() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, "1, two, 3");
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(ConnectorValidationException.class,
+            () -> filter.validateInputParameters());
+        assertTrue(exception.getMessage().contains("must be a List<Long>"));
+        assertTrue(exception.getMessage().contains("String"));
+    }
+
+    /**
+     * An empty array or blank String is an empty list
+     */
+    @Test
+    @DisplayName("Should fail validation for an empty long[] or blank String")
+    void testEmptyEncodedInputs() {
+        for (Object input : new Object[]{new long[0], " ", UserIdsCodec.pack(new long[0])}) {
+            // Arrange
+            filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, input);
+
+            // Act & Assert
+            ConnectorValidationException exception = assertThrows(ConnectorValidationException.class,
+                () -> filter.validateInputParameters());
+            assertTrue(exception.getMessage().contains("cannot be empty"));
+        }
+    }
+}
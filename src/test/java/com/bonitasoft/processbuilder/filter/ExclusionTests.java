@@ -0,0 +1,223 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.flownode.ArchivedHumanTaskInstance;
+import org.bonitasoft.engine.bpm.process.ProcessInstance;
+import org.bonitasoft.engine.bpm.process.ProcessInstanceNotFoundException;
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.connector.EngineExecutionContext;
+import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the exclusion of users (explicit list, case initiator, last executor).
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Exclusion Tests")
+class ExclusionTests {
+
+    private static final long ROOT_PROCESS_INSTANCE_ID = 1001L;
+
+    private static final long ACTIVITY_INSTANCE_ID = 2002L;
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private ProcessAPI processAPI;
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        ProcessActorsResolver.clearCaches();
+        filter = new TestableMultipleUserIdsActorFilter();
+        filter.setAPIAccessor(apiAccessor);
+        EngineExecutionContext context = new EngineExecutionContext();
+        context.setRootProcessInstanceId(ROOT_PROCESS_INSTANCE_ID);
+        context.setProcessInstanceId(ROOT_PROCESS_INSTANCE_ID);
+        context.setActivityInstanceId(ACTIVITY_INSTANCE_ID);
+        filter.setExecutionContext(context);
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L, 3L, 4L, 2L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ProcessActorsResolver.clearCaches();
+    }
+
+    private void givenInitiator(long userId) throws ProcessInstanceNotFoundException {
+        when(apiAccessor.getProcessAPI()).thenReturn(processAPI);
+        ProcessInstance processInstance = mock(ProcessInstance.class);
+        when(processInstance.getStartedBy()).thenReturn(userId);
+        when(processAPI.getProcessInstance(ROOT_PROCESS_INSTANCE_ID)).thenReturn(processInstance);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenLastExecutor(Long userId) throws SearchException {
+        when(apiAccessor.getProcessAPI()).thenReturn(processAPI);
+        List<ArchivedHumanTaskInstance> tasks = Collections.emptyList();
+        if (userId != null) {
+            ArchivedHumanTaskInstance task = mock(ArchivedHumanTaskInstance.class);
+            when(task.getExecutedBy()).thenReturn(userId);
+            tasks = Collections.singletonList(task);
+        }
+        SearchResult<ArchivedHumanTaskInstance> result = mock(SearchResult.class);
+        when(result.getResult()).thenReturn(tasks);
+        when(processAPI.searchArchivedHumanTasks(any(SearchOptions.class))).thenReturn(result);
+    }
+
+    /**
+     * Explicitly excluded IDs are removed, every occurrence
+     */
+    @Test
+    @DisplayName("Should remove the excluded user IDs")
+    void testExcludedUserIds() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(2L, 4L, 99L));
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 3L), result);
+        verifyNoInteractions(apiAccessor);
+    }
+
+    /**
+     * The initiator and the last executor are removed, with one ProcessAPI call each
+     */
+    @Test
+    @DisplayName("Should remove the initiator and the last executor")
+    void testExcludeInitiatorAndLastExecutor() throws UserFilterException, ProcessInstanceNotFoundException, SearchException {
+        // Arrange
+        givenInitiator(1L);
+        givenLastExecutor(3L);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDE_INITIATOR_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDE_LAST_EXECUTOR_INPUT, "true");
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(2L, 4L, 2L), result);
+        verify(processAPI, times(1)).getProcessInstance(ROOT_PROCESS_INSTANCE_ID);
+        verify(processAPI, times(1)).searchArchivedHumanTasks(any(SearchOptions.class));
+    }
+
+    /**
+     * The initiator is cached per case, while the last executor is looked up again for every task
+     */
+    @Test
+    @DisplayName("Should cache the initiator only")
+    void testLookupsAreCached() throws UserFilterException, ProcessInstanceNotFoundException, SearchException {
+        // Arrange
+        givenInitiator(4L);
+        givenLastExecutor(1L);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDE_INITIATOR_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDE_LAST_EXECUTOR_INPUT, true);
+
+        // Act - same task twice, then another task of the same case
+        filter.filter("testActor");
+        filter.filter("testActor");
+        filter.getExecutionContext().setActivityInstanceId(ACTIVITY_INSTANCE_ID + 1);
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(2L, 3L, 2L), result);
+        verify(processAPI, times(1)).getProcessInstance(ROOT_PROCESS_INSTANCE_ID);
+        verify(processAPI, times(3)).searchArchivedHumanTasks(any(SearchOptions.class));
+    }
+
+    /**
+     * Without execution context, the case is unknown: the initiator and last executor are not looked up
+     */
+    @Test
+    @DisplayName("Should skip the case lookups without execution context")
+    void testExcludeInitiatorWithoutExecutionContext() throws UserFilterException {
+        // Arrange
+        filter.setExecutionContext(null);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDE_INITIATOR_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDE_LAST_EXECUTOR_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(2L));
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert - only the explicit exclusion applies
+        assertEquals(Arrays.asList(1L, 3L, 4L), result);
+        verifyNoInteractions(processAPI);
+    }
+
+    /**
+     * Nothing is removed for a case started by the system, or without completed task yet
+     */
+    @Test
+    @DisplayName("Should keep every candidate when there is no initiator nor executor")
+    void testNoInitiatorNorExecutor() throws UserFilterException, ProcessInstanceNotFoundException, SearchException {
+        // Arrange
+        givenInitiator(ProcessActorsResolver.NO_USER);
+        givenLastExecutor(null);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDE_INITIATOR_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDE_LAST_EXECUTOR_INPUT, true);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 2L), result);
+    }
+
+    /**
+     * Malformed excludedUserIds are rejected at validation time
+     */
+    @Test
+    @DisplayName("Should fail validation with malformed excludedUserIds")
+    void testInvalidExcludedUserIds() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(1L, 2.5d));
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT));
+    }
+}
@@ -0,0 +1,97 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the size and time bounded cache backing the per-node lookups.
+ */
+@DisplayName("ExpiringLruCache Tests")
+class ExpiringLruCacheTests {
+
+    /**
+     * The least recently used entry is evicted first
+     */
+    @Test
+    @DisplayName("Should evict the least recently used entry")
+    void testLruEviction() {
+        // Arrange
+        ExpiringLruCache<Long, String> cache = new ExpiringLruCache<>(2, Long.MAX_VALUE);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+
+        // Act - reading 1 makes 2 the eldest
+        cache.get(1L);
+        cache.put(3L, "three");
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals("one", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals("three", cache.get(3L));
+    }
+
+    /**
+     * Expired entries are not returned
+     */
+    @Test
+    @DisplayName("Should expire entries after the time to live")
+    void testExpiration() {
+        // Arrange
+        AtomicLong now = new AtomicLong(1_000);
+        ExpiringLruCache<String, Long> cache = new ExpiringLruCache<>(10, 100, now::get);
+        cache.put("key", 42L);
+
+        // Act & Assert
+        now.set(1_099);
+        assertEquals(42L, cache.get("key"));
+        now.set(1_100);
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * An update changes a live entry but keeps its expiry, and ignores absent or expired entries
+     */
+    @Test
+    @DisplayName("Should update live entries without extending their time to live")
+    void testUpdate() {
+        // Arrange
+        AtomicLong now = new AtomicLong(1_000);
+        ExpiringLruCache<String, Long> cache = new ExpiringLruCache<>(10, 100, now::get);
+        cache.put("key", 42L);
+
+        // Act & Assert
+        now.set(1_050);
+        assertTrue(cache.update("key", count -> count + 1));
+        assertEquals(43L, cache.get("key"));
+        assertFalse(cache.update("absent", count -> count + 1));
+        assertNull(cache.get("absent"));
+        now.set(1_100);
+        assertFalse(cache.update("key", count -> count + 1));
+        assertNull(cache.get("key"));
+    }
+
+    /**
+     * clear() removes every entry
+     */
+    @Test
+    @DisplayName("Should clear every entry")
+    void testClear() {
+        // Arrange
+        ExpiringLruCache<Long, Long> cache = new ExpiringLruCache<>(10, Long.MAX_VALUE);
+        cache.put(1L, 1L);
+        cache.put(2L, 2L);
+
+        // Act
+        cache.clear();
+
+        // Assert
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1L));
+    }
+}
@@ -0,0 +1,120 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the sampled INFO logging of the filter calls.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FilterCallLog Tests")
+class FilterCallLogTests {
+
+    private static final long SAMPLE_NANOS = 10;
+
+    private static final long SUMMARY_NANOS = 60;
+
+    @Mock
+    private Logger logger;
+
+    private AtomicLong clock;
+
+    private FilterCallLog callLog;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(1_000);
+        callLog = new FilterCallLog(logger, SAMPLE_NANOS, SUMMARY_NANOS, clock::get);
+    }
+
+    /**
+     * The first call is logged, then at most one per sample interval with the number of skipped calls
+     */
+    @Test
+    @DisplayName("Should log at most one call per sample interval")
+    void testSampledCalls() {
+        // Arrange
+        when(logger.isInfoEnabled()).thenReturn(true);
+
+        // Act - 3 calls at the same time, then 1 after the interval
+        callLog.record("actor", 5);
+        callLog.record("actor", 6);
+        callLog.record("actor", 7);
+        clock.addAndGet(SAMPLE_NANOS);
+        callLog.record("actor", 8);
+
+        // Assert
+        verify(logger).info(anyString(), eq("actor"), eq(5), eq(0L));
+        verify(logger).info(anyString(), eq("actor"), eq(8), eq(2L));
+        verifyNoMoreInteractions(ignoreStubs(logger));
+    }
+
+    /**
+     * The summary reports the calls since the previous one, with percentiles of the candidate counts
+     */
+    @Test
+    @DisplayName("Should log a summary with p50 and p99 once per interval")
+    void testSummary() {
+        // Arrange
+        when(logger.isInfoEnabled()).thenReturn(true);
+        for (int i = 1; i <= 100; i++) {
+            callLog.record("actor", i == 100 ? 1_000 : 3);
+        }
+
+        // Act
+        clock.addAndGet(SUMMARY_NANOS);
+        callLog.record("actor", 3);
+
+        // Assert - 101 calls, p50 of 3, p99 of 3 (the 100th value), max of 1000
+        verify(logger).info(anyString(), eq(0L), eq(101L), eq(3L), eq(3L), eq(1_000L));
+    }
+
+    /**
+     * Nothing is recorded nor logged while INFO is disabled
+     */
+    @Test
+    @DisplayName("Should do nothing when INFO is disabled")
+    void testInfoDisabled() {
+        // Arrange
+        when(logger.isInfoEnabled()).thenReturn(false);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            callLog.record("actor", i);
+            clock.addAndGet(SUMMARY_NANOS);
+        }
+
+        // Assert
+        verify(logger, never()).info(anyString(), any(Object[].class));
+        verify(logger, never()).info(anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    /**
+     * Each bucket lower bound falls back into its bucket, within 12.5% of the value
+     */
+    @Test
+    @DisplayName("Should bucket values within 12.5%")
+    void testBuckets() {
+        for (int value : new int[]{0, 1, 15, 16, 17, 31, 32, 100, 1_000, 65_537, Integer.MAX_VALUE}) {
+            int bucket = FilterCallLog.bucket(value);
+            long lowerBound = FilterCallLog.lowerBound(bucket);
+
+            assertTrue(bucket < FilterCallLog.BUCKETS, "Bucket of " + value);
+            assertEquals(bucket, FilterCallLog.bucket((int) lowerBound), "Lower bound of " + value);
+            assertTrue(lowerBound <= value && value - lowerBound <= value / 8, "Lower bound " + lowerBound + " of " + value);
+        }
+    }
+}
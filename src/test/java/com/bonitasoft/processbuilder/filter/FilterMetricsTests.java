@@ -0,0 +1,174 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.connector.EngineExecutionContext;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the metrics recorded by MultipleUserIdsActorFilter, through {@link InMemoryFilterMetrics}.
+ */
+@DisplayName("Filter Metrics Tests")
+class FilterMetricsTests {
+
+    private static final long PROCESS_DEFINITION_ID = 12L;
+
+    private static final String ACTOR = "reviewer";
+
+    private InMemoryFilterMetrics metrics;
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection and records to its own metrics.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+        private final FilterMetrics filterMetrics;
+
+        TestableMultipleUserIdsActorFilter(FilterMetrics filterMetrics) {
+            this.filterMetrics = filterMetrics;
+        }
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+
+        @Override
+        FilterMetrics metrics() {
+            return filterMetrics;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        metrics = new InMemoryFilterMetrics();
+        filter = new TestableMultipleUserIdsActorFilter(metrics);
+        EngineExecutionContext context = new EngineExecutionContext();
+        context.setProcessDefinitionId(PROCESS_DEFINITION_ID);
+        filter.setExecutionContext(context);
+    }
+
+    @AfterEach
+    void tearDown() {
+        FilterMetricsRegistry.register(null);
+    }
+
+    /**
+     * Each execution is timed and its candidate count goes into the histogram
+     */
+    @Test
+    @DisplayName("Should record duration and candidate count of each execution")
+    void testExecutionRecorded() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L, 3L));
+
+        // Act
+        filter.filter(ACTOR);
+        filter.filter(ACTOR);
+
+        // Assert
+        assertEquals(2, metrics.getExecutionCount(PROCESS_DEFINITION_ID, ACTOR));
+        assertTrue(metrics.getTotalDurationNanos(PROCESS_DEFINITION_ID, ACTOR) > 0);
+        assertTrue(metrics.getMaxDurationNanos(PROCESS_DEFINITION_ID, ACTOR) > 0);
+        // 3 candidates fall into the [2, 3] bucket
+        assertEquals(2, metrics.getCandidateCountHistogram(PROCESS_DEFINITION_ID, ACTOR)[2]);
+        assertEquals(0, metrics.getExecutionCount(PROCESS_DEFINITION_ID, "otherActor"));
+    }
+
+    /**
+     * Duplicates and excluded users are counted per step
+     */
+    @Test
+    @DisplayName("Should count removed duplicates and excluded users")
+    void testRemovalsRecorded() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L, 2L, 3L, 3L, 4L));
+        filter.setParameter(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(4L));
+        filter.setParameter(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, 2);
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, OverflowPolicy.TRUNCATE);
+
+        // Act
+        List<Long> result = filter.filter(ACTOR);
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L), result);
+        assertEquals(2, metrics.getRemovedCount(PROCESS_DEFINITION_ID, ACTOR, CandidateRemoval.DUPLICATE));
+        assertEquals(1, metrics.getRemovedCount(PROCESS_DEFINITION_ID, ACTOR, CandidateRemoval.EXCLUDED));
+        assertEquals(1, metrics.getRemovedCount(PROCESS_DEFINITION_ID, ACTOR, CandidateRemoval.OVERFLOW));
+        assertEquals(0, metrics.getRemovedCount(PROCESS_DEFINITION_ID, ACTOR, CandidateRemoval.UNKNOWN_OR_DISABLED));
+    }
+
+    /**
+     * Rejected validations and failed executions are counted
+     */
+    @Test
+    @DisplayName("Should count validation and filter failures")
+    void testFailuresRecorded() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, 42);
+
+        // Act & Assert
+        assertThrows(ConnectorValidationException.class, () -> filter.validateInputParameters());
+        assertThrows(UserFilterException.class, () -> filter.filter(ACTOR));
+
+        assertEquals(1, metrics.getValidationFailureCount(PROCESS_DEFINITION_ID));
+        assertEquals(1, metrics.getFilterFailureCount(PROCESS_DEFINITION_ID, ACTOR));
+        assertEquals(0, metrics.getExecutionCount(PROCESS_DEFINITION_ID, ACTOR));
+    }
+
+    /**
+     * Histogram buckets are powers of two
+     */
+    @Test
+    @DisplayName("Should bucket candidate counts by power of two")
+    void testHistogramBuckets() {
+        assertEquals(0, InMemoryFilterMetrics.bucket(0));
+        assertEquals(1, InMemoryFilterMetrics.bucket(1));
+        assertEquals(2, InMemoryFilterMetrics.bucket(3));
+        assertEquals(3, InMemoryFilterMetrics.bucket(4));
+        assertEquals(InMemoryFilterMetrics.HISTOGRAM_BUCKETS - 1, InMemoryFilterMetrics.bucket(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Metrics registered globally are used by filters that do not override them
+     */
+    @Test
+    @DisplayName("Should use the metrics of the registry")
+    void testRegistry() throws UserFilterException {
+        // Arrange
+        assertSame(FilterMetrics.NOOP, FilterMetricsRegistry.get(), "No metrics should be declared on the test classpath");
+        InMemoryFilterMetrics registered = new InMemoryFilterMetrics();
+        FilterMetricsRegistry.register(registered);
+        MultipleUserIdsActorFilter plainFilter = new MultipleUserIdsActorFilter() {
+            @Override
+            public Object getInputParameter(String parameterName) {
+                return MultipleUserIdsActorFilter.USERS_LIST_INPUT.equals(parameterName) ? Arrays.asList(5L) : null;
+            }
+        };
+
+        // Act
+        plainFilter.filter(ACTOR);
+
+        // Assert - no execution context: process definition ID 0
+        assertEquals(1, registered.getExecutionCount(0L, ACTOR));
+        FilterMetricsRegistry.register(null);
+        assertSame(FilterMetrics.NOOP, FilterMetricsRegistry.get());
+    }
+}
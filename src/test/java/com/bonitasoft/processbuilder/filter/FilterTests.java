@@ -10,6 +10,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,17 +30,22 @@ class FilterTests {
      */
     private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
         private Object inputParameter;
+        private final Map<String, Object> options = new HashMap<>();
 
         void setStoredParameter(Object parameter) {
             this.inputParameter = parameter;
         }
 
+        void setOption(String name, Object value) {
+            options.put(name, value);
+        }
+
         @Override
         public Object getInputParameter(String parameterName) {
             if (USERS_LIST_INPUT.equals(parameterName)) {
                 return inputParameter;
             }
-            return null;
+            return options.get(parameterName);
         }
 
         @Override
@@ -165,7 +171,7 @@ class FilterTests {
     @DisplayName("Should throw UserFilterException when data is corrupted (ClassCastException)")
     void testFilterCorruptedData() {
         // Arrange: Simulate corrupted data
-        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter("corrupted data");
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(new StringBuilder("corrupted data"));
 
         // Act & Assert
         UserFilterException exception = assertThrows(
@@ -318,4 +324,65 @@ class FilterTests {
         assertNotNull(exception);
         // The exception logging in catch block is verified by code coverage
     }
-}
\ No newline at end of file
+
+    // =========================================================================
+    // DEDUPLICATION
+    // =========================================================================
+
+    /**
+     * Deduplication keeps the first occurrence of each ID
+     */
+    @Test
+    @DisplayName("Should remove duplicated IDs keeping first-seen order")
+    void testDeduplicateKeepsFirstSeenOrder() throws UserFilterException {
+        // Arrange
+        List<Long> userIds = Arrays.asList(5L, 3L, 5L, 1L, 3L, 0L, 0L, 7L);
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(userIds);
+        ((TestableMultipleUserIdsActorFilter) filter).setOption(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, true);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(5L, 3L, 1L, 0L, 7L), result);
+    }
+
+    /**
+     * Deduplication matches LinkedHashSet on a large list
+     */
+    @Test
+    @DisplayName("Should deduplicate a large list like LinkedHashSet")
+    void testDeduplicateLargeList() throws UserFilterException {
+        // Arrange
+        List<Long> userIds = new ArrayList<>();
+        for (long i = 0; i < 20000; i++) {
+            userIds.add((i * 7919) % 9000);
+        }
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(userIds);
+        ((TestableMultipleUserIdsActorFilter) filter).setOption(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, "true");
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(new ArrayList<>(new java.util.LinkedHashSet<>(userIds)), result);
+    }
+
+    /**
+     * Deduplication disabled returns the input untouched
+     */
+    @Test
+    @DisplayName("Should keep duplicates when deduplication is disabled")
+    void testDeduplicateDisabled() throws UserFilterException {
+        // Arrange
+        List<Long> userIds = Arrays.asList(1L, 1L, 2L);
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(userIds);
+        ((TestableMultipleUserIdsActorFilter) filter).setOption(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, false);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertSame(userIds, result);
+    }
+}
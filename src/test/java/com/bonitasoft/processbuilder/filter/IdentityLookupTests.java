@@ -0,0 +1,212 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.usersById;
+
+/**
+ * Tests for the user existence check of MultipleUserIdsActorFilter (batched IdentityAPI lookups).
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Identity Lookup Tests")
+class IdentityLookupTests {
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private IdentityAPI identityAPI;
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        filter = new TestableMultipleUserIdsActorFilter();
+        filter.setAPIAccessor(apiAccessor);
+    }
+
+    /**
+     * Makes identityAPI.getUsers(ids) answer with the users accepted by {@code exists},
+     * enabled when accepted by {@code enabled}.
+     */
+    @SuppressWarnings("unchecked")
+    private void givenUsers(LongPredicate exists, LongPredicate enabled) {
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+        when(identityAPI.getUsers(anyList()))
+            .thenAnswer(invocation -> usersById((List<Long>) invocation.getArgument(0), exists, enabled));
+    }
+
+    /**
+     * Unknown and disabled users are removed
+     */
+    @Test
+    @DisplayName("Should remove unknown and disabled users")
+    void testRemovesUnknownAndDisabledUsers() throws UserFilterException {
+        // Arrange - 4 does not exist, 3 is disabled
+        givenUsers(id -> id != 4L, id -> id != 3L);
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        filter.setParameter(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, "BATCHED");
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L, 5L), result);
+        verify(identityAPI, times(1)).getUsers(anyList());
+    }
+
+    /**
+     * Lookups are batched according to lookupBatchSize
+     */
+    @Test
+    @DisplayName("Should resolve candidates in batches of lookupBatchSize")
+    void testLookupsAreBatched() throws UserFilterException {
+        // Arrange
+        givenUsers(id -> true, id -> true);
+        List<Long> userIds = new ArrayList<>();
+        for (long i = 1; i <= 1201; i++) {
+            userIds.add(i);
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        filter.setParameter(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.BATCHED);
+        filter.setParameter(MultipleUserIdsActorFilter.LOOKUP_BATCH_SIZE_INPUT, 500);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert - 3 calls instead of 1201
+        assertEquals(userIds, result);
+        verify(identityAPI, times(3)).getUsers(anyList());
+    }
+
+    /**
+     * Duplicated IDs are only looked up once, but kept unless deduplication is enabled
+     */
+    @Test
+    @DisplayName("Should look up each distinct ID once")
+    void testDuplicatedIdsLookedUpOnce() {
+        // Arrange
+        givenUsers(id -> id != 9L, id -> true);
+        IdentityCandidateResolver resolver = new IdentityCandidateResolver(apiAccessor.getIdentityAPI());
+        CandidateIds candidates = CandidateIds.wrap(new long[]{7L, 9L, 7L, 8L, 9L, 7L});
+
+        // Act
+        int removed = resolver.retainEnabledUsers(candidates, 2);
+
+        // Assert - distinct IDs 7, 9, 8 fit in 2 batches
+        assertEquals(2, removed);
+        assertArrayEquals(new long[]{7L, 7L, 8L, 7L}, candidates.toArray());
+        verify(identityAPI, times(2)).getUsers(anyList());
+    }
+
+    /**
+     * Existence check combined with deduplication
+     */
+    @Test
+    @DisplayName("Should combine deduplication and existence check")
+    void testDeduplicateAndExistenceCheck() throws UserFilterException {
+        // Arrange
+        givenUsers(id -> id < 100L, id -> true);
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(10L, 200L, 10L, 20L));
+        filter.setParameter(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, "batched");
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(10L, 20L), result);
+    }
+
+    /**
+     * No lookup when the check is disabled
+     */
+    @Test
+    @DisplayName("Should not call the IdentityAPI when the check is disabled")
+    void testNoLookupByDefault() throws UserFilterException {
+        // Arrange
+        List<Long> userIds = Arrays.asList(1L, 2L);
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertSame(userIds, result);
+        verifyNoInteractions(apiAccessor);
+    }
+
+    /**
+     * Invalid lookupBatchSize values are rejected at validation time
+     */
+    @Test
+    @DisplayName("Should fail validation with an invalid lookupBatchSize")
+    void testInvalidBatchSize() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L));
+        for (Object invalid : new Object[]{0, -5, "abc", 5_000_000_000L}) {
+            filter.setParameter(MultipleUserIdsActorFilter.LOOKUP_BATCH_SIZE_INPUT, invalid);
+
+            // Act & Assert
+            ConnectorValidationException exception = assertThrows(
+                ConnectorValidationException.class,
+                () -> filter.validateInputParameters(),
+                "Should reject lookupBatchSize " + invalid
+            );
+            assertTrue(exception.getMessage().contains("must be a positive integer"));
+        }
+    }
+
+    /**
+     * Unknown existence check mode is rejected at validation time
+     */
+    @Test
+    @DisplayName("Should fail validation with an unknown userExistenceCheck")
+    void testUnknownExistenceCheck() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L));
+        filter.setParameter(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, "ALWAYS");
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("userExistenceCheck"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the open-addressing primitive long hash set.
+ */
+@DisplayName("Long Hash Set Tests")
+class LongHashSetTests {
+
+    /**
+     * add() reports whether the value was new
+     */
+    @Test
+    @DisplayName("Should add distinct values only once")
+    void testAddAndContains() {
+        // Arrange
+        LongHashSet set = new LongHashSet(4);
+
+        // Act & Assert
+        assertTrue(set.add(42L));
+        assertFalse(set.add(42L));
+        assertTrue(set.contains(42L));
+        assertFalse(set.contains(43L));
+        assertEquals(1, set.size());
+    }
+
+    /**
+     * Zero is used as the empty slot marker internally
+     */
+    @Test
+    @DisplayName("Should handle zero and boundary values")
+    void testZeroAndBoundaryValues() {
+        // Arrange
+        LongHashSet set = new LongHashSet(2);
+
+        // Act
+        assertFalse(set.contains(0L));
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.add(Long.MAX_VALUE));
+        assertTrue(set.add(-1L));
+
+        // Assert
+        assertTrue(set.contains(0L));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertTrue(set.contains(-1L));
+        assertEquals(4, set.size());
+    }
+
+    /**
+     * The table grows past its initial capacity
+     */
+    @Test
+    @DisplayName("Should behave like HashSet<Long> beyond its initial capacity")
+    void testGrowthAgainstHashSet() {
+        // Arrange
+        LongHashSet set = new LongHashSet(1);
+        Set<Long> reference = new HashSet<>();
+        Random random = new Random(7);
+
+        // Act
+        for (int i = 0; i < 50000; i++) {
+            long value = random.nextInt(20000) * 4096L;
+            assertEquals(reference.add(value), set.add(value));
+        }
+
+        // Assert
+        assertEquals(reference.size(), set.size());
+        for (long value : reference) {
+            assertTrue(set.contains(value));
+        }
+    }
+}
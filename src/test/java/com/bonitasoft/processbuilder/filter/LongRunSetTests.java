@@ -0,0 +1,98 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the run-compressed set of user IDs used by the enabled users cache.
+ */
+@DisplayName("LongRunSet Tests")
+class LongRunSetTests {
+
+    /**
+     * Consecutive values are merged into runs
+     */
+    @Test
+    @DisplayName("Should merge consecutive values into runs")
+    void testRuns() {
+        // Arrange
+        long[] values = {5L, 1L, 2L, 3L, 10L, 4L, 12L, 11L};
+
+        // Act
+        LongRunSet set = LongRunSet.of(values, values.length);
+
+        // Assert - [1..5] and [10..12]
+        assertEquals(2, set.runCount());
+        assertEquals(8, set.cardinality());
+        assertEquals(12L, set.max());
+        for (long value = 1; value <= 5; value++) {
+            assertTrue(set.contains(value));
+        }
+        assertFalse(set.contains(0L));
+        assertFalse(set.contains(6L));
+        assertFalse(set.contains(9L));
+        assertTrue(set.contains(10L));
+        assertTrue(set.contains(12L));
+        assertFalse(set.contains(13L));
+    }
+
+    /**
+     * Duplicates are ignored and only the given length is used
+     */
+    @Test
+    @DisplayName("Should ignore duplicates and values beyond length")
+    void testDuplicatesAndLength() {
+        // Arrange
+        long[] values = {3L, 3L, 1L, 3L, 1L, 99L};
+
+        // Act
+        LongRunSet set = LongRunSet.of(values, 5);
+
+        // Assert
+        assertEquals(2, set.cardinality());
+        assertEquals(2, set.runCount());
+        assertFalse(set.contains(99L));
+    }
+
+    /**
+     * An empty set contains nothing
+     */
+    @Test
+    @DisplayName("Should handle an empty set")
+    void testEmpty() {
+        // Act
+        LongRunSet set = LongRunSet.of(new long[0], 0);
+
+        // Assert
+        assertEquals(0, set.cardinality());
+        assertEquals(Long.MIN_VALUE, set.max());
+        assertFalse(set.contains(0L));
+    }
+
+    /**
+     * Sequential IDs with sparse holes stay compact
+     */
+    @Test
+    @DisplayName("Should store many sequential IDs in few runs")
+    void testCompression() {
+        // Arrange - 100k IDs, every 10,000th one missing
+        long[] values = new long[100_000];
+        int length = 0;
+        for (long id = 1; id <= 100_000; id++) {
+            if (id % 10_000 != 0) {
+                values[length++] = id;
+            }
+        }
+
+        // Act
+        LongRunSet set = LongRunSet.of(values, length);
+
+        // Assert
+        assertEquals(length, set.cardinality());
+        assertEquals(10, set.runCount());
+        assertFalse(set.contains(50_000L));
+        assertTrue(set.contains(50_001L));
+    }
+}
@@ -0,0 +1,195 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.connector.EngineExecutionContext;
+import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.searchResult;
+
+/**
+ * Tests for the 'memoizeCandidates' input and the {@link CandidateMemo}.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Candidate Memoization Tests")
+class MemoizationTests {
+
+    private static final long ROOT_PROCESS_INSTANCE_ID = 7L;
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private IdentityAPI identityAPI;
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        CandidateMemo.clear();
+        filter = new TestableMultipleUserIdsActorFilter();
+        filter.setAPIAccessor(apiAccessor);
+        filter.setExecutionContext(context(ROOT_PROCESS_INSTANCE_ID));
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L, 2L, 3L));
+        filter.setParameter(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, Arrays.asList(100L));
+        filter.setParameter(MultipleUserIdsActorFilter.MEMOIZE_CANDIDATES_INPUT, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        CandidateMemo.clear();
+    }
+
+    private static EngineExecutionContext context(long rootProcessInstanceId) {
+        EngineExecutionContext context = new EngineExecutionContext();
+        context.setRootProcessInstanceId(rootProcessInstanceId);
+        return context;
+    }
+
+    /**
+     * Makes identityAPI.searchUsers(options) return users 3 and 4, the members of the role, in a single page.
+     */
+    private void givenRoleMembers() throws SearchException {
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+        when(identityAPI.searchUsers(any(SearchOptions.class))).thenAnswer(invocation -> searchResult(3L, 4L));
+    }
+
+    /**
+     * A multi-instance step of 500 iterations expands the role once
+     */
+    @Test
+    @DisplayName("Should prepare the candidates once for 500 executions of the same case")
+    void testMultiInstanceStep() throws UserFilterException, SearchException {
+        // Arrange
+        givenRoleMembers();
+
+        // Act
+        List<List<Long>> results = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            results.add(filter.filter("reviewer"));
+        }
+
+        // Assert
+        verify(identityAPI, times(1)).searchUsers(any(SearchOptions.class));
+        for (List<Long> result : results) {
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L), result);
+        }
+        assertEquals(1, CandidateMemo.getMissCount());
+        assertEquals(499, CandidateMemo.getHitCount());
+    }
+
+    /**
+     * Another case, or other inputs, prepare the candidates again
+     */
+    @Test
+    @DisplayName("Should prepare the candidates again for another case or other inputs")
+    void testKeyedByCaseAndInputs() throws UserFilterException, SearchException {
+        // Arrange
+        givenRoleMembers();
+        filter.filter("reviewer");
+
+        // Act
+        filter.setExecutionContext(context(ROOT_PROCESS_INSTANCE_ID + 1));
+        List<Long> otherCase = filter.filter("reviewer");
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(4L));
+        List<Long> otherInputs = filter.filter("reviewer");
+
+        // Assert
+        verify(identityAPI, times(3)).searchUsers(any(SearchOptions.class));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), otherCase);
+        assertEquals(Arrays.asList(1L, 2L, 3L), otherInputs);
+        assertEquals(0, CandidateMemo.getHitCount());
+    }
+
+    /**
+     * Without the input, every execution prepares its candidates
+     */
+    @Test
+    @DisplayName("Should not memoize by default")
+    void testDisabledByDefault() throws UserFilterException, SearchException {
+        // Arrange
+        givenRoleMembers();
+        filter.setParameter(MultipleUserIdsActorFilter.MEMOIZE_CANDIDATES_INPUT, null);
+
+        // Act
+        filter.filter("reviewer");
+        filter.filter("reviewer");
+
+        // Assert
+        verify(identityAPI, times(2)).searchUsers(any(SearchOptions.class));
+        assertEquals(0, CandidateMemo.getMissCount());
+    }
+
+    /**
+     * The round-robin pick runs on every execution, after the memoized preparation
+     */
+    @Test
+    @DisplayName("Should keep taking round-robin turns on memoized candidates")
+    void testRoundRobinAfterMemo() throws UserFilterException, SearchException {
+        // Arrange
+        givenRoleMembers();
+        filter.setParameter(MultipleUserIdsActorFilter.AUTO_ASSIGN_INPUT, AutoAssign.ROUND_ROBIN_SINGLE);
+
+        // Act
+        Set<Long> picked = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            List<Long> result = filter.filter("roundRobinMemoActor");
+            assertEquals(1, result.size());
+            picked.add(result.get(0));
+        }
+
+        // Assert
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L, 4L)), picked);
+        verify(identityAPI, times(1)).searchUsers(any(SearchOptions.class));
+    }
+
+    /**
+     * Array lengths are part of the fingerprint, so that IDs moved from one input to the next give another key
+     */
+    @Test
+    @DisplayName("Should fingerprint array boundaries")
+    void testFingerprintBoundaries() {
+        long first = new CandidateMemo.Fingerprint().add(new long[]{1L, 2L}).add(new long[0]).get();
+        long second = new CandidateMemo.Fingerprint().add(new long[]{1L}).add(new long[]{2L}).get();
+        long same = new CandidateMemo.Fingerprint().add(new long[]{1L, 2L}).add(new long[0]).get();
+
+        assertNotEquals(first, second);
+        assertEquals(first, same);
+    }
+}
@@ -0,0 +1,310 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.identity.UserSearchDescriptor;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.impl.SearchFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.keysetPage;
+
+/**
+ * Tests for the expansion of roles, groups and memberships into candidate user IDs.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Organization Expansion Tests")
+class OrganizationExpansionTests {
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private IdentityAPI identityAPI;
+
+    /**
+     * Memberships of the mocked organization, as {userId, groupId, roleId}.
+     */
+    private final List<long[]> memberships = new ArrayList<>();
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        filter = new TestableMultipleUserIdsActorFilter();
+        filter.setAPIAccessor(apiAccessor);
+    }
+
+    /**
+     * Makes identityAPI.searchUsers(options) page through the users matching the GROUP_ID and ROLE_ID filters.
+     */
+    private void givenOrganization() throws SearchException {
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+        when(identityAPI.searchUsers(any(SearchOptions.class))).thenAnswer(invocation -> {
+            SearchOptions options = invocation.getArgument(0);
+            List<Long> matching = new ArrayList<>();
+            for (long[] membership : memberships) {
+                if (matches(options, membership)) {
+                    matching.add(membership[0]);
+                }
+            }
+            return keysetPage(options, matching);
+        });
+    }
+
+    private static boolean matches(SearchOptions options, long[] membership) {
+        for (SearchFilter searchFilter : options.getFilters()) {
+            if (!(searchFilter.getValue() instanceof Number)) {
+                continue;
+            }
+            long value = ((Number) searchFilter.getValue()).longValue();
+            if (UserSearchDescriptor.GROUP_ID.equals(searchFilter.getField()) && membership[1] != value) {
+                return false;
+            }
+            if (UserSearchDescriptor.ROLE_ID.equals(searchFilter.getField()) && membership[2] != value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void member(long userId, long groupId, long roleId) {
+        memberships.add(new long[]{userId, groupId, roleId});
+    }
+
+    /**
+     * Roles, groups and memberships are merged with usersList, without duplicates
+     */
+    @Test
+    @DisplayName("Should merge role, group and membership members with usersList")
+    void testMergeSources() throws UserFilterException, SearchException {
+        // Arrange - group 10 / role 100: users 1 and 2; group 20 / role 200: users 2 and 3; group 20 / role 100: user 4
+        member(1, 10, 100);
+        member(2, 10, 100);
+        member(2, 20, 200);
+        member(3, 20, 200);
+        member(4, 20, 100);
+        givenOrganization();
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(99L, 1L));
+        filter.setParameter(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, Arrays.asList(200L));
+        filter.setParameter(MultipleUserIdsActorFilter.GROUP_IDS_INPUT, Arrays.asList(10L));
+        filter.setParameter(MultipleUserIdsActorFilter.MEMBERSHIP_PAIRS_INPUT, Arrays.asList("20:100"));
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert - usersList first, then roles, groups and memberships
+        assertEquals(Arrays.asList(99L, 1L, 2L, 3L, 4L), result);
+        verify(identityAPI, times(3)).searchUsers(any(SearchOptions.class));
+    }
+
+    /**
+     * Large groups are fetched page by page
+     */
+    @Test
+    @DisplayName("Should stream large groups page by page")
+    void testPagedGroupExpansion() throws UserFilterException, SearchException, ConnectorValidationException {
+        // Arrange - 2,500 members
+        for (long userId = 1; userId <= 2500; userId++) {
+            member(userId, 7, 1);
+        }
+        givenOrganization();
+        filter.setParameter(MultipleUserIdsActorFilter.GROUP_IDS_INPUT, Arrays.asList(7L));
+        filter.setParameter(MultipleUserIdsActorFilter.SEARCH_PAGE_SIZE_INPUT, 1000);
+
+        // Act - usersList is optional once a group is given
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("testActor");
+
+        // Assert - 3 pages
+        assertEquals(2500, result.size());
+        assertEquals(1L, result.get(0));
+        assertEquals(2500L, result.get(2499));
+        verify(identityAPI, times(3)).searchUsers(any(SearchOptions.class));
+    }
+
+    /**
+     * Memberships can be given as [groupId, roleId] lists, with Integer IDs
+     */
+    @Test
+    @DisplayName("Should accept [groupId, roleId] pairs")
+    void testMembershipPairsAsLists() throws UserFilterException, SearchException {
+        // Arrange
+        member(5, 1, 2);
+        member(6, 1, 3);
+        givenOrganization();
+        filter.setParameter(MultipleUserIdsActorFilter.MEMBERSHIP_PAIRS_INPUT, Arrays.asList(Arrays.asList(1, 2)));
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(5L), result);
+    }
+
+    /**
+     * Malformed organization inputs are rejected at validation time
+     */
+    @Test
+    @DisplayName("Should fail validation with malformed organization inputs")
+    void testInvalidOrganizationInputs() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L));
+        Object[][] invalidInputs = {
+            {MultipleUserIdsActorFilter.ROLE_IDS_INPUT, "12"},
+            {MultipleUserIdsActorFilter.GROUP_IDS_INPUT, Arrays.asList(1L, "x")},
+            {MultipleUserIdsActorFilter.MEMBERSHIP_PAIRS_INPUT, Arrays.asList("1-2")},
+            {MultipleUserIdsActorFilter.MEMBERSHIP_PAIRS_INPUT, Arrays.asList(Arrays.asList(1L, 2L, 3L))},
+            {MultipleUserIdsActorFilter.SEARCH_PAGE_SIZE_INPUT, 0}
+        };
+        for (Object[] invalidInput : invalidInputs) {
+            TestableMultipleUserIdsActorFilter invalidFilter = new TestableMultipleUserIdsActorFilter();
+            invalidFilter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L));
+            invalidFilter.setParameter((String) invalidInput[0], invalidInput[1]);
+
+            // Act & Assert
+            ConnectorValidationException exception = assertThrows(
+                ConnectorValidationException.class,
+                invalidFilter::validateInputParameters,
+                "Should reject " + invalidInput[0] + " = " + invalidInput[1]
+            );
+            assertTrue(exception.getMessage().contains((String) invalidInput[0]));
+        }
+    }
+
+    /**
+     * usersList is still mandatory without organization inputs
+     */
+    @Test
+    @DisplayName("Should still require usersList without organization inputs")
+    void testUsersListRequiredAlone() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, new ArrayList<Long>());
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("cannot be null"));
+    }
+
+    /**
+     * INTERSECTION keeps the usersList IDs belonging to a restricting group, in the usersList order
+     */
+    @Test
+    @DisplayName("Should restrict usersList to group members")
+    void testIntersection() throws UserFilterException, SearchException, ConnectorValidationException {
+        // Arrange - group 10: users 2, 3 and 5; role 100: user 8
+        member(2, 10, 1);
+        member(3, 10, 1);
+        member(5, 10, 1);
+        member(8, 20, 100);
+        givenOrganization();
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(8L, 1L, 5L, 2L, 9L, 5L));
+        filter.setParameter(MultipleUserIdsActorFilter.GROUP_IDS_INPUT, Arrays.asList(10L));
+        filter.setParameter(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, Arrays.asList(100L));
+        filter.setParameter(MultipleUserIdsActorFilter.ORGANIZATION_MODE_INPUT, "intersection");
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("testActor");
+
+        // Assert - 3 is a member but not in usersList, duplicates are kept unless deduplicate is set
+        assertEquals(Arrays.asList(8L, 5L, 2L, 5L), result);
+    }
+
+    /**
+     * INTERSECTION needs both usersList and a restriction
+     */
+    @Test
+    @DisplayName("Should fail validation of an incomplete intersection")
+    void testIncompleteIntersection() {
+        // Arrange - no restriction
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L));
+        filter.setParameter(MultipleUserIdsActorFilter.ORGANIZATION_MODE_INPUT, OrganizationMode.INTERSECTION);
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("organizationMode"));
+
+        // Arrange - no usersList
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, null);
+        filter.setParameter(MultipleUserIdsActorFilter.GROUP_IDS_INPUT, Arrays.asList(10L));
+
+        // Act & Assert
+        exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("cannot be null"));
+    }
+
+    /**
+     * Intersecting 100k IDs with a 50k-member group is linear
+     */
+    @Test
+    @DisplayName("Should intersect 100k IDs with a 50k-member group quickly")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testLargeIntersection() throws UserFilterException, SearchException {
+        // Arrange - even user IDs belong to the group
+        for (long userId = 2; userId <= 100_000; userId += 2) {
+            member(userId, 42, 1);
+        }
+        givenOrganization();
+        List<Long> userIds = new ArrayList<>();
+        for (long userId = 100_000; userId > 0; userId--) {
+            userIds.add(userId);
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        filter.setParameter(MultipleUserIdsActorFilter.GROUP_IDS_INPUT, Arrays.asList(42L));
+        filter.setParameter(MultipleUserIdsActorFilter.ORGANIZATION_MODE_INPUT, OrganizationMode.INTERSECTION);
+        filter.setParameter(MultipleUserIdsActorFilter.SEARCH_PAGE_SIZE_INPUT, 10_000);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(50_000, result.size());
+        assertEquals(100_000L, result.get(0));
+        assertEquals(2L, result.get(49_999));
+    }
+}
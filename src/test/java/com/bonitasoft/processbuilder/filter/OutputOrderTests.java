@@ -0,0 +1,153 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the 'outputOrder' input and the radix sort behind {@link OutputOrder#ASCENDING}.
+ */
+@DisplayName("Output Order Tests")
+class OutputOrderTests {
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        filter = new TestableMultipleUserIdsActorFilter();
+    }
+
+    /**
+     * Same result as Arrays.sort on small, large, negative and extreme values
+     */
+    @Test
+    @DisplayName("Should sort like Arrays.sort")
+    void testRadixSortMatchesArraysSort() {
+        SplittableRandom random = new SplittableRandom(11);
+        long[][] samples = {
+            random.longs(100).toArray(),
+            random.longs(10_000).toArray(),
+            random.longs(10_000, 0, 1_000_000).toArray(),
+            random.longs(10_000, -500, 500).toArray(),
+            {Long.MAX_VALUE, Long.MIN_VALUE, 0L, -1L, 1L}
+        };
+
+        for (long[] values : samples) {
+            // Arrange
+            long[] expected = values.clone();
+            Arrays.sort(expected);
+
+            // Act
+            LongRadixSort.sort(values, 0, values.length);
+
+            // Assert
+            assertArrayEquals(expected, values);
+        }
+    }
+
+    /**
+     * Only the given range is sorted
+     */
+    @Test
+    @DisplayName("Should only sort the given range")
+    void testRadixSortRange() {
+        // Arrange
+        long[] values = new SplittableRandom(3).longs(2_000, 0, 100_000).toArray();
+        long[] expected = values.clone();
+        Arrays.sort(expected, 500, 1_500);
+
+        // Act
+        LongRadixSort.sort(values, 500, 1_500);
+
+        // Assert
+        assertArrayEquals(expected, values);
+    }
+
+    /**
+     * ASCENDING returns the candidates sorted, after the other steps
+     */
+    @Test
+    @DisplayName("Should return ascending user IDs")
+    void testAscendingOutput() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(30L, 10L, 20L, 10L));
+        filter.setParameter(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.OUTPUT_ORDER_INPUT, OutputOrder.ASCENDING);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(10L, 20L, 30L), result);
+    }
+
+    /**
+     * SHUFFLED keeps the same candidates, in the same order for the same case
+     */
+    @Test
+    @DisplayName("Should shuffle user IDs the same way for the same case")
+    void testShuffledOutput() throws UserFilterException {
+        // Arrange
+        List<Long> userIds = new ArrayList<>();
+        for (long id = 1; id <= 1_000; id++) {
+            userIds.add(id);
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        filter.setParameter(MultipleUserIdsActorFilter.OUTPUT_ORDER_INPUT, OutputOrder.SHUFFLED);
+
+        // Act
+        List<Long> first = new ArrayList<>(filter.filter("testActor"));
+        List<Long> second = new ArrayList<>(filter.filter("testActor"));
+
+        // Assert
+        assertNotEquals(userIds, first, "The order should change");
+        assertEquals(first, second, "The order should be the same for the same case");
+        List<Long> sorted = new ArrayList<>(first);
+        sorted.sort(null);
+        assertEquals(userIds, sorted, "The candidates should be the same");
+    }
+
+    /**
+     * INPUT, the default, keeps the input list untouched
+     */
+    @Test
+    @DisplayName("Should keep the input order by default")
+    void testInputOrder() throws UserFilterException {
+        // Arrange
+        List<Long> userIds = Arrays.asList(3L, 1L, 2L);
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        filter.setParameter(MultipleUserIdsActorFilter.OUTPUT_ORDER_INPUT, "INPUT");
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertSame(userIds, result);
+    }
+}
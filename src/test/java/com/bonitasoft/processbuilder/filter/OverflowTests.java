@@ -0,0 +1,273 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.bpm.actor.ActorCriterion;
+import org.bonitasoft.engine.bpm.actor.ActorInstance;
+import org.bonitasoft.engine.bpm.actor.ActorMember;
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.connector.EngineExecutionContext;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the 'maxCandidates' cap and the 'overflowPolicy' input of MultipleUserIdsActorFilter.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Overflow Tests")
+class OverflowTests {
+
+    private static final long PROCESS_DEFINITION_ID = 7L;
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private ProcessAPI processAPI;
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    private List<Long> userIds;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        filter = newFilter(100L);
+        userIds = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            userIds.add(id);
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        filter.setParameter(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, 10);
+    }
+
+    private TestableMultipleUserIdsActorFilter newFilter(long rootProcessInstanceId) {
+        TestableMultipleUserIdsActorFilter newFilter = new TestableMultipleUserIdsActorFilter();
+        newFilter.setAPIAccessor(apiAccessor);
+        EngineExecutionContext context = new EngineExecutionContext();
+        context.setProcessDefinitionId(PROCESS_DEFINITION_ID);
+        context.setRootProcessInstanceId(rootProcessInstanceId);
+        newFilter.setExecutionContext(context);
+        return newFilter;
+    }
+
+    /**
+     * The filter fails by default beyond the cap
+     */
+    @Test
+    @DisplayName("Should fail beyond maxCandidates by default")
+    void testFailByDefault() {
+        // Act & Assert
+        UserFilterException exception = assertThrows(UserFilterException.class, () -> filter.filter("approver"));
+        assertTrue(exception.getCause().getMessage().contains("Found 1000 candidates for actor 'approver', more than the 10 allowed"),
+            exception.getCause().getMessage());
+    }
+
+    /**
+     * Lists under the cap are untouched
+     */
+    @Test
+    @DisplayName("Should keep every candidate under the cap")
+    void testUnderTheCap() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, 1000);
+
+        // Act
+        List<Long> result = filter.filter("approver");
+
+        // Assert
+        assertEquals(userIds, result);
+    }
+
+    /**
+     * TRUNCATE keeps the first candidates
+     */
+    @Test
+    @DisplayName("Should keep the first candidates with TRUNCATE")
+    void testTruncate() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, OverflowPolicy.TRUNCATE);
+
+        // Act
+        List<Long> result = filter.filter("approver");
+
+        // Assert
+        assertEquals(userIds.subList(0, 10), result);
+    }
+
+    /**
+     * RESERVOIR_SAMPLE keeps an ordered sample, the same for the same case
+     */
+    @Test
+    @DisplayName("Should sample the same candidates for the same case")
+    void testReservoirSampleIsDeterministic() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, "RESERVOIR_SAMPLE");
+        TestableMultipleUserIdsActorFilter otherCase = newFilter(101L);
+        otherCase.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        otherCase.setParameter(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, 10);
+        otherCase.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, "RESERVOIR_SAMPLE");
+
+        // Act
+        List<Long> first = new ArrayList<>(filter.filter("approver"));
+        List<Long> second = new ArrayList<>(filter.filter("approver"));
+        List<Long> other = new ArrayList<>(otherCase.filter("approver"));
+
+        // Assert
+        assertEquals(10, first.size());
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        List<Long> sorted = new ArrayList<>(first);
+        sorted.sort(null);
+        assertEquals(sorted, first, "Sample should keep the order of the candidates");
+        assertTrue(userIds.containsAll(first));
+    }
+
+    /**
+     * Every position has the same chance to be sampled
+     */
+    @Test
+    @DisplayName("Should sample positions uniformly")
+    void testReservoirSampleIsUniform() {
+        // Arrange
+        int[] hits = new int[100];
+
+        // Act
+        for (long seed = 0; seed < 10_000; seed++) {
+            int[] sample = ReservoirSampler.sample(100, 10, seed);
+            assertEquals(10, new HashSet<>(Arrays.asList(Arrays.stream(sample).boxed().toArray(Integer[]::new))).size());
+            for (int position : sample) {
+                hits[position]++;
+            }
+        }
+
+        // Assert - 1000 expected hits per position
+        for (int position = 0; position < hits.length; position++) {
+            assertTrue(hits[position] > 850 && hits[position] < 1150, "Position " + position + ": " + hits[position]);
+        }
+    }
+
+    /**
+     * With a streaming source, the policies apply while reading: FAIL and TRUNCATE stop after the first ID over the cap,
+     * RESERVOIR_SAMPLE keeps the same sample as for a list
+     */
+    @Test
+    @DisplayName("Should apply the overflow policy while reading a streaming source")
+    void testStreamingOverflow() throws UserFilterException {
+        // Arrange - an endless source, counting the IDs read
+        AtomicLong read = new AtomicLong();
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, LongStream.generate(read::incrementAndGet));
+
+        // Act & Assert - FAIL
+        UserFilterException exception = assertThrows(UserFilterException.class, () -> filter.filter("approver"));
+        assertTrue(exception.getCause().getMessage().contains("more than the 10"), exception.getCause().getMessage());
+        assertEquals(11, read.get());
+
+        // Act & Assert - TRUNCATE
+        read.set(0);
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, LongStream.generate(read::incrementAndGet));
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, "TRUNCATE");
+        assertEquals(userIds.subList(0, 10), filter.filter("approver"));
+        assertEquals(11, read.get());
+
+        // Act & Assert - RESERVOIR_SAMPLE
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, "RESERVOIR_SAMPLE");
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        List<Long> listSample = new ArrayList<>(filter.filter("approver"));
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds.stream());
+        assertEquals(listSample, filter.filter("approver"));
+    }
+
+    /**
+     * FALLBACK_TO_ACTOR returns the users mapped to the actor, capped too
+     */
+    @Test
+    @DisplayName("Should fall back to the actor mapping")
+    void testFallbackToActor() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, OverflowPolicy.FALLBACK_TO_ACTOR);
+        ActorInstance reviewer = mock(ActorInstance.class);
+        when(reviewer.getName()).thenReturn("reviewer");
+        ActorInstance approver = mock(ActorInstance.class);
+        when(approver.getName()).thenReturn("approver");
+        when(approver.getId()).thenReturn(55L);
+        when(apiAccessor.getProcessAPI()).thenReturn(processAPI);
+        when(processAPI.getActors(eq(PROCESS_DEFINITION_ID), eq(0), anyInt(), eq(ActorCriterion.NAME_ASC)))
+            .thenReturn(Arrays.asList(reviewer, approver));
+        List<ActorMember> members = Arrays.asList(userMember(42L), userMember(43L), userMember(42L));
+        when(processAPI.getActorMembers(eq(55L), eq(0), anyInt())).thenReturn(members);
+
+        // Act
+        List<Long> result = filter.filter("approver");
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds.iterator());
+        List<Long> streamed = filter.filter("approver");
+        filter.setParameter(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, 1);
+        List<Long> capped = filter.filter("approver");
+
+        // Assert
+        assertEquals(Arrays.asList(42L, 43L), result);
+        assertEquals(result, streamed);
+        assertEquals(Arrays.asList(42L), capped);
+    }
+
+    private static ActorMember userMember(long userId) {
+        ActorMember member = mock(ActorMember.class);
+        when(member.getUserId()).thenReturn(userId);
+        when(member.getGroupId()).thenReturn(-1L);
+        when(member.getRoleId()).thenReturn(-1L);
+        return member;
+    }
+
+    /**
+     * Invalid cap options are rejected at validation time
+     */
+    @Test
+    @DisplayName("Should fail validation with invalid cap options")
+    void testInvalidOptions() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, "IGNORE");
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(ConnectorValidationException.class, () -> filter.validateInputParameters());
+        assertTrue(exception.getMessage().contains("overflowPolicy"));
+
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, null);
+        filter.setParameter(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, 0);
+        exception = assertThrows(ConnectorValidationException.class, () -> filter.validateInputParameters());
+        assertTrue(exception.getMessage().contains("maxCandidates"));
+    }
+}
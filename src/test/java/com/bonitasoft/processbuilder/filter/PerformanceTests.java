@@ -7,12 +7,15 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Performance tests for MultipleUserIdsActorFilter.
@@ -21,6 +24,11 @@ import static org.junit.jupiter.api.Assertions.*;
 @DisplayName("Performance Tests")
 class PerformanceTests {
 
+    /**
+     * Size of a boxed {@code Long} plus its reference in a backing array, on a 64-bit JVM with compressed oops.
+     */
+    private static final long BOXED_LONG_BYTES = 16 + 4;
+
     private MultipleUserIdsActorFilter filter;
 
     /**
@@ -28,16 +36,34 @@ class PerformanceTests {
      */
     private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
         private Object inputParameter;
+        private Object validationMode;
+        private boolean forceTransformationSteps;
 
         void setStoredParameter(Object parameter) {
             this.inputParameter = parameter;
         }
 
+        void setValidationMode(Object validationMode) {
+            this.validationMode = validationMode;
+        }
+
+        void setForceTransformationSteps(boolean forceTransformationSteps) {
+            this.forceTransformationSteps = forceTransformationSteps;
+        }
+
+        @Override
+        boolean hasTransformationSteps() throws ConnectorValidationException {
+            return forceTransformationSteps || super.hasTransformationSteps();
+        }
+
         @Override
         public Object getInputParameter(String parameterName) {
             if (USERS_LIST_INPUT.equals(parameterName)) {
                 return inputParameter;
             }
+            if (VALIDATION_MODE_INPUT.equals(parameterName)) {
+                return validationMode;
+            }
             return null;
         }
 
@@ -52,6 +78,16 @@ class PerformanceTests {
         filter = new TestableMultipleUserIdsActorFilter();
     }
 
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     */
+    private static long currentThreadAllocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(), "Thread allocation accounting not supported");
+        return threadMXBean.getCurrentThreadAllocatedBytes();
+    }
+
     // =========================================================================
     // PERFORMANCE TESTS
     // =========================================================================
@@ -71,11 +107,78 @@ class PerformanceTests {
         ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(largeList);
 
         // Act - Should complete in under 1 second
+        long allocatedBefore = currentThreadAllocatedBytes();
         List<Long> result = filter.filter("testActor");
+        long allocated = currentThreadAllocatedBytes() - allocatedBefore;
 
-        // Assert
+        // Assert - Without transformation step, the list is handed back without any copy
         assertNotNull(result);
         assertEquals(100000, result.size());
+        assertTrue(allocated < 16 * 1024,
+            String.format("Filter allocated %d bytes, should not copy a 100k list", allocated));
+    }
+
+    /**
+     * Memory efficiency test: with INFO disabled, a pass-through call allocates nothing, logging included
+     */
+    @Test
+    @DisplayName("Should not allocate on a pass-through call with INFO disabled")
+    void testPassThroughAllocationWithInfoDisabled() throws UserFilterException {
+        // Arrange - slf4j has no binding on the test classpath: every level is disabled
+        List<Long> largeList = new ArrayList<>();
+        for (long i = 0; i < 10000; i++) {
+            largeList.add(i);
+        }
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(largeList);
+
+        // Act - Warm up, then keep the lowest of several runs
+        for (int i = 0; i < 1000; i++) {
+            filter.filter("testActor");
+        }
+        long allocated = Long.MAX_VALUE;
+        long measureOverhead = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long allocatedBefore = currentThreadAllocatedBytes();
+            filter.filter("testActor");
+            allocated = Math.min(allocated, currentThreadAllocatedBytes() - allocatedBefore);
+            allocatedBefore = currentThreadAllocatedBytes();
+            measureOverhead = Math.min(measureOverhead, currentThreadAllocatedBytes() - allocatedBefore);
+        }
+
+        // Assert - The MXBean lookup of the measure itself allocates
+        assertEquals(0, allocated - measureOverhead, "A pass-through call should not allocate with INFO disabled");
+    }
+
+    /**
+     * Memory efficiency test: the primitive pipeline must not box the candidates
+     */
+    @Test
+    @DisplayName("Primitive pipeline should allocate less than the boxed candidates")
+    @Timeout(value = 1, unit = TimeUnit.SECONDS)
+    void testPrimitivePipelineAllocation() throws UserFilterException {
+        // Arrange
+        List<Long> largeList = new ArrayList<>();
+        for (long i = 0; i < 100000; i++) {
+            largeList.add(1000L + i);
+        }
+        ((TestableMultipleUserIdsActorFilter) filter).setForceTransformationSteps(true);
+        // Warm up on a small list so that class loading is not accounted
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(List.of(1L, 2L));
+        filter.filter("warmUp");
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(largeList);
+
+        // Act
+        long allocatedBefore = currentThreadAllocatedBytes();
+        List<Long> result = filter.filter("testActor");
+        long allocated = currentThreadAllocatedBytes() - allocatedBefore;
+
+        // Assert - One long[] (8 bytes per ID) instead of 100k Long objects
+        assertEquals(largeList, result);
+        assertTrue(allocated < 100000 * Long.BYTES + 16 * 1024,
+            String.format("Primitive pipeline allocated %d bytes for 100k IDs", allocated));
+        assertTrue(allocated < 100000 * BOXED_LONG_BYTES / 2,
+            String.format("Primitive pipeline allocated %d bytes, boxed candidates would cost %d bytes",
+                allocated, 100000 * BOXED_LONG_BYTES));
     }
 
     /**
@@ -104,6 +207,37 @@ class PerformanceTests {
             String.format("Validation took %d ms, should be under 100ms for O(1) complexity", elapsedTime));
     }
 
+    /**
+     * Performance test: FULL validation of 1M valid elements must not allocate (timings are measured by FilterHotPathBenchmark)
+     */
+    @Test
+    @DisplayName("FULL validation of 1M elements should not allocate")
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testFullValidationAllocation() throws ConnectorValidationException {
+        // Arrange
+        List<Long> list = new ArrayList<>();
+        for (long i = 0; i < 1000000; i++) {
+            list.add(i);
+        }
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(list);
+        ((TestableMultipleUserIdsActorFilter) filter).setValidationMode(ValidationMode.FULL);
+
+        // Act - Warm up the scanner, then keep the lowest allocation of several runs
+        for (int i = 0; i < 50; i++) {
+            filter.validateInputParameters();
+        }
+        long allocated = Long.MAX_VALUE;
+        for (int i = 0; i < 20; i++) {
+            long allocatedBefore = currentThreadAllocatedBytes();
+            filter.validateInputParameters();
+            allocated = Math.min(allocated, currentThreadAllocatedBytes() - allocatedBefore);
+        }
+
+        // Assert
+        assertTrue(allocated < 1024,
+            String.format("FULL validation allocated %d bytes, should not allocate on valid input", allocated));
+    }
+
     /**
      * Performance test: Filter method should be O(1) - just returns the list
      */
@@ -119,9 +253,11 @@ class PerformanceTests {
         ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(list);
 
         // Act
+        long allocatedBefore = currentThreadAllocatedBytes();
         long startTime = System.currentTimeMillis();
         List<Long> result = filter.filter("testActor");
         long endTime = System.currentTimeMillis();
+        long allocated = currentThreadAllocatedBytes() - allocatedBefore;
 
         // Assert
         long elapsedTime = endTime - startTime;
@@ -129,6 +265,44 @@ class PerformanceTests {
         assertEquals(1000000, result.size());
         assertTrue(elapsedTime < 50,
             String.format("Filter took %d ms, should be under 50ms for O(1) complexity", elapsedTime));
+        assertTrue(allocated < 16 * 1024,
+            String.format("Filter allocated %d bytes, should be independent of the list size", allocated));
+    }
+
+    /**
+     * Complexity test: a LinkedList is normalized once instead of being walked by index
+     */
+    @Test
+    @DisplayName("Should handle a 100k LinkedList in linear time")
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testLinkedListIsNormalizedOnce() throws UserFilterException, ConnectorValidationException {
+        // Arrange - a LinkedList counting its indexed accesses
+        final int[] indexedAccesses = new int[1];
+        LinkedList<Object> list = new LinkedList<>() {
+            @Override
+            public Object get(int index) {
+                indexedAccesses[0]++;
+                return super.get(index);
+            }
+        };
+        for (long i = 0; i < 100000; i++) {
+            list.add(i);
+        }
+        TestableMultipleUserIdsActorFilter testable = (TestableMultipleUserIdsActorFilter) filter;
+        testable.setStoredParameter(list);
+        testable.setValidationMode(ValidationMode.FULL);
+        testable.setForceTransformationSteps(true);
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("testActor");
+
+        // Assert - a single iteration, no O(n) get(i) walk
+        assertEquals(0, indexedAccesses[0], "The LinkedList should never be accessed by index");
+        assertEquals(100000, result.size());
+        assertEquals(99999L, result.get(99999));
+        assertSame(filter.inputs().toRandomAccess(list), filter.inputs().toRandomAccess(list),
+            "The LinkedList should be copied only once per execution");
     }
 
     /**
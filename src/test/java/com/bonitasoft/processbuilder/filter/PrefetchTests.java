@@ -0,0 +1,210 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.IdentityAPI;
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.exception.SearchException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.impl.SearchFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.searchResult;
+import static com.bonitasoft.processbuilder.filter.testutil.IdentityFixtures.usersById;
+
+/**
+ * Tests for the 'prefetchLookups' input: identity lookups started concurrently by the validation.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Lookup Prefetch Tests")
+class PrefetchTests {
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private IdentityAPI identityAPI;
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        filter = new TestableMultipleUserIdsActorFilter();
+        filter.setAPIAccessor(apiAccessor);
+        filter.setParameter(MultipleUserIdsActorFilter.PREFETCH_LOOKUPS_INPUT, true);
+        when(apiAccessor.getIdentityAPI()).thenReturn(identityAPI);
+    }
+
+    /**
+     * Makes identityAPI.searchUsers(options) return the member of the searched role, whose ID is the role ID plus 1000,
+     * once {@code latch} is released.
+     */
+    private void givenRoleMembers(CountDownLatch latch) throws SearchException {
+        when(identityAPI.searchUsers(any(SearchOptions.class))).thenAnswer(invocation -> {
+            latch.countDown();
+            latch.await(10, TimeUnit.SECONDS);
+            SearchOptions options = invocation.getArgument(0);
+            long roleId = 0;
+            for (SearchFilter searchFilter : options.getFilters()) {
+                if (searchFilter.getValue() instanceof Long) {
+                    roleId = (Long) searchFilter.getValue();
+                }
+            }
+            return searchResult(1000L + roleId);
+        });
+    }
+
+    /**
+     * The role searches run at the same time: each one waits for the others before answering
+     */
+    @Test
+    @Timeout(30)
+    @DisplayName("Should run the lookups concurrently")
+    void testConcurrentLookups() throws ConnectorValidationException, UserFilterException, SearchException {
+        // Arrange - the 3 searches only answer once all of them have started
+        givenRoleMembers(new CountDownLatch(3));
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L));
+        filter.setParameter(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, Arrays.asList(1L, 2L, 3L));
+        filter.setParameter(MultipleUserIdsActorFilter.PREFETCH_TIMEOUT_MILLIS_INPUT, 20_000);
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("reviewer");
+
+        // Assert - the searches are not run again by the filter
+        assertEquals(Arrays.asList(1L, 1001L, 1002L, 1003L), result);
+        verify(identityAPI, times(3)).searchUsers(any(SearchOptions.class));
+    }
+
+    /**
+     * Past the deadline, the engine lookups are skipped, but the local steps still apply to the input list
+     */
+    @Test
+    @Timeout(30)
+    @DisplayName("Should skip the engine lookups when the lookups miss their deadline")
+    void testDeadline() throws ConnectorValidationException, UserFilterException, SearchException {
+        // Arrange - the searches never end on their own: they need 2 concurrent calls and get 1
+        givenRoleMembers(new CountDownLatch(2));
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(5L, 6L, 7L, 5L));
+        filter.setParameter(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, Arrays.asList(1L));
+        filter.setParameter(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(6L));
+        filter.setParameter(MultipleUserIdsActorFilter.PREFETCH_TIMEOUT_MILLIS_INPUT, 50);
+
+        // Act
+        filter.validateInputParameters();
+        long start = System.nanoTime();
+        List<Long> result = filter.filter("reviewer");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Assert - the role is not expanded, the duplicate and the excluded user are removed
+        assertEquals(Arrays.asList(5L, 7L), result);
+        assertTrue(elapsedMillis < 5_000, "The filter should stop waiting at the deadline, waited " + elapsedMillis + " ms");
+    }
+
+    /**
+     * Past the deadline, the candidate rule is still evaluated
+     */
+    @Test
+    @Timeout(30)
+    @DisplayName("Should evaluate the rule when the lookups miss their deadline")
+    void testDeadlineWithRule() throws ConnectorValidationException, UserFilterException, SearchException {
+        // Arrange
+        givenRoleMembers(new CountDownLatch(2));
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(5L, 6L));
+        filter.setParameter(MultipleUserIdsActorFilter.ROLE_IDS_INPUT, Arrays.asList(1L));
+        filter.setParameter(MultipleUserIdsActorFilter.CANDIDATE_RULE_INPUT, "usersList - users(6)");
+        filter.setParameter(MultipleUserIdsActorFilter.PREFETCH_TIMEOUT_MILLIS_INPUT, 50);
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("reviewer");
+
+        // Assert - user 6 removed by the rule is not returned
+        assertEquals(Arrays.asList(5L), result);
+    }
+
+    /**
+     * The existence check of 'usersList' is prefetched in slices, each distinct ID being looked up once
+     */
+    @Test
+    @Timeout(30)
+    @DisplayName("Should prefetch the existence check of the users")
+    @SuppressWarnings("unchecked")
+    void testPrefetchedExistenceCheck() throws ConnectorValidationException, UserFilterException {
+        // Arrange - even IDs are disabled
+        when(identityAPI.getUsers(anyList()))
+            .thenAnswer(invocation -> usersById((List<Long>) invocation.getArgument(0), id -> true, id -> id % 2 == 1));
+        List<Long> userIds = new ArrayList<>();
+        for (long id = 1; id <= 1_000; id++) {
+            userIds.add(id);
+        }
+        userIds.add(1L);
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        filter.setParameter(MultipleUserIdsActorFilter.USER_EXISTENCE_CHECK_INPUT, UserExistenceCheck.BATCHED);
+        filter.setParameter(MultipleUserIdsActorFilter.LOOKUP_BATCH_SIZE_INPUT, 100);
+
+        // Act
+        filter.validateInputParameters();
+        List<Long> result = filter.filter("reviewer");
+
+        // Assert - 10 batches of 100, none of them run again by the filter
+        assertEquals(501, result.size());
+        assertTrue(result.stream().allMatch(id -> id % 2 == 1));
+        verify(identityAPI, times(10)).getUsers(anyList());
+    }
+
+    /**
+     * Splitting the IDs gives at most MAX_PARALLEL_EXISTENCE_LOOKUPS lookups of whole batches
+     */
+    @Test
+    @DisplayName("Should split the existence check in a bounded number of lookups")
+    void testExistenceSlices() {
+        reset(apiAccessor);
+        long[] ids = new long[10_001];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i % 5_000;
+        }
+
+        // 5,000 distinct IDs: 10 batches of 500, 2 per lookup; 50 batches of 100, 7 per lookup
+        assertEquals(5, LookupPrefetcher.enabledUsers(CandidateIds.wrap(ids), 500).size());
+        assertEquals(LookupPrefetcher.MAX_PARALLEL_EXISTENCE_LOOKUPS,
+                LookupPrefetcher.enabledUsers(CandidateIds.wrap(ids), 100).size());
+        assertEquals(2, LookupPrefetcher.enabledUsers(CandidateIds.wrap(ids), 2_500).size());
+        assertEquals(0, LookupPrefetcher.enabledUsers(new CandidateIds(), 500).size());
+    }
+}
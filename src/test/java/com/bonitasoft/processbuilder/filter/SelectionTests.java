@@ -0,0 +1,382 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.api.APIAccessor;
+import org.bonitasoft.engine.api.ProcessAPI;
+import org.bonitasoft.engine.connector.ConnectorValidationException;
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the workload-aware selection of candidates and the auto-assign behaviour.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Selection Tests")
+class SelectionTests {
+
+    @Mock
+    private APIAccessor apiAccessor;
+
+    @Mock
+    private ProcessAPI processAPI;
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        WorkloadResolver.clearCache();
+        CandidateDistributor.getInstance().clear();
+        filter = new TestableMultipleUserIdsActorFilter();
+        filter.setAPIAccessor(apiAccessor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        WorkloadResolver.clearCache();
+        CandidateDistributor.getInstance().clear();
+    }
+
+    /**
+     * Makes processAPI.getNumberOfOpenTasks(ids) answer with {@code userId % 10} open tasks.
+     */
+    @SuppressWarnings("unchecked")
+    private void givenOpenTasksModuloTen() {
+        when(apiAccessor.getProcessAPI()).thenReturn(processAPI);
+        when(processAPI.getNumberOfOpenTasks(anyList())).thenAnswer(invocation -> {
+            Map<Long, Long> counts = new HashMap<>();
+            for (Long userId : (List<Long>) invocation.getArgument(0)) {
+                counts.put(userId, userId % 10);
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * The K least loaded candidates are returned, least loaded first
+     */
+    @Test
+    @DisplayName("Should keep the K least loaded candidates")
+    void testLeastLoaded() throws UserFilterException {
+        // Arrange
+        givenOpenTasksModuloTen();
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(19L, 13L, 30L, 21L, 13L, 42L));
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_MODE_INPUT, "LEAST_LOADED");
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_SIZE_INPUT, 3);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert - loads 9, 3, 0, 1, (duplicate), 2
+        assertEquals(Arrays.asList(30L, 21L, 42L), result);
+    }
+
+    /**
+     * K=1 returns a single user, auto-assigned by the engine
+     */
+    @Test
+    @DisplayName("Should return a single auto-assigned user by default")
+    void testSingleSelection() throws UserFilterException {
+        // Arrange
+        givenOpenTasksModuloTen();
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(5L, 4L, 8L));
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_MODE_INPUT, SelectionMode.LEAST_LOADED);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(4L), result);
+        assertTrue(filter.shouldAutoAssignTaskIfSingleResult());
+    }
+
+    /**
+     * Counts are fetched in batches and cached briefly
+     */
+    @Test
+    @DisplayName("Should batch and cache the open task counts")
+    void testCountsBatchedAndCached() throws UserFilterException {
+        // Arrange
+        givenOpenTasksModuloTen();
+        List<Long> userIds = new ArrayList<>();
+        for (long userId = 1; userId <= 1200; userId++) {
+            userIds.add(userId);
+        }
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_MODE_INPUT, SelectionMode.LEAST_LOADED);
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_SIZE_INPUT, 5);
+
+        // Act
+        List<Long> first = filter.filter("testActor");
+        List<Long> second = filter.filter("testActor");
+
+        // Assert - 3 batches of 500 for the first call, none for the second, which sees the first selection
+        assertEquals(Arrays.asList(10L, 20L, 30L, 40L, 50L), first);
+        assertEquals(Arrays.asList(60L, 70L, 80L, 90L, 100L), second);
+        verify(processAPI, times(3)).getNumberOfOpenTasks(anyList());
+    }
+
+    /**
+     * Back-to-back tasks count the tasks just offered to the selected users, instead of all going to the same user
+     */
+    @Test
+    @DisplayName("Should spread back-to-back tasks over the least loaded users")
+    void testBackToBackSelections() throws UserFilterException {
+        // Arrange - loads 4, 5, 6 and 7
+        givenOpenTasksModuloTen();
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(4L, 5L, 6L, 7L));
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_MODE_INPUT, SelectionMode.LEAST_LOADED);
+
+        // Act
+        List<Long> selected = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            selected.addAll(filter.filter("testActor"));
+        }
+
+        // Assert - each pick adds one task to the cached load, ties going to the first-seen user
+        assertEquals(Arrays.asList(4L, 4L, 5L, 4L, 5L, 6L), selected);
+        verify(processAPI, times(1)).getNumberOfOpenTasks(anyList());
+    }
+
+    /**
+     * Invalid selection options are rejected at validation time
+     */
+    @Test
+    @DisplayName("Should fail validation with invalid selection options")
+    void testInvalidSelectionOptions() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L));
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_MODE_INPUT, "RANDOM");
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("selectionMode"));
+
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_MODE_INPUT, SelectionMode.LEAST_LOADED);
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_SIZE_INPUT, 0);
+
+        // Act & Assert
+        exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("selectionSize"));
+    }
+
+    /**
+     * autoAssign drives shouldAutoAssignTaskIfSingleResult()
+     */
+    @Test
+    @DisplayName("Should honor the autoAssign input")
+    void testAutoAssign() {
+        // Default: engine behaviour
+        assertTrue(filter.shouldAutoAssignTaskIfSingleResult());
+
+        filter.setParameter(MultipleUserIdsActorFilter.AUTO_ASSIGN_INPUT, "never");
+        assertFalse(filter.shouldAutoAssignTaskIfSingleResult());
+
+        filter.setParameter(MultipleUserIdsActorFilter.AUTO_ASSIGN_INPUT, AutoAssign.ROUND_ROBIN_SINGLE);
+        assertTrue(filter.shouldAutoAssignTaskIfSingleResult());
+    }
+
+    /**
+     * ROUND_ROBIN_SINGLE picks each candidate in turn, per actor
+     */
+    @Test
+    @DisplayName("Should pick a single candidate in turn per actor")
+    void testRoundRobinSingle() throws UserFilterException {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(7L, 8L, 9L));
+        filter.setParameter(MultipleUserIdsActorFilter.AUTO_ASSIGN_INPUT, AutoAssign.ROUND_ROBIN_SINGLE);
+
+        // Act
+        List<Long> picks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            List<Long> result = filter.filter("approver");
+            assertEquals(1, result.size());
+            picks.add(result.get(0));
+        }
+        List<Long> otherActor = filter.filter("reviewer");
+
+        // Assert
+        assertEquals(Arrays.asList(7L, 8L, 9L, 7L), picks);
+        assertEquals(Arrays.asList(7L), otherActor);
+        verifyNoInteractions(apiAccessor);
+    }
+
+    /**
+     * Parallel picks are evenly spread, without lost turns. Contended rotations are fair per stripe,
+     * so each candidate may be off by at most one pick per stripe.
+     */
+    @Test
+    @DisplayName("Should spread parallel picks evenly")
+    void testRoundRobinConcurrency() throws InterruptedException {
+        // Arrange
+        int threads = 8;
+        int picksPerThread = 1000;
+        int[] picks = new int[4];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                int[] local = new int[4];
+                for (int i = 0; i < picksPerThread; i++) {
+                    local[CandidateDistributor.getInstance().nextIndex("1:approver", 4)]++;
+                }
+                synchronized (picks) {
+                    for (int i = 0; i < 4; i++) {
+                        picks[i] += local[i];
+                    }
+                }
+            });
+        }
+
+        // Act
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Assert
+        assertEquals(threads * picksPerThread, Arrays.stream(picks).sum());
+        for (int count : picks) {
+            assertTrue(Math.abs(count - 2000) <= CandidateDistributor.MAX_STRIPES, "Unfair spread: " + Arrays.toString(picks));
+        }
+    }
+
+    /**
+     * Builds the user IDs 1 to {@code count}.
+     */
+    private static List<Long> userIds(int count) {
+        List<Long> userIds = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            userIds.add(id);
+        }
+        return userIds;
+    }
+
+    /**
+     * Runs a STICKY selection of {@code selectionSize} users among {@code userIds} with a new filter instance.
+     */
+    private static List<Long> stickySelection(List<Long> userIds, Object stickyKey, int selectionSize) throws UserFilterException {
+        TestableMultipleUserIdsActorFilter stickyFilter = new TestableMultipleUserIdsActorFilter();
+        stickyFilter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, userIds);
+        stickyFilter.setParameter(MultipleUserIdsActorFilter.SELECTION_MODE_INPUT, SelectionMode.STICKY);
+        stickyFilter.setParameter(MultipleUserIdsActorFilter.SELECTION_SIZE_INPUT, selectionSize);
+        stickyFilter.setParameter(MultipleUserIdsActorFilter.STICKY_KEY_INPUT, stickyKey);
+        return stickyFilter.filter("approver");
+    }
+
+    /**
+     * The same sticky key always selects the same users, whatever the order of the candidates
+     */
+    @Test
+    @DisplayName("Should select the same users for the same sticky key")
+    void testStickySelectionIsStable() throws UserFilterException {
+        // Arrange
+        List<Long> userIds = userIds(10_000);
+        List<Long> shuffled = new ArrayList<>(userIds);
+        Collections.shuffle(shuffled, new Random(42));
+
+        // Act
+        List<Long> first = stickySelection(userIds, 1234L, 3);
+        List<Long> second = stickySelection(shuffled, 1234L, 3);
+        List<Long> otherKey = stickySelection(userIds, "customer-5678", 3);
+
+        // Assert
+        assertEquals(3, first.size());
+        assertEquals(first, second);
+        assertEquals(first, stickySelection(userIds, 1234, 3));
+        assertNotEquals(first, otherKey);
+        verifyNoInteractions(apiAccessor);
+    }
+
+    /**
+     * Removing a user only moves the keys that user had won, adding one only moves the keys it wins
+     */
+    @Test
+    @DisplayName("Should move a minimal number of keys when users change")
+    void testStickySelectionMinimalMovement() throws UserFilterException {
+        // Arrange
+        List<Long> userIds = userIds(100);
+        List<Long> withoutUser7 = new ArrayList<>(userIds);
+        withoutUser7.remove(Long.valueOf(7L));
+        List<Long> withUser101 = new ArrayList<>(userIds);
+        withUser101.add(101L);
+
+        // Act
+        int movedOnAdd = 0;
+        for (int key = 0; key < 2000; key++) {
+            Long before = stickySelection(userIds, key, 1).get(0);
+            Long afterRemove = stickySelection(withoutUser7, key, 1).get(0);
+            Long afterAdd = stickySelection(withUser101, key, 1).get(0);
+
+            // Assert
+            if (before != 7L) {
+                assertEquals(before, afterRemove, "Key " + key + " moved although its user was kept");
+            }
+            if (!before.equals(afterAdd)) {
+                assertEquals(101L, afterAdd, "Key " + key + " moved to an existing user");
+                movedOnAdd++;
+            }
+        }
+        // About 1 key out of 101 goes to the new user
+        assertTrue(movedOnAdd > 0 && movedOnAdd < 60, "Moved keys: " + movedOnAdd);
+    }
+
+    /**
+     * STICKY requires a sticky key
+     */
+    @Test
+    @DisplayName("Should fail validation of STICKY without a sticky key")
+    void testStickyWithoutKey() {
+        // Arrange
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Arrays.asList(1L, 2L));
+        filter.setParameter(MultipleUserIdsActorFilter.SELECTION_MODE_INPUT, "STICKY");
+        filter.setParameter(MultipleUserIdsActorFilter.STICKY_KEY_INPUT, " ");
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("stickyKey"));
+    }
+}
@@ -0,0 +1,185 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.bonitasoft.engine.filter.UserFilterException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the streaming forms of the 'usersList' input (Iterable, Iterator, Stream, LongStream, PagedUserIdSource).
+ */
+@DisplayName("Streaming Source Tests")
+class StreamingSourceTests {
+
+    private TestableMultipleUserIdsActorFilter filter;
+
+    /**
+     * Mock implementation of the filter that allows manual parameter injection.
+     */
+    private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
+        private final Map<String, Object> parameters = new HashMap<>();
+
+        void setParameter(String name, Object value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public Object getInputParameter(String parameterName) {
+            return parameters.get(parameterName);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        filter = new TestableMultipleUserIdsActorFilter();
+    }
+
+    /**
+     * Every streaming type is validated by type only and consumed by filter()
+     */
+    @Test
+    @DisplayName("Should accept Iterable, Iterator, Stream and LongStream sources")
+    void testStreamingTypes() throws Exception {
+        List<Long> expected = Arrays.asList(3L, 1L, 2L);
+        Iterable<Long> iterable = () -> expected.iterator();
+        Object[] sources = {iterable, expected.iterator(), expected.stream(), LongStream.of(3L, 1L, 2L)};
+
+        for (Object source : sources) {
+            // Arrange
+            filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, source);
+
+            // Act
+            filter.validateInputParameters();
+            List<Long> result = filter.filter("testActor");
+
+            // Assert
+            assertEquals(expected, result, "Source " + source.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Duplicates are skipped while reading, and the other steps still apply
+     */
+    @Test
+    @DisplayName("Should deduplicate a streaming source while reading it")
+    void testStreamingDeduplication() throws UserFilterException {
+        // Arrange - 1M IDs read, only 10 distinct
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, LongStream.range(0, 1_000_000).map(i -> 1 + i % 10));
+        filter.setParameter(MultipleUserIdsActorFilter.DEDUPLICATE_INPUT, true);
+        filter.setParameter(MultipleUserIdsActorFilter.EXCLUDED_USER_IDS_INPUT, Arrays.asList(5L));
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 6L, 7L, 8L, 9L, 10L), result);
+    }
+
+    /**
+     * A paged source is read page by page until a short page
+     */
+    @Test
+    @DisplayName("Should read a PagedUserIdSource page by page")
+    void testPagedSource() throws UserFilterException {
+        // Arrange - 1050 IDs, pages of 500
+        List<int[]> requests = new ArrayList<>();
+        PagedUserIdSource source = (startIndex, maxResults) -> {
+            requests.add(new int[]{startIndex, maxResults});
+            List<Long> page = new ArrayList<>();
+            for (long id = startIndex + 1; id <= Math.min(1050, startIndex + maxResults); id++) {
+                page.add(id);
+            }
+            return page;
+        };
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, source);
+
+        // Act
+        List<Long> result = filter.filter("testActor");
+
+        // Assert
+        assertEquals(1050, result.size());
+        assertEquals(Long.valueOf(1050L), result.get(1049));
+        assertEquals(3, requests.size());
+        assertArrayEquals(new int[]{1000, 500}, requests.get(2));
+    }
+
+    /**
+     * With TRUNCATE, the source is not read past the cap: no further page is requested, an endless stream ends
+     */
+    @Test
+    @DisplayName("Should stop reading a streaming source at the cap")
+    void testStreamingTruncate() throws UserFilterException {
+        // Arrange - pages of 500 from an endless source
+        List<int[]> requests = new ArrayList<>();
+        PagedUserIdSource source = (startIndex, maxResults) -> {
+            requests.add(new int[]{startIndex, maxResults});
+            List<Long> page = new ArrayList<>();
+            for (long id = startIndex + 1; id <= startIndex + maxResults; id++) {
+                page.add(id);
+            }
+            return page;
+        };
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, source);
+        filter.setParameter(MultipleUserIdsActorFilter.MAX_CANDIDATES_INPUT, 700);
+        filter.setParameter(MultipleUserIdsActorFilter.OVERFLOW_POLICY_INPUT, "TRUNCATE");
+
+        // Act
+        List<Long> paged = filter.filter("testActor");
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, LongStream.iterate(1L, id -> id + 1));
+        List<Long> streamed = filter.filter("testActor");
+
+        // Assert
+        assertEquals(700, paged.size());
+        assertEquals(Long.valueOf(700L), paged.get(699));
+        assertEquals(2, requests.size());
+        assertEquals(paged, streamed);
+    }
+
+    /**
+     * Streams are closed once consumed
+     */
+    @Test
+    @DisplayName("Should close a streaming source once consumed")
+    void testStreamIsClosed() throws UserFilterException {
+        // Arrange
+        AtomicBoolean closed = new AtomicBoolean();
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, Stream.of(1L, 2L).onClose(() -> closed.set(true)));
+
+        // Act
+        filter.filter("testActor");
+
+        // Assert
+        assertTrue(closed.get());
+    }
+
+    /**
+     * Invalid elements fail the filter with their position, an empty source fails like an empty list
+     */
+    @Test
+    @DisplayName("Should fail on an invalid element or an empty source")
+    void testInvalidStreamedElements() {
+        // Arrange
+        Iterator<Object> invalid = Arrays.<Object>asList(1L, 2L, "3").iterator();
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, invalid);
+
+        // Act & Assert
+        UserFilterException exception = assertThrows(UserFilterException.class, () -> filter.filter("testActor"));
+        assertTrue(exception.getCause().getMessage().contains("Found String at position 2"), exception.getCause().getMessage());
+
+        filter.setParameter(MultipleUserIdsActorFilter.USERS_LIST_INPUT, LongStream.empty());
+        exception = assertThrows(UserFilterException.class, () -> filter.filter("testActor"));
+        assertTrue(exception.getCause().getMessage().contains("cannot be empty"));
+    }
+}
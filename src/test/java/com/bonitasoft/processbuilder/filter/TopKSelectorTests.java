@@ -0,0 +1,75 @@
+package com.bonitasoft.processbuilder.filter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the bounded heap selecting the least loaded candidates.
+ */
+@DisplayName("TopKSelector Tests")
+class TopKSelectorTests {
+
+    /**
+     * The k lowest scores are returned, lowest first, ties by index
+     */
+    @Test
+    @DisplayName("Should select the k lowest scores in ascending order")
+    void testSelectSmallest() {
+        // Arrange
+        long[] scores = {5L, 1L, 3L, 1L, 0L, 7L};
+
+        // Act
+        int[] selected = TopKSelector.selectSmallest(scores, scores.length, 3);
+
+        // Assert - index 1 comes before index 3 (same score)
+        assertArrayEquals(new int[]{4, 1, 3}, selected);
+    }
+
+    /**
+     * k greater than the number of entries sorts them all
+     */
+    @Test
+    @DisplayName("Should return every entry when k exceeds the count")
+    void testKGreaterThanCount() {
+        // Arrange
+        long[] scores = {2L, 9L, 2L, 0L, 99L};
+
+        // Act
+        int[] selected = TopKSelector.selectSmallest(scores, 3, 10);
+
+        // Assert - only the first 3 scores are considered
+        assertArrayEquals(new int[]{0, 2, 1}, selected);
+    }
+
+    /**
+     * Same result as a full sort on random data
+     */
+    @Test
+    @DisplayName("Should match a full sort on random scores")
+    void testMatchesFullSort() {
+        // Arrange
+        SplittableRandom random = new SplittableRandom(7);
+        long[] scores = new long[10_000];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextInt(50);
+        }
+
+        for (int k : new int[]{1, 2, 17, 500}) {
+            // Act
+            int[] selected = TopKSelector.selectSmallest(scores, scores.length, k);
+
+            // Assert
+            int[] expected = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.<Integer>comparingLong(i -> scores[i]).thenComparingInt(i -> i))
+                .limit(k).mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(expected, selected, "k = " + k + ": " + Arrays.toString(selected));
+        }
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,17 +31,22 @@ class ValidationTests {
      */
     private static class TestableMultipleUserIdsActorFilter extends MultipleUserIdsActorFilter {
         private Object inputParameter;
+        private final Map<String, Object> options = new HashMap<>();
 
         void setStoredParameter(Object parameter) {
             this.inputParameter = parameter;
         }
 
+        void setOption(String name, Object value) {
+            options.put(name, value);
+        }
+
         @Override
         public Object getInputParameter(String parameterName) {
             if (USERS_LIST_INPUT.equals(parameterName)) {
                 return inputParameter;
             }
-            return null;
+            return options.get(parameterName);
         }
     }
 
@@ -240,6 +246,8 @@ class ValidationTests {
         );
         assertTrue(exception.getMessage().contains("Found a List with elements of type Integer"),
             "Error message should indicate wrong element type");
+        assertTrue(exception.getMessage().contains("a long[] or a String of encoded IDs"),
+            "Error message should list the accepted input types");
     }
 
     /**
@@ -310,4 +318,121 @@ class ValidationTests {
         assertTrue(exception.getMessage().contains("must be a List<Long>"),
             "Error message should specify List<Long> requirement");
     }
-}
\ No newline at end of file
+
+    // =========================================================================
+    // VALIDATION MODES
+    // =========================================================================
+
+    /**
+     * Default mode only checks the first element
+     */
+    @Test
+    @DisplayName("FIRST_ELEMENT mode should only check the first element")
+    void testFirstElementModeIgnoresOtherElements() {
+        // Arrange
+        List<Object> mixedList = Arrays.asList(1L, "2", null);
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(mixedList);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> filter.validateInputParameters(),
+            "Default mode only checks the first element");
+    }
+
+    /**
+     * FULL mode reports every invalid index in one error
+     */
+    @Test
+    @DisplayName("FULL mode should report every invalid index")
+    void testFullModeReportsEveryInvalidIndex() {
+        // Arrange
+        List<Object> mixedList = Arrays.asList(1L, "2", null, 4L, 5);
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(mixedList);
+        ((TestableMultipleUserIdsActorFilter) filter).setOption(MultipleUserIdsActorFilter.VALIDATION_MODE_INPUT, "FULL");
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("must be a List<Long>"));
+        assertTrue(exception.getMessage().contains("Found 3 invalid element(s)"),
+            "Error message should count every invalid element: " + exception.getMessage());
+        assertTrue(exception.getMessage().contains("1 (String), 2 (null), 4 (Integer)"),
+            "Error message should list every invalid index: " + exception.getMessage());
+    }
+
+    /**
+     * FULL mode on a non random access list
+     */
+    @Test
+    @DisplayName("FULL mode should scan a LinkedList")
+    void testFullModeWithLinkedList() {
+        // Arrange
+        LinkedList<Object> linkedList = new LinkedList<>(Arrays.asList(1L, 2L, "3"));
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(linkedList);
+        ((TestableMultipleUserIdsActorFilter) filter).setOption(MultipleUserIdsActorFilter.VALIDATION_MODE_INPUT, "full");
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("2 (String)"));
+    }
+
+    /**
+     * FULL mode accepts a valid list
+     */
+    @Test
+    @DisplayName("FULL mode should pass with a valid List<Long>")
+    void testFullModeValidList() {
+        // Arrange
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(Arrays.asList(1L, 2L, 3L));
+        ((TestableMultipleUserIdsActorFilter) filter).setOption(MultipleUserIdsActorFilter.VALIDATION_MODE_INPUT, ValidationMode.FULL);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> filter.validateInputParameters());
+    }
+
+    /**
+     * SAMPLED mode always checks the last element
+     */
+    @Test
+    @DisplayName("SAMPLED mode should detect an invalid last element")
+    void testSampledModeChecksLastElement() {
+        // Arrange
+        List<Object> list = new ArrayList<>();
+        for (long i = 0; i < 10000; i++) {
+            list.add(i);
+        }
+        list.set(9999, "last");
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(list);
+        ((TestableMultipleUserIdsActorFilter) filter).setOption(MultipleUserIdsActorFilter.VALIDATION_MODE_INPUT, "SAMPLED");
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("9999 (String)"));
+    }
+
+    /**
+     * Unknown validation mode
+     */
+    @Test
+    @DisplayName("Should fail validation with an unknown validation mode")
+    void testUnknownValidationMode() {
+        // Arrange
+        ((TestableMultipleUserIdsActorFilter) filter).setStoredParameter(Arrays.asList(1L));
+        ((TestableMultipleUserIdsActorFilter) filter).setOption(MultipleUserIdsActorFilter.VALIDATION_MODE_INPUT, "EVERYTHING");
+
+        // Act & Assert
+        ConnectorValidationException exception = assertThrows(
+            ConnectorValidationException.class,
+            () -> filter.validateInputParameters()
+        );
+        assertTrue(exception.getMessage().contains("validationMode"));
+        assertTrue(exception.getMessage().contains("EVERYTHING"));
+    }
+}
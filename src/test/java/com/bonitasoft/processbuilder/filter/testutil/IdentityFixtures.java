@@ -0,0 +1,109 @@
+package com.bonitasoft.processbuilder.filter.testutil;
+
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.LongPredicate;
+
+import org.bonitasoft.engine.identity.User;
+import org.bonitasoft.engine.search.SearchFilterOperation;
+import org.bonitasoft.engine.search.SearchOptions;
+import org.bonitasoft.engine.search.SearchResult;
+import org.bonitasoft.engine.search.impl.SearchFilter;
+
+/**
+ * Mocked {@link User} and {@link SearchResult} fixtures answering the IdentityAPI calls of the filter tests.
+ */
+public final class IdentityFixtures {
+
+    private IdentityFixtures() {
+        throw new UnsupportedOperationException("This is a test utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Creates a mocked enabled user.
+     */
+    public static User user(long id) {
+        return user(id, true);
+    }
+
+    /**
+     * Creates a mocked user, enabled or not.
+     */
+    public static User user(long id, boolean enabled) {
+        User user = mock(User.class);
+        lenient().when(user.getId()).thenReturn(id);
+        lenient().when(user.isEnabled()).thenReturn(enabled);
+        return user;
+    }
+
+    /**
+     * Creates a lightweight user only answering getId(), cheaper than a mock for large searches.
+     */
+    public static User lightweightUser(long id) {
+        return (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{User.class},
+            (proxy, method, args) -> "getId".equals(method.getName()) ? id : null);
+    }
+
+    /**
+     * Answers identityAPI.getUsers(ids): the users accepted by {@code exists}, enabled when accepted by {@code enabled}.
+     */
+    public static Map<Long, User> usersById(Collection<Long> ids, LongPredicate exists, LongPredicate enabled) {
+        Map<Long, User> users = new HashMap<>();
+        for (Long id : ids) {
+            if (exists.test(id)) {
+                users.put(id, user(id, enabled.test(id)));
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Creates a single-page search result of the given users.
+     */
+    @SuppressWarnings("unchecked")
+    public static SearchResult<User> searchResult(List<User> users) {
+        SearchResult<User> result = mock(SearchResult.class);
+        lenient().when(result.getResult()).thenReturn(users);
+        return result;
+    }
+
+    /**
+     * Creates a single-page search result of enabled users with the given IDs.
+     */
+    public static SearchResult<User> searchResult(long... ids) {
+        List<User> users = new ArrayList<>();
+        for (long id : ids) {
+            users.add(user(id));
+        }
+        return searchResult(users);
+    }
+
+    /**
+     * Answers identityAPI.searchUsers(options) with the page of {@code ids} the options ask for: the distinct IDs
+     * greater than the one of the greater-than filter, in ascending order, up to the maximum number of results.
+     */
+    public static SearchResult<User> keysetPage(SearchOptions options, Collection<Long> ids) {
+        long afterId = Long.MIN_VALUE;
+        for (SearchFilter searchFilter : options.getFilters()) {
+            if (searchFilter.getOperation() == SearchFilterOperation.GREATER_THAN) {
+                afterId = ((Number) searchFilter.getValue()).longValue();
+            }
+        }
+        List<User> page = new ArrayList<>();
+        for (Long id : new TreeSet<>(ids).tailSet(afterId, false)) {
+            if (page.size() == options.getMaxResults()) {
+                break;
+            }
+            page.add(lightweightUser(id));
+        }
+        return searchResult(page);
+    }
+}